@@ -0,0 +1,133 @@
+//Adaptive cooling of one annealing run. Temperature falls geometrically within bands of bandSweepCount sweeps, and each band cools deviationCoolingFactor * T / sigma times as fast as at coolingRate for the cost standard deviation sigma
+//of the previous band, at least as fast as at coolingRate and at most maximumCoolingMultiple times as fast. Bands far above the temperature scale of cost changes, and bands accepting nothing, cool fastest. Once the best cost has not improved for convergenceSweepCount sweeps in bands accepting less than
+//frozenAcceptanceRate of moves, temperature is raised to reheatTemperatureMultiple times the temperature of the last improvement, or the run stops after maximumReheatCount reheats.
+public class AdaptiveCoolingSchedule {
+    private final double initialTemp;
+    private final double finalTemp;
+    private final int bandSweepCount;
+    private final double deviationCoolingFactor;
+    private final double maximumCoolingMultiple;
+    private final double bandLogCooling; //logarithm of band cooling at coolingRate
+    private final double frozenAcceptanceRate;
+    private final int convergenceSweepCount;
+    private final int maximumReheatCount;
+    private final double reheatTemperatureMultiple;
+
+    //Current temperature and cooling per sweep
+    private double temp;
+    private double sweepCooling;
+
+    //Current band
+    private int bandSweep = 0;
+    private double bandMeanCost = 0;
+    private double bandSquaredDeviationSum = 0; //Welford sum of squared deviations from band mean cost
+    private long bandStartProposedMoveCount;
+    private long bandStartAcceptedMoveCount;
+
+    //Convergence
+    private double bestCost;
+    private double bestTemp;
+    private int sweepCount = 0;
+    private int frozenSweepsWithoutImprovement = 0;
+    private int bandSweepsSinceImprovement = 0;
+    private int reheatCount = 0;
+    private boolean isConverged = false;
+
+    public AdaptiveCoolingSchedule(SimAnnealingSearch search, double initialCost) {
+        this.initialTemp = search.initialTemp;
+        this.finalTemp = search.finalTemp;
+        this.bandSweepCount = search.bandSweepCount;
+        this.deviationCoolingFactor = search.deviationCoolingFactor;
+        this.maximumCoolingMultiple = search.maximumCoolingMultiple;
+        this.bandLogCooling = search.bandSweepCount * Math.log(search.coolingRate);
+        this.frozenAcceptanceRate = search.frozenAcceptanceRate;
+        this.convergenceSweepCount = search.convergenceSweepCount;
+        this.maximumReheatCount = search.maximumReheatCount;
+        this.reheatTemperatureMultiple = search.reheatTemperatureMultiple;
+        this.temp = initialTemp;
+        this.sweepCooling = search.coolingRate;
+        this.bestCost = initialCost;
+        this.bestTemp = initialTemp;
+    }
+
+    //Records cost and move counts of configuration after a sweep at current temperature and moves to temperature of next sweep. Returns whether this sweep improved the best cost, so that the caller can keep the configuration.
+    public boolean recordSweep(double cost, long proposedMoveCount, long acceptedMoveCount) {
+        if (bandSweep == 0) {
+            bandStartProposedMoveCount = proposedMoveCount;
+            bandStartAcceptedMoveCount = acceptedMoveCount;
+        }
+        sweepCount += 1;
+        bandSweep += 1;
+        double deviation = cost - bandMeanCost;
+        bandMeanCost += deviation / bandSweep;
+        bandSquaredDeviationSum += deviation * (cost - bandMeanCost);
+
+        //Best cost over all sweeps, with temperature of the sweep reaching it
+        boolean isImproved = cost < bestCost;
+        if (isImproved) {
+            bestCost = cost;
+            bestTemp = temp;
+            frozenSweepsWithoutImprovement = 0;
+            bandSweepsSinceImprovement = 0;
+        } else {
+            bandSweepsSinceImprovement += 1;
+        }
+        temp *= sweepCooling;
+        if (bandSweep < bandSweepCount) {
+            return isImproved;
+        }
+
+        //End of band
+        long bandProposedMoveCount = proposedMoveCount - bandStartProposedMoveCount;
+        double acceptanceRate = bandProposedMoveCount == 0 ? 0 : (acceptedMoveCount - bandStartAcceptedMoveCount) / (double) bandProposedMoveCount;
+        double costDeviation = Math.sqrt(bandSquaredDeviationSum / bandSweep);
+        if (acceptanceRate < frozenAcceptanceRate) {
+            frozenSweepsWithoutImprovement += bandSweepsSinceImprovement;
+        }
+
+        //Cooling of next band, fastest when cost did not vary
+        double coolingMultiple = costDeviation > 0 ? Math.min(Math.max(deviationCoolingFactor * temp / costDeviation, 1), maximumCoolingMultiple) : maximumCoolingMultiple;
+        sweepCooling = Math.exp(coolingMultiple * bandLogCooling / bandSweepCount);
+
+        //Reheat or stop once converged at low temperature
+        if (frozenSweepsWithoutImprovement >= convergenceSweepCount) {
+            if (reheatCount < maximumReheatCount) {
+                reheatCount += 1;
+                temp = Math.min(Math.max(temp, bestTemp) * reheatTemperatureMultiple, initialTemp);
+                sweepCooling = Math.exp(bandLogCooling / bandSweepCount);
+                frozenSweepsWithoutImprovement = 0;
+                System.out.println("Reheating to temperature " + temp + " after " + sweepCount + " sweeps at best cost " + bestCost); //development only
+            } else {
+                isConverged = true;
+                System.out.println("Converged after " + sweepCount + " sweeps and " + reheatCount + " reheats at best cost " + bestCost); //development only
+            }
+        }
+
+        bandSweep = 0;
+        bandMeanCost = 0;
+        bandSquaredDeviationSum = 0;
+        bandSweepsSinceImprovement = 0;
+        return isImproved;
+    }
+
+    //Whether run has converged or reached finalTemp
+    public boolean isFinished() {
+        return isConverged || temp <= finalTemp;
+    }
+
+    public double getTemp() {
+        return temp;
+    }
+
+    public int getSweepCount() {
+        return sweepCount;
+    }
+
+    public int getReheatCount() {
+        return reheatCount;
+    }
+
+    public boolean isConverged() {
+        return isConverged;
+    }
+}
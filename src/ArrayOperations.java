@@ -1,13 +1,11 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
 
 public class ArrayOperations {
     //Shuffles an array of integers
-    public static void shuffleIntegerArray(int[] array)
+    public static void shuffleIntegerArray(int[] array, Random random)
     {
-        Random random = ThreadLocalRandom.current();
         for (int i = array.length - 1; i > 0; i--)
         {
             int index = random.nextInt(i + 1);
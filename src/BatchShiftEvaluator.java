@@ -0,0 +1,60 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+//Evaluates a batch of candidate shifts of one level in parallel, each worker evaluating whole moves on its own copy of the assignment.
+//Moves of a batch are evaluated against the same sites, so the caller applies Metropolis acceptance in order and discards the remainder of the batch after an accepted shift.
+//Copies are kept identical to the assignment by applying every accepted shift to each of them.
+public class BatchShiftEvaluator {
+    private final SiteAssignment[] replicas; //replicas[0] is the assignment of the configuration
+    private final ExecutorService executor;
+    private final double[] levelCosts;
+
+    public BatchShiftEvaluator(SiteAssignment assignment, int workerCount, ExecutorService executor) {
+        this.replicas = new SiteAssignment[workerCount];
+        replicas[0] = assignment;
+        for (int worker = 1; worker < workerCount; worker++) {
+            replicas[worker] = new SiteAssignment(assignment);
+        }
+        this.executor = executor;
+        this.levelCosts = new double[workerCount];
+    }
+
+    //Level cost after each shift of newSites[i] into positions[i] for i < moveCount, each evaluated independently of the others. Pending moves are discarded.
+    public double[] evaluateShifts(int[] positions, int[] newSites, int moveCount) {
+        if (moveCount > replicas.length) {
+            throw new IllegalArgumentException("Batch of " + moveCount + " moves exceeds " + replicas.length + " workers.");
+        }
+        if (moveCount == 1) {
+            levelCosts[0] = replicas[0].evaluateShift(positions[0], newSites[0]);
+            replicas[0].discardMove();
+            return levelCosts;
+        }
+        List<Runnable> tasks = new ArrayList<>(moveCount);
+        for (int i = 0; i < moveCount; i++) {
+            int finalI = i;
+            tasks.add(() -> {
+                levelCosts[finalI] = replicas[finalI].evaluateShift(positions[finalI], newSites[finalI]);
+                replicas[finalI].discardMove();
+            });
+        }
+        MultithreadingUtils.runAll(tasks, executor);
+        return levelCosts;
+    }
+
+    //Applies shift of newSite into position to the assignment and all of its copies
+    public void commitShift(int position, int newSite) {
+        List<Runnable> tasks = new ArrayList<>(replicas.length);
+        for (SiteAssignment replica : replicas) {
+            tasks.add(() -> {
+                replica.evaluateShift(position, newSite);
+                replica.commitMove();
+            });
+        }
+        MultithreadingUtils.runAll(tasks, executor);
+    }
+
+    public int getWorkerCount() {
+        return replicas.length;
+    }
+}
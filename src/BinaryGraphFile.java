@@ -0,0 +1,151 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+//Compact binary travel matrix. Header followed by row-major (origin, site) travel costs, little-endian.
+public final class BinaryGraphFile {
+    private BinaryGraphFile(){}
+
+    public static final int MAGIC = 0x4C4F4347; //"LOCG"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 64;
+    public static final int DOUBLE_ELEMENTS = 0;
+
+    //Converts *_graph.csv to binary graph file, e.g. alberta2021_graph.csv -> alberta2021_graph.bin
+    public static void main(String[] args) throws IOException {
+        String graphLocation = "M:\\Optimization Project Alpha\\alberta2021_graph.csv";
+        convertCSV(graphLocation, graphLocation.replace(".csv", ".bin"));
+    }
+
+    //Streams CSV into binary file row by row so that the full matrix is never held in memory
+    public static void convertCSV(String csvLocation, String binaryLocation) throws IOException {
+        System.out.println("Converting " + csvLocation + " to " + binaryLocation);
+        int originCount = FileUtils.getOriginCount(csvLocation);
+        int sitesCount = FileUtils.getSitesCount(csvLocation);
+        try (BufferedReader reader = new BufferedReader(new FileReader(csvLocation));
+             FileChannel channel = FileChannel.open(Paths.get(binaryLocation), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(createHeader(originCount, sitesCount));
+            ByteBuffer rowBuffer = ByteBuffer.allocate(sitesCount * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            String currentLine;
+            int originCounter = 0;
+            reader.readLine(); //skip first line
+            while ((currentLine = reader.readLine()) != null) {
+                String[] values = currentLine.split(",");
+                rowBuffer.clear();
+                for (int i = 1; i < values.length; i++) {
+                    rowBuffer.putDouble(Double.parseDouble(values[i]));
+                }
+                rowBuffer.flip();
+                while (rowBuffer.hasRemaining()) {
+                    channel.write(rowBuffer);
+                }
+                originCounter += 1;
+            }
+            if (originCounter != originCount) {
+                throw new IOException("Expected " + originCount + " origins in " + csvLocation + " but read " + originCounter + ".");
+            }
+        }
+        System.out.println("Done converting " + csvLocation);
+    }
+
+    //Writes an existing graph to binary file
+    public static void write(Graph graph, String binaryLocation) throws IOException {
+        int originCount = graph.getOriginCount();
+        int sitesCount = graph.getTotalSitesCount();
+        try (FileChannel channel = FileChannel.open(Paths.get(binaryLocation), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(createHeader(originCount, sitesCount));
+            ByteBuffer rowBuffer = ByteBuffer.allocate(sitesCount * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int origin = 0; origin < originCount; origin++) {
+                rowBuffer.clear();
+                for (int site = 0; site < sitesCount; site++) {
+                    rowBuffer.putDouble(graph.getEdgeLength(origin, site));
+                }
+                rowBuffer.flip();
+                while (rowBuffer.hasRemaining()) {
+                    channel.write(rowBuffer);
+                }
+            }
+        }
+    }
+
+    //Variant of write for graphs held as 2D array
+    public static void write(double[][] graphArray, String binaryLocation) throws IOException {
+        int originCount = graphArray.length;
+        int sitesCount = graphArray[0].length;
+        try (FileChannel channel = FileChannel.open(Paths.get(binaryLocation), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(createHeader(originCount, sitesCount));
+            ByteBuffer rowBuffer = ByteBuffer.allocate(sitesCount * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int origin = 0; origin < originCount; origin++) {
+                rowBuffer.clear();
+                rowBuffer.asDoubleBuffer().put(graphArray[origin]);
+                while (rowBuffer.hasRemaining()) {
+                    channel.write(rowBuffer);
+                }
+            }
+        }
+    }
+
+    //Sites count from header of binary graph file
+    public static int getSitesCount(String binaryLocation) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(binaryLocation), StandardOpenOption.READ)) {
+            return readHeader(channel, binaryLocation).getSitesCount();
+        }
+    }
+
+    //Reads header of binary graph file
+    public static Header readHeader(FileChannel channel, String binaryLocation) throws IOException {
+        ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (headerBuffer.hasRemaining()) {
+            if (channel.read(headerBuffer, headerBuffer.position()) == -1) {
+                throw new IOException(binaryLocation + " is too short to be a binary graph file.");
+            }
+        }
+        headerBuffer.flip();
+        if (headerBuffer.getInt() != MAGIC) {
+            throw new IOException(binaryLocation + " is not a binary graph file.");
+        }
+        int version = headerBuffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary graph version " + version + " in " + binaryLocation + ".");
+        }
+        Header header = new Header(headerBuffer.getInt(), headerBuffer.getInt(), headerBuffer.getInt());
+        if (header.getElementType() != DOUBLE_ELEMENTS) {
+            throw new IOException("Unsupported element type " + header.getElementType() + " in " + binaryLocation + ", only doubles are supported.");
+        }
+        long expectedSize = HEADER_BYTES + (long) header.getOriginCount() * header.getSitesCount() * Double.BYTES;
+        if (channel.size() < expectedSize) {
+            throw new IOException(binaryLocation + " is truncated, expected " + expectedSize + " bytes but found " + channel.size() + ".");
+        }
+        return header;
+    }
+
+    public static boolean isBinaryGraph(String graphLocation) {
+        return graphLocation.endsWith(".bin");
+    }
+
+    private static ByteBuffer createHeader(int originCount, int sitesCount) {
+        ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        headerBuffer.putInt(MAGIC);
+        headerBuffer.putInt(VERSION);
+        headerBuffer.putInt(originCount);
+        headerBuffer.putInt(sitesCount);
+        headerBuffer.putInt(DOUBLE_ELEMENTS);
+        headerBuffer.clear();
+        return headerBuffer;
+    }
+
+    public record Header(int originCount, int sitesCount, int elementType) {
+        public int getOriginCount() {
+            return originCount;
+        }
+        public int getSitesCount() {
+            return sitesCount;
+        }
+        public int getElementType() {
+            return elementType;
+        }
+    }
+}
@@ -1,21 +1,64 @@
 public class CaseCounts {
+    //TIMEPOINT_MAJOR stores timepoint * originCount + origin, ORIGIN_MAJOR stores origin * timepointCount + timepoint so that all timepoints of an origin are contiguous
+    public enum Layout {TIMEPOINT_MAJOR, ORIGIN_MAJOR}
+
     public double[] caseCountByOrigin; //Does not have to be static
     public int originCount; //Does not have to be static
+    private int timepointStride;
+    private int originStride;
+    private Layout layout = Layout.TIMEPOINT_MAJOR;
 
     //Stores 2D array as 1D array for speed.
-    //This does impose a size limit of timepointCount * originCount <= 2.147 billion. If exceeded, revert to 2D array.
+    //This does impose a size limit of timepointCount * originCount <= 2.147 billion. If exceeded, use SegmentedCaseCounts via create.
     public CaseCounts(double[][] caseCountByTimeAndOrigin) {
+        this(caseCountByTimeAndOrigin, Layout.TIMEPOINT_MAJOR);
+    }
+
+    public CaseCounts(double[][] caseCountByTimeAndOrigin, Layout layout) {
         int timepointCount = caseCountByTimeAndOrigin.length;
         this.originCount = caseCountByTimeAndOrigin[0].length;
+        this.layout = layout;
+        this.timepointStride = layout == Layout.TIMEPOINT_MAJOR ? originCount : 1;
+        this.originStride = layout == Layout.TIMEPOINT_MAJOR ? 1 : timepointCount;
         this.caseCountByOrigin = new double[timepointCount * originCount];
         for (int timepoint = 0; timepoint < timepointCount; timepoint++) {
             for (int origin = 0; origin < originCount; origin++) {
-                caseCountByOrigin[timepoint * originCount + origin] = caseCountByTimeAndOrigin[timepoint][origin];
+                caseCountByOrigin[timepoint * timepointStride + origin * originStride] = caseCountByTimeAndOrigin[timepoint][origin];
             }
         }
     }
 
+    //For case counts that are not backed by a single array
+    protected CaseCounts(int originCount) {
+        this.originCount = originCount;
+    }
+
+    //Uses layout preferred by cost kernels
+    public static CaseCounts create(double[][] caseCountByTimeAndOrigin) {
+        return create(caseCountByTimeAndOrigin, preferredLayout(caseCountByTimeAndOrigin.length));
+    }
+
+    public static CaseCounts create(double[][] caseCountByTimeAndOrigin, Layout layout) {
+        if ((long) caseCountByTimeAndOrigin.length * caseCountByTimeAndOrigin[0].length > Graph.MAXIMUM_ARRAY_LENGTH) {
+            return new SegmentedCaseCounts(caseCountByTimeAndOrigin);
+        }
+        return new CaseCounts(caseCountByTimeAndOrigin, layout);
+    }
+
+    //Cost kernels (CasesAndCostMap.updateCasesAndCost, SiteAssignment) read every timepoint of one origin at a time, so origin-major keeps those reads contiguous. Both layouts are identical for one timepoint.
+    public static Layout preferredLayout(int timepointCount) {
+        return timepointCount > 1 ? Layout.ORIGIN_MAJOR : Layout.TIMEPOINT_MAJOR;
+    }
+
     public double getCaseCount(int timepoint, int origin) {
-        return caseCountByOrigin[timepoint * originCount + origin];
+        return caseCountByOrigin[timepoint * timepointStride + origin * originStride];
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    public double getTotalCaseCount() {
+        return ArrayOperations.sumDoubleArray(caseCountByOrigin);
     }
-}
\ No newline at end of file
+}
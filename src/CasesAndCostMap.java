@@ -1,66 +1,76 @@
-//A map of (timepoint, site) -> CasesAndCost
-//Using 1D array to improve performance
+import java.util.Arrays;
+
+//A map of (timepoint, site) -> cases and cost
+//Using 1D primitive arrays (timepoint * siteCount + position) so that updates accumulate in place without allocation
 public class CasesAndCostMap {
-    private CasesAndCost[] casesAndCostMapWithTime;
+    private double[] casesWithTime; //replaced only by reset to a larger size
+    private double[] costWithTime;
     private int timepointCount;
     private int siteCount;
 
     //Constructs a map from (timepoint, position) -> number of expected cases and total travel cost
     public CasesAndCostMap(int timepointCount, int siteCount) {
-        CasesAndCost initialCasesCost = new CasesAndCost(0.0, 0.0);
-        this.casesAndCostMapWithTime = new CasesAndCost[timepointCount * siteCount];
-        for (int timepoint = 0; timepoint < timepointCount; timepoint++) {
-            for (int position = 0; position < siteCount; ++position) {
-                casesAndCostMapWithTime[timepoint * siteCount + position] = initialCasesCost;
-            }
-        }
+        this.casesWithTime = new double[timepointCount * siteCount];
+        this.costWithTime = new double[timepointCount * siteCount];
         this.timepointCount = timepointCount;
         this.siteCount = siteCount;
     }
 
     //Combine partitioned maps into a single map
     public CasesAndCostMap(CasesAndCostMap[] partitionedMap, int timepointCount, int siteCount, int taskCount) {
-        this.casesAndCostMapWithTime = new CasesAndCost[timepointCount * siteCount]; //Map from centre to (cases, minimum travel cost)
-        this.timepointCount = timepointCount;
-        this.siteCount = siteCount;
-        for (int timepoint = 0; timepoint < timepointCount; timepoint++) {
-            for (int position = 0; position < siteCount; position++) {
-                double positionCaseCount = partitionedMap[0].getCases(timepoint, position);
-                double positionCost = partitionedMap[0].getCost(timepoint, position);
-                for (int i = 1; i < taskCount; i++) {
-                    positionCaseCount += partitionedMap[i].getCases(timepoint, position);
-                    positionCost += partitionedMap[i].getCost(timepoint, position);
-                }
-                setCasesAndCost(timepoint, position, new CasesAndCost(positionCaseCount, positionCost));
-            }
+        this(timepointCount, siteCount);
+        for (int i = 0; i < taskCount; i++) {
+            add(partitionedMap[i]);
         }
     }
 
     //Constructs a map from (timepoint, position) -> number of expected cases and total travel cost
     public CasesAndCostMap() {
-        this.casesAndCostMapWithTime = new CasesAndCost[0];
+        this(0, 0);
+    }
+
+    //Empties map for reuse with given timepoints and sites, reallocating only if it is too small
+    public void reset(int timepointCount, int siteCount) {
+        int length = timepointCount * siteCount;
+        if (casesWithTime.length < length) {
+            casesWithTime = new double[length];
+            costWithTime = new double[length];
+        } else {
+            Arrays.fill(casesWithTime, 0, length, 0);
+            Arrays.fill(costWithTime, 0, length, 0);
+        }
+        this.timepointCount = timepointCount;
+        this.siteCount = siteCount;
+    }
+
+    //Adds cases and cost of a map with the same timepoints and sites
+    public void add(CasesAndCostMap partitionMap) {
+        for (int index = 0; index < timepointCount * siteCount; index++) {
+            casesWithTime[index] += partitionMap.casesWithTime[index];
+            costWithTime[index] += partitionMap.costWithTime[index];
+        }
     }
 
     public void updateCasesAndCost(int minimumCostPosition, double minimumTravelCost, int origin, CaseCounts caseCountByOrigin) {
         for (int timepoint = 0; timepoint < timepointCount; timepoint++) {
             double currentCaseCount = caseCountByOrigin.getCaseCount(timepoint, origin);
-            double centerCaseCount = getCases(timepoint, minimumCostPosition) + currentCaseCount; //Add new case count to total case count at center
-            double centerCost = getCost(timepoint, minimumCostPosition) + (minimumTravelCost * currentCaseCount); //Add new travel cost multiplied by case count to total travel cost at center
-            CasesAndCost minimumCasesCost = new CasesAndCost(centerCaseCount, centerCost);
-            setCasesAndCost(timepoint, minimumCostPosition, minimumCasesCost);
+            int index = timepoint * siteCount + minimumCostPosition;
+            casesWithTime[index] += currentCaseCount; //Add new case count to total case count at center
+            costWithTime[index] += minimumTravelCost * currentCaseCount; //Add new travel cost multiplied by case count to total travel cost at center
         }
     }
 
     public double getCases(int timepoint, int position) {
-        return casesAndCostMapWithTime[timepoint * siteCount + position].getCases();
+        return casesWithTime[timepoint * siteCount + position];
     }
 
     public double getCost(int timepoint, int position) {
-        return casesAndCostMapWithTime[timepoint * siteCount + position].getCost();
+        return costWithTime[timepoint * siteCount + position];
     }
 
-    public void setCasesAndCost(int timepoint, int position, CasesAndCost casesAndCost) {
-        casesAndCostMapWithTime[timepoint * siteCount + position] = casesAndCost;
+    public void setCasesAndCost(int timepoint, int position, double cases, double cost) {
+        casesWithTime[timepoint * siteCount + position] = cases;
+        costWithTime[timepoint * siteCount + position] = cost;
     }
 
     public int getTimepointCount() {
@@ -70,4 +80,4 @@ public class CasesAndCostMap {
     public int getSiteCount() {
         return siteCount;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+//Closest site kernels over in-memory graph arrays, for implementations outside the default source set such as VectorClosestSites, see SearchSpaceOptions.useVectorKernel.
+//Ties go to the lowest position as in the scalar kernels of Graph.
+public interface ClosestSitesKernel {
+    //Fewest sites for which findClosestPosition is worth using over the scalar kernel
+    int getLaneCount();
+
+    //Position in sites of closest site to origin in a row-major graph array, with the row of origin starting at rowOffset
+    int findClosestPosition(double[] graphArray, int rowOffset, int[] sites);
+
+    //Closest position in sites and its travel cost for origins in [startingOrigin, endingOrigin) from a site-major graph array, using the same range of caller-owned scratch by origin
+    void findClosestSites(double[] siteMajorGraphArray, int originCount, int[] sites, int startingOrigin, int endingOrigin, int[] positionByOrigin, double[] costByOrigin, double[] positionScratchByOrigin);
+}
@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+//Closest position arrays, cost arrays by origin and cases and cost maps for reuse by cost kernels, so that once a search holds enough buffers, evaluating, accepting and rejecting moves does not allocate.
+//Buffers may be borrowed and released from any thread. A released buffer must no longer be referenced by its previous owner.
+public class CostBufferPool {
+    private int[][] positionArrays = new int[8][];
+    private int positionArrayCount;
+    private double[][] costArrays = new double[8][];
+    private int costArrayCount;
+    private CasesAndCostMap[] costMaps = new CasesAndCostMap[8];
+    private int costMapCount;
+
+    //Array for closest position by origin, contents undefined
+    public synchronized int[] borrowPositions(int originCount) {
+        while (positionArrayCount > 0) {
+            int[] positions = positionArrays[--positionArrayCount];
+            positionArrays[positionArrayCount] = null;
+            if (positions.length == originCount) {
+                return positions;
+            }
+        }
+        return new int[originCount];
+    }
+
+    //Array of costs or other doubles by origin, contents undefined
+    public synchronized double[] borrowCosts(int originCount) {
+        while (costArrayCount > 0) {
+            double[] costs = costArrays[--costArrayCount];
+            costArrays[costArrayCount] = null;
+            if (costs.length == originCount) {
+                return costs;
+            }
+        }
+        return new double[originCount];
+    }
+
+    //Empty map
+    public synchronized CasesAndCostMap borrowCostMap(int timepointCount, int siteCount) {
+        if (costMapCount == 0) {
+            return new CasesAndCostMap(timepointCount, siteCount);
+        }
+        CasesAndCostMap costMap = costMaps[--costMapCount];
+        costMaps[costMapCount] = null;
+        costMap.reset(timepointCount, siteCount);
+        return costMap;
+    }
+
+    public synchronized void release(int[] positions) {
+        if (positions == null) {
+            return;
+        }
+        if (positionArrayCount == positionArrays.length) {
+            positionArrays = Arrays.copyOf(positionArrays, 2 * positionArrayCount);
+        }
+        positionArrays[positionArrayCount++] = positions;
+    }
+
+    public synchronized void release(double[] costs) {
+        if (costs == null) {
+            return;
+        }
+        if (costArrayCount == costArrays.length) {
+            costArrays = Arrays.copyOf(costArrays, 2 * costArrayCount);
+        }
+        costArrays[costArrayCount++] = costs;
+    }
+
+    public synchronized void release(CasesAndCostMap costMap) {
+        if (costMap == null) {
+            return;
+        }
+        if (costMapCount == costMaps.length) {
+            costMaps = Arrays.copyOf(costMaps, 2 * costMapCount);
+        }
+        costMaps[costMapCount++] = costMap;
+    }
+}
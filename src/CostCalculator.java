@@ -2,6 +2,8 @@ import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleUnaryOperator;
 
 public final class CostCalculator {
     //Calculates cost from hashmap centre -> (cases, minimum travel cost)
@@ -25,32 +27,42 @@ public final class CostCalculator {
         return totalCost;
     }
 
-    //Calculates cost from hashmap centre -> (cases, minimum travel cost) for multiple levels
-    public static double computeCost(CasesAndCostMap[] minimumCostMapByLevel, List<List<Integer>> sitesByLevel, double[] minimumCasesByLevel, double[] servicedProportionByLevel, double[] timepointWeights) {
+    //Calculates cost from hashmap centre -> (cases, minimum travel cost) for multiple levels, with volumePenalty of each open site as in SearchSpaceOptions, null for none
+    public static double computeCost(CasesAndCostMap[] minimumCostMapByLevel, List<List<Integer>> sitesByLevel, double[] minimumCasesByLevel, double[] servicedProportionByLevel, double[] timepointWeights, DoubleUnaryOperator volumePenalty) {
         double totalCost = 0;
         for (int t = 0; t < timepointWeights.length; t++) {
-            totalCost += computeTimeSpecificCost(minimumCostMapByLevel, sitesByLevel, minimumCasesByLevel, servicedProportionByLevel, t) * timepointWeights[t];
+            totalCost += computeTimeSpecificCost(minimumCostMapByLevel, sitesByLevel, minimumCasesByLevel, servicedProportionByLevel, t, volumePenalty) * timepointWeights[t];
         }
         return totalCost;
     }
 
     //Multithreaded compute cost when there are numerous time points
-    public static double computeCost(CasesAndCostMap[] minimumCostMapByLevel, List<List<Integer>> sitesByLevel, double[] minimumCasesByLevel, double[] servicedProportionByLevel, int timepointCount, double[] timepointWeights, ExecutorService executor) {
+    public static double computeCost(CasesAndCostMap[] minimumCostMapByLevel, List<List<Integer>> sitesByLevel, double[] minimumCasesByLevel, double[] servicedProportionByLevel, int timepointCount, double[] timepointWeights, DoubleUnaryOperator volumePenalty,
+                                     ExecutorService executor) {
         if (timepointWeights.length == 1) {
-            return computeTimeSpecificCost(minimumCostMapByLevel, sitesByLevel, minimumCasesByLevel, servicedProportionByLevel, 0);
+            return computeTimeSpecificCost(minimumCostMapByLevel, sitesByLevel, minimumCasesByLevel, servicedProportionByLevel, 0, volumePenalty);
         } else if (timepointWeights.length < 6) {
             double totalCost = 0;
             for (int t = 0; t < timepointWeights.length; t++) {
-                totalCost += computeTimeSpecificCost(minimumCostMapByLevel, sitesByLevel, minimumCasesByLevel, servicedProportionByLevel, t) * timepointWeights[t];
+                totalCost += computeTimeSpecificCost(minimumCostMapByLevel, sitesByLevel, minimumCasesByLevel, servicedProportionByLevel, t, volumePenalty) * timepointWeights[t];
             }
             return totalCost;
+        } else if (executor instanceof ForkJoinPool forkJoinPool) {
+            double[] costByTimepoint = new double[timepointWeights.length];
+            List<Runnable> tasks = new ArrayList<>();
+            for (int t = 0; t < timepointWeights.length; t++) {
+                int finalT = t;
+                tasks.add(() -> costByTimepoint[finalT] = computeTimeSpecificCost(minimumCostMapByLevel, sitesByLevel, minimumCasesByLevel, servicedProportionByLevel, finalT, volumePenalty) * timepointWeights[finalT]);
+            }
+            MultithreadingUtils.invokeAll(tasks, forkJoinPool);
+            return ArrayOperations.sumDoubleArray(costByTimepoint);
         } else {
             CountDownLatch latch = new CountDownLatch(timepointWeights.length);
             double[] costByTimepoint = new double[timepointWeights.length];
             for (int t = 0; t < timepointWeights.length; t++) {
                 int finalT = t;
                 executor.execute(() -> {
-                    costByTimepoint[finalT] = computeTimeSpecificCost(minimumCostMapByLevel, sitesByLevel, minimumCasesByLevel, servicedProportionByLevel, finalT) * timepointWeights[finalT];
+                    costByTimepoint[finalT] = computeTimeSpecificCost(minimumCostMapByLevel, sitesByLevel, minimumCasesByLevel, servicedProportionByLevel, finalT, volumePenalty) * timepointWeights[finalT];
                     latch.countDown();
                 });
             }
@@ -64,7 +76,7 @@ public final class CostCalculator {
     }
 
     //Compute cost for one specific timepoint
-    public static double computeTimeSpecificCost(CasesAndCostMap[] minimumCostMapByLevel, List<List<Integer>> sitesByLevel, double[] minimumCasesByLevel, double[] servicedProportionByLevel, int timepoint) {
+    public static double computeTimeSpecificCost(CasesAndCostMap[] minimumCostMapByLevel, List<List<Integer>> sitesByLevel, double[] minimumCasesByLevel, double[] servicedProportionByLevel, int timepoint, DoubleUnaryOperator volumePenalty) {
         double totalCost = 0;
 
         //Compute costs specific to each timepoint and level
@@ -77,7 +89,7 @@ public final class CostCalculator {
         }
 
         //Adjust for volume seen at each center
-        totalCost += computeTimeSpecificVolumePenalty(minimumCostMapByLevel, sitesByLevel, timepoint);
+        totalCost += computeTimeSpecificVolumePenalty(minimumCostMapByLevel, sitesByLevel, timepoint, volumePenalty);
 
         return totalCost;
     }
@@ -104,6 +116,38 @@ public final class CostCalculator {
         return totalCost * servicedProportion;
     }
 
+    //Sum over timepoints of weighted case count by origin, so that weighted travel cost of an origin is travel cost times a single number
+    public static double[] computeWeightedCaseCounts(CaseCounts caseCountByOrigin, int originCount, int timepointCount, double[] timepointWeights) {
+        double[] weightedCaseCountByOrigin = new double[originCount];
+        for (int origin = 0; origin < originCount; origin++) {
+            for (int timepoint = 0; timepoint < timepointCount; timepoint++) {
+                weightedCaseCountByOrigin[origin] += caseCountByOrigin.getCaseCount(timepoint, origin) * timepointWeights[timepoint];
+            }
+        }
+        return weightedCaseCountByOrigin;
+    }
+
+    //Weighted cost of one position over all timepoints, not adjusted by serviced proportion. Equals the sum of levelSpecificCost weighted by timepoint for non-negative cases,
+    //as travel cost is linear in cases and only the minimum cases penalty needs case totals by timepoint, laid out as position * timepointCount + timepoint starting at offset.
+    public static double computePositionCost(double weightedCost, double[] casesByPositionAndTime, int offset, int timepointCount, double minimumCases, double[] timepointWeights) {
+        if (minimumCases == 0) {
+            return weightedCost;
+        }
+        double positionCost = weightedCost;
+        for (int timepoint = 0; timepoint < timepointCount; timepoint++) {
+            positionCost += minimumCasesPenalty(casesByPositionAndTime[offset + timepoint], minimumCases) * timepointWeights[timepoint];
+        }
+        return positionCost;
+    }
+
+    //Part of levelSpecificCost beyond travel cost
+    public static double minimumCasesPenalty(double cases, double minimumCases) {
+        if (cases == 0 || minimumCases == 0 || cases > minimumCases) {
+            return 0;
+        }
+        return 100 * (minimumCases - cases);
+    }
+
     //Cost penalty function depending on amount of cases for the particular service seen at cancer center. Examples include additive constant (extra cost to administer each center) or multiplicative piecewise to prefer bigger centers.
     public static double levelSpecificCost(double cases, double cost, double minimumCases) {
         if (cases == 0) {
@@ -119,34 +163,40 @@ public final class CostCalculator {
         }
     }
 
-    //Takes into account all levels
-    public static double computeTimeSpecificVolumePenalty(CasesAndCostMap[] minimumCostMapByLevel, List<List<Integer>> sitesByLevel, int timepoint) {
-        //Adjust cost by center accounting for all services
-        Set<Integer> allSites = new HashSet<>();
+    //Takes into account all levels. Cases of every site are summed over levels in one pass, each level contributing to the site at each of its positions.
+    public static double computeTimeSpecificVolumePenalty(CasesAndCostMap[] minimumCostMapByLevel, List<List<Integer>> sitesByLevel, int timepoint, DoubleUnaryOperator volumePenalty) {
+        if (volumePenalty == null) {
+            return 0;
+        }
+        int siteBound = 0;
+        for (List<Integer> sites : sitesByLevel) {
+            for (int site : sites) {
+                siteBound = Math.max(siteBound, site + 1);
+            }
+        }
+        double[] allLevelCasesBySite = new double[siteBound];
+        boolean[] isOpenSite = new boolean[siteBound];
         for (int level = 0; level < sitesByLevel.size(); level++) {
-            allSites.addAll(sitesByLevel.get(level));
-        }
-
-        double volumePenalty = 0;
-        //Compute total number of cases of all levels by site
-        for (Integer site : allSites) {
-            double allLevelCases = 0;
-            for (int level = 0; level < sitesByLevel.size(); level++) {
-                if (minimumCostMapByLevel[level] == null) {
-                    continue; //no sites in level
-                } else {
-                    for (int position = 0; position < minimumCostMapByLevel[level].getSiteCount(); position++) {
-                        //System.out.println("Sites part 2 " + sitesByLevel + " and map " + Arrays.toString(minimumCostMapByLevel.getLevel(level).getTimeSpecificMap(timepoint)) + " for level " + level);
-                        if (site == sitesByLevel.get(level).get(position)) {
-                            allLevelCases += minimumCostMapByLevel[level].getCases(timepoint, position);
-                        }
-                    }
+            List<Integer> sites = sitesByLevel.get(level);
+            for (int position = 0; position < sites.size(); position++) {
+                int site = sites.get(position);
+                isOpenSite[site] = true;
+                if (minimumCostMapByLevel[level] != null) {
+                    allLevelCasesBySite[site] += minimumCostMapByLevel[level].getCases(timepoint, position);
                 }
             }
-            if (allLevelCases < 10000) {
-                volumePenalty += 0; //should be non-negative
+        }
+        double totalVolumePenalty = 0;
+        for (int site = 0; site < siteBound; site++) {
+            if (isOpenSite[site]) {
+                totalVolumePenalty += volumePenalty.applyAsDouble(allLevelCasesBySite[site]);
             }
         }
-        return volumePenalty;
+        return totalVolumePenalty;
+    }
+
+    //Penalty of costPerMissingCase for each case below threshold that a site sees over all levels, e.g. thresholdVolumePenalty(10000, 100)
+    public static DoubleUnaryOperator thresholdVolumePenalty(double threshold, double costPerMissingCase) {
+        return allLevelCases -> allLevelCases < threshold ? costPerMissingCase * (threshold - allLevelCases) : 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+//Fast interchange local search for the sites of one level (Whitaker, with the gain/loss/extra tables of Resende and Werneck).
+//One pass over origins gives, for case weighted travel cost, the gain of opening every candidate site, the loss of closing every open site and the correction for each (closed, opened) pair, so that every swap is priced at once.
+//Travel cost is linear in cases but the minimum cases penalty is not, so the best priced swaps are evaluated exactly with SiteAssignment and the best exact improvement is applied.
+public class FastSwapSearch {
+    public static int candidateSwapCount = 8; //best priced swaps evaluated exactly per iteration
+
+    private final SiteAssignment assignment;
+    private final Graph graphArray;
+    private final SortedSitesIndex sortedSitesIndex;
+    private final int originCount;
+    private final int totalSitesCount;
+    private final double[] weightByOrigin; //time weighted case count
+
+    //Tables, by site for opening and by position for closing
+    private final double[] gainBySite;
+    private double[] lossByPosition = new double[0];
+    private double[] extraByPositionAndSite = new double[0]; //position * totalSitesCount + site
+
+    //Best priced swaps, best first
+    private final int[] candidatePositions = new int[candidateSwapCount];
+    private final int[] candidateSites = new int[candidateSwapCount];
+    private final double[] candidateProfits = new double[candidateSwapCount];
+
+    public FastSwapSearch(SiteAssignment assignment, Graph graphArray) {
+        this.assignment = assignment;
+        this.graphArray = graphArray;
+        this.sortedSitesIndex = graphArray.getSortedSitesIndex();
+        this.originCount = graphArray.getOriginCount();
+        this.totalSitesCount = graphArray.getTotalSitesCount();
+        this.weightByOrigin = assignment.getWeightedCaseCounts();
+        this.gainBySite = new double[totalSitesCount];
+    }
+
+    //Applies best improving swaps until none improves level cost or maximumSwapCount is reached. Only sites marked closable may be closed and openable may be opened. Returns number of swaps.
+    public int improve(boolean[] isClosableSite, boolean[] isOpenableSite, int maximumSwapCount) {
+        int swapCount = 0;
+        while (swapCount < maximumSwapCount && findBestSwap(isClosableSite, isOpenableSite)) {
+            assignment.commitMove();
+            swapCount += 1;
+        }
+        return swapCount;
+    }
+
+    //Leaves best exactly improving swap pending in assignment and returns true, or returns false if no priced swap improves level cost
+    public boolean findBestSwap(boolean[] isClosableSite, boolean[] isOpenableSite) {
+        List<Integer> sites = assignment.getSites();
+        if (sites.isEmpty()) return false;
+        computeTables(sites, isClosableSite, isOpenableSite);
+        selectCandidateSwaps(sites, isClosableSite, isOpenableSite);
+
+        //Exact cost of best priced swaps
+        double currentLevelCost = assignment.getLevelCost();
+        double bestLevelCost = currentLevelCost - 1e-9 * Math.abs(currentLevelCost);
+        int bestCandidate = -1;
+        for (int i = 0; i < candidatePositions.length && candidatePositions[i] != -1; i++) {
+            double levelCost = assignment.evaluateShift(candidatePositions[i], candidateSites[i]);
+            if (levelCost < bestLevelCost) {
+                bestLevelCost = levelCost;
+                bestCandidate = i;
+            }
+        }
+        if (bestCandidate == -1) {
+            assignment.discardMove();
+            return false;
+        }
+        assignment.evaluateShift(candidatePositions[bestCandidate], candidateSites[bestCandidate]);
+        return true;
+    }
+
+    //Gain of opening site j, loss of closing position i and extra for closing i while opening j, so that profit of swap (i, j) is gain[j] - loss[i] + extra[i][j]
+    private void computeTables(List<Integer> sites, boolean[] isClosableSite, boolean[] isOpenableSite) {
+        int siteCount = sites.size();
+        if (lossByPosition.length < siteCount) {
+            lossByPosition = new double[siteCount];
+            extraByPositionAndSite = new double[siteCount * totalSitesCount];
+        }
+        Arrays.fill(gainBySite, 0);
+        Arrays.fill(lossByPosition, 0);
+        Arrays.fill(extraByPositionAndSite, 0, siteCount * totalSitesCount, 0);
+        int[] positionByOrigin = assignment.getPositions();
+        for (int origin = 0; origin < originCount; origin++) {
+            double weight = weightByOrigin[origin];
+            if (weight == 0) continue;
+            int position = positionByOrigin[origin];
+            boolean isClosable = isClosableSite[sites.get(position)];
+            double travelCost = assignment.getTravelCost(origin);
+            double secondTravelCost = assignment.getSecondTravelCost(origin);
+            int extraOffset = position * totalSitesCount;
+
+            //Only site, closing it moves origin to opened site. Checked by second site since a graph may have infinite travel costs.
+            if (assignment.getSecondSite(origin) == -1) {
+                for (int site = 0; site < totalSitesCount; site++) {
+                    if (!isOpenableSite[site]) continue;
+                    double siteCost = graphArray.getEdgeLength(origin, site);
+                    if (siteCost < travelCost) {
+                        gainBySite[site] += weight * (travelCost - siteCost);
+                    } else if (isClosable) {
+                        extraByPositionAndSite[extraOffset + site] -= weight * (siteCost - travelCost);
+                    }
+                }
+                continue;
+            }
+
+            if (isClosable) {
+                lossByPosition[position] += weight * (secondTravelCost - travelCost);
+            }
+
+            //Sites closer than second closest site, from index if it reaches second closest site
+            if (sortedSitesIndex != null && sortedSitesIndex.getLastIndexedCost(origin, graphArray) >= secondTravelCost) {
+                for (int rank = 0; rank < sortedSitesIndex.getDepth(); rank++) {
+                    int site = sortedSitesIndex.getSite(origin, rank);
+                    double siteCost = graphArray.getEdgeLength(origin, site);
+                    if (siteCost >= secondTravelCost) break;
+                    addCloserSite(site, siteCost, weight, travelCost, secondTravelCost, isClosable, extraOffset, isOpenableSite);
+                }
+            } else {
+                for (int site = 0; site < totalSitesCount; site++) {
+                    double siteCost = graphArray.getEdgeLength(origin, site);
+                    if (siteCost < secondTravelCost) {
+                        addCloserSite(site, siteCost, weight, travelCost, secondTravelCost, isClosable, extraOffset, isOpenableSite);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addCloserSite(int site, double siteCost, double weight, double travelCost, double secondTravelCost, boolean isClosable, int extraOffset, boolean[] isOpenableSite) {
+        if (!isOpenableSite[site]) return;
+        if (siteCost < travelCost) {
+            gainBySite[site] += weight * (travelCost - siteCost);
+        }
+        if (isClosable) {
+            extraByPositionAndSite[extraOffset + site] += weight * (secondTravelCost - Math.max(siteCost, travelCost));
+        }
+    }
+
+    //Keeps candidateSwapCount most profitable swaps by travel cost, unused entries have position -1
+    private void selectCandidateSwaps(List<Integer> sites, boolean[] isClosableSite, boolean[] isOpenableSite) {
+        Arrays.fill(candidatePositions, -1);
+        Arrays.fill(candidateProfits, Double.NEGATIVE_INFINITY);
+        for (int position = 0; position < sites.size(); position++) {
+            if (!isClosableSite[sites.get(position)]) continue;
+            int extraOffset = position * totalSitesCount;
+            for (int site = 0; site < totalSitesCount; site++) {
+                if (!isOpenableSite[site]) continue;
+                double profit = gainBySite[site] - lossByPosition[position] + extraByPositionAndSite[extraOffset + site];
+                if (profit <= candidateProfits[candidateProfits.length - 1]) continue;
+                int rank = candidateProfits.length - 1;
+                while (rank > 0 && profit > candidateProfits[rank - 1]) {
+                    candidateProfits[rank] = candidateProfits[rank - 1];
+                    candidatePositions[rank] = candidatePositions[rank - 1];
+                    candidateSites[rank] = candidateSites[rank - 1];
+                    rank -= 1;
+                }
+                candidateProfits[rank] = profit;
+                candidatePositions[rank] = position;
+                candidateSites[rank] = site;
+            }
+        }
+    }
+
+    //Standalone solver, multistart swap search from random configurations keeping the lowest cost
+    public static LeveledSiteConfiguration leveledOptimizeCenters(List<Integer> potentialSites, int startCount, int maximumSwapCount, SearchSpace searchParameters, Random random, int taskCount, ExecutorService executor) {
+        LeveledSiteConfiguration bestConfiguration = null;
+        for (int start = 0; start < startCount; start++) {
+            LeveledSiteConfiguration configuration = new LeveledSiteConfiguration(potentialSites, searchParameters, random, taskCount, executor);
+            double initialCost = configuration.getCost();
+            int swapCount = configuration.polishWithSwaps(searchParameters, maximumSwapCount);
+            System.out.println("Start " + start + " improved from " + initialCost + " to " + configuration.getCost() + " in " + swapCount + " swaps at sites " + configuration.getSitesByLevel());
+            if (bestConfiguration == null || configuration.getCost() < bestConfiguration.getCost()) {
+                bestConfiguration = configuration;
+            }
+        }
+        return bestConfiguration;
+    }
+
+    //Standalone solver without levels
+    public static SiteConfiguration optimizeNCenters(int centerCount, List<Integer> potentialSites, int startCount, int maximumSwapCount, SearchSpace searchParameters, Random random, int taskCount, ExecutorService executor) {
+        SiteConfiguration bestConfiguration = null;
+        for (int start = 0; start < startCount; start++) {
+            SiteConfiguration configuration = new SiteConfiguration(centerCount, centerCount, potentialSites, searchParameters, random, taskCount, executor);
+            double initialCost = configuration.getCost();
+            int swapCount = configuration.polishWithSwaps(searchParameters, maximumSwapCount);
+            System.out.println("Start " + start + " improved from " + initialCost + " to " + configuration.getCost() + " in " + swapCount + " swaps at sites " + configuration.getSites());
+            if (bestConfiguration == null || configuration.getCost() < bestConfiguration.getCost()) {
+                bestConfiguration = configuration;
+            }
+        }
+        return bestConfiguration;
+    }
+}
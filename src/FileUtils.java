@@ -1,15 +1,26 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 
 public final class FileUtils {
     private FileUtils(){}
 
+    private static final long MAXIMUM_CHUNK_BYTES = 1L << 28; //256 MB per mapped chunk
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
     //Find number of origins based on graph location
     public static int getOriginCount(String graphLocation) {
         InputStream inputStream;
@@ -143,6 +154,238 @@ public final class FileUtils {
         return innerDoubleArray;
     }
 
+    //Single pass parallel variant of getInnerDoubleArrayFromCSV. File is split into byte ranges aligned to lines that are parsed concurrently without creating Strings.
+    //Dimensions are learned in the same pass, sites from the header and origins from the rows found.
+    public static double[][] getInnerDoubleArrayFromCSV(String fileLocation, int taskCount, ExecutorService executor) {
+        return reduceRowsOfCSV(fileLocation, false, row -> row, taskCount, executor).toArray(new double[0][]);
+    }
+
+    //Single pass parallel variant of getInnerAzimuthArrayFromCSV, reclassifies N/A as -1 to denote identical origin and site
+    public static double[][] getInnerAzimuthArrayFromCSV(String fileLocation, int taskCount, ExecutorService executor) {
+        return reduceRowsOfCSV(fileLocation, true, row -> row, taskCount, executor).toArray(new double[0][]);
+    }
+
+    //Reduces each row of CSV, less identifier column, as soon as it is parsed so that the full matrix need not be held in memory. Output is in file order.
+    //Rows passed to rowReducer are newly allocated and may be kept.
+    public static <T> List<T> reduceRowsOfCSV(String fileLocation, boolean isNotAvailableAllowed, RowReducer<T> rowReducer, int taskCount, ExecutorService executor) {
+        System.out.println("Importing " + fileLocation + " into memory.");
+        try (FileChannel channel = FileChannel.open(Paths.get(fileLocation), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+
+            //Header gives site count
+            long[] headerInfo = scanHeader(channel, fileSize);
+            long dataStart = headerInfo[0];
+            int siteCount = (int) headerInfo[1];
+
+            //Split remaining file into line aligned chunks of at most MAXIMUM_CHUNK_BYTES
+            int chunkCount = (int) Math.max(taskCount, (fileSize - dataStart + MAXIMUM_CHUNK_BYTES - 1) / MAXIMUM_CHUNK_BYTES);
+            long[] chunkStarts = getLineAlignedChunkStarts(channel, dataStart, fileSize, chunkCount);
+
+            //Parse chunks concurrently
+            CountDownLatch latch = new CountDownLatch(chunkCount);
+            List<List<T>> rowsByChunk = new ArrayList<>(Collections.nCopies(chunkCount, null));
+            AtomicReference<Exception> chunkException = new AtomicReference<>();
+            for (int i = 0; i < chunkCount; i++) {
+                int finalI = i;
+                executor.execute(() -> {
+                    try {
+                        long chunkSize = chunkStarts[finalI + 1] - chunkStarts[finalI];
+                        if (chunkSize == 0) {
+                            rowsByChunk.set(finalI, new ArrayList<>());
+                        } else {
+                            ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStarts[finalI], chunkSize);
+                            rowsByChunk.set(finalI, parseRows(chunk, siteCount, isNotAvailableAllowed, rowReducer));
+                        }
+                    } catch (Exception e) {
+                        chunkException.compareAndSet(null, e);
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError("Unexpected interruption", e);
+            }
+            if (chunkException.get() != null) {
+                throw chunkException.get();
+            }
+
+            //Stitch rows in file order
+            List<T> reducedRows = new ArrayList<>();
+            for (List<T> chunkRows : rowsByChunk) {
+                reducedRows.addAll(chunkRows);
+            }
+            System.out.println("Done importing " + fileLocation + " with " + reducedRows.size() + " origins and " + siteCount + " sites.");
+            return reducedRows;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not import " + fileLocation, e);
+        }
+    }
+
+    //Applied to each parsed row by reduceRowsOfCSV, may be called concurrently
+    public interface RowReducer<T> {
+        T reduce(double[] row);
+    }
+
+    //Returns {start of first data line, number of columns less identifier column}
+    private static long[] scanHeader(FileChannel channel, long fileSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(65536);
+        long position = 0;
+        long commaCount = 0;
+        while (position < fileSize) {
+            buffer.clear();
+            int readBytes = channel.read(buffer, position);
+            if (readBytes <= 0) break;
+            for (int i = 0; i < readBytes; i++) {
+                byte currentByte = buffer.get(i);
+                if (currentByte == '\n') {
+                    return new long[]{position + i + 1, commaCount};
+                } else if (currentByte == ',') {
+                    commaCount += 1;
+                }
+            }
+            position += readBytes;
+        }
+        return new long[]{fileSize, commaCount};
+    }
+
+    //Chunk i covers [chunkStarts[i], chunkStarts[i + 1]), every boundary is moved forward to the start of the next line
+    private static long[] getLineAlignedChunkStarts(FileChannel channel, long dataStart, long fileSize, int chunkCount) throws IOException {
+        long[] chunkStarts = new long[chunkCount + 1];
+        chunkStarts[0] = dataStart;
+        chunkStarts[chunkCount] = fileSize;
+        long nominalChunkSize = (fileSize - dataStart) / chunkCount;
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (int i = 1; i < chunkCount; i++) {
+            long position = Math.max(dataStart + nominalChunkSize * i, chunkStarts[i - 1]);
+            long lineStart = fileSize;
+            while (position < fileSize && lineStart == fileSize) {
+                buffer.clear();
+                int readBytes = channel.read(buffer, position - 1);
+                if (readBytes <= 0) break;
+                for (int j = 0; j < readBytes; j++) {
+                    if (buffer.get(j) == '\n') {
+                        lineStart = position + j;
+                        break;
+                    }
+                }
+                position += readBytes;
+            }
+            chunkStarts[i] = lineStart;
+        }
+        return chunkStarts;
+    }
+
+    //Parses every complete line in chunk, skipping identifier in first column
+    private static <T> List<T> parseRows(ByteBuffer chunk, int siteCount, boolean isNotAvailableAllowed, RowReducer<T> rowReducer) {
+        List<T> rows = new ArrayList<>();
+        int limit = chunk.limit();
+        int position = 0;
+        while (position < limit) {
+            //Skip blank lines
+            byte currentByte = chunk.get(position);
+            if (currentByte == '\n' || currentByte == '\r') {
+                position += 1;
+                continue;
+            }
+
+            //Skip identifier
+            while (position < limit && chunk.get(position) != ',' && chunk.get(position) != '\n') {
+                position += 1;
+            }
+
+            //Parse values
+            double[] row = new double[siteCount];
+            int column = 0;
+            while (position < limit && chunk.get(position) == ',') {
+                position += 1;
+                int fieldStart = position;
+                while (position < limit) {
+                    currentByte = chunk.get(position);
+                    if (currentByte == ',' || currentByte == '\n' || currentByte == '\r') break;
+                    position += 1;
+                }
+                if (column == siteCount) {
+                    throw new IllegalArgumentException("Row " + (rows.size() + 1) + " of chunk has more than " + siteCount + " values.");
+                }
+                row[column] = parseDouble(chunk, fieldStart, position, isNotAvailableAllowed);
+                column += 1;
+            }
+            if (column != siteCount) {
+                throw new IllegalArgumentException("Row " + (rows.size() + 1) + " of chunk has " + column + " values but header has " + siteCount + " sites.");
+            }
+            while (position < limit && chunk.get(position) != '\n') {
+                position += 1;
+            }
+            position += 1;
+            rows.add(rowReducer.reduce(row));
+        }
+        return rows;
+    }
+
+    //Parses decimal number in bytes [start, end). Numbers with at most 15 significant digits and small exponents are exact as double arithmetic (Clinger fast path), otherwise defers to Double.parseDouble.
+    private static double parseDouble(ByteBuffer chunk, int start, int end, boolean isNotAvailableAllowed) {
+        int position = start;
+        boolean isNegative = false;
+        if (position < end && (chunk.get(position) == '-' || chunk.get(position) == '+')) {
+            isNegative = chunk.get(position) == '-';
+            position += 1;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        while (position < end && chunk.get(position) >= '0' && chunk.get(position) <= '9') {
+            mantissa = mantissa * 10 + (chunk.get(position) - '0');
+            if (mantissa != 0) significantDigits += 1;
+            if (significantDigits > 15) break;
+            hasDigits = true;
+            position += 1;
+        }
+        if (position < end && chunk.get(position) == '.' && significantDigits <= 15) {
+            position += 1;
+            while (position < end && chunk.get(position) >= '0' && chunk.get(position) <= '9') {
+                mantissa = mantissa * 10 + (chunk.get(position) - '0');
+                if (mantissa != 0) significantDigits += 1;
+                if (significantDigits > 15) break;
+                exponent -= 1;
+                hasDigits = true;
+                position += 1;
+            }
+        }
+        if (position < end && (chunk.get(position) == 'e' || chunk.get(position) == 'E') && hasDigits && significantDigits <= 15) {
+            position += 1;
+            boolean isExponentNegative = false;
+            if (position < end && (chunk.get(position) == '-' || chunk.get(position) == '+')) {
+                isExponentNegative = chunk.get(position) == '-';
+                position += 1;
+            }
+            int explicitExponent = 0;
+            int exponentStart = position;
+            while (position < end && chunk.get(position) >= '0' && chunk.get(position) <= '9' && explicitExponent < 1000) {
+                explicitExponent = explicitExponent * 10 + (chunk.get(position) - '0');
+                position += 1;
+            }
+            if (position == exponentStart) hasDigits = false;
+            exponent += isExponentNegative ? -explicitExponent : explicitExponent;
+        }
+        if (position == end && hasDigits && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            return isNegative ? -value : value;
+        }
+
+        //Slow path for long, unusual or non-numeric values
+        byte[] fieldBytes = new byte[end - start];
+        chunk.get(start, fieldBytes);
+        String field = new String(fieldBytes, StandardCharsets.US_ASCII).trim();
+        if (isNotAvailableAllowed && field.equals("N/A")) {
+            return -1.0;
+        }
+        return Double.parseDouble(field);
+    }
+
     //Extract case counts from CSV with column heading
     public static double[][] getCaseCountsFromCSV(String fileLocation, String caseCountColumnHeading, int originCount) {
         System.out.println("Importing case counts into memory.");
@@ -175,6 +418,34 @@ public final class FileUtils {
         return caseCounts;
     }
 
+    //Extract latitude and longitude of each row of sites CSV, e.g. _potential_sites.csv, as {latitudes, longitudes}
+    public static double[][] getCoordinatesFromCSV(String fileLocation) {
+        System.out.println("Importing site coordinates into memory.");
+        List<Double> latitudes = new ArrayList<>();
+        List<Double> longitudes = new ArrayList<>();
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(fileLocation));
+            List<String> headings = Arrays.asList(reader.readLine().split(","));
+            int latitudeIndex = findColumnIndex(headings, "Latitude");
+            int longitudeIndex = findColumnIndex(headings, "Longitude");
+            String currentLine;
+            while ((currentLine = reader.readLine()) != null) {
+                String[] values = currentLine.split(",");
+                latitudes.add(Double.valueOf(values[latitudeIndex]));
+                longitudes.add(Double.valueOf(values[longitudeIndex]));
+            }
+            reader.close();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not read site coordinates from " + fileLocation, e);
+        }
+        double[][] coordinates = new double[2][latitudes.size()];
+        for (int i = 0; i < latitudes.size(); i++) {
+            coordinates[0][i] = latitudes.get(i);
+            coordinates[1][i] = longitudes.get(i);
+        }
+        return coordinates;
+    }
+
     //Parses CSV file into array
     public static List<List<String>> parseCSV(String fileLocation) {
         BufferedReader reader;
@@ -0,0 +1,61 @@
+//Graph stored as float32, halving memory use. Travel costs in minutes or kilometres keep ~7 significant digits.
+public class FloatGraph extends Graph {
+    private final float[] floatGraphArray;
+    private float[] siteMajorFloatGraphArray;
+
+    public FloatGraph(double[][] twoDimensionalGraphArray) {
+        super(twoDimensionalGraphArray.length, twoDimensionalGraphArray[0].length);
+        this.floatGraphArray = new float[originCount * totalSitesCount];
+        double maximumError = 0;
+        for (int origin = 0; origin < originCount; origin++) {
+            for (int site = 0; site < totalSitesCount; site++) {
+                float storedValue = (float) twoDimensionalGraphArray[origin][site];
+                floatGraphArray[origin * totalSitesCount + site] = storedValue;
+                maximumError = Math.max(maximumError, Math.abs(storedValue - twoDimensionalGraphArray[origin][site]));
+            }
+        }
+        System.out.println("Stored graph as float32 with maximum error " + maximumError + ".");
+    }
+
+    public FloatGraph(Graph sourceGraph) {
+        super(sourceGraph.getOriginCount(), sourceGraph.getTotalSitesCount());
+        this.floatGraphArray = new float[originCount * totalSitesCount];
+        double maximumError = 0;
+        for (int origin = 0; origin < originCount; origin++) {
+            for (int site = 0; site < totalSitesCount; site++) {
+                double sourceValue = sourceGraph.getEdgeLength(origin, site);
+                float storedValue = (float) sourceValue;
+                floatGraphArray[origin * totalSitesCount + site] = storedValue;
+                maximumError = Math.max(maximumError, Math.abs(storedValue - sourceValue));
+            }
+        }
+        System.out.println("Stored graph as float32 with maximum error " + maximumError + ".");
+    }
+
+    //Compute travel distance from origin to destination (site)
+    @Override
+    public double getEdgeLength(int origin, int destination) {
+        return floatGraphArray[origin * totalSitesCount + destination];
+    }
+
+    @Override
+    public double getEdgeLengthFromSite(int site, int origin) {
+        if (siteMajorFloatGraphArray != null) {
+            return siteMajorFloatGraphArray[site * originCount + origin];
+        }
+        return floatGraphArray[origin * totalSitesCount + site];
+    }
+
+    //Transposed copy kept as float32 to preserve memory savings
+    @Override
+    public void createSiteMajorCopy() {
+        float[] transposedGraphArray = new float[originCount * totalSitesCount];
+        forEachEdgeInTransposeTiles((origin, site) -> transposedGraphArray[site * originCount + origin] = floatGraphArray[origin * totalSitesCount + site]);
+        this.siteMajorFloatGraphArray = transposedGraphArray;
+    }
+
+    @Override
+    public boolean hasSiteMajorCopy() {
+        return siteMajorFloatGraphArray != null;
+    }
+}
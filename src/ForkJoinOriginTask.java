@@ -0,0 +1,83 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//Evaluates an origin range on a fork-join pool. The range is halved while few tasks are queued for idle workers to steal, otherwise evaluated in chunks of grainSize origins,
+//so that ranges needing full rescans are split further than ranges with only O(1) updates. Each worker keeps one accumulator for all chunks it evaluates in an evaluation, whichever tasks they belong to,
+//and accumulators of workers are merged once the whole range is evaluated.
+public class ForkJoinOriginTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    public static int minimumGrainSize = 64; //fewest origins evaluated as one chunk
+    private static final int SURPLUS_QUEUED_TASK_THRESHOLD = 3; //split only while the worker has at most this many more queued tasks than others may steal
+    private static final int CHUNKS_PER_WORKER = 8;
+
+    private final OriginRangeKernel kernel;
+    private final int startingOrigin;
+    private final int endingOrigin;
+    private final int grainSize;
+    private final int timepointCount;
+    private final int siteCount;
+    private final Map<Thread, CasesAndCostMap> accumulatorByWorker; //shared by all tasks of one evaluation
+    private final CostBufferPool bufferPool; //source of accumulators, null to allocate them
+
+    private ForkJoinOriginTask(OriginRangeKernel kernel, int startingOrigin, int endingOrigin, int grainSize, int timepointCount, int siteCount, Map<Thread, CasesAndCostMap> accumulatorByWorker, CostBufferPool bufferPool) {
+        this.kernel = kernel;
+        this.startingOrigin = startingOrigin;
+        this.endingOrigin = endingOrigin;
+        this.grainSize = grainSize;
+        this.timepointCount = timepointCount;
+        this.siteCount = siteCount;
+        this.accumulatorByWorker = accumulatorByWorker;
+        this.bufferPool = bufferPool;
+    }
+
+    //Combined map of kernel over [0, originCount). Runs in the calling worker if already in pool, so nested evaluations help rather than block.
+    //Accumulators of other workers are released to bufferPool after merging if it is not null.
+    public static CasesAndCostMap evaluate(OriginRangeKernel kernel, int originCount, int timepointCount, int siteCount, ForkJoinPool pool, CostBufferPool bufferPool) {
+        int grainSize = Math.max(minimumGrainSize, originCount / (CHUNKS_PER_WORKER * pool.getParallelism()));
+        Map<Thread, CasesAndCostMap> accumulatorByWorker = new ConcurrentHashMap<>();
+        MultithreadingUtils.invoke(new ForkJoinOriginTask(kernel, 0, originCount, grainSize, timepointCount, siteCount, accumulatorByWorker, bufferPool), pool);
+
+        //Combined into accumulator of one worker so that no further map is allocated
+        CasesAndCostMap combinedMinimumCostMap = null;
+        for (CasesAndCostMap accumulator : accumulatorByWorker.values()) {
+            if (combinedMinimumCostMap == null) {
+                combinedMinimumCostMap = accumulator;
+            } else {
+                combinedMinimumCostMap.add(accumulator);
+                if (bufferPool != null) {
+                    bufferPool.release(accumulator);
+                }
+            }
+        }
+        return combinedMinimumCostMap;
+    }
+
+    @Override
+    protected void compute() {
+        CasesAndCostMap accumulator = accumulatorByWorker.computeIfAbsent(Thread.currentThread(), worker -> bufferPool == null ? new CasesAndCostMap(timepointCount, siteCount) : bufferPool.borrowCostMap(timepointCount, siteCount));
+        List<ForkJoinOriginTask> forkedTasks = new ArrayList<>();
+        int start = startingOrigin;
+        int end = endingOrigin;
+        while (start < end) {
+            if (end - start > 2 * grainSize && getSurplusQueuedTaskCount() <= SURPLUS_QUEUED_TASK_THRESHOLD) {
+                int middle = (start + end) >>> 1;
+                ForkJoinOriginTask upperHalf = new ForkJoinOriginTask(kernel, middle, end, grainSize, timepointCount, siteCount, accumulatorByWorker, bufferPool);
+                upperHalf.fork();
+                forkedTasks.add(upperHalf);
+                end = middle;
+            } else {
+                int chunkEnd = Math.min(end, start + grainSize);
+                kernel.evaluate(start, chunkEnd, accumulator);
+                start = chunkEnd;
+            }
+        }
+        //Forked halves run here if not stolen and then add to the same accumulator
+        for (int i = forkedTasks.size() - 1; i >= 0; i--) {
+            forkedTasks.get(i).join();
+        }
+    }
+}
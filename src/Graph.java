@@ -1,10 +1,26 @@
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+
 public class Graph {
-    public static double[] graphArray;// = parseCSV(graphLocation); Does not have to be static
-    public static int totalSitesCount; //Does not have to be static
+    //Storage modes trade precision for 2x (FLOAT) or 4x (QUANTIZED_16) less memory and memory bandwidth
+    public enum Storage {DOUBLE, FLOAT, QUANTIZED_16}
+
+    //Largest array length supported by most JVMs
+    public static final int MAXIMUM_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    protected static final int TRANSPOSE_TILE_SIZE = 64;
+    protected static final int CLOSEST_SITE_LANES = 4;
+    private static volatile ClosestSitesKernel vectorKernel; //Loaded by name on first use, so that the default build does not refer to the incubator module
 
-    //Stores 2D array as 1D array for speed. This does impose a size limit of originCount * totalSiteCount <= 2.147 billion. If exceeded, revert to 2D array.
+    protected double[] graphArray;
+    protected int originCount;
+    protected int totalSitesCount;
+    protected double[] siteMajorGraphArray; //Optional transposed copy, see createSiteMajorCopy
+    protected SortedSitesIndex sortedSitesIndex; //Optional closest sites by origin, see SortedSitesIndex
+    protected boolean useVectorKernel = false; //Closest site searches use VectorClosestSites from the vector source folder, which needs --add-modules jdk.incubator.vector, instead of the scalar kernels
+
+    //Stores 2D array as 1D array for speed. This does impose a size limit of originCount * totalSiteCount <= 2.147 billion. If exceeded, use SegmentedGraph via create.
     public Graph(double[][] twoDimensionalGraphArray) {
-        int originCount = twoDimensionalGraphArray.length;
+        this.originCount = twoDimensionalGraphArray.length;
         this.totalSitesCount = twoDimensionalGraphArray[0].length;
         this.graphArray = new double[originCount * totalSitesCount];
         for (int origin = 0; origin < originCount; origin++) {
@@ -14,8 +30,211 @@ public class Graph {
         }
     }
 
+    //For graphs that are not backed by an in-memory array
+    protected Graph(int originCount, int totalSitesCount) {
+        this.originCount = originCount;
+        this.totalSitesCount = totalSitesCount;
+    }
+
+    //Creates graph in requested storage mode. For QUANTIZED_16, unitsPerCost is the number of stored units per unit of travel cost, e.g. 60 for seconds if graph is in minutes.
+    //Graphs with more than MAXIMUM_ARRAY_LENGTH entries are split into row blocks by SegmentedGraph.
+    public static Graph create(double[][] twoDimensionalGraphArray, Storage storage, double unitsPerCost) {
+        if ((long) twoDimensionalGraphArray.length * twoDimensionalGraphArray[0].length > MAXIMUM_ARRAY_LENGTH) {
+            return new SegmentedGraph(twoDimensionalGraphArray, storage, unitsPerCost);
+        }
+        return switch (storage) {
+            case DOUBLE -> new Graph(twoDimensionalGraphArray);
+            case FLOAT -> new FloatGraph(twoDimensionalGraphArray);
+            case QUANTIZED_16 -> new QuantizedGraph(twoDimensionalGraphArray, unitsPerCost);
+        };
+    }
+
+    //Variant of create that copies an existing graph, e.g. a mapped graph, into reduced precision storage
+    public static Graph create(Graph sourceGraph, Storage storage, double unitsPerCost) {
+        if (storage != Storage.DOUBLE && (long) sourceGraph.getOriginCount() * sourceGraph.getTotalSitesCount() > MAXIMUM_ARRAY_LENGTH) {
+            return new SegmentedGraph(sourceGraph, storage, unitsPerCost);
+        }
+        return switch (storage) {
+            case DOUBLE -> sourceGraph;
+            case FLOAT -> new FloatGraph(sourceGraph);
+            case QUANTIZED_16 -> new QuantizedGraph(sourceGraph, unitsPerCost);
+        };
+    }
+
     //Compute travel distance from origin to destination (site)
-    public static double getEdgeLength(int origin, int destination) {
+    public double getEdgeLength(int origin, int destination) {
         return graphArray[origin * totalSitesCount + destination];
     }
-}
\ No newline at end of file
+
+    //Travel distance from site to origin, reading the site-major copy if present so that consecutive origins are contiguous
+    public double getEdgeLengthFromSite(int site, int origin) {
+        if (siteMajorGraphArray != null) {
+            return siteMajorGraphArray[site * originCount + origin];
+        }
+        return getEdgeLength(origin, site);
+    }
+
+    //Vector API kernels, which must have been compiled from the vector source folder and put on the class path
+    protected static ClosestSitesKernel getVectorKernel() {
+        ClosestSitesKernel kernel = vectorKernel;
+        if (kernel == null) {
+            try {
+                kernel = (ClosestSitesKernel) Class.forName("VectorClosestSites").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                throw new IllegalStateException("Vector kernel needs vector/VectorClosestSites.java compiled and run with --add-modules jdk.incubator.vector", e);
+            }
+            vectorKernel = kernel;
+        }
+        return kernel;
+    }
+
+    //Position in sites of closest site to origin, ties going to the lowest position. Four independent minima over interleaved positions break the compare dependency chain so that the JIT can pipeline loads.
+    public int findClosestPosition(int origin, int[] sites) {
+        int siteCount = sites.length;
+        if (useVectorKernel && graphArray != null && siteCount >= getVectorKernel().getLaneCount()) {
+            return getVectorKernel().findClosestPosition(graphArray, origin * totalSitesCount, sites);
+        }
+        if (siteCount < 2 * CLOSEST_SITE_LANES) {
+            int closestPosition = 0;
+            double closestCost = getEdgeLength(origin, sites[0]);
+            for (int position = 1; position < siteCount; position++) {
+                double cost = getEdgeLength(origin, sites[position]);
+                if (cost < closestCost) {
+                    closestPosition = position;
+                    closestCost = cost;
+                }
+            }
+            return closestPosition;
+        }
+        double cost0 = Double.POSITIVE_INFINITY, cost1 = Double.POSITIVE_INFINITY, cost2 = Double.POSITIVE_INFINITY, cost3 = Double.POSITIVE_INFINITY;
+        int position0 = 0, position1 = 1, position2 = 2, position3 = 3;
+        int unrolledCount = siteCount - siteCount % CLOSEST_SITE_LANES;
+        if (graphArray != null) {
+            int rowOffset = origin * totalSitesCount;
+            for (int position = 0; position < unrolledCount; position += CLOSEST_SITE_LANES) {
+                double c0 = graphArray[rowOffset + sites[position]];
+                double c1 = graphArray[rowOffset + sites[position + 1]];
+                double c2 = graphArray[rowOffset + sites[position + 2]];
+                double c3 = graphArray[rowOffset + sites[position + 3]];
+                if (c0 < cost0) { cost0 = c0; position0 = position; }
+                if (c1 < cost1) { cost1 = c1; position1 = position + 1; }
+                if (c2 < cost2) { cost2 = c2; position2 = position + 2; }
+                if (c3 < cost3) { cost3 = c3; position3 = position + 3; }
+            }
+        } else {
+            for (int position = 0; position < unrolledCount; position += CLOSEST_SITE_LANES) {
+                double c0 = getEdgeLength(origin, sites[position]);
+                double c1 = getEdgeLength(origin, sites[position + 1]);
+                double c2 = getEdgeLength(origin, sites[position + 2]);
+                double c3 = getEdgeLength(origin, sites[position + 3]);
+                if (c0 < cost0) { cost0 = c0; position0 = position; }
+                if (c1 < cost1) { cost1 = c1; position1 = position + 1; }
+                if (c2 < cost2) { cost2 = c2; position2 = position + 2; }
+                if (c3 < cost3) { cost3 = c3; position3 = position + 3; }
+            }
+        }
+        //Tail positions are all higher than any lane position, so strict comparison keeps lowest position on ties
+        for (int position = unrolledCount; position < siteCount; position++) {
+            double cost = getEdgeLength(origin, sites[position]);
+            if (cost < cost0 && cost < cost1 && cost < cost2 && cost < cost3) {
+                cost0 = cost;
+                position0 = position;
+            }
+        }
+        //Merge lanes, ties going to lowest position
+        int closestPosition = position0;
+        double closestCost = cost0;
+        if (cost1 < closestCost || (cost1 == closestCost && position1 < closestPosition)) { closestCost = cost1; closestPosition = position1; }
+        if (cost2 < closestCost || (cost2 == closestCost && position2 < closestPosition)) { closestCost = cost2; closestPosition = position2; }
+        if (cost3 < closestCost || (cost3 == closestCost && position3 < closestPosition)) { closestPosition = position3; }
+        return closestPosition;
+    }
+
+    //Closest position in sites and its travel cost for origins in [startingOrigin, endingOrigin), ties going to the lowest position.
+    //With the site-major copy, sweeps one contiguous origin run per site so that the inner loop is a branch-light compare over adjacent doubles.
+    //The vector kernel keeps positions in the same range of positionScratchByOrigin, which is only needed if isVectorKernelUsed.
+    public void findClosestSites(int[] sites, int startingOrigin, int endingOrigin, int[] positionByOrigin, double[] costByOrigin, double[] positionScratchByOrigin) {
+        if (useVectorKernel && siteMajorGraphArray != null) {
+            getVectorKernel().findClosestSites(siteMajorGraphArray, originCount, sites, startingOrigin, endingOrigin, positionByOrigin, costByOrigin, positionScratchByOrigin);
+            return;
+        }
+        if (siteMajorGraphArray != null) {
+            System.arraycopy(siteMajorGraphArray, sites[0] * originCount + startingOrigin, costByOrigin, startingOrigin, endingOrigin - startingOrigin);
+            Arrays.fill(positionByOrigin, startingOrigin, endingOrigin, 0);
+            for (int position = 1; position < sites.length; position++) {
+                int siteOffset = sites[position] * originCount;
+                for (int origin = startingOrigin; origin < endingOrigin; origin++) {
+                    double cost = siteMajorGraphArray[siteOffset + origin];
+                    if (cost < costByOrigin[origin]) {
+                        costByOrigin[origin] = cost;
+                        positionByOrigin[origin] = position;
+                    }
+                }
+            }
+            return;
+        }
+        for (int origin = startingOrigin; origin < endingOrigin; origin++) {
+            int position = findClosestPosition(origin, sites);
+            positionByOrigin[origin] = position;
+            costByOrigin[origin] = getEdgeLength(origin, sites[position]);
+        }
+    }
+
+    //Keeps a transposed (site, origin) copy of the graph. Doubles memory use, but the shift and add kernels then read one contiguous run per candidate site instead of one cache line per origin.
+    public void createSiteMajorCopy() {
+        double[] transposedGraphArray = new double[originCount * totalSitesCount];
+        forEachEdgeInTransposeTiles((origin, site) -> transposedGraphArray[site * originCount + origin] = getEdgeLength(origin, site));
+        this.siteMajorGraphArray = transposedGraphArray;
+    }
+
+    //Visits every (origin, site) pair in square tiles, so that a transposed copy reads and writes within a few cache lines per tile
+    protected void forEachEdgeInTransposeTiles(EdgeVisitor visitor) {
+        for (int originTile = 0; originTile < originCount; originTile += TRANSPOSE_TILE_SIZE) {
+            int originTileEnd = Math.min(originCount, originTile + TRANSPOSE_TILE_SIZE);
+            for (int siteTile = 0; siteTile < totalSitesCount; siteTile += TRANSPOSE_TILE_SIZE) {
+                int siteTileEnd = Math.min(totalSitesCount, siteTile + TRANSPOSE_TILE_SIZE);
+                for (int origin = originTile; origin < originTileEnd; origin++) {
+                    for (int site = siteTile; site < siteTileEnd; site++) {
+                        visitor.visit(origin, site);
+                    }
+                }
+            }
+        }
+    }
+
+    protected interface EdgeVisitor {
+        void visit(int origin, int site);
+    }
+
+    public boolean hasSiteMajorCopy() {
+        return siteMajorGraphArray != null;
+    }
+
+    public SortedSitesIndex createSortedSitesIndex(int depth, int taskCount, ExecutorService executor) {
+        return new SortedSitesIndex(this, depth, taskCount, executor);
+    }
+
+    public SortedSitesIndex getSortedSitesIndex() {
+        return sortedSitesIndex;
+    }
+
+    public void setSortedSitesIndex(SortedSitesIndex sortedSitesIndex) {
+        this.sortedSitesIndex = sortedSitesIndex;
+    }
+
+    public boolean isVectorKernelUsed() {
+        return useVectorKernel;
+    }
+
+    public void setUseVectorKernel(boolean useVectorKernel) {
+        this.useVectorKernel = useVectorKernel;
+    }
+
+    public int getOriginCount() {
+        return originCount;
+    }
+
+    public int getTotalSitesCount() {
+        return totalSitesCount;
+    }
+}
@@ -29,7 +29,7 @@ public class HaversineGeneration extends InputGenerator{
             nextRow.add(sitesArray.get(i).get(0));
             for (int j = 1; j < sitesArray.size(); ++j) {
                 //Technically this produces the opposite (i.e. forward azimuth from column DAuid to row DAuid but offset by Pi does not change classification; maintaining for consistency of matrices)
-                nextRow.add(String.valueOf(haversineDist(Double.valueOf(sitesArray.get(i).get(latIndex)), Double.valueOf(sitesArray.get(i).get(longIndex)), Double.valueOf(sitesArray.get(j).get(latIndex)), Double.valueOf(sitesArray.get(j).get(longIndex)))));
+                nextRow.add(String.valueOf(haversineDist(Double.parseDouble(sitesArray.get(i).get(latIndex)), Double.parseDouble(sitesArray.get(i).get(longIndex)), Double.parseDouble(sitesArray.get(j).get(latIndex)), Double.parseDouble(sitesArray.get(j).get(longIndex)))));
             }
             haversineArray.add(nextRow);
             if (i % 1 == 0) {
@@ -41,7 +41,7 @@ public class HaversineGeneration extends InputGenerator{
     }
 
     //Finds haversine distance between (lat1,long1) to (lat2,long2).
-    public static double haversineDist(Double lat1, Double long1, Double lat2, Double long2) {
+    public static double haversineDist(double lat1, double long1, double lat2, double long2) {
         var c = 0.01745329252;
         var angle = 0.5-Math.cos((lat1-lat2)*c)/2 + Math.cos(lat1*c)*Math.cos(lat2*c)*(1-Math.cos((long1-long2)*c))/2;
         return 12742 * Math.asin(Math.sqrt(angle));
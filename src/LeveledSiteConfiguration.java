@@ -5,8 +5,14 @@ public class LeveledSiteConfiguration extends SiteConfiguration {
     //Developmental leveled configuration
     protected List<List<Integer>> sitesByLevel;
     protected double[] costByLevel; //dev only
-    protected CasesAndCostMap[] costMapByLevel; //Costs are not adjusted by serviced proportion, adjustment occurs when cost calculator used
+    protected SiteAssignment[] assignmentByLevel; //Closest sites and case totals by level, moves are evaluated from origins whose closest site changes
+    private BatchShiftEvaluator[] batchShiftEvaluatorByLevel; //Copies of assignment by level for parallel shift evaluation, null for a level once its assignment changes by other moves
     protected int[][] minimumPositionsByLevelAndOrigin;
+    private VolumePenaltyEvaluator volumePenaltyEvaluator; //Volume penalty change of evaluated moves across assignments, created on first use
+    private boolean[] changedLevels; //Levels with a pending move, reused by every move
+    private SitesArrayBuffers sitesArrayBuffers; //Sites of other levels after a shift with level relations, reused by every such shift and created on first use
+    private long proposedMoveCount; //Moves tried and accepted since creation, for acceptance rate of adaptive cooling
+    private long acceptedMoveCount;
 
     public LeveledSiteConfiguration(List<List<Integer>> sitesByLevel, double totalCost, double[] costByLevel, int[][] minimumPositionsByLevelAndOrigin) {
         this.sitesByLevel = sitesByLevel;
@@ -15,10 +21,24 @@ public class LeveledSiteConfiguration extends SiteConfiguration {
         this.minimumPositionsByLevelAndOrigin = minimumPositionsByLevelAndOrigin;
     }
 
+    //Independent copy with its own assignments, e.g. to keep the best configuration of a search that continues moving the original. Pending moves are not copied.
+    public LeveledSiteConfiguration(LeveledSiteConfiguration other) {
+        int levelCount = other.assignmentByLevel.length;
+        this.cost = other.cost;
+        this.costByLevel = other.costByLevel.clone();
+        this.sitesByLevel = new ArrayList<>(levelCount);
+        this.assignmentByLevel = new SiteAssignment[levelCount];
+        this.minimumPositionsByLevelAndOrigin = new int[levelCount][];
+        for (int level = 0; level < levelCount; level++) {
+            assignmentByLevel[level] = new SiteAssignment(other.assignmentByLevel[level]);
+            sitesByLevel.add(assignmentByLevel[level].getSites());
+            minimumPositionsByLevelAndOrigin[level] = assignmentByLevel[level].getPositions();
+        }
+    }
+
     //Generates initial configuration
-    public LeveledSiteConfiguration(List<Integer> potentialSites, SearchSpace searchParameters, int taskCount, ExecutorService executor) {
+    public LeveledSiteConfiguration(List<Integer> potentialSites, SearchSpace searchParameters, Random random, int taskCount, ExecutorService executor) {
         //Generate initial site configuration
-        Random random = new Random();
         List<Integer> candidateInitialSites = new ArrayList<>(pickNRandomFromList(potentialSites, Arrays.stream(searchParameters.getMaxNewCentersByLevel()).max().getAsInt(), random));
 
         //Create site configuration for each level
@@ -48,7 +68,8 @@ public class LeveledSiteConfiguration extends SiteConfiguration {
 
         //Compute initial cost
         costByLevel = new double[searchParameters.getCenterLevels()];
-        costMapByLevel = new CasesAndCostMap[searchParameters.getCenterLevels()];
+        CasesAndCostMap[] costMapByLevel = new CasesAndCostMap[searchParameters.getCenterLevels()];
+        assignmentByLevel = new SiteAssignment[searchParameters.getCenterLevels()];
         minimumPositionsByLevelAndOrigin = new int[searchParameters.getCenterLevels()][searchParameters.getOriginCount()];
         for (int level = 0; level < searchParameters.getCenterLevels(); ++level) {
             CostMapAndPositions initialResult = initialCost(sitesByLevel.get(level), searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
@@ -59,370 +80,350 @@ public class LeveledSiteConfiguration extends SiteConfiguration {
             costByLevel[level] = initialLevelCost;
             //end dev
             costMapByLevel[level] = initialResult.getCasesAndCostMap();
-            minimumPositionsByLevelAndOrigin[level] = initialResult.getPositions();
+            assignmentByLevel[level] = new SiteAssignment(sitesByLevel.get(level), initialResult.getPositions(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getWeightedCaseCountsByLevel()[level],
+                    searchParameters.getGraphArray(), searchParameters.getTimepointCount(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights(), searchParameters.getVolumePenalty() != null, searchParameters.getConsistencyCheckInterval(), searchParameters.getConsistencyTolerance());
+            minimumPositionsByLevelAndOrigin[level] = assignmentByLevel[level].getPositions();
         }
         //cost = CostCalculator.computeCost(costMapByLevel, sitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-        cost = CostCalculator.computeCost(costMapByLevel, sitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
+        cost = CostCalculator.computeCost(costMapByLevel, sitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), searchParameters.getVolumePenalty(), executor);
     }
 
     //Get new leveled site configuration by shifting one of the lowest level sites
     //Multithreaded variant
-    public void tryShiftToNeighbor(int level, int positionToShift, int neighborhoodSize, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, int taskCount, ExecutorService executor) {
-        //Shift target level sites
+    public void tryShiftToNeighbor(int level, int positionToShift, int neighborhoodSize, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, Random random, int taskCount, ExecutorService executor) {
         List<Integer> currentTargetLevelSites = sitesByLevel.get(level);
-        Integer siteToShift = currentTargetLevelSites.get(positionToShift);
-        Integer newSite = SimAnnealingNeighbor.getUnusedNeighbor(currentTargetLevelSites, siteToShift, neighborhoodSize, searchParameters.getSortedNeighbors());
-        List<Integer> newTargetLevelSites = new ArrayList<>(currentTargetLevelSites);
-        newTargetLevelSites.set(positionToShift, newSite);
-
-        //Compute cost of new positions and update list of the closest of current positions for each population center
-        CostMapAndPositions updatedResult = shiftSiteCost(newTargetLevelSites, positionToShift, newSite, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        double newTargetLevelBaseCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
-
-        //Ensure that new target level cost is not excessive compared to total configuration cost
-        if (SimAnnealingSearch.acceptanceProbability(cost, newTargetLevelBaseCost, temp) > targetLevelThresholdProbability) {
-            //Create new leveled sites array
-            List<List<Integer>> newSitesByLevel;
-            double newCost;
-            double[] newCostByLevel = costByLevel.clone();
-            newCostByLevel[level] = newTargetLevelBaseCost;
-            CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-            newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-            int[][] newMinimumPositionsByLevelAndOrigin = minimumPositionsByLevelAndOrigin.clone();
-            newMinimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
-            if (searchParameters.getSublevelsByLevel()[level].length > 0 || searchParameters.getSuperlevelsByLevel()[level].length > 0) {
-                SitesAndUpdateHistory updatedArrayAndHistory = shiftSitesArray(sitesByLevel, level, searchParameters.getCenterLevels(), searchParameters.getSublevelsByLevel(), searchParameters.getSuperlevelsByLevel(), siteToShift, newSite);
-                newSitesByLevel = updatedArrayAndHistory.getUpdatedSitesArray();
-                newSitesByLevel.set(level, newTargetLevelSites);
-                boolean[] updateHistory = updatedArrayAndHistory.getUpdateHistory();
-                int[] updatedPositions = updatedArrayAndHistory.getUpdatedPositions();
-                for (int i = 0; i < searchParameters.getCenterLevels(); i++) {
-                    if (updateHistory[i]) {
-                        updatedResult = shiftSiteCost(newSitesByLevel.get(i), updatedPositions[i], newSite, minimumPositionsByLevelAndOrigin[i],
-                                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[i], searchParameters.getGraphArray(),
-                                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-                        double levelCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[i], searchParameters.getServicedProportionByLevel()[i], searchParameters.getTimepointWeights());
-                        newCostByLevel[i] = levelCost;
-                        newCostMapByLevel[i] = updatedResult.getCasesAndCostMap();
-                        newMinimumPositionsByLevelAndOrigin[i] = updatedResult.getPositions();
-                    }
-                }
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
-            } else {
-                newSitesByLevel = new ArrayList<>(sitesByLevel);
-                newSitesByLevel.set(level, newTargetLevelSites);
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
-            }
-
-            //Decide if cost change is acceptable
-            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-                sitesByLevel = newSitesByLevel;
-                cost = newCost;
-                costByLevel = newCostByLevel;
-                costMapByLevel = newCostMapByLevel;
-                minimumPositionsByLevelAndOrigin = newMinimumPositionsByLevelAndOrigin;
-            }
-        }
+        Integer newSite = SimAnnealingNeighbor.getUnusedNeighbor(currentTargetLevelSites, currentTargetLevelSites.get(positionToShift), neighborhoodSize, searchParameters.getSortedNeighbors(), random);
+        tryShiftSite(level, positionToShift, newSite, searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
     }
 
     //Try shift site on a target level without superlevels or sublevels
-    public void tryShiftToNeighborWithoutLevelRelations(int level, int positionToShift, int neighborhoodSize, SearchSpace searchParameters, double temp, int taskCount, ExecutorService executor) {
+    public void tryShiftToNeighborWithoutLevelRelations(int level, int positionToShift, int neighborhoodSize, SearchSpace searchParameters, double temp, Random random, int taskCount, ExecutorService executor) {
+        proposedMoveCount += 1;
         //Shift target level sites
         List<Integer> currentTargetLevelSites = sitesByLevel.get(level);
         Integer siteToShift = currentTargetLevelSites.get(positionToShift);
-        Integer newSite = SimAnnealingNeighbor.getUnusedNeighbor(currentTargetLevelSites, siteToShift, neighborhoodSize, searchParameters.getSortedNeighbors());
-        List<Integer> newTargetLevelSites = new ArrayList<>(currentTargetLevelSites);
-        newTargetLevelSites.set(positionToShift, newSite);
-
-        //Compute cost of new positions and update list of the closest of current positions for each population center
-        CostMapAndPositions updatedResult = shiftSiteCost(newTargetLevelSites, positionToShift, newSite, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        List<List<Integer>> newSitesByLevel  = new ArrayList<>(sitesByLevel);
-        newSitesByLevel.set(level, newTargetLevelSites);
-        CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-        newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-        //double newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-        double newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
+        Integer newSite = SimAnnealingNeighbor.getUnusedNeighbor(currentTargetLevelSites, siteToShift, neighborhoodSize, searchParameters.getSortedNeighbors(), random);
+
+        //Compute cost of new positions from origins whose closest site changes
+        boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+        double newCost = cost - costByLevel[level] + assignmentByLevel[level].evaluateShift(positionToShift, newSite);
+        newCost += evaluateVolumePenaltyChange(isChangedByLevel, searchParameters);
 
         //Decide if cost change is acceptable
-        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-            sitesByLevel.set(level, newTargetLevelSites);
-            cost = newCost;
-            costByLevel[level] = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
-            costMapByLevel = newCostMapByLevel;
-            minimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
+        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+            acceptedMoveCount += 1;
+            commitLevels(isChangedByLevel);
+        }
+    }
+
+    //Tries to shift every site of a target level without superlevels or sublevels once to a neighbor, with batches of workerCount consecutive positions evaluated in parallel and accepted in order.
+    //Volume penalty couples levels through shared sites, so with a volume penalty each shift is evaluated with tryShiftToNeighborWithoutLevelRelations.
+    public void tryShiftAllToNeighborsWithoutLevelRelations(int level, int neighborhoodSize, SearchSpace searchParameters, double temp, Random random, int workerCount, int taskCount, ExecutorService executor) {
+        if (searchParameters.getVolumePenalty() != null) {
+            for (int position = 0; position < sitesByLevel.get(level).size(); position++) {
+                tryShiftToNeighborWithoutLevelRelations(level, position, neighborhoodSize, searchParameters, temp, random, taskCount, executor);
+            }
+            return;
+        }
+        if (batchShiftEvaluatorByLevel == null) {
+            batchShiftEvaluatorByLevel = new BatchShiftEvaluator[searchParameters.getCenterLevels()];
+        }
+        if (batchShiftEvaluatorByLevel[level] == null || batchShiftEvaluatorByLevel[level].getWorkerCount() != workerCount) {
+            batchShiftEvaluatorByLevel[level] = new BatchShiftEvaluator(assignmentByLevel[level], workerCount, executor);
+        }
+        int[] positions = new int[workerCount];
+        int[] newSites = new int[workerCount];
+        int position = 0;
+        while (position < sitesByLevel.get(level).size()) {
+            //Propose shifts for next positions
+            List<Integer> currentTargetLevelSites = sitesByLevel.get(level);
+            int moveCount = Math.min(workerCount, currentTargetLevelSites.size() - position);
+            for (int i = 0; i < moveCount; i++) {
+                positions[i] = position + i;
+                newSites[i] = SimAnnealingNeighbor.getUnusedNeighbor(currentTargetLevelSites, currentTargetLevelSites.get(position + i), neighborhoodSize, searchParameters.getSortedNeighbors(), random);
+            }
+            double[] newLevelCosts = batchShiftEvaluatorByLevel[level].evaluateShifts(positions, newSites, moveCount);
+
+            //Accept first shift in order that passes acceptance
+            int acceptedMove = -1;
+            for (int i = 0; i < moveCount; i++) {
+                if (SimAnnealingSearch.acceptanceProbability(cost, cost - costByLevel[level] + newLevelCosts[i], temp) > random.nextDouble()) {
+                    acceptedMove = i;
+                    break;
+                }
+            }
+            if (acceptedMove == -1) {
+                proposedMoveCount += moveCount;
+                position += moveCount;
+            } else {
+                proposedMoveCount += acceptedMove + 1;
+                acceptedMoveCount += 1;
+                batchShiftEvaluatorByLevel[level].commitShift(positions[acceptedMove], newSites[acceptedMove]);
+                updateLevel(level);
+                position += acceptedMove + 1;
+            }
         }
     }
 
     //Get new leveled site configuration by shifting one of the lowest level sites
-    public void tryShiftSite(int level, int positionToShift, Integer newSite, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, int taskCount, ExecutorService executor) {
-        //Shift target level sites
-        List<Integer> newTargetLevelSites = new ArrayList<>(sitesByLevel.get(level));
-        Integer siteToShift = newTargetLevelSites.get(positionToShift);
-        newTargetLevelSites.set(positionToShift, newSite);
+    public void tryShiftSite(int level, int positionToShift, Integer newSite, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, Random random, int taskCount, ExecutorService executor) {
+        proposedMoveCount += 1;
+        Integer siteToShift = sitesByLevel.get(level).get(positionToShift);
 
-        //Compute cost of new positions and update list of the closest of current positions for each population center
-        CostMapAndPositions updatedResult = shiftSiteCost(newTargetLevelSites, positionToShift, newSite, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        double newTargetLevelBaseCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
+        //Compute cost of new positions from origins whose closest site changes
+        double newTargetLevelBaseCost = assignmentByLevel[level].evaluateShift(positionToShift, newSite);
 
         //Ensure that new target level cost is not excessive compared to total configuration cost
         if (SimAnnealingSearch.acceptanceProbability(cost, newTargetLevelBaseCost, temp) > targetLevelThresholdProbability) {
-            //Create new leveled sites array
-            List<List<Integer>> newSitesByLevel;
-            double newCost;
-            double[] newCostByLevel = costByLevel.clone();
-            newCostByLevel[level] = newTargetLevelBaseCost;
-            CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-            newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-            int[][] newMinimumPositionsByLevelAndOrigin = minimumPositionsByLevelAndOrigin.clone();
-            newMinimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
+            boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+            double newCost = cost - costByLevel[level] + newTargetLevelBaseCost;
             if (searchParameters.getSublevelsByLevel()[level].length > 0 || searchParameters.getSuperlevelsByLevel()[level].length > 0) {
-                SitesAndUpdateHistory updatedArrayAndHistory = shiftSitesArray(sitesByLevel, level, searchParameters.getCenterLevels(), searchParameters.getSublevelsByLevel(), searchParameters.getSuperlevelsByLevel(), siteToShift, newSite);
-                newSitesByLevel = updatedArrayAndHistory.getUpdatedSitesArray();
-                newSitesByLevel.set(level, newTargetLevelSites);
+                SitesAndUpdateHistory updatedArrayAndHistory = shiftSitesArray(sitesByLevel, level, searchParameters.getSublevelsByLevel(), searchParameters.getSuperlevelsByLevel(), siteToShift, newSite, getSitesArrayBuffers(searchParameters.getCenterLevels()));
+                List<List<Integer>> newSitesByLevel = updatedArrayAndHistory.getUpdatedSitesArray();
                 boolean[] updateHistory = updatedArrayAndHistory.getUpdateHistory();
-                int[] updatedPositions = updatedArrayAndHistory.getUpdatedPositions();
                 for (int i = 0; i < searchParameters.getCenterLevels(); i++) {
-                    if (updateHistory[i]) {
-                        updatedResult = shiftSiteCost(newSitesByLevel.get(i), updatedPositions[i], newSite, minimumPositionsByLevelAndOrigin[i],
-                                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[i], searchParameters.getGraphArray(),
-                                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-                        double levelCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[i], searchParameters.getServicedProportionByLevel()[i], searchParameters.getTimepointWeights());
-                        newCostByLevel[i] = levelCost;
-                        newCostMapByLevel[i] = updatedResult.getCasesAndCostMap();
-                        newMinimumPositionsByLevelAndOrigin[i] = updatedResult.getPositions();
+                    if (updateHistory[i] && i != level) {
+                        newCost += assignmentByLevel[i].evaluateSites(newSitesByLevel.get(i)) - costByLevel[i];
+                        isChangedByLevel[i] = true;
                     }
                 }
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
-            } else {
-                newSitesByLevel = new ArrayList<>(sitesByLevel);
-                newSitesByLevel.set(level, newTargetLevelSites);
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
             }
 
+            newCost += evaluateVolumePenaltyChange(isChangedByLevel, searchParameters);
+
             //Decide if cost change is acceptable
-            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-                sitesByLevel = newSitesByLevel;
-                cost = newCost;
-                costByLevel = newCostByLevel;
-                costMapByLevel = newCostMapByLevel;
-                minimumPositionsByLevelAndOrigin = newMinimumPositionsByLevelAndOrigin;
+            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+                acceptedMoveCount += 1;
+                commitLevels(isChangedByLevel);
             }
         }
     }
 
     //Add one site to target level and superlevels
-    public void tryAddSite(int level, Integer newSite, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, int taskCount, ExecutorService executor) {
-        //Add target level site
-        List<Integer> newTargetLevelSites = new ArrayList<>(sitesByLevel.get(level));
-        newTargetLevelSites.add(newSite);
-
-        //Compute new parameters
-        CostMapAndPositions updatedResult = addSiteCost(newTargetLevelSites, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        double newTargetLevelBaseCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
+    public void tryAddSite(int level, Integer newSite, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, Random random, int taskCount, ExecutorService executor) {
+        proposedMoveCount += 1;
+        //Compute cost of added site from origins that it is closest to
+        double newTargetLevelBaseCost = assignmentByLevel[level].evaluateAdd(newSite);
 
         //Ensure that new target level cost is not excessive compared to total configuration cost
         if (SimAnnealingSearch.acceptanceProbability(cost, newTargetLevelBaseCost, temp) > targetLevelThresholdProbability) {
-            //Update arrays and adjust for superlevel sites
-            List<List<Integer>> newSitesByLevel;
-            double newCost;
-            double[] newCostByLevel = costByLevel.clone();
-            newCostByLevel[level] = newTargetLevelBaseCost;
-            CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-            newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-            int[][] newMinimumPositionsByLevelAndOrigin = minimumPositionsByLevelAndOrigin.clone();
-            newMinimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
+            //Adjust for superlevel sites
+            boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+            double newCost = cost - costByLevel[level] + newTargetLevelBaseCost;
             if (searchParameters.getSuperlevelsByLevel()[level].length > 0) {
                 int[] superlevels = searchParameters.getSuperlevelsByLevel()[level];
-                SitesAndUpdateHistory updatedArrayAndHistory = addToSitesArray(sitesByLevel, superlevels, newSite);
-                newSitesByLevel = updatedArrayAndHistory.getUpdatedSitesArray();
-                newSitesByLevel.set(level, newTargetLevelSites);
-                boolean[] superlevelUpdateHistory = updatedArrayAndHistory.getUpdateHistory();
+                boolean[] superlevelUpdateHistory = addToSitesArray(sitesByLevel, superlevels, newSite).getUpdateHistory();
                 for (int i = 0; i < superlevels.length; i++) {
                     if (superlevelUpdateHistory[i]) {
-                        updatedResult = addSiteCost(newSitesByLevel.get(superlevels[i]), minimumPositionsByLevelAndOrigin[superlevels[i]],
-                                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[superlevels[i]], searchParameters.getGraphArray(),
-                                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-                        double levelCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[superlevels[i]], searchParameters.getServicedProportionByLevel()[superlevels[i]], searchParameters.getTimepointWeights());
-                        newCostByLevel[superlevels[i]] = levelCost;
-                        newCostMapByLevel[superlevels[i]] = updatedResult.getCasesAndCostMap();
-                        newMinimumPositionsByLevelAndOrigin[superlevels[i]] = updatedResult.getPositions();
+                        newCost += assignmentByLevel[superlevels[i]].evaluateAdd(newSite) - costByLevel[superlevels[i]];
+                        isChangedByLevel[superlevels[i]] = true;
                     }
                 }
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
-            } else {
-                newSitesByLevel = new ArrayList<>(sitesByLevel);
-                newSitesByLevel.set(level, newTargetLevelSites);
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
             }
 
+            newCost += evaluateVolumePenaltyChange(isChangedByLevel, searchParameters);
+
             //Decide if cost change is acceptable
-            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-                sitesByLevel = newSitesByLevel;
-                cost = newCost;
-                costByLevel = newCostByLevel;
-                costMapByLevel = newCostMapByLevel;
-                minimumPositionsByLevelAndOrigin = newMinimumPositionsByLevelAndOrigin;
+            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+                acceptedMoveCount += 1;
+                commitLevels(isChangedByLevel);
             }
         }
     }
 
     //Try add site to level without superlevels
-    public void tryAddSiteWithoutSuperlevels(int level, Integer newSite, SearchSpace searchParameters, double temp, int taskCount, ExecutorService executor) {
-        //Add target level site
-        List<Integer> newTargetLevelSites = new ArrayList<>(sitesByLevel.get(level));
-        newTargetLevelSites.add(newSite);
-
-        //Compute new parameters
-        CostMapAndPositions updatedResult = addSiteCost(newTargetLevelSites, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        List<List<Integer>> newSitesByLevel  = new ArrayList<>(sitesByLevel);
-        newSitesByLevel.set(level, newTargetLevelSites);
-        CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-        newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-        //double newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-        double newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
+    public void tryAddSiteWithoutSuperlevels(int level, Integer newSite, SearchSpace searchParameters, double temp, Random random, int taskCount, ExecutorService executor) {
+        proposedMoveCount += 1;
+        //Compute cost of added site from origins that it is closest to
+        boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+        double newCost = cost - costByLevel[level] + assignmentByLevel[level].evaluateAdd(newSite);
+        newCost += evaluateVolumePenaltyChange(isChangedByLevel, searchParameters);
 
         //Decide if cost change is acceptable
-        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-            sitesByLevel.set(level, newTargetLevelSites);
-            cost = newCost;
-            costByLevel[level] = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
-            costMapByLevel = newCostMapByLevel;
-            minimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
+        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+            acceptedMoveCount += 1;
+            commitLevels(isChangedByLevel);
         }
     }
 
     //Remove lowest level site that is not used by higher level site
-    public void tryRemoveSite(int level, Integer removalSite, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, int taskCount, ExecutorService executor) {
-        //Remove one of the lowest level sites
-        List<Integer> newTargetLevelSites = new ArrayList<>(sitesByLevel.get(level));
-        int removalPosition = newTargetLevelSites.indexOf(removalSite);
-        newTargetLevelSites.remove(removalSite);
-
-        //Compute new parameters
-        CostMapAndPositions updatedResult = removeSiteCost(newTargetLevelSites, removalPosition, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        double newTargetLevelBaseCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
-        int[] newTargetLevelMinimumPositionsByOrigin = updatedResult.getPositions();
+    public void tryRemoveSite(int level, Integer removalSite, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, Random random, int taskCount, ExecutorService executor) {
+        proposedMoveCount += 1;
+        //Compute cost of removal from origins of removed site
+        int removalPosition = sitesByLevel.get(level).indexOf(removalSite);
+        double newTargetLevelBaseCost = assignmentByLevel[level].evaluateRemove(removalPosition);
 
         //Ensure that new target level cost is not excessive compared to total configuration cost
         if (SimAnnealingSearch.acceptanceProbability(cost, newTargetLevelBaseCost, temp) > targetLevelThresholdProbability) {
-            //Update arrays and adjust for sublevel sites
-            List<List<Integer>> newSitesByLevel;
-            double newCost;
-            double[] newCostByLevel = costByLevel.clone();
-            newCostByLevel[level] = newTargetLevelBaseCost;
-            CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-            newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-            int[][] newMinimumPositionsByLevelAndOrigin = minimumPositionsByLevelAndOrigin.clone();
-            newMinimumPositionsByLevelAndOrigin[level] = newTargetLevelMinimumPositionsByOrigin;
+            //Adjust for sublevel sites
+            boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+            double newCost = cost - costByLevel[level] + newTargetLevelBaseCost;
             if (searchParameters.getSublevelsByLevel()[level].length > 0) {
                 int[] sublevels = searchParameters.getSublevelsByLevel()[level];
                 SitesAndUpdateHistory updatedArrayAndHistory = removeFromSitesArray(sitesByLevel, sublevels, removalSite);
-                newSitesByLevel = updatedArrayAndHistory.getUpdatedSitesArray();
-                newSitesByLevel.set(level, newTargetLevelSites);
                 boolean[] sublevelUpdateHistory = updatedArrayAndHistory.getUpdateHistory();
                 int[] sublevelUpdatedPositions = updatedArrayAndHistory.getUpdatedPositions();
                 for (int i = 0; i < sublevels.length; i++) {
                     if (sublevelUpdateHistory[i]) {
-                        updatedResult = removeSiteCost(newSitesByLevel.get(sublevels[i]), sublevelUpdatedPositions[i], minimumPositionsByLevelAndOrigin[sublevels[i]],
-                                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[sublevels[i]], searchParameters.getGraphArray(),
-                                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-                        double levelCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[sublevels[i]], searchParameters.getServicedProportionByLevel()[sublevels[i]], searchParameters.getTimepointWeights());
-                        newCostByLevel[sublevels[i]] = levelCost;
-                        newCostMapByLevel[sublevels[i]] = updatedResult.getCasesAndCostMap();
-                        newMinimumPositionsByLevelAndOrigin[sublevels[i]] = updatedResult.getPositions();
+                        newCost += assignmentByLevel[sublevels[i]].evaluateRemove(sublevelUpdatedPositions[i]) - costByLevel[sublevels[i]];
+                        isChangedByLevel[sublevels[i]] = true;
                     }
                 }
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
-            } else {
-                newSitesByLevel = new ArrayList<>(sitesByLevel);
-                newSitesByLevel.set(level, newTargetLevelSites);
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
             }
 
+            newCost += evaluateVolumePenaltyChange(isChangedByLevel, searchParameters);
+
             //Decide if cost change is acceptable
-            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-                sitesByLevel = newSitesByLevel;
-                cost = newCost;
-                costByLevel = newCostByLevel;
-                costMapByLevel = newCostMapByLevel;
-                minimumPositionsByLevelAndOrigin = newMinimumPositionsByLevelAndOrigin;
+            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+                acceptedMoveCount += 1;
+                commitLevels(isChangedByLevel);
             }
         }
     }
 
     //Remove a position from target level without sublevels
-    public void tryRemovePositionWithoutSublevels(int level, int removalPosition, SearchSpace searchParameters, double temp, int taskCount, ExecutorService executor) {
-        //Remove one of the lowest level sites
-        List<Integer> newTargetLevelSites = new ArrayList<>(sitesByLevel.get(level));
-        newTargetLevelSites.remove(removalPosition);
-
-        //Compute new parameters
-        CostMapAndPositions updatedResult = removeSiteCost(newTargetLevelSites, removalPosition, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        List<List<Integer>> newSitesByLevel  = new ArrayList<>(sitesByLevel);
-        newSitesByLevel.set(level, newTargetLevelSites);
-        CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-        newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-        //double newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-        double newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
+    public void tryRemovePositionWithoutSublevels(int level, int removalPosition, SearchSpace searchParameters, double temp, Random random, int taskCount, ExecutorService executor) {
+        proposedMoveCount += 1;
+        //Compute cost of removal from origins of removed site
+        boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+        double newCost = cost - costByLevel[level] + assignmentByLevel[level].evaluateRemove(removalPosition);
+        newCost += evaluateVolumePenaltyChange(isChangedByLevel, searchParameters);
 
         //Decide if cost change is acceptable
-        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-            sitesByLevel.set(level, newTargetLevelSites);
-            cost = newCost;
-            costByLevel[level] = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
-            costMapByLevel = newCostMapByLevel;
-            minimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
+        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+            acceptedMoveCount += 1;
+            commitLevels(isChangedByLevel);
         }
     }
 
-    //Update sites array by replacing removedSite with newSite for all sites in the array. Output is updated sites array, updated positions, and history of updates, true for each level that was changed and false if not.
-    public static SitesAndUpdateHistory shiftSitesArray(List<List<Integer>> sitesArray, int level, int totalLevels, int[][] sublevelsByLevel, int[][] superlevelsByLevel, Integer removedSite, Integer newSite) {
-        List<List<Integer>> updatedSitesArray = new ArrayList<>(sitesArray);
+    //Applies best improving swaps on each level until none improves cost. A swap keeps level relations, so it may only close sites not used by sublevels and only open sites used by all superlevels. Returns number of swaps.
+    public int polishWithSwaps(SearchSpace searchParameters, int maximumSwapCount) {
+        int swapCount = 0;
+        boolean[] isClosableSite = new boolean[searchParameters.getPotentialSitesCount()];
+        boolean[] isOpenableSite = new boolean[searchParameters.getPotentialSitesCount()];
+        for (int level = 0; level < searchParameters.getCenterLevels(); level++) {
+            boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+            FastSwapSearch swapSearch = new FastSwapSearch(assignmentByLevel[level], searchParameters.getGraphArray());
+            int levelSwapCount = 0;
+            while (levelSwapCount < maximumSwapCount) {
+                //Swappable sites
+                Arrays.fill(isClosableSite, true);
+                for (int sublevel : searchParameters.getSublevelsByLevel()[level]) {
+                    for (Integer site : sitesByLevel.get(sublevel)) {
+                        isClosableSite[site] = false;
+                    }
+                }
+                Arrays.fill(isOpenableSite, searchParameters.getSuperlevelsByLevel()[level].length == 0);
+                if (searchParameters.getSuperlevelsByLevel()[level].length > 0) {
+                    for (Integer site : sitesByLevel.get(searchParameters.getSuperlevelsByLevel()[level][0])) {
+                        isOpenableSite[site] = true;
+                    }
+                    for (int superlevel : searchParameters.getSuperlevelsByLevel()[level]) {
+                        Set<Integer> superlevelSites = new HashSet<>(sitesByLevel.get(superlevel));
+                        for (int site = 0; site < isOpenableSite.length; site++) {
+                            isOpenableSite[site] = isOpenableSite[site] && superlevelSites.contains(site);
+                        }
+                    }
+                }
+                for (Integer site : sitesByLevel.get(level)) {
+                    isOpenableSite[site] = false;
+                }
+
+                if (!swapSearch.findBestSwap(isClosableSite, isOpenableSite)) break;
+                double levelCostChange = assignmentByLevel[level].getPendingLevelCost() - costByLevel[level];
+                if (levelCostChange + evaluateVolumePenaltyChange(isChangedByLevel, searchParameters) >= 0) {
+                    assignmentByLevel[level].discardMove(); //swap improves level but not volume penalty
+                    break;
+                }
+                commitLevels(isChangedByLevel);
+                levelSwapCount += 1;
+            }
+            swapCount += levelSwapCount;
+        }
+        return swapCount;
+    }
+
+    //Applies pending moves of changed levels and their volume penalty change
+    private void commitLevels(boolean[] isChangedByLevel) {
+        for (int level = 0; level < isChangedByLevel.length; level++) {
+            if (isChangedByLevel[level]) {
+                commitLevel(level);
+            }
+        }
+        if (volumePenaltyEvaluator != null) {
+            cost += volumePenaltyEvaluator.takePendingChange();
+        }
+    }
+
+    //Changed levels of a new move, with only level marked
+    private boolean[] beginChangedLevels(int level, int levelCount) {
+        if (changedLevels == null) {
+            changedLevels = new boolean[levelCount];
+        } else {
+            Arrays.fill(changedLevels, false);
+        }
+        changedLevels[level] = true;
+        return changedLevels;
+    }
 
-        boolean[] updateHistory = new boolean[totalLevels];
-        int[] updatedPositions = new int[totalLevels];
-        Arrays.fill(updatedPositions, -1);
+    private SitesArrayBuffers getSitesArrayBuffers(int levelCount) {
+        if (sitesArrayBuffers == null) {
+            sitesArrayBuffers = new SitesArrayBuffers(levelCount);
+        }
+        return sitesArrayBuffers;
+    }
+
+    //Volume penalty change if pending moves of changed levels are applied, applied by commitLevels. Zero if there is no volume penalty.
+    private double evaluateVolumePenaltyChange(boolean[] isChangedByLevel, SearchSpace searchParameters) {
+        if (volumePenaltyEvaluator == null) {
+            volumePenaltyEvaluator = new VolumePenaltyEvaluator(assignmentByLevel, searchParameters.getPotentialSitesCount(), searchParameters.getVolumePenalty());
+        }
+        return volumePenaltyEvaluator.evaluateChange(isChangedByLevel, searchParameters.getTimepointCount(), searchParameters.getTimepointWeights());
+    }
+
+    //Applies pending move of level and updates total cost other than volume penalty
+    private void commitLevel(int level) {
+        assignmentByLevel[level].commitMove();
+        if (batchShiftEvaluatorByLevel != null) {
+            batchShiftEvaluatorByLevel[level] = null; //copies no longer match
+        }
+        updateLevel(level);
+    }
+
+    //Updates sites, costs and positions of level from its committed assignment
+    private void updateLevel(int level) {
+        sitesByLevel.set(level, assignmentByLevel[level].getSites());
+        cost += assignmentByLevel[level].getLevelCost() - costByLevel[level];
+        costByLevel[level] = assignmentByLevel[level].getLevelCost();
+        minimumPositionsByLevelAndOrigin[level] = assignmentByLevel[level].getPositions();
+    }
+
+    //Update sites array by replacing removedSite with newSite for all sites in the array. Output is updated sites array, updated positions, and history of updates, true for each level that was changed and false if not.
+    //Updated sites are copied into buffers, which the output refers to until their next use.
+    public static SitesAndUpdateHistory shiftSitesArray(List<List<Integer>> sitesArray, int level, int[][] sublevelsByLevel, int[][] superlevelsByLevel, Integer removedSite, Integer newSite, SitesArrayBuffers buffers) {
+        buffers.reset(sitesArray);
+        List<List<Integer>> updatedSitesArray = buffers.getUpdatedSitesArray();
+        boolean[] updateHistory = buffers.getUpdateHistory();
+        int[] updatedPositions = buffers.getUpdatedPositions();
 
         //Target sublevels and superlevels
         int[] sublevels = sublevelsByLevel[level];
         int[] superlevels = superlevelsByLevel[level];
 
         //Additional sublevels and superlevels to cycle
-        boolean[] sublevelProcessedHistory = new boolean[totalLevels];
+        boolean[] sublevelProcessedHistory = buffers.getSublevelProcessedHistory();
         sublevelProcessedHistory[level] = true;
-        boolean[] superlevelProcessedHistory = new boolean[totalLevels];
+        boolean[] superlevelProcessedHistory = buffers.getSuperlevelProcessedHistory();
         superlevelProcessedHistory[level] = true;
-        List<Integer> higherOrderSublevelsToProcess = new ArrayList<>();
-        List<Integer> higherOrderSuperlevelsToProcess = new ArrayList<>();
+        List<Integer> higherOrderSublevelsToProcess = buffers.getHigherOrderSublevelsToProcess();
+        List<Integer> higherOrderSuperlevelsToProcess = buffers.getHigherOrderSuperlevelsToProcess();
 
         //Update target level sublevels
         for (int sublevel : sublevels) {
             List<Integer> currentSites = updatedSitesArray.get(sublevel);
             for (int position = 0; position < currentSites.size(); position++) {
                 if (currentSites.get(position).equals(removedSite)) {
-                    List<Integer> updatedSites = new ArrayList<>(currentSites);
+                    List<Integer> updatedSites = buffers.copySites(sublevel, currentSites);
                     updatedSites.set(position, newSite);
                     updatedSitesArray.set(sublevel, updatedSites);
                     updateHistory[sublevel] = true;
@@ -440,7 +441,7 @@ public class LeveledSiteConfiguration extends SiteConfiguration {
 
         //Update target level superlevels
         for (int superlevel : superlevels) {
-            List<Integer> updatedSites = new ArrayList<>(updatedSitesArray.get(superlevel));
+            List<Integer> updatedSites = buffers.copySites(superlevel, updatedSitesArray.get(superlevel));
             int updatedPosition = -1;
             for (int position = 0; position < updatedSites.size(); position++) {
                 if (updatedSites.get(position).equals(newSite)) { //if already containing site
@@ -470,7 +471,7 @@ public class LeveledSiteConfiguration extends SiteConfiguration {
                 List<Integer> currentSites = updatedSitesArray.get(sublevel);
                 for (int position = 0; position < currentSites.size(); position++) {
                     if (currentSites.get(position).equals(removedSite)) {
-                        List<Integer> updatedSites = new ArrayList<>(currentSites);
+                        List<Integer> updatedSites = buffers.copySites(sublevel, currentSites);
                         updatedSites.set(position, newSite);
                         updatedSitesArray.set(sublevel, updatedSites);
                         updateHistory[sublevel] = true;
@@ -485,10 +486,10 @@ public class LeveledSiteConfiguration extends SiteConfiguration {
                 }
                 sublevelProcessedHistory[sublevel] = true;
             }
-            higherOrderSublevelsToProcess = new ArrayList<>();
+            higherOrderSublevelsToProcess.clear();
             //Update secondary superlevels
             for (int superlevel : higherOrderSuperlevelsToProcess) {
-                List<Integer> updatedSites = new ArrayList<>(updatedSitesArray.get(superlevel));
+                List<Integer> updatedSites = buffers.copySites(superlevel, updatedSitesArray.get(superlevel));
                 int updatedPosition = -1;
                 for (int position = 0; position < updatedSites.size(); position++) {
                     if (updatedSites.get(position).equals(newSite)) { //if already containing site
@@ -510,10 +511,10 @@ public class LeveledSiteConfiguration extends SiteConfiguration {
                 }
                 superlevelProcessedHistory[superlevel] = true;
             }
-            higherOrderSuperlevelsToProcess = new ArrayList<>();
+            higherOrderSuperlevelsToProcess.clear();
         }
 
-        return new SitesAndUpdateHistory(updatedSitesArray, updateHistory, updatedPositions);
+        return buffers.getResult();
     }
 
     //Update sites array by adding newSite to all superlevels if not already present.
@@ -569,13 +570,18 @@ public class LeveledSiteConfiguration extends SiteConfiguration {
         return new ArrayList<>(unusedSuperlevelSites);
     }
 
-    //Equal chance to try any level, performance is generally better if high likelihood that there is an available site. Shuffles SearchSpace superlevels by level.
-    public List<Integer> getRandomSuperlevelUnusedSites(int level, int[] superlevels) {
+    //Equal chance to try any level first, performance is generally better if high likelihood that there is an available site.
+    //Superlevels are tried cyclically from a random start rather than shuffled, as they are the SearchSpace array shared by concurrent searches.
+    public List<Integer> getRandomSuperlevelUnusedSites(int level, int[] superlevels, Random random) {
         List<Integer> unusedSuperlevelSites = null;
+        if (superlevels.length == 0) {
+            return unusedSuperlevelSites;
+        }
 
         //Process target superlevels
-        ArrayOperations.shuffleIntegerArray(superlevels);
-        for (int superlevel : superlevels) {
+        int startingPosition = random.nextInt(superlevels.length);
+        for (int i = 0; i < superlevels.length; i++) {
+            int superlevel = superlevels[(startingPosition + i) % superlevels.length];
             unusedSuperlevelSites = new ArrayList<>(sitesByLevel.get(superlevel));
             unusedSuperlevelSites.removeAll(sitesByLevel.get(level));
             if (unusedSuperlevelSites.size() > 0) {
@@ -651,6 +657,14 @@ public class LeveledSiteConfiguration extends SiteConfiguration {
         return sitesByLevel.get(level).size();
     }
 
+    public long getProposedMoveCount() {
+        return proposedMoveCount;
+    }
+
+    public long getAcceptedMoveCount() {
+        return acceptedMoveCount;
+    }
+
     public int getTotalSitesCount() {
         Set<Integer> allSites = new HashSet<>(sitesByLevel.get(0));
         for (int i = 1; i < costByLevel.length; i++) {
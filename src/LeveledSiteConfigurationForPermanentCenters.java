@@ -7,19 +7,21 @@ public class LeveledSiteConfigurationForPermanentCenters extends SiteConfigurati
     //Developmental leveled configuration
     protected List<List<Integer>> sitesByLevel;
     protected double[] costByLevel; //development only
-    protected CasesAndCostMap[] costMapByLevel; //Costs are not adjusted by serviced proportion, adjustment occurs when cost calculator used
+    protected SiteAssignment[] assignmentByLevel; //Closest sites and case totals by level over permanent and new sites, moves are evaluated from origins whose closest site changes
     protected int[][] minimumPositionsByLevelAndOrigin;
+    private VolumePenaltyEvaluator volumePenaltyEvaluator; //Volume penalty change of evaluated moves across assignments, created on first use
+    private boolean[] changedLevels; //Levels with a pending move, reused by every move
+    private SitesArrayBuffers sitesArrayBuffers; //Sites of other levels after a shift with level relations, reused by every such shift and created on first use
 
-    public LeveledSiteConfigurationForPermanentCenters(List<List<Integer>> sitesByLevel, double totalCost, CasesAndCostMap[] costByLevel, int[][] minimumPositionsByLevelAndOrigin) {
+    public LeveledSiteConfigurationForPermanentCenters(List<List<Integer>> sitesByLevel, double totalCost, double[] costByLevel, int[][] minimumPositionsByLevelAndOrigin) {
         this.sitesByLevel = sitesByLevel;
         this.cost = totalCost;
-        this.costMapByLevel = costByLevel;
+        this.costByLevel = costByLevel;
         this.minimumPositionsByLevelAndOrigin = minimumPositionsByLevelAndOrigin;
     }
 
-    public LeveledSiteConfigurationForPermanentCenters(List<Integer> potentialSites, SearchSpace searchParameters, int taskCount, ExecutorService executor) {
+    public LeveledSiteConfigurationForPermanentCenters(List<Integer> potentialSites, SearchSpace searchParameters, Random random, int taskCount, ExecutorService executor) {
         //Generate initial site configuration
-        Random random = new Random();
         List<Integer> candidateInitialSites = new ArrayList<>(pickNRandomFromList(potentialSites, Arrays.stream(searchParameters.getMaxNewCentersByLevel()).max().getAsInt(), random));
 
         //Start with permanent sites
@@ -42,7 +44,7 @@ public class LeveledSiteConfigurationForPermanentCenters extends SiteConfigurati
                         List<Integer> restrictedAddableSites = getRestrictedAddableSuperlevelSites(level, searchParameters.getSuperlevelsByLevel()[level], searchParameters.getMaxNewCentersByLevel(), searchParameters.getPermanentCentersCountByLevel());
                         Integer site;
                         if (restrictedAddableSites == null || restrictedAddableSites.size() == 0) {
-                            List<Integer> unusedSuperlevelSites = getRandomSuperlevelUnusedSites(level, searchParameters.getSuperlevelsByLevel()[level]);
+                            List<Integer> unusedSuperlevelSites = getRandomSuperlevelUnusedSites(level, searchParameters.getSuperlevelsByLevel()[level], random);
                             if (unusedSuperlevelSites.size() > 0) {
                                 site = unusedSuperlevelSites.get(random.nextInt(unusedSuperlevelSites.size()));
 
@@ -64,7 +66,7 @@ public class LeveledSiteConfigurationForPermanentCenters extends SiteConfigurati
                     sitesByLevel.get(level).remove(positionToRemove);
                     sitesByLevel = removeFromSitesArray(sitesByLevel, searchParameters.getSublevelsByLevel()[level], siteToRemove).getUpdatedSitesArray();
                     //50% chance remove another site
-                    if (Math.random() < 0.5 && removableSiteCount > 1) {
+                    if (random.nextDouble() < 0.5 && removableSiteCount > 1) {
                         positionToRemove = searchParameters.getPermanentCentersCountByLevel()[level] + random.nextInt(removableSiteCount);
                         siteToRemove = sitesByLevel.get(level).get(positionToRemove);
                         sitesByLevel.get(level).remove(positionToRemove);
@@ -97,7 +99,7 @@ public class LeveledSiteConfigurationForPermanentCenters extends SiteConfigurati
                 } else {
                     List<Integer> restrictedAddableSites = getRestrictedAddableSuperlevelSites(level, searchParameters.getSuperlevelsByLevel()[level], searchParameters.getMaxNewCentersByLevel(), searchParameters.getPermanentCentersCountByLevel());
                     if (restrictedAddableSites == null) {
-                        List<Integer> unusedSuperlevelSites = getRandomSuperlevelUnusedSites(level, searchParameters.getSuperlevelsByLevel()[level]);
+                        List<Integer> unusedSuperlevelSites = getRandomSuperlevelUnusedSites(level, searchParameters.getSuperlevelsByLevel()[level], random);
                         Integer site;
                         if (unusedSuperlevelSites.size() > 0) {
                             site = unusedSuperlevelSites.get(random.nextInt(unusedSuperlevelSites.size()));
@@ -122,7 +124,8 @@ public class LeveledSiteConfigurationForPermanentCenters extends SiteConfigurati
 
         //Compute initial cost
         costByLevel = new double[searchParameters.getCenterLevels()];
-        costMapByLevel = new CasesAndCostMap[searchParameters.getCenterLevels()];
+        CasesAndCostMap[] costMapByLevel = new CasesAndCostMap[searchParameters.getCenterLevels()];
+        assignmentByLevel = new SiteAssignment[searchParameters.getCenterLevels()];
         minimumPositionsByLevelAndOrigin = new int[searchParameters.getCenterLevels()][searchParameters.getOriginCount()];
         for (int level = 0; level < searchParameters.getCenterLevels(); ++level) {
             CostMapAndPositions initialResult = initialCost(sitesByLevel.get(level), searchParameters.getPermanentCentersCountByLevel()[level],
@@ -132,385 +135,223 @@ public class LeveledSiteConfigurationForPermanentCenters extends SiteConfigurati
             double initialLevelCost = CostCalculator.computeLevelSpecificBaseCost(initialResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
             cost += initialLevelCost;
             costByLevel[level] = initialLevelCost;
-            //minimumPositionsByLevelAndOrigin[i] = initialLevelCostAndPositions.getPositions();
             costMapByLevel[level] = initialResult.getCasesAndCostMap();
-            minimumPositionsByLevelAndOrigin[level] = initialResult.getPositions();
+            assignmentByLevel[level] = new SiteAssignment(sitesByLevel.get(level), initialResult.getPositions(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getWeightedCaseCountsByLevel()[level],
+                    searchParameters.getGraphArray(), searchParameters.getTimepointCount(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights(), searchParameters.getVolumePenalty() != null, searchParameters.getConsistencyCheckInterval(), searchParameters.getConsistencyTolerance());
+            minimumPositionsByLevelAndOrigin[level] = assignmentByLevel[level].getPositions();
         }
         //cost = CostCalculator.computeCost(costMapByLevel, sitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-        cost = CostCalculator.computeCost(costMapByLevel, sitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
+        cost = CostCalculator.computeCost(costMapByLevel, sitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), searchParameters.getVolumePenalty(), executor);
     }
 
     //Multithreaded variant
-    public void tryShiftToNeighbor(int level, int positionToShift, int neighborhoodSize, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, int taskCount, ExecutorService executor) {
-        //Shift current level sites
+    public void tryShiftToNeighbor(int level, int positionToShift, int neighborhoodSize, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, Random random, int taskCount, ExecutorService executor) {
         List<Integer> currentTargetLevelSites = sitesByLevel.get(level);
-        Integer siteToShift = currentTargetLevelSites.get(positionToShift);
-        Integer newSite = SimAnnealingNeighbor.getUnusedNeighbor(currentTargetLevelSites, siteToShift, neighborhoodSize, searchParameters.getSortedNeighbors());
-        List<Integer> newTargetLevelSites = new ArrayList<>(currentTargetLevelSites);
-        newTargetLevelSites.set(positionToShift, newSite);
-
-        //Compute cost of new positions and update list of the closest of current positions for each population center
-        CostMapAndPositions updatedResult = shiftSiteCost(newTargetLevelSites, positionToShift, newSite, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getPermanentCentersCountByLevel()[level], searchParameters.getMinPermanentPositionByLevelAndOrigin()[level], searchParameters.getMinPermanentCostByLevelAndOrigin()[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        double newTargetLevelBaseCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
-
-        //Ensure that new target level cost is not excessive compared to total configuration cost
-        if (SimAnnealingSearch.acceptanceProbability(cost, newTargetLevelBaseCost, temp) > targetLevelThresholdProbability) {
-            //Update other level sites
-            List<List<Integer>> newSitesByLevel;
-            double newCost;
-            double[] newCostByLevel = costByLevel.clone();
-            newCostByLevel[level] = newTargetLevelBaseCost;
-            CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-            newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-            int[][] newMinimumPositionsByLevelAndOrigin = minimumPositionsByLevelAndOrigin.clone();
-            newMinimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
-            if (searchParameters.getSublevelsByLevel()[level].length > 0 || searchParameters.getSuperlevelsByLevel()[level].length > 0) {
-                SitesAndUpdateHistory updatedArrayAndHistory = shiftSitesArray(sitesByLevel, level, searchParameters.getCenterLevels(), searchParameters.getSublevelsByLevel(), searchParameters.getSuperlevelsByLevel(), searchParameters.getPermanentCentersCountByLevel(), siteToShift, newSite);
-                newSitesByLevel = updatedArrayAndHistory.getUpdatedSitesArray();
-                newSitesByLevel.set(level, newTargetLevelSites);
-                boolean[] updateHistory = updatedArrayAndHistory.getUpdateHistory();
-                int[] updatedPositions = updatedArrayAndHistory.getUpdatedPositions();
-                for (int i = 0; i < searchParameters.getCenterLevels(); i++) {
-                    if (updateHistory[i]) {
-                        if (updatedPositions[i] == -1) {
-                            //when update history is true and positions is unchanged at -1, then a site was added
-                            updatedResult = addSiteCost(newSitesByLevel.get(i), minimumPositionsByLevelAndOrigin[i],
-                                    searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[i], searchParameters.getGraphArray(),
-                                    taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-                        } else {
-                            updatedResult = shiftSiteCost(newSitesByLevel.get(i), updatedPositions[i], newSite, minimumPositionsByLevelAndOrigin[i],
-                                    searchParameters.getPermanentCentersCountByLevel()[i], searchParameters.getMinPermanentPositionByLevelAndOrigin()[i], searchParameters.getMinPermanentCostByLevelAndOrigin()[i],
-                                    searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[i], searchParameters.getGraphArray(),
-                                    taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-                        }
-                        double levelCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[i], searchParameters.getServicedProportionByLevel()[i], searchParameters.getTimepointWeights());
-                        newCostByLevel[i] = levelCost;
-                        newCostMapByLevel[i] = updatedResult.getCasesAndCostMap();
-                        newMinimumPositionsByLevelAndOrigin[i] = updatedResult.getPositions();
-                    }
-                }
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
-            } else {
-                newSitesByLevel = new ArrayList<>(sitesByLevel);
-                newSitesByLevel.set(level, newTargetLevelSites);
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
-            }
-
-            //Decide if cost change is acceptable
-            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-                sitesByLevel = newSitesByLevel;
-                cost = newCost;
-                costByLevel = newCostByLevel;
-                costMapByLevel = newCostMapByLevel;
-                minimumPositionsByLevelAndOrigin = newMinimumPositionsByLevelAndOrigin;
-            }
-        }
+        Integer newSite = SimAnnealingNeighbor.getUnusedNeighbor(currentTargetLevelSites, currentTargetLevelSites.get(positionToShift), neighborhoodSize, searchParameters.getSortedNeighbors(), random);
+        tryShiftSite(level, positionToShift, newSite, searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
     }
 
     //Multithreaded variant
-    public void tryShiftToNeighborWithoutLevelRelations(int level, int positionToShift, int neighborhoodSize, SearchSpace searchParameters, double temp, int taskCount, ExecutorService executor) {
+    public void tryShiftToNeighborWithoutLevelRelations(int level, int positionToShift, int neighborhoodSize, SearchSpace searchParameters, double temp, Random random, int taskCount, ExecutorService executor) {
         //Shift target level sites
         List<Integer> currentTargetLevelSites = sitesByLevel.get(level);
         Integer siteToShift = currentTargetLevelSites.get(positionToShift);
-        Integer newSite = SimAnnealingNeighbor.getUnusedNeighbor(currentTargetLevelSites, siteToShift, neighborhoodSize, searchParameters.getSortedNeighbors());
-        List<Integer> newTargetLevelSites = new ArrayList<>(currentTargetLevelSites);
-        newTargetLevelSites.set(positionToShift, newSite);
-
-        //Compute cost of new positions and update list of the closest of current positions for each population center
-        CostMapAndPositions updatedResult = shiftSiteCost(newTargetLevelSites, positionToShift, newSite, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getPermanentCentersCountByLevel()[level], searchParameters.getMinPermanentPositionByLevelAndOrigin()[level], searchParameters.getMinPermanentCostByLevelAndOrigin()[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        List<List<Integer>> newSitesByLevel  = new ArrayList<>(sitesByLevel);
-        newSitesByLevel.set(level, newTargetLevelSites);
-        CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-        newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-        //double newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-        double newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
+        Integer newSite = SimAnnealingNeighbor.getUnusedNeighbor(currentTargetLevelSites, siteToShift, neighborhoodSize, searchParameters.getSortedNeighbors(), random);
+
+        //Compute cost of new positions from origins whose closest site changes
+        boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+        double newCost = cost - costByLevel[level] + assignmentByLevel[level].evaluateShift(positionToShift, newSite);
+        newCost += evaluateVolumePenaltyChange(isChangedByLevel, searchParameters);
 
         //Decide if cost change is acceptable
-        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-            sitesByLevel.set(level, newTargetLevelSites);
-            cost = newCost;
-            costByLevel[level] = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
-            costMapByLevel = newCostMapByLevel;
-            minimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
+        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+            commitLevels(isChangedByLevel);
         }
     }
 
     //Multithreaded variant
-    public void tryShiftSite(int level, int positionToShift, Integer newSite, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, int taskCount, ExecutorService executor) {
-        //Shift current level sites
-        List<Integer> newTargetLevelSites = new ArrayList<>(sitesByLevel.get(level));
-        Integer siteToShift = newTargetLevelSites.get(positionToShift);
-        newTargetLevelSites.set(positionToShift, newSite);
-
-        //Compute cost of new positions and update list of the closest of current positions for each population center
-        CostMapAndPositions updatedResult = shiftSiteCost(newTargetLevelSites, positionToShift, newSite, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getPermanentCentersCountByLevel()[level], searchParameters.getMinPermanentPositionByLevelAndOrigin()[level], searchParameters.getMinPermanentCostByLevelAndOrigin()[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        double newTargetLevelBaseCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
+    public void tryShiftSite(int level, int positionToShift, Integer newSite, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, Random random, int taskCount, ExecutorService executor) {
+        Integer siteToShift = sitesByLevel.get(level).get(positionToShift);
+
+        //Compute cost of new positions from origins whose closest site changes
+        double newTargetLevelBaseCost = assignmentByLevel[level].evaluateShift(positionToShift, newSite);
 
         //Ensure that new target level cost is not excessive compared to total configuration cost
         if (SimAnnealingSearch.acceptanceProbability(cost, newTargetLevelBaseCost, temp) > targetLevelThresholdProbability) {
-            //Update other level sites
-            List<List<Integer>> newSitesByLevel;
-            double newCost;
-            double[] newCostByLevel = costByLevel.clone();
-            newCostByLevel[level] = newTargetLevelBaseCost;
-            CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-            newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-            int[][] newMinimumPositionsByLevelAndOrigin = minimumPositionsByLevelAndOrigin.clone();
-            newMinimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
+            //Update other level sites, which may gain the new site rather than shift where the shifted site is permanent
+            boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+            double newCost = cost - costByLevel[level] + newTargetLevelBaseCost;
             if (searchParameters.getSublevelsByLevel()[level].length > 0 || searchParameters.getSuperlevelsByLevel()[level].length > 0) {
-                SitesAndUpdateHistory updatedArrayAndHistory = shiftSitesArray(sitesByLevel, level, searchParameters.getCenterLevels(), searchParameters.getSublevelsByLevel(), searchParameters.getSuperlevelsByLevel(), searchParameters.getPermanentCentersCountByLevel(), siteToShift, newSite);
-                newSitesByLevel = updatedArrayAndHistory.getUpdatedSitesArray();
-                newSitesByLevel.set(level, newTargetLevelSites);
+                SitesAndUpdateHistory updatedArrayAndHistory = shiftSitesArray(sitesByLevel, level, searchParameters.getSublevelsByLevel(), searchParameters.getSuperlevelsByLevel(), searchParameters.getPermanentCentersCountByLevel(), siteToShift, newSite, getSitesArrayBuffers(searchParameters.getCenterLevels()));
+                List<List<Integer>> newSitesByLevel = updatedArrayAndHistory.getUpdatedSitesArray();
                 boolean[] updateHistory = updatedArrayAndHistory.getUpdateHistory();
-                int[] updatedPositions = updatedArrayAndHistory.getUpdatedPositions();
                 for (int i = 0; i < searchParameters.getCenterLevels(); i++) {
-                    if (updateHistory[i]) {
-                        if (updatedPositions[i] == -1) {
-                            //when update history is true and positions is unchanged at -1, then a site was added
-                            updatedResult = addSiteCost(newSitesByLevel.get(i), minimumPositionsByLevelAndOrigin[i],
-                                    searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[i], searchParameters.getGraphArray(),
-                                    taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-                        } else {
-                            updatedResult = shiftSiteCost(newSitesByLevel.get(i), updatedPositions[i], newSite, minimumPositionsByLevelAndOrigin[i],
-                                    searchParameters.getPermanentCentersCountByLevel()[i], searchParameters.getMinPermanentPositionByLevelAndOrigin()[i], searchParameters.getMinPermanentCostByLevelAndOrigin()[i],
-                                    searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[i], searchParameters.getGraphArray(),
-                                    taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-                        }
-                        double levelCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[i], searchParameters.getServicedProportionByLevel()[i], searchParameters.getTimepointWeights());
-                        newCostByLevel[i] = levelCost;
-                        newCostMapByLevel[i] = updatedResult.getCasesAndCostMap();
-                        newMinimumPositionsByLevelAndOrigin[i] = updatedResult.getPositions();
+                    if (updateHistory[i] && i != level) {
+                        newCost += assignmentByLevel[i].evaluateSites(newSitesByLevel.get(i)) - costByLevel[i];
+                        isChangedByLevel[i] = true;
                     }
                 }
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
-            } else {
-                newSitesByLevel = new ArrayList<>(sitesByLevel);
-                newSitesByLevel.set(level, newTargetLevelSites);
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
             }
 
+            newCost += evaluateVolumePenaltyChange(isChangedByLevel, searchParameters);
+
             //Decide if cost change is acceptable
-            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-                sitesByLevel = newSitesByLevel;
-                cost = newCost;
-                costByLevel = newCostByLevel;
-                costMapByLevel = newCostMapByLevel;
-                minimumPositionsByLevelAndOrigin = newMinimumPositionsByLevelAndOrigin;
+            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+                commitLevels(isChangedByLevel);
             }
         }
     }
 
     //Unchanged from without permanent centers (only one of three)
-    public void tryAddSite(int level, Integer newSite, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, int taskCount, ExecutorService executor) {
-        //Add lowest level site
-        List<Integer> newTargetLevelSites = new ArrayList<>(sitesByLevel.get(level));
-        newTargetLevelSites.add(newSite);
-
-        //Compute new parameters
-        CostMapAndPositions updatedResult = addSiteCost(newTargetLevelSites, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        double newTargetLevelBaseCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
+    public void tryAddSite(int level, Integer newSite, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, Random random, int taskCount, ExecutorService executor) {
+        //Compute cost of added site from origins that it is closest to
+        double newTargetLevelBaseCost = assignmentByLevel[level].evaluateAdd(newSite);
 
         //Ensure that new target level cost is not excessive compared to total configuration cost
         if (SimAnnealingSearch.acceptanceProbability(cost, newTargetLevelBaseCost, temp) > targetLevelThresholdProbability) {
-            //Update arrays and adjust for superlevel sites
-            List<List<Integer>> newSitesByLevel;
-            double newCost;
-            double[] newCostByLevel = costByLevel.clone();
-            newCostByLevel[level] = newTargetLevelBaseCost;
-            CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-            newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-            int[][] newMinimumPositionsByLevelAndOrigin = minimumPositionsByLevelAndOrigin.clone();
-            newMinimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
+            //Adjust for superlevel sites
+            boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+            double newCost = cost - costByLevel[level] + newTargetLevelBaseCost;
             if (searchParameters.getSuperlevelsByLevel()[level].length > 0) {
                 int[] superlevels = searchParameters.getSuperlevelsByLevel()[level];
-                SitesAndUpdateHistory updatedArrayAndHistory = addToSitesArray(sitesByLevel, superlevels, newSite);
-                newSitesByLevel = updatedArrayAndHistory.getUpdatedSitesArray();
-                newSitesByLevel.set(level, newTargetLevelSites);
-                boolean[] superlevelUpdateHistory = updatedArrayAndHistory.getUpdateHistory();
+                boolean[] superlevelUpdateHistory = addToSitesArray(sitesByLevel, superlevels, newSite).getUpdateHistory();
                 for (int i = 0; i < superlevels.length; i++) {
                     if (superlevelUpdateHistory[i]) {
-                        updatedResult = addSiteCost(newSitesByLevel.get(superlevels[i]), minimumPositionsByLevelAndOrigin[superlevels[i]],
-                                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[superlevels[i]], searchParameters.getGraphArray(),
-                                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-                        double levelCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[superlevels[i]], searchParameters.getServicedProportionByLevel()[superlevels[i]], searchParameters.getTimepointWeights());
-                        newCostByLevel[superlevels[i]] = levelCost;
-                        newCostMapByLevel[superlevels[i]] = updatedResult.getCasesAndCostMap();
-                        newMinimumPositionsByLevelAndOrigin[superlevels[i]] = updatedResult.getPositions();
+                        newCost += assignmentByLevel[superlevels[i]].evaluateAdd(newSite) - costByLevel[superlevels[i]];
+                        isChangedByLevel[superlevels[i]] = true;
                     }
                 }
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
-            } else {
-                newSitesByLevel = new ArrayList<>(sitesByLevel);
-                newSitesByLevel.set(level, newTargetLevelSites);
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
             }
 
+            newCost += evaluateVolumePenaltyChange(isChangedByLevel, searchParameters);
+
             //Decide if cost change is acceptable
-            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-                sitesByLevel = newSitesByLevel;
-                cost = newCost;
-                costByLevel = newCostByLevel;
-                costMapByLevel = newCostMapByLevel;
-                minimumPositionsByLevelAndOrigin = newMinimumPositionsByLevelAndOrigin;
+            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+                commitLevels(isChangedByLevel);
             }
         }
     }
 
     //Unchanged from without permanent centers (only one of three)
-    public void tryAddSiteWithoutSuperlevels(int level, Integer newSite, SearchSpace searchParameters, double temp, int taskCount, ExecutorService executor) {
-        //Add lowest level site
-        List<Integer> newTargetLevelSites = new ArrayList<>(sitesByLevel.get(level));
-        newTargetLevelSites.add(newSite);
-
-        //Compute new parameters
-        CostMapAndPositions updatedResult = addSiteCost(newTargetLevelSites, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(),  executor);
-        List<List<Integer>> newSitesByLevel  = new ArrayList<>(sitesByLevel);
-        newSitesByLevel.set(level, newTargetLevelSites);
-        CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-        newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-        //double newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-        double newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
+    public void tryAddSiteWithoutSuperlevels(int level, Integer newSite, SearchSpace searchParameters, double temp, Random random, int taskCount, ExecutorService executor) {
+        //Compute cost of added site from origins that it is closest to
+        boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+        double newCost = cost - costByLevel[level] + assignmentByLevel[level].evaluateAdd(newSite);
+        newCost += evaluateVolumePenaltyChange(isChangedByLevel, searchParameters);
 
         //Decide if cost change is acceptable
-        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-            sitesByLevel.set(level, newTargetLevelSites);
-            cost = newCost;
-            costByLevel[level] = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
-            costMapByLevel = newCostMapByLevel;
-            minimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
+        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+            commitLevels(isChangedByLevel);
         }
     }
 
     //Variant with multithreading of previous removeLowestLevelSite
-    public void tryRemoveSite(int level, Integer removalSite, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, int taskCount, ExecutorService executor) {
-        //Remove one of the lowest level sites
-        List<Integer> newTargetLevelSites = new ArrayList<>(sitesByLevel.get(level));
-        int removalPosition = newTargetLevelSites.indexOf(removalSite);
-        newTargetLevelSites.remove(removalSite);
-
-        //Compute new parameters
-        CostMapAndPositions updatedResult = removeSiteCost(newTargetLevelSites, removalPosition, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getPermanentCentersCountByLevel()[level], searchParameters.getMinPermanentPositionByLevelAndOrigin()[level], searchParameters.getMinPermanentCostByLevelAndOrigin()[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        double newTargetLevelBaseCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
+    public void tryRemoveSite(int level, Integer removalSite, SearchSpace searchParameters, double temp, double targetLevelThresholdProbability, Random random, int taskCount, ExecutorService executor) {
+        //Compute cost of removal from origins of removed site
+        int removalPosition = sitesByLevel.get(level).indexOf(removalSite);
+        double newTargetLevelBaseCost = assignmentByLevel[level].evaluateRemove(removalPosition);
 
         //Ensure that new target level cost is not excessive compared to total configuration cost
         if (SimAnnealingSearch.acceptanceProbability(cost, newTargetLevelBaseCost, temp) > targetLevelThresholdProbability) {
-            //Update arrays and adjust for sublevel sites
-            List<List<Integer>> newSitesByLevel;
-            double newCost;
-            double[] newCostByLevel = costByLevel.clone();
-            newCostByLevel[level] = newTargetLevelBaseCost;
-            CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-            newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-            int[][] newMinimumPositionsByLevelAndOrigin = minimumPositionsByLevelAndOrigin.clone();
-            newMinimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
+            //Adjust for sublevel sites
+            boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+            double newCost = cost - costByLevel[level] + newTargetLevelBaseCost;
             if (searchParameters.getSublevelsByLevel()[level].length > 0) {
                 int[] sublevels = searchParameters.getSublevelsByLevel()[level];
                 SitesAndUpdateHistory updatedArrayAndHistory = removeFromSitesArray(sitesByLevel, sublevels, removalSite);
-                newSitesByLevel = updatedArrayAndHistory.getUpdatedSitesArray();
-                newSitesByLevel.set(level, newTargetLevelSites);
                 boolean[] sublevelUpdateHistory = updatedArrayAndHistory.getUpdateHistory();
                 int[] sublevelUpdatedPositions = updatedArrayAndHistory.getUpdatedPositions();
                 for (int i = 0; i < sublevels.length; i++) {
                     if (sublevelUpdateHistory[i]) {
-                        updatedResult = removeSiteCost(newSitesByLevel.get(sublevels[i]), sublevelUpdatedPositions[i], minimumPositionsByLevelAndOrigin[sublevels[i]],
-                                searchParameters.getPermanentCentersCountByLevel()[sublevels[i]], searchParameters.getMinPermanentPositionByLevelAndOrigin()[sublevels[i]], searchParameters.getMinPermanentCostByLevelAndOrigin()[sublevels[i]],
-                                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[sublevels[i]], searchParameters.getGraphArray(),
-                                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-                        double levelCost = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[sublevels[i]], searchParameters.getServicedProportionByLevel()[sublevels[i]], searchParameters.getTimepointWeights());
-                        newCostByLevel[sublevels[i]] = levelCost;
-                        newCostMapByLevel[sublevels[i]] = updatedResult.getCasesAndCostMap();
-                        newMinimumPositionsByLevelAndOrigin[sublevels[i]] = updatedResult.getPositions();
+                        newCost += assignmentByLevel[sublevels[i]].evaluateRemove(sublevelUpdatedPositions[i]) - costByLevel[sublevels[i]];
+                        isChangedByLevel[sublevels[i]] = true;
                     }
                 }
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
-            } else {
-                newSitesByLevel = new ArrayList<>(sitesByLevel);
-                newSitesByLevel.set(level, newTargetLevelSites);
-                //newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-                newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
             }
 
+            newCost += evaluateVolumePenaltyChange(isChangedByLevel, searchParameters);
+
             //Decide if cost change is acceptable
-            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-                sitesByLevel = newSitesByLevel;
-                cost = newCost;
-                costByLevel = newCostByLevel;
-                costMapByLevel = newCostMapByLevel;
-                minimumPositionsByLevelAndOrigin = newMinimumPositionsByLevelAndOrigin;
+            if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+                commitLevels(isChangedByLevel);
             }
         }
     }
 
     //Variant with multithreading of previous removeLowestLevelSite
-    public void tryRemovePositionWithoutSublevels(int level, int removalPosition, SearchSpace searchParameters, double temp, int taskCount, ExecutorService executor) {
-        //Remove one of the lowest level sites
-        List<Integer> newTargetLevelSites = new ArrayList<>(sitesByLevel.get(level));
-        newTargetLevelSites.remove(removalPosition);
-
-        //Compute new parameters
-        CostMapAndPositions updatedResult = removeSiteCost(newTargetLevelSites, removalPosition, minimumPositionsByLevelAndOrigin[level],
-                searchParameters.getPermanentCentersCountByLevel()[level], searchParameters.getMinPermanentPositionByLevelAndOrigin()[level], searchParameters.getMinPermanentCostByLevelAndOrigin()[level],
-                searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[level], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        List<List<Integer>> newSitesByLevel  = new ArrayList<>(sitesByLevel);
-        newSitesByLevel.set(level, newTargetLevelSites);
-        CasesAndCostMap[] newCostMapByLevel = costMapByLevel.clone();
-        newCostMapByLevel[level] = updatedResult.getCasesAndCostMap();
-        //double newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointWeights());
-        double newCost = CostCalculator.computeCost(newCostMapByLevel, newSitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
+    public void tryRemovePositionWithoutSublevels(int level, int removalPosition, SearchSpace searchParameters, double temp, Random random, int taskCount, ExecutorService executor) {
+        //Compute cost of removal from origins of removed site
+        boolean[] isChangedByLevel = beginChangedLevels(level, searchParameters.getCenterLevels());
+        double newCost = cost - costByLevel[level] + assignmentByLevel[level].evaluateRemove(removalPosition);
+        newCost += evaluateVolumePenaltyChange(isChangedByLevel, searchParameters);
 
         //Decide if cost change is acceptable
-        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-            sitesByLevel.set(level, newTargetLevelSites);
-            cost = newCost;
-            costByLevel[level] = CostCalculator.computeLevelSpecificBaseCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCasesByLevel()[level], searchParameters.getServicedProportionByLevel()[level], searchParameters.getTimepointWeights());
-            costMapByLevel = newCostMapByLevel;
-            minimumPositionsByLevelAndOrigin[level] = updatedResult.getPositions();
+        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+            commitLevels(isChangedByLevel);
         }
     }
 
-    //Update sites array by replacing removedSite with newSite for all sites in the array. Output is updated sites array, updated positions, and history of updates, true for each level that was changed and false if not. Must account for permanent centers not being movable in superlevels.
-    public static SitesAndUpdateHistory shiftSitesArray(List<List<Integer>> sitesArray, int level, int totalLevels, int[][] sublevelsByLevel, int[][] superlevelsByLevel, int[] permanentCenterCountByLevel, Integer removedSite, Integer newSite) {
-        List<List<Integer>> updatedSitesArray = new ArrayList<>(sitesArray);
+    //Applies pending moves of changed levels and their volume penalty change
+    private void commitLevels(boolean[] isChangedByLevel) {
+        for (int level = 0; level < isChangedByLevel.length; level++) {
+            if (isChangedByLevel[level]) {
+                assignmentByLevel[level].commitMove();
+                sitesByLevel.set(level, assignmentByLevel[level].getSites());
+                cost += assignmentByLevel[level].getLevelCost() - costByLevel[level];
+                costByLevel[level] = assignmentByLevel[level].getLevelCost();
+                minimumPositionsByLevelAndOrigin[level] = assignmentByLevel[level].getPositions();
+            }
+        }
+        if (volumePenaltyEvaluator != null) {
+            cost += volumePenaltyEvaluator.takePendingChange();
+        }
+    }
 
-        boolean[] updateHistory = new boolean[totalLevels];
-        int[] updatedPositions = new int[totalLevels]; //-2 if added site
-        Arrays.fill(updatedPositions, -1);
+    //Changed levels of a new move, with only level marked
+    private boolean[] beginChangedLevels(int level, int levelCount) {
+        if (changedLevels == null) {
+            changedLevels = new boolean[levelCount];
+        } else {
+            Arrays.fill(changedLevels, false);
+        }
+        changedLevels[level] = true;
+        return changedLevels;
+    }
+
+    private SitesArrayBuffers getSitesArrayBuffers(int levelCount) {
+        if (sitesArrayBuffers == null) {
+            sitesArrayBuffers = new SitesArrayBuffers(levelCount);
+        }
+        return sitesArrayBuffers;
+    }
+
+    //Volume penalty change if pending moves of changed levels are applied, applied by commitLevels. Sites include permanent centers. Zero if there is no volume penalty.
+    private double evaluateVolumePenaltyChange(boolean[] isChangedByLevel, SearchSpace searchParameters) {
+        if (volumePenaltyEvaluator == null) {
+            volumePenaltyEvaluator = new VolumePenaltyEvaluator(assignmentByLevel, searchParameters.getGraphArray().getTotalSitesCount(), searchParameters.getVolumePenalty());
+        }
+        return volumePenaltyEvaluator.evaluateChange(isChangedByLevel, searchParameters.getTimepointCount(), searchParameters.getTimepointWeights());
+    }
+
+    //Update sites array by replacing removedSite with newSite for all sites in the array. Output is updated sites array, updated positions, and history of updates, true for each level that was changed and false if not. Must account for permanent centers not being movable in superlevels.
+    //Updated sites are copied into buffers, which the output refers to until their next use.
+    public static SitesAndUpdateHistory shiftSitesArray(List<List<Integer>> sitesArray, int level, int[][] sublevelsByLevel, int[][] superlevelsByLevel, int[] permanentCenterCountByLevel, Integer removedSite, Integer newSite, SitesArrayBuffers buffers) {
+        buffers.reset(sitesArray);
+        List<List<Integer>> updatedSitesArray = buffers.getUpdatedSitesArray();
+        boolean[] updateHistory = buffers.getUpdateHistory();
+        int[] updatedPositions = buffers.getUpdatedPositions(); //-2 if added site
 
         //Target sublevels and superlevels
         int[] sublevels = sublevelsByLevel[level];
         int[] superlevels = superlevelsByLevel[level];
 
         //Additional sublevels and superlevels to cycle
-        boolean[] sublevelProcessedHistory = new boolean[totalLevels];
+        boolean[] sublevelProcessedHistory = buffers.getSublevelProcessedHistory();
         sublevelProcessedHistory[level] = true;
-        boolean[] superlevelProcessedHistory = new boolean[totalLevels];
+        boolean[] superlevelProcessedHistory = buffers.getSuperlevelProcessedHistory();
         superlevelProcessedHistory[level] = true;
-        List<Integer> higherOrderSublevelsToProcess = new ArrayList<>();
-        List<Integer> higherOrderSuperlevelsToProcess = new ArrayList<>();
+        List<Integer> higherOrderSublevelsToProcess = buffers.getHigherOrderSublevelsToProcess();
+        List<Integer> higherOrderSuperlevelsToProcess = buffers.getHigherOrderSuperlevelsToProcess();
 
         //Update target level sublevels
         //Any permanent center in sublevel is also permanent center in target level
@@ -518,7 +359,7 @@ public class LeveledSiteConfigurationForPermanentCenters extends SiteConfigurati
             List<Integer> currentSites = updatedSitesArray.get(sublevel);
             for (int position = 0; position < currentSites.size(); position++) {
                 if (currentSites.get(position).equals(removedSite)) {
-                    List<Integer> updatedSites = new ArrayList<>(currentSites);
+                    List<Integer> updatedSites = buffers.copySites(sublevel, currentSites);
                     updatedSites.set(position, newSite);
                     updatedSitesArray.set(sublevel, updatedSites);
                     updateHistory[sublevel] = true;
@@ -538,7 +379,7 @@ public class LeveledSiteConfigurationForPermanentCenters extends SiteConfigurati
         //Non-permanent center in target level may be permanent center in superlevel
         updateSuperlevels:
         for (int superlevel : superlevels) {
-            List<Integer> updatedSites = new ArrayList<>(updatedSitesArray.get(superlevel));
+            List<Integer> updatedSites = buffers.copySites(superlevel, updatedSitesArray.get(superlevel));
             boolean removedSiteIsPermanent = false;
             for (int position = 0; position < permanentCenterCountByLevel[level]; position++) { //First sites are permanent sites
                 if (updatedSitesArray.get(superlevel).get(position).equals(removedSite)) {
@@ -591,7 +432,7 @@ public class LeveledSiteConfigurationForPermanentCenters extends SiteConfigurati
                 List<Integer> currentSites = updatedSitesArray.get(sublevel);
                 for (int position = 0; position < currentSites.size(); position++) {
                     if (currentSites.get(position).equals(removedSite)) {
-                        List<Integer> updatedSites = new ArrayList<>(currentSites);
+                        List<Integer> updatedSites = buffers.copySites(sublevel, currentSites);
                         updatedSites.set(position, newSite);
                         updatedSitesArray.set(sublevel, updatedSites);
                         updateHistory[sublevel] = true;
@@ -606,12 +447,12 @@ public class LeveledSiteConfigurationForPermanentCenters extends SiteConfigurati
                 }
                 sublevelProcessedHistory[sublevel] = true;
             }
-            higherOrderSublevelsToProcess = new ArrayList<>();
+            higherOrderSublevelsToProcess.clear();
 
             //Update secondary superlevels
             updateSuperlevels:
             for (int superlevel : higherOrderSuperlevelsToProcess) {
-                List<Integer> updatedSites = new ArrayList<>(updatedSitesArray.get(superlevel));
+                List<Integer> updatedSites = buffers.copySites(superlevel, updatedSitesArray.get(superlevel));
                 boolean removedSiteIsPermanent = false;
                 for (int position = 0; position < permanentCenterCountByLevel[level]; position++) { //First sites are permanent sites
                     if (updatedSitesArray.get(superlevel).get(position).equals(removedSite)) {
@@ -657,10 +498,10 @@ public class LeveledSiteConfigurationForPermanentCenters extends SiteConfigurati
                 }
                 superlevelProcessedHistory[superlevel] = true;
             }
-            higherOrderSuperlevelsToProcess = new ArrayList<>();
+            higherOrderSuperlevelsToProcess.clear();
         }
 
-        return new SitesAndUpdateHistory(updatedSitesArray, updateHistory, updatedPositions);
+        return buffers.getResult();
     }
 
     //Update sites array by adding newSite to all superlevels if not already present.
@@ -707,13 +548,18 @@ public class LeveledSiteConfigurationForPermanentCenters extends SiteConfigurati
         return new SitesAndUpdateHistory(updatedSitesArray, sublevelUpdateHistory,sublevelUpdatedPositions);
     }
 
-    //Equal chance to try any level, performance is generally better if high likelihood that there is an available site. Shuffles SearchSpace superlevels by level.
-    public List<Integer> getRandomSuperlevelUnusedSites(int level, int[] superlevels) {
+    //Equal chance to try any level first, performance is generally better if high likelihood that there is an available site.
+    //Superlevels are tried cyclically from a random start rather than shuffled, as they are the SearchSpace array shared by concurrent searches.
+    public List<Integer> getRandomSuperlevelUnusedSites(int level, int[] superlevels, Random random) {
         List<Integer> unusedSuperlevelSites = null;
+        if (superlevels.length == 0) {
+            return unusedSuperlevelSites;
+        }
 
         //Process target superlevels
-        ArrayOperations.shuffleIntegerArray(superlevels);
-        for (int superlevel : superlevels) {
+        int startingPosition = random.nextInt(superlevels.length);
+        for (int i = 0; i < superlevels.length; i++) {
+            int superlevel = superlevels[(startingPosition + i) % superlevels.length];
             unusedSuperlevelSites = new ArrayList<>(sitesByLevel.get(superlevel));
             unusedSuperlevelSites.removeAll(sitesByLevel.get(level));
             if (unusedSuperlevelSites.size() > 0) {
@@ -0,0 +1,55 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+//Graph backed by memory-mapped binary graph file. Pages are loaded lazily by the OS so that startup does not parse text and heap use does not scale with originCount * totalSitesCount.
+public class MappedGraph extends Graph {
+    private final DoubleBuffer[] rowBlocks; //each block holds rowsPerBlock whole origins and is at most Integer.MAX_VALUE bytes
+    private final int rowsPerBlock;
+    private final DoubleBuffer singleBlock; //non-null when the whole matrix fits in one block
+
+    public MappedGraph(String binaryLocation) throws IOException {
+        this(binaryLocation, openHeader(binaryLocation));
+    }
+
+    private MappedGraph(String binaryLocation, BinaryGraphFile.Header header) throws IOException {
+        super(header.getOriginCount(), header.getSitesCount());
+        long rowBytes = (long) totalSitesCount * Double.BYTES;
+        this.rowsPerBlock = (int) Math.max(1, Math.min(originCount, Integer.MAX_VALUE / rowBytes));
+        int blockCount = (originCount + rowsPerBlock - 1) / rowsPerBlock;
+        this.rowBlocks = new DoubleBuffer[blockCount];
+        try (FileChannel channel = FileChannel.open(Paths.get(binaryLocation), StandardOpenOption.READ)) {
+            for (int i = 0; i < blockCount; i++) {
+                int blockRows = Math.min(rowsPerBlock, originCount - i * rowsPerBlock);
+                long blockStart = BinaryGraphFile.HEADER_BYTES + i * rowsPerBlock * rowBytes;
+                rowBlocks[i] = channel.map(FileChannel.MapMode.READ_ONLY, blockStart, blockRows * rowBytes).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+        }
+        this.singleBlock = blockCount == 1 ? rowBlocks[0] : null;
+        System.out.println("Mapped " + originCount + " origins by " + totalSitesCount + " sites from " + binaryLocation + " in " + blockCount + " block(s).");
+    }
+
+    private static BinaryGraphFile.Header openHeader(String binaryLocation) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(binaryLocation), StandardOpenOption.READ)) {
+            return BinaryGraphFile.readHeader(channel, binaryLocation);
+        }
+    }
+
+    //Site-major copy is not kept as it would place a second matrix of this size on heap
+    @Override
+    public void createSiteMajorCopy() {
+        System.out.println("Site-major graph copy is not supported for mapped graphs, using row-major graph.");
+    }
+
+    //Compute travel distance from origin to destination (site)
+    @Override
+    public double getEdgeLength(int origin, int destination) {
+        if (singleBlock != null) {
+            return singleBlock.get(origin * totalSitesCount + destination);
+        }
+        return rowBlocks[origin / rowsPerBlock].get((origin % rowsPerBlock) * totalSitesCount + destination);
+    }
+}
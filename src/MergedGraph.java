@@ -0,0 +1,25 @@
+//Graph whose sites are the sites of firstGraph followed by the sites of secondGraph, e.g. potential sites followed by permanent centers. Neither graph is copied, so mapped graphs stay mapped.
+public class MergedGraph extends Graph {
+    private final Graph firstGraph;
+    private final Graph secondGraph;
+    private final int firstSitesCount;
+
+    public MergedGraph(Graph firstGraph, Graph secondGraph) {
+        super(firstGraph.getOriginCount(), firstGraph.getTotalSitesCount() + secondGraph.getTotalSitesCount());
+        if (secondGraph.getOriginCount() != firstGraph.getOriginCount()) {
+            throw new IllegalArgumentException("Graphs to merge have " + firstGraph.getOriginCount() + " and " + secondGraph.getOriginCount() + " origins.");
+        }
+        this.firstGraph = firstGraph;
+        this.secondGraph = secondGraph;
+        this.firstSitesCount = firstGraph.getTotalSitesCount();
+    }
+
+    //Compute travel distance from origin to destination (site)
+    @Override
+    public double getEdgeLength(int origin, int destination) {
+        if (destination < firstSitesCount) {
+            return firstGraph.getEdgeLength(origin, destination);
+        }
+        return secondGraph.getEdgeLength(origin, destination - firstSitesCount);
+    }
+}
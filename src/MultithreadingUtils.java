@@ -1,10 +1,90 @@
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public final class MultithreadingUtils {
     private MultithreadingUtils(){}
 
+    //Thread pool for searches, a fork-join pool if useForkJoinPool. Fork-join pool balances uneven origin ranges by work stealing and lets nested parallel calls help rather than block, see ForkJoinOriginTask.
+    public static ExecutorService newExecutor(int threadCount, boolean useForkJoinPool) {
+        return useForkJoinPool ? new ForkJoinPool(threadCount) : Executors.newFixedThreadPool(threadCount);
+    }
+
+    //Combined map of kernel over origins. Fixed ranges [startingOrigins[i], endingOrigins[i]) are evaluated one task each and waited on with a latch, unless executor is a fork-join pool.
+    public static CasesAndCostMap evaluateOriginRanges(OriginRangeKernel kernel, int timepointCount, int siteCount, int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor) {
+        return evaluateOriginRanges(kernel, timepointCount, siteCount, taskCount, startingOrigins, endingOrigins, executor, null);
+    }
+
+    //Variant drawing partition maps from bufferPool if not null. The first partition map is returned as combined map and the others are released before returning.
+    public static CasesAndCostMap evaluateOriginRanges(OriginRangeKernel kernel, int timepointCount, int siteCount, int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor, CostBufferPool bufferPool) {
+        if (executor instanceof ForkJoinPool forkJoinPool) {
+            return ForkJoinOriginTask.evaluate(kernel, endingOrigins[taskCount - 1], timepointCount, siteCount, forkJoinPool, bufferPool);
+        }
+        CountDownLatch latch = new CountDownLatch(taskCount);
+        CasesAndCostMap[] partitionedMinimumCostMap = new CasesAndCostMap[taskCount];
+        for (int i = 0; i < taskCount; i++) {
+            int finalI = i;
+            executor.execute(() -> {
+                CasesAndCostMap partitionMinimumCostMap = bufferPool == null ? new CasesAndCostMap(timepointCount, siteCount) : bufferPool.borrowCostMap(timepointCount, siteCount);
+                kernel.evaluate(startingOrigins[finalI], endingOrigins[finalI], partitionMinimumCostMap);
+                partitionedMinimumCostMap[finalI] = partitionMinimumCostMap;
+                latch.countDown();
+            });
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e){
+            throw new AssertionError("Unexpected interruption", e);
+        }
+        //Combined into first partition map so that no further map is allocated
+        CasesAndCostMap combinedMinimumCostMap = partitionedMinimumCostMap[0];
+        for (int i = 1; i < taskCount; i++) {
+            combinedMinimumCostMap.add(partitionedMinimumCostMap[i]);
+            if (bufferPool != null) bufferPool.release(partitionedMinimumCostMap[i]);
+        }
+        return combinedMinimumCostMap;
+    }
+
+    //Runs task in pool, directly in the calling worker if it already belongs to pool so that it does not wait on its own pool
+    public static <T> T invoke(ForkJoinTask<T> task, ForkJoinPool pool) {
+        if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+            return task.invoke();
+        }
+        return pool.invoke(task);
+    }
+
+    //Runs tasks in pool and waits for all of them
+    public static void invokeAll(List<Runnable> tasks, ForkJoinPool pool) {
+        List<ForkJoinTask<?>> forkJoinTasks = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            forkJoinTasks.add(ForkJoinTask.adapt(task));
+        }
+        invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(forkJoinTasks)), pool);
+    }
+
+    //Runs tasks on executor and waits for all of them, with invokeAll on a fork-join pool so that a worker calling from within it helps rather than blocks
+    public static void runAll(List<Runnable> tasks, ExecutorService executor) {
+        if (executor instanceof ForkJoinPool forkJoinPool) {
+            invokeAll(tasks, forkJoinPool);
+            return;
+        }
+        CountDownLatch latch = new CountDownLatch(tasks.size());
+        for (Runnable task : tasks) {
+            executor.execute(() -> {
+                task.run();
+                latch.countDown();
+            });
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e){
+            throw new AssertionError("Unexpected interruption", e);
+        }
+    }
+
     //Partitions list into n sublists of same size +/- 1. The longer sublists are first.
     public static <T> List<List<T>> partitionList(List<T> list, int n) {
         int listSize = list.size();
@@ -0,0 +1,6 @@
+//Closest sites for a range of origins [startingOrigin, endingOrigin), adding cases and travel cost of each origin to partitionMinimumCostMap.
+//Ranges of one evaluation are disjoint, so kernels may write outputs by origin into shared arrays.
+@FunctionalInterface
+public interface OriginRangeKernel {
+    void evaluate(int startingOrigin, int endingOrigin, CasesAndCostMap partitionMinimumCostMap);
+}
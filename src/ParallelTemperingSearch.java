@@ -0,0 +1,137 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//Replica exchange search. Leveled configurations at a geometric ladder of fixed temperatures from finalTemp to initialTemp advance concurrently, one thread per replica,
+//and after every exchangeInterval sweeps configurations at adjacent temperatures are exchanged with probability min(1, exp((1 / T_i - 1 / T_j) * (E_i - E_j))).
+//Cost kernels of all replicas share the search executor, which therefore must not be the executor running the replicas.
+public class ParallelTemperingSearch extends SimAnnealingWithoutPermanentCenters {
+    public int exchangeInterval = 10; //sweeps between exchange attempts
+
+    //Replica exchange over search space, executor and annealing configuration of search
+    public ParallelTemperingSearch(SimAnnealingSearch search) {
+        super(search);
+    }
+
+    //Temperatures by replica, geometric from lowestTemp to highestTemp
+    public static double[] geometricLadder(double lowestTemp, double highestTemp, int replicaCount) {
+        double[] temps = new double[replicaCount];
+        for (int replica = 0; replica < replicaCount; replica++) {
+            temps[replica] = replicaCount == 1 ? lowestTemp : lowestTemp * Math.pow(highestTemp / lowestTemp, replica / (double) (replicaCount - 1));
+        }
+        return temps;
+    }
+
+    //Best configuration found by replicaCount replicas over sweepCount sweeps each, polished with best improving swaps. Replaces the best of replicaCount independent annealing runs.
+    public LeveledSiteConfiguration leveledOptimizeCenters(int replicaCount, int sweepCount, int taskCount) throws InterruptedException {
+        long timer = System.currentTimeMillis(); // development only
+        Random random = createRandom();
+
+        //Overriding finalNeighborhoodSize locally based on number of centers to optimize if -1 chosen
+        List<Integer> allPotentialSites = IntStream.range(0, searchParameters.getPotentialSitesCount()).boxed().collect(Collectors.toList());
+        int[] localFinalNeighborhoodSizeByLevel = new int[searchParameters.getCenterLevels()];
+        for (int i = 0; i < searchParameters.getCenterLevels(); i++) {
+            localFinalNeighborhoodSizeByLevel[i] = SimAnnealingNeighbor.getFinalNeighborhoodSize(searchParameters.getPotentialSitesCount(), searchParameters.getMaxNewCentersByLevel()[i], finalNeighborhoodSize);
+        }
+        double targetLevelThresholdProbability = targetLevelThresholdProbability();
+
+        //Replicas by temperature, coldest first
+        double[] temps = geometricLadder(finalTemp, initialTemp, replicaCount);
+        LeveledSiteConfiguration[] replicas = new LeveledSiteConfiguration[replicaCount];
+        Random[] randomByReplica = new Random[replicaCount];
+        for (int replica = 0; replica < replicaCount; replica++) {
+            randomByReplica[replica] = new Random(random.nextLong());
+            replicas[replica] = new LeveledSiteConfiguration(allPotentialSites, searchParameters, randomByReplica[replica], taskCount, executor);
+        }
+        LeveledSiteConfiguration bestConfiguration = null;
+        int[] exchangeAttemptsByPair = new int[Math.max(replicaCount - 1, 0)];
+        int[] exchangesByPair = new int[Math.max(replicaCount - 1, 0)];
+        System.out.println("Replica temperatures " + Arrays.toString(temps));
+
+        ExecutorService replicaExecutor = Executors.newFixedThreadPool(replicaCount);
+        try {
+            int sweep = 0;
+            int round = 0;
+            while (sweep < sweepCount) {
+                //Advance every replica by up to exchangeInterval sweeps at its temperature
+                int firstSweep = sweep + 1;
+                int lastSweep = Math.min(sweep + exchangeInterval, sweepCount);
+                List<Callable<Void>> tasks = new ArrayList<>(replicaCount);
+                for (int replica = 0; replica < replicaCount; replica++) {
+                    LeveledSiteConfiguration configuration = replicas[replica];
+                    double temp = temps[replica];
+                    Random replicaRandom = randomByReplica[replica];
+                    tasks.add(() -> {
+                        for (int simAnnealingIteration = firstSweep; simAnnealingIteration <= lastSweep; simAnnealingIteration++) {
+                            leveledSweep(configuration, temp, simAnnealingIteration, localFinalNeighborhoodSizeByLevel, allPotentialSites, targetLevelThresholdProbability, replicaRandom, taskCount);
+                        }
+                        return null;
+                    });
+                }
+                for (Future<Void> future : replicaExecutor.invokeAll(tasks)) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        throw new RuntimeException("Replica failed", e.getCause());
+                    }
+                }
+                sweep = lastSweep;
+
+                //Keep copy of best configuration, as replicas move on
+                for (LeveledSiteConfiguration configuration : replicas) {
+                    if (bestConfiguration == null || configuration.getCost() < bestConfiguration.getCost()) {
+                        bestConfiguration = new LeveledSiteConfiguration(configuration);
+                    }
+                }
+
+                //Exchange configurations of adjacent temperatures, alternating between even and odd pairs
+                for (int lower = round % 2; lower + 1 < replicaCount; lower += 2) {
+                    int upper = lower + 1;
+                    double logAcceptance = (1 / temps[lower] - 1 / temps[upper]) * (replicas[lower].getCost() - replicas[upper].getCost());
+                    exchangeAttemptsByPair[lower] += 1;
+                    if (logAcceptance >= 0 || Math.exp(logAcceptance) > random.nextDouble()) {
+                        LeveledSiteConfiguration swapped = replicas[lower];
+                        replicas[lower] = replicas[upper];
+                        replicas[upper] = swapped;
+                        exchangesByPair[lower] += 1;
+                    }
+                }
+                round += 1;
+
+                long elapsedTime = System.currentTimeMillis() - timer; //development only
+                if (elapsedTime > updateFrequency) { //development only
+                    double[] costs = new double[replicaCount];
+                    for (int replica = 0; replica < replicaCount; replica++) {
+                        costs[replica] = replicas[replica].getCost();
+                    }
+                    System.out.println("Sweep " + sweep + " of " + sweepCount + " with replica costs " + Arrays.toString(costs) + " and exchanges by pair " + Arrays.toString(exchangesByPair) + " of " + Arrays.toString(exchangeAttemptsByPair)); // development only
+                    System.out.println("The best cost is " + bestConfiguration.getCost() + " at positions " + bestConfiguration.getSitesByLevel()); // development only
+                    timer = System.currentTimeMillis(); // development only
+                } // development only
+
+                //For multithreading to allow interruption after sufficient search is completed.
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            replicaExecutor.shutdownNow();
+        }
+        if (bestConfiguration == null) { //no sweeps
+            bestConfiguration = replicas[0];
+            for (LeveledSiteConfiguration configuration : replicas) {
+                if (configuration.getCost() < bestConfiguration.getCost()) {
+                    bestConfiguration = configuration;
+                }
+            }
+        }
+
+        //Polish with best improving swaps
+        if (polishSwapCount > 0) {
+            int swapCount = bestConfiguration.polishWithSwaps(searchParameters, polishSwapCount);
+            System.out.println("Polished to cost " + bestConfiguration.getCost() + " with " + swapCount + " swaps");
+        }
+        return bestConfiguration;
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//Concurrent multi-start search. Independent annealing chains with their own seeds and cooling rates run on one thread each over the shared search space, which chains only read,
+//publish improvements to a lock-free incumbent and stop early once they are far above it at low temperature, as they are then unlikely to reach it before the end of their schedule.
+//Cost kernels of all chains share the search executor, which therefore must not be the executor running the chains.
+public class PortfolioSearch extends SimAnnealingWithoutPermanentCenters {
+    public int checkInterval = 20; //sweeps between incumbent updates, cancellation checks and trace points
+    public double cancellationScheduleFraction = 0.5; //fraction of schedule after which a chain may be cancelled
+    public double cancellationRelativeGap = 0.01; //relative excess over incumbent cost for cancellation...
+    public double cancellationTemperatureMultiple = 20; //...which must also exceed this multiple of chain temperature
+
+    //Portfolio over search space, executor and annealing configuration of search
+    public PortfolioSearch(SimAnnealingSearch search) {
+        super(search);
+    }
+
+    //Settings of one chain
+    public record ChainSettings(long seed, double coolingRate) {}
+
+    //Cost of a chain at one of its trace points
+    public record TracePoint(int sweep, double temp, double cost, double incumbentCost) {}
+
+    //Trace of a finished chain, final cost after polishing unless cancelled
+    public record ChainTrace(int chain, ChainSettings settings, List<TracePoint> tracePoints, boolean isCancelled, int sweepCount, double finalCost, long runtime) {}
+
+    //Best configuration published by any chain and traces by chain
+    public record PortfolioResult(LeveledSiteConfiguration bestConfiguration, int bestChain, List<ChainTrace> chainTraces) {}
+
+    //Published configuration, never modified after publication, and whether it was copied from a chain that continued
+    private record Incumbent(LeveledSiteConfiguration configuration, int chain, boolean isCopied) {}
+
+    //Chains cycling through the annealing cooling rate, a slower and a faster one, each with its own seed
+    public List<ChainSettings> defaultPortfolio(int chainCount, long seed) {
+        Random random = new Random(seed);
+        double[] coolingRates = {coolingRate, Math.sqrt(coolingRate), coolingRate * coolingRate};
+        List<ChainSettings> portfolio = new ArrayList<>(chainCount);
+        for (int chain = 0; chain < chainCount; chain++) {
+            portfolio.add(new ChainSettings(random.nextLong(), coolingRates[chain % coolingRates.length]));
+        }
+        return portfolio;
+    }
+
+    //Runs a chain for each settings concurrently, returning the best configuration published by any chain
+    public PortfolioResult leveledOptimizeCenters(List<ChainSettings> portfolio, int taskCount) throws InterruptedException {
+        List<Integer> allPotentialSites = IntStream.range(0, searchParameters.getPotentialSitesCount()).boxed().collect(Collectors.toList());
+        int[] localFinalNeighborhoodSizeByLevel = new int[searchParameters.getCenterLevels()];
+        for (int i = 0; i < searchParameters.getCenterLevels(); i++) {
+            localFinalNeighborhoodSizeByLevel[i] = SimAnnealingNeighbor.getFinalNeighborhoodSize(searchParameters.getPotentialSitesCount(), searchParameters.getMaxNewCentersByLevel()[i], finalNeighborhoodSize);
+        }
+        double targetLevelThresholdProbability = targetLevelThresholdProbability();
+        AtomicReference<Incumbent> incumbent = new AtomicReference<>();
+
+        ExecutorService chainExecutor = Executors.newFixedThreadPool(portfolio.size());
+        List<ChainTrace> chainTraces = new ArrayList<>(portfolio.size());
+        try {
+            List<Callable<ChainTrace>> chains = new ArrayList<>(portfolio.size());
+            for (int chain = 0; chain < portfolio.size(); chain++) {
+                int finalChain = chain;
+                chains.add(() -> runChain(finalChain, portfolio.get(finalChain), incumbent, localFinalNeighborhoodSizeByLevel, allPotentialSites, targetLevelThresholdProbability, taskCount));
+            }
+            for (Future<ChainTrace> future : chainExecutor.invokeAll(chains)) {
+                try {
+                    chainTraces.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Chain failed", e.getCause());
+                }
+            }
+        } finally {
+            chainExecutor.shutdownNow();
+        }
+
+        //Incumbent copied before its chain moved on has not been polished yet, while one published at the end of its chain already was
+        LeveledSiteConfiguration bestConfiguration = incumbent.get().configuration();
+        if (incumbent.get().isCopied() && polishSwapCount > 0) {
+            bestConfiguration.polishWithSwaps(searchParameters, polishSwapCount);
+        }
+        System.out.println("Best cost " + bestConfiguration.getCost() + " from chain " + incumbent.get().chain() + " with final costs by chain " + chainTraces.stream().map(ChainTrace::finalCost).collect(Collectors.toList()));
+        return new PortfolioResult(bestConfiguration, incumbent.get().chain(), chainTraces);
+    }
+
+    //Anneals one configuration from initialTemp to finalTemp at the cooling rate of settings, unless cancelled
+    private ChainTrace runChain(int chain, ChainSettings settings, AtomicReference<Incumbent> incumbent, int[] localFinalNeighborhoodSizeByLevel, List<Integer> allPotentialSites,
+                                double targetLevelThresholdProbability, int taskCount) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        Random random = new Random(settings.seed());
+        int scheduledSweepCount = (int) Math.ceil(Math.log(finalTemp / initialTemp) / Math.log(settings.coolingRate()));
+        List<TracePoint> tracePoints = new ArrayList<>();
+
+        LeveledSiteConfiguration currentSiteConfiguration = new LeveledSiteConfiguration(allPotentialSites, searchParameters, random, taskCount, executor);
+        publish(incumbent, currentSiteConfiguration, chain, true);
+
+        //Main simulated annealing algorithm
+        double temp = initialTemp;
+        int simAnnealingIteration = 0;
+        boolean isCancelled = false;
+        while (temp > finalTemp) {
+            simAnnealingIteration += 1;
+            leveledSweep(currentSiteConfiguration, temp, simAnnealingIteration, localFinalNeighborhoodSizeByLevel, allPotentialSites, targetLevelThresholdProbability, random, taskCount);
+            temp *= settings.coolingRate();
+
+            if (simAnnealingIteration % checkInterval == 0) {
+                publish(incumbent, currentSiteConfiguration, chain, true);
+                double incumbentCost = incumbent.get().configuration().getCost();
+                tracePoints.add(new TracePoint(simAnnealingIteration, temp, currentSiteConfiguration.getCost(), incumbentCost));
+                if (isHopeless(currentSiteConfiguration.getCost(), incumbentCost, temp, simAnnealingIteration, scheduledSweepCount)) {
+                    isCancelled = true;
+                    break;
+                }
+            }
+
+            //For multithreading to allow interruption after sufficient search is completed.
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+
+        //Polish with best improving swaps, configuration is no longer modified once published
+        if (!isCancelled) {
+            if (polishSwapCount > 0) {
+                currentSiteConfiguration.polishWithSwaps(searchParameters, polishSwapCount);
+            }
+            publish(incumbent, currentSiteConfiguration, chain, false);
+        }
+        tracePoints.add(new TracePoint(simAnnealingIteration, temp, currentSiteConfiguration.getCost(), incumbent.get().configuration().getCost()));
+        System.out.println("Chain " + chain + (isCancelled ? " cancelled" : " finished") + " after " + simAnnealingIteration + " of " + scheduledSweepCount + " sweeps at cost " + currentSiteConfiguration.getCost());
+        return new ChainTrace(chain, settings, tracePoints, isCancelled, simAnnealingIteration, currentSiteConfiguration.getCost(), System.currentTimeMillis() - startTime);
+    }
+
+    //Chain far above incumbent late in its schedule, both relative to incumbent cost and to the cost differences it still accepts at its temperature
+    public boolean isHopeless(double cost, double incumbentCost, double temp, int sweep, int scheduledSweepCount) {
+        double gap = cost - incumbentCost;
+        return sweep >= cancellationScheduleFraction * scheduledSweepCount && gap > cancellationRelativeGap * Math.abs(incumbentCost) && gap > cancellationTemperatureMultiple * temp;
+    }
+
+    //Replaces incumbent if configuration is cheaper, copying configuration first if its chain continues to modify it
+    private static void publish(AtomicReference<Incumbent> incumbent, LeveledSiteConfiguration configuration, int chain, boolean isCopied) {
+        Incumbent current = incumbent.get();
+        if (current != null && current.configuration().getCost() <= configuration.getCost()) {
+            return;
+        }
+        Incumbent candidate = new Incumbent(isCopied ? new LeveledSiteConfiguration(configuration) : configuration, chain, isCopied);
+        while (current == null || candidate.configuration().getCost() < current.configuration().getCost()) {
+            if (incumbent.compareAndSet(current, candidate)) {
+                return;
+            }
+            current = incumbent.get();
+        }
+    }
+}
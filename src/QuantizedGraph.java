@@ -0,0 +1,93 @@
+//Graph stored as unsigned 16-bit integers (char) in units of 1 / unitsPerCost, quartering memory use.
+//Values above the representable range are saturated at the maximum and reported at load.
+public class QuantizedGraph extends Graph {
+    private static final int MAXIMUM_STORED_VALUE = Character.MAX_VALUE;
+    private final char[] quantizedGraphArray;
+    private char[] siteMajorQuantizedGraphArray;
+    private final double costPerUnit;
+
+    public QuantizedGraph(double[][] twoDimensionalGraphArray, double unitsPerCost) {
+        super(twoDimensionalGraphArray.length, twoDimensionalGraphArray[0].length);
+        this.costPerUnit = 1 / checkUnitsPerCost(unitsPerCost);
+        this.quantizedGraphArray = new char[originCount * totalSitesCount];
+        QuantizationError error = new QuantizationError();
+        for (int origin = 0; origin < originCount; origin++) {
+            for (int site = 0; site < totalSitesCount; site++) {
+                quantizedGraphArray[origin * totalSitesCount + site] = quantize(twoDimensionalGraphArray[origin][site], unitsPerCost, error);
+            }
+        }
+        error.report(unitsPerCost);
+    }
+
+    public QuantizedGraph(Graph sourceGraph, double unitsPerCost) {
+        super(sourceGraph.getOriginCount(), sourceGraph.getTotalSitesCount());
+        this.costPerUnit = 1 / checkUnitsPerCost(unitsPerCost);
+        this.quantizedGraphArray = new char[originCount * totalSitesCount];
+        QuantizationError error = new QuantizationError();
+        for (int origin = 0; origin < originCount; origin++) {
+            for (int site = 0; site < totalSitesCount; site++) {
+                quantizedGraphArray[origin * totalSitesCount + site] = quantize(sourceGraph.getEdgeLength(origin, site), unitsPerCost, error);
+            }
+        }
+        error.report(unitsPerCost);
+    }
+
+    private static double checkUnitsPerCost(double unitsPerCost) {
+        if (!(unitsPerCost > 0) || Double.isInfinite(unitsPerCost)) {
+            throw new IllegalArgumentException("Units per cost must be positive and finite but was " + unitsPerCost + ".");
+        }
+        return unitsPerCost;
+    }
+
+    private char quantize(double cost, double unitsPerCost, QuantizationError error) {
+        long storedValue = Math.round(cost * unitsPerCost);
+        if (storedValue < 0) {
+            storedValue = 0;
+            error.saturatedCount += 1;
+        } else if (storedValue > MAXIMUM_STORED_VALUE) {
+            storedValue = MAXIMUM_STORED_VALUE;
+            error.saturatedCount += 1;
+        }
+        error.maximumError = Math.max(error.maximumError, Math.abs(storedValue * costPerUnit - cost));
+        return (char) storedValue;
+    }
+
+    //Compute travel distance from origin to destination (site)
+    @Override
+    public double getEdgeLength(int origin, int destination) {
+        return quantizedGraphArray[origin * totalSitesCount + destination] * costPerUnit;
+    }
+
+    @Override
+    public double getEdgeLengthFromSite(int site, int origin) {
+        if (siteMajorQuantizedGraphArray != null) {
+            return siteMajorQuantizedGraphArray[site * originCount + origin] * costPerUnit;
+        }
+        return quantizedGraphArray[origin * totalSitesCount + site] * costPerUnit;
+    }
+
+    //Transposed copy kept as 16-bit integers to preserve memory savings
+    @Override
+    public void createSiteMajorCopy() {
+        char[] transposedGraphArray = new char[originCount * totalSitesCount];
+        forEachEdgeInTransposeTiles((origin, site) -> transposedGraphArray[site * originCount + origin] = quantizedGraphArray[origin * totalSitesCount + site]);
+        this.siteMajorQuantizedGraphArray = transposedGraphArray;
+    }
+
+    @Override
+    public boolean hasSiteMajorCopy() {
+        return siteMajorQuantizedGraphArray != null;
+    }
+
+    private static class QuantizationError {
+        private double maximumError = 0;
+        private long saturatedCount = 0;
+
+        private void report(double unitsPerCost) {
+            System.out.println("Stored graph as 16-bit integers at " + unitsPerCost + " units per cost with maximum error " + maximumError + ".");
+            if (saturatedCount > 0) {
+                System.out.println("Warning: " + saturatedCount + " travel costs were outside [0, " + MAXIMUM_STORED_VALUE / unitsPerCost + "] and have been saturated. Consider fewer units per cost.");
+            }
+        }
+    }
+}
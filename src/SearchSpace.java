@@ -1,100 +1,146 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
+import java.util.function.DoubleUnaryOperator;
 
+//Read-only during searches and may be shared by concurrent searches. Setters must not be called while a search over this search space is running.
 public class SearchSpace {
     //New center properties
-    private static int[] minNewCentersByLevel; //Usually 1.
-    private static int[] maxNewCentersByLevel; //Maximum number of cancer centers to try
-    private static double[] minimumCasesByLevel; //list in ascending order minimum cases for increasingly tertiary cancer center services
-    private static double[] servicedProportionByLevel; //list in ascending order
-    private static int[][] sublevelsByLevel;
-    private static int[][] superlevelsByLevel;
+    private int[] minNewCentersByLevel; //Usually 1.
+    private int[] maxNewCentersByLevel; //Maximum number of cancer centers to try
+    private double[] minimumCasesByLevel; //list in ascending order minimum cases for increasingly tertiary cancer center services
+    private double[] servicedProportionByLevel; //list in ascending order
+    private int[][] sublevelsByLevel;
+    private int[][] superlevelsByLevel;
 
     //Time-dependent variables
-    private static CaseCounts[] caseCountsByLevel; //Leveled array of (timepoint, origin) -> caseCount, 1D array for speed.
-    private static double[] timepointWeights;
+    private CaseCounts[] caseCountsByLevel; //Leveled array of (timepoint, origin) -> caseCount, 1D array for speed.
+    private double[] timepointWeights;
+    private double[][] weightedCaseCountsByLevel; //Leveled origin -> sum over timepoints of weighted case count, computed on first use
 
     //Non-configurable class variables
-    private static double minimumCases;// = 10000; //Collapse into minimumCasesByLevel at end
-    private static int centerLevels;
-    private static int timepointCount;
-    private static int originCount;
-    private static int potentialSitesCount;// = graphArray.get(0).size() - 1;
-    private static Graph graphArray;// = parseCSV(graphLocation);
+    private double minimumCases;// = 10000; //Collapse into minimumCasesByLevel at end
+    private int centerLevels;
+    private int timepointCount;
+    private int originCount;
+    private int potentialSitesCount;// = graphArray.get(0).size() - 1;
+    private Graph graphArray;// = parseCSV(graphLocation);
     private final int[] startingOrigins; //originally private final int[][] partitionedOrigins; //Origins are represented by int
     private final int[] endingOrigins;
-    private static List<List<Integer>> sortedNeighbors;// = SimAnnealingNeighbor.sortNeighbors(azimuthArray, haversineArray);
+    private List<List<Integer>> sortedNeighbors;// = SimAnnealingNeighbor.sortNeighbors(azimuthArray, haversineArray);
+
+    //Graph storage, inputs and objective settings, copied at construction
+    private final SearchSpaceOptions options;
 
     //Permanent centers by levels to maintain
-    private static List<List<Integer>> permanentCentersByLevel; //Sites are represented by Integer
+    private List<List<Integer>> permanentCentersByLevel; //Sites are represented by Integer
 
     //Non-configurable permanent center class variables
-    private static int[] permanentCentersCountByLevel;
-    private static int[][] minPermanentPositionByLevelAndOrigin; //minimum existing centers that must be maintained
-    private static double[][] minPermanentCostByLevelAndOrigin; //minimum cost
+    private int[] permanentCentersCountByLevel;
+    private int[][] minPermanentPositionByLevelAndOrigin; //minimum existing centers that must be maintained
+    private double[][] minPermanentCostByLevelAndOrigin; //minimum cost
 
     public SearchSpace(int[] minNewCentersByLevel, int[] maxNewCentersByLevel, double[] minimumCasesByLevel, double[] servicedProportionByLevel, List<List<Integer>> levelSequences, int azimuthClassCount,
                        String censusFileLocation, String graphLocation, String azimuthLocation, String haversineLocation,
                        int taskCount, ExecutorService executor) {
+        this(minNewCentersByLevel, maxNewCentersByLevel, minimumCasesByLevel, servicedProportionByLevel, levelSequences, azimuthClassCount,
+                censusFileLocation, graphLocation, azimuthLocation, haversineLocation, taskCount, executor, new SearchSpaceOptions());
+    }
+
+    //As above with given options
+    public SearchSpace(int[] minNewCentersByLevel, int[] maxNewCentersByLevel, double[] minimumCasesByLevel, double[] servicedProportionByLevel, List<List<Integer>> levelSequences, int azimuthClassCount,
+                       String censusFileLocation, String graphLocation, String azimuthLocation, String haversineLocation,
+                       int taskCount, ExecutorService executor, SearchSpaceOptions options) {
+        this.options = new SearchSpaceOptions(options);
         this.minNewCentersByLevel = minNewCentersByLevel;
         this.maxNewCentersByLevel = maxNewCentersByLevel;
         this.minimumCasesByLevel = minimumCasesByLevel;
         this.servicedProportionByLevel = servicedProportionByLevel;
-        LevelRelations parsedLevelRelations = parseLevelRelations(levelSequences, minimumCasesByLevel.length);
+        SearchSpaceCache cache = this.options.cacheDirectory == null ? null : new SearchSpaceCache(this.options.cacheDirectory);
+        LevelRelations parsedLevelRelations = loadLevelRelations(levelSequences, minimumCasesByLevel.length, cache);
         this.sublevelsByLevel = parsedLevelRelations.getSublevelsByLevel();
         this.superlevelsByLevel = parsedLevelRelations.getSuperlevelsByLevel();
 
         //Determining remaining variables
         this.minimumCases = minimumCasesByLevel[0];
         this.centerLevels = minimumCasesByLevel.length;
-        this.potentialSitesCount = FileUtils.getSitesCount(graphLocation);
-        this.originCount = FileUtils.getOriginCount(graphLocation);
-        this.graphArray = new Graph(FileUtils.getInnerDoubleArrayFromCSV(graphLocation, originCount, potentialSitesCount));
+        this.graphArray = loadGraph(graphLocation, taskCount, executor);
+        if (this.options.keepSiteMajorGraph) graphArray.createSiteMajorCopy();
+        if (this.options.sortedSitesIndexDepth > 0) graphArray.setSortedSitesIndex(graphArray.createSortedSitesIndex(this.options.sortedSitesIndexDepth, taskCount, executor));
+        graphArray.setUseVectorKernel(this.options.useVectorKernel);
+        this.potentialSitesCount = graphArray.getTotalSitesCount();
+        this.originCount = graphArray.getOriginCount();
         this.startingOrigins = MultithreadingUtils.getTaskSpecificStartingOrigins(originCount, taskCount); //originally this.partitionedOrigins = MultithreadingUtils.orderedPartitionArray(IntStream.range(0, originCount).toArray(), taskCount);
         this.endingOrigins = MultithreadingUtils.getTaskSpecificEndingOrigins(originCount, taskCount);
-        this.sortedNeighbors = SimAnnealingNeighbor.sortNeighbors(FileUtils.getInnerAzimuthArrayFromCSV(azimuthLocation, originCount, potentialSitesCount), FileUtils.getInnerDoubleArrayFromCSV(haversineLocation, originCount, potentialSitesCount), azimuthClassCount, taskCount, executor);
+        this.sortedNeighbors = loadSortedNeighbors(azimuthLocation, haversineLocation, azimuthClassCount, cache, taskCount, executor);
 
         //Time-dependent variables
         double[][] caseCountByTimeAndOrigin = FileUtils.getCaseCountsFromCSV(censusFileLocation, "Cases", originCount);
         this.caseCountsByLevel = new CaseCounts[centerLevels];
-        Arrays.fill(caseCountsByLevel, new CaseCounts(caseCountByTimeAndOrigin));
+        Arrays.fill(caseCountsByLevel, createCaseCounts(caseCountByTimeAndOrigin));
         this.timepointCount = caseCountByTimeAndOrigin.length;
         this.timepointWeights = new double[timepointCount];
         Arrays.fill(timepointWeights, 1 / (double) timepointCount);
+        this.weightedCaseCountsByLevel = null;
     }
 
     //When there are permanent centers to put in graphArray
     public SearchSpace(int[] minNewCentersByLevel, int[] maxNewCentersByLevel, List<List<Integer>> permanentCentersByLevel, double[] minimumCasesByLevel, double[] servicedProportionByLevel, List<List<Integer>> levelSequences, int azimuthClassCount,
                                            String censusFileLocation, String permanentGraphLocation, String potentialGraphLocation, String azimuthLocation, String haversineLocation,
                                            int taskCount, ExecutorService executor) {
+        this(minNewCentersByLevel, maxNewCentersByLevel, permanentCentersByLevel, minimumCasesByLevel, servicedProportionByLevel, levelSequences, azimuthClassCount,
+                censusFileLocation, permanentGraphLocation, potentialGraphLocation, azimuthLocation, haversineLocation, taskCount, executor, new SearchSpaceOptions());
+    }
+
+    //As above with given options
+    public SearchSpace(int[] minNewCentersByLevel, int[] maxNewCentersByLevel, List<List<Integer>> permanentCentersByLevel, double[] minimumCasesByLevel, double[] servicedProportionByLevel, List<List<Integer>> levelSequences, int azimuthClassCount,
+                                           String censusFileLocation, String permanentGraphLocation, String potentialGraphLocation, String azimuthLocation, String haversineLocation,
+                                           int taskCount, ExecutorService executor, SearchSpaceOptions options) {
+        this.options = new SearchSpaceOptions(options);
         this.minNewCentersByLevel = minNewCentersByLevel;
         this.maxNewCentersByLevel = maxNewCentersByLevel;
         this.minimumCasesByLevel = minimumCasesByLevel;
         this.servicedProportionByLevel = servicedProportionByLevel;
-        LevelRelations parsedLevelRelations = parseLevelRelations(levelSequences, minimumCasesByLevel.length);
+        SearchSpaceCache cache = this.options.cacheDirectory == null ? null : new SearchSpaceCache(this.options.cacheDirectory);
+        LevelRelations parsedLevelRelations = loadLevelRelations(levelSequences, minimumCasesByLevel.length, cache);
         this.sublevelsByLevel = parsedLevelRelations.getSublevelsByLevel();
         this.superlevelsByLevel = parsedLevelRelations.getSuperlevelsByLevel();
 
         //Determining remaining variables
         this.minimumCases = minimumCasesByLevel[0];
         this.centerLevels = minimumCasesByLevel.length;
-        this.originCount = FileUtils.getOriginCount(potentialGraphLocation);
-        this.potentialSitesCount = FileUtils.getSitesCount(potentialGraphLocation);
-        int permanentSitesCount = FileUtils.getSitesCount(permanentGraphLocation);
-        double[][] permanentGraphArray = FileUtils.getInnerDoubleArrayFromCSV(permanentGraphLocation, originCount, permanentSitesCount);
-        double[][] potentialGraphArray = FileUtils.getInnerDoubleArrayFromCSV(potentialGraphLocation, originCount, potentialSitesCount);
-        this.graphArray = new Graph(ArrayOperations.mergeDoubleArrays(potentialGraphArray, permanentGraphArray));
+        Graph permanentGraph = null;
+        boolean isMappedInput = BinaryGraphFile.isBinaryGraph(permanentGraphLocation) && BinaryGraphFile.isBinaryGraph(potentialGraphLocation);
+        String mergedGraphKey = cache == null || isMappedInput ? null : cache.createKey(Arrays.asList(potentialGraphLocation, permanentGraphLocation), "merged");
+        if (mergedGraphKey != null && cache.hasGraph("merged_graph", mergedGraphKey)) {
+            this.graphArray = Graph.create(loadDoubleGraph(cache.getGraphLocation("merged_graph", mergedGraphKey), taskCount, executor), this.options.graphStorage, this.options.graphUnitsPerCost);
+            this.potentialSitesCount = getSitesCount(potentialGraphLocation);
+        } else {
+            //Mapped graphs are merged in place, parsed graphs are cached as one mapped graph for later runs
+            permanentGraph = loadDoubleGraph(permanentGraphLocation, taskCount, executor);
+            Graph potentialGraph = loadDoubleGraph(potentialGraphLocation, taskCount, executor);
+            this.potentialSitesCount = potentialGraph.getTotalSitesCount();
+            Graph mergedGraph = new MergedGraph(potentialGraph, permanentGraph);
+            if (mergedGraphKey != null) cache.saveGraph("merged_graph", mergedGraphKey, mergedGraph);
+            this.graphArray = Graph.create(mergedGraph, this.options.graphStorage, this.options.graphUnitsPerCost);
+        }
+        this.originCount = graphArray.getOriginCount();
+        if (this.options.keepSiteMajorGraph) graphArray.createSiteMajorCopy();
+        if (this.options.sortedSitesIndexDepth > 0) graphArray.setSortedSitesIndex(graphArray.createSortedSitesIndex(this.options.sortedSitesIndexDepth, taskCount, executor));
+        graphArray.setUseVectorKernel(this.options.useVectorKernel);
         this.startingOrigins = MultithreadingUtils.getTaskSpecificStartingOrigins(originCount, taskCount); //originally this.partitionedOrigins = MultithreadingUtils.orderedPartitionArray(IntStream.range(0, originCount).toArray(), taskCount);
         this.endingOrigins = MultithreadingUtils.getTaskSpecificEndingOrigins(originCount, taskCount);
-        this.sortedNeighbors = SimAnnealingNeighbor.sortNeighbors(FileUtils.getInnerAzimuthArrayFromCSV(azimuthLocation, originCount, potentialSitesCount), FileUtils.getInnerDoubleArrayFromCSV(haversineLocation, originCount, potentialSitesCount), azimuthClassCount, taskCount, executor);
+        this.sortedNeighbors = loadSortedNeighbors(azimuthLocation, haversineLocation, azimuthClassCount, cache, taskCount, executor);
 
         //Time-dependent variables
         double[][] caseCountByTimeAndOrigin = FileUtils.getCaseCountsFromCSV(censusFileLocation, "Cases", originCount);
         this.caseCountsByLevel = new CaseCounts[centerLevels];
-        Arrays.fill(caseCountsByLevel, new CaseCounts(caseCountByTimeAndOrigin));
+        Arrays.fill(caseCountsByLevel, createCaseCounts(caseCountByTimeAndOrigin));
         this.timepointCount = caseCountByTimeAndOrigin.length;
         this.timepointWeights = new double[timepointCount];
         Arrays.fill(timepointWeights, 1 / (double) timepointCount);
+        this.weightedCaseCountsByLevel = null;
 
         //Determine permanent centers by level with sites incremented by potential sites count
         List<List<Integer>> adjustedPermanentCentersByLevel = checkPermanentCentersLevelRelations(permanentCentersByLevel);
@@ -105,9 +151,108 @@ public class SearchSpace {
         for (int i = 0; i < this.getCenterLevels(); i++) {
             permanentCentersCountByLevel[i] = adjustedPermanentCentersByLevel.get(i).size();
         }
-        PositionsAndCostsByLevelAndOrigin minPermanentCenterInfo = getMinimumCenterInfo(permanentGraphArray, adjustedPermanentCentersByLevel);
-        minPermanentPositionByLevelAndOrigin = minPermanentCenterInfo.getPositionsByLevelAndOrigin();
-        minPermanentCostByLevelAndOrigin = minPermanentCenterInfo.getCostsByLevelAndOrigin();
+        String permanentCentersKey = cache == null ? null : cache.createKey(Collections.singletonList(permanentGraphLocation), adjustedPermanentCentersByLevel.toString());
+        minPermanentPositionByLevelAndOrigin = cache == null ? null : cache.loadIntMatrix("min_permanent_positions", permanentCentersKey);
+        minPermanentCostByLevelAndOrigin = cache == null ? null : cache.loadDoubleMatrix("min_permanent_costs", permanentCentersKey);
+        if (minPermanentPositionByLevelAndOrigin == null || minPermanentCostByLevelAndOrigin == null) {
+            if (permanentGraph == null) permanentGraph = loadDoubleGraph(permanentGraphLocation, taskCount, executor);
+            PositionsAndCostsByLevelAndOrigin minPermanentCenterInfo = getMinimumCenterInfo(permanentGraph, adjustedPermanentCentersByLevel);
+            minPermanentPositionByLevelAndOrigin = minPermanentCenterInfo.getPositionsByLevelAndOrigin();
+            minPermanentCostByLevelAndOrigin = minPermanentCenterInfo.getCostsByLevelAndOrigin();
+            if (cache != null) {
+                cache.saveIntMatrix("min_permanent_positions", permanentCentersKey, minPermanentPositionByLevelAndOrigin);
+                cache.saveDoubleMatrix("min_permanent_costs", permanentCentersKey, minPermanentCostByLevelAndOrigin);
+            }
+        }
+    }
+
+    //Binary graph files (.bin) are memory-mapped, otherwise graph is parsed from CSV. Reduced precision storage copies graph into heap, sparse graphs keep only closest sites.
+    private Graph loadGraph(String graphLocation, int taskCount, ExecutorService executor) {
+        int sparseGraphNeighborCount = options.sparseGraphNeighborCount;
+        double sparseGraphFallbackCost = options.sparseGraphFallbackCost;
+        if (sparseGraphNeighborCount > 0) {
+            if (!BinaryGraphFile.isBinaryGraph(graphLocation)) {
+                return SparseGraph.fromCSV(graphLocation, sparseGraphNeighborCount, sparseGraphFallbackCost, taskCount, executor);
+            }
+            try {
+                return new SparseGraph(new MappedGraph(graphLocation), sparseGraphNeighborCount, sparseGraphFallbackCost, taskCount, executor);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (BinaryGraphFile.isBinaryGraph(graphLocation)) {
+            try {
+                return Graph.create(new MappedGraph(graphLocation), options.graphStorage, options.graphUnitsPerCost);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return Graph.create(FileUtils.getInnerDoubleArrayFromCSV(graphLocation, taskCount, executor), options.graphStorage, options.graphUnitsPerCost);
+    }
+
+    //Uses layout preferred by cost kernels unless options set one
+    private CaseCounts createCaseCounts(double[][] caseCountByTimeAndOrigin) {
+        return options.caseCountsLayout == null ? CaseCounts.create(caseCountByTimeAndOrigin) : CaseCounts.create(caseCountByTimeAndOrigin, options.caseCountsLayout);
+    }
+
+    private static int getSitesCount(String graphLocation) {
+        if (BinaryGraphFile.isBinaryGraph(graphLocation)) {
+            try {
+                return BinaryGraphFile.getSitesCount(graphLocation);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return FileUtils.getSitesCount(graphLocation);
+    }
+
+    //Sorted neighbors are the most expensive part of startup, so they are read from cache when inputs are unchanged
+    private List<List<Integer>> loadSortedNeighbors(String azimuthLocation, String haversineLocation, int azimuthClassCount, SearchSpaceCache cache, int taskCount, ExecutorService executor) {
+        String potentialSitesLocation = options.potentialSitesLocation;
+        int sortedNeighborsLimit = options.sortedNeighborsLimit;
+        List<String> inputLocations = potentialSitesLocation == null ? Arrays.asList(azimuthLocation, haversineLocation) : Collections.singletonList(potentialSitesLocation);
+        String sortedNeighborsKey = cache == null ? null : cache.createKey(inputLocations, "azimuthClassCount=" + azimuthClassCount + ";neighborsLimit=" + sortedNeighborsLimit + ";coordinates=" + (potentialSitesLocation != null));
+        List<List<Integer>> sortedNeighbors = cache == null ? null : cache.loadNestedList("sorted_neighbors", sortedNeighborsKey);
+        if (sortedNeighbors == null) {
+            if (potentialSitesLocation != null) {
+                double[][] coordinates = FileUtils.getCoordinatesFromCSV(potentialSitesLocation);
+                sortedNeighbors = SimAnnealingNeighbor.sortNeighbors(coordinates[0], coordinates[1], azimuthClassCount, sortedNeighborsLimit, taskCount, executor);
+            } else {
+                sortedNeighbors = SimAnnealingNeighbor.sortNeighbors(FileUtils.getInnerAzimuthArrayFromCSV(azimuthLocation, taskCount, executor), FileUtils.getInnerDoubleArrayFromCSV(haversineLocation, taskCount, executor), azimuthClassCount, sortedNeighborsLimit, taskCount, executor);
+            }
+            if (cache != null) cache.saveNestedList("sorted_neighbors", sortedNeighborsKey, sortedNeighbors);
+        }
+        if (sortedNeighbors.size() != potentialSitesCount) {
+            throw new IllegalStateException("Sorted neighbors cover " + sortedNeighbors.size() + " sites but graph has " + potentialSitesCount + " potential sites.");
+        }
+        return sortedNeighbors;
+    }
+
+    private static LevelRelations loadLevelRelations(List<List<Integer>> levelSequences, int centerLevels, SearchSpaceCache cache) {
+        String levelRelationsKey = cache == null ? null : cache.createKey(Collections.emptyList(), levelSequences + ";centerLevels=" + centerLevels);
+        int[][] sublevelsByLevel = cache == null ? null : cache.loadIntMatrix("sublevels", levelRelationsKey);
+        int[][] superlevelsByLevel = cache == null ? null : cache.loadIntMatrix("superlevels", levelRelationsKey);
+        if (sublevelsByLevel != null && superlevelsByLevel != null) {
+            return new LevelRelations(sublevelsByLevel, superlevelsByLevel);
+        }
+        LevelRelations levelRelations = parseLevelRelations(levelSequences, centerLevels);
+        if (cache != null) {
+            cache.saveIntMatrix("sublevels", levelRelationsKey, levelRelations.getSublevelsByLevel());
+            cache.saveIntMatrix("superlevels", levelRelationsKey, levelRelations.getSuperlevelsByLevel());
+        }
+        return levelRelations;
+    }
+
+    //Variant of loadGraph in full double precision, e.g. for graphs to be merged. Binary graph files stay mapped.
+    private static Graph loadDoubleGraph(String graphLocation, int taskCount, ExecutorService executor) {
+        if (BinaryGraphFile.isBinaryGraph(graphLocation)) {
+            try {
+                return new MappedGraph(graphLocation);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return Graph.create(FileUtils.getInnerDoubleArrayFromCSV(graphLocation, taskCount, executor), Graph.Storage.DOUBLE, 1);
     }
 
     private static LevelRelations parseLevelRelations(List<List<Integer>> levelSequences, int centerLevels) {
@@ -218,15 +363,15 @@ public class SearchSpace {
     }
 
     //These sites are adjusted by candidate site count (added sequentially afterward)
-    public static PositionsAndCostsByLevelAndOrigin getMinimumCenterInfo(double[][] permanentGraphArray, List<List<Integer>> permanentCenters) {
-        int[][] minCenterPositionByLevelAndOrigin = new int[permanentCenters.size()][permanentGraphArray.length];
-        double[][] minCostsByLevelAndOrigin = new double[permanentCenters.size()][permanentGraphArray.length];
+    public static PositionsAndCostsByLevelAndOrigin getMinimumCenterInfo(Graph permanentGraph, List<List<Integer>> permanentCenters) {
+        int[][] minCenterPositionByLevelAndOrigin = new int[permanentCenters.size()][permanentGraph.getOriginCount()];
+        double[][] minCostsByLevelAndOrigin = new double[permanentCenters.size()][permanentGraph.getOriginCount()];
         for (int level = 0; level < permanentCenters.size(); level++) {
-            for (int j = 0; j < permanentGraphArray.length; j++) {
+            for (int j = 0; j < permanentGraph.getOriginCount(); j++) {
                 int levelMinCenter = -1;
                 double levelMinCost = Double.POSITIVE_INFINITY;
                 for (int position = 0; position < permanentCenters.get(level).size(); position++) {
-                    double currentCost = permanentGraphArray[j][permanentCenters.get(level).get(position)];
+                    double currentCost = permanentGraph.getEdgeLength(j, permanentCenters.get(level).get(position));
                     if (currentCost < levelMinCost) {
                         levelMinCenter = position;
                         levelMinCost = currentCost;
@@ -258,43 +403,43 @@ public class SearchSpace {
         return adjustedPermanentCentersByLevel;
     }
 
-    public static int[] getMinNewCentersByLevel() {
+    public int[] getMinNewCentersByLevel() {
         return minNewCentersByLevel;
     }
 
-    public static int[] getMaxNewCentersByLevel() {
+    public int[] getMaxNewCentersByLevel() {
         return maxNewCentersByLevel;
     }
 
-    public static double[] getMinimumCasesByLevel() {
+    public double[] getMinimumCasesByLevel() {
         return minimumCasesByLevel;
     }
 
-    public static double[] getServicedProportionByLevel() {
+    public double[] getServicedProportionByLevel() {
         return servicedProportionByLevel;
     }
 
-    public static double getMinimumCases() {
+    public double getMinimumCases() {
         return minimumCases;
     }
 
-    public static int getCenterLevels() {
+    public int getCenterLevels() {
         return centerLevels;
     }
 
-    public static int[][] getSublevelsByLevel() {
+    public int[][] getSublevelsByLevel() {
         return sublevelsByLevel;
     }
 
-    public static int[][] getSuperlevelsByLevel() {
+    public int[][] getSuperlevelsByLevel() {
         return superlevelsByLevel;
     }
 
-    public static int getTimepointCount() {
+    public int getTimepointCount() {
         return timepointCount;
     }
 
-    public static int getOriginCount() {
+    public int getOriginCount() {
         return originCount;
     }
 
@@ -306,45 +451,78 @@ public class SearchSpace {
         return endingOrigins;
     }
 
-    public static CaseCounts[] getCaseCountsByLevel() {
+    public CaseCounts[] getCaseCountsByLevel() {
         return caseCountsByLevel;
     }
 
-    public static Graph getGraphArray() {
+    //Travel cost is linear in cases, so its weighted sum over timepoints needs only the weighted case count of each origin. Levels sharing case counts share the array.
+    public synchronized double[][] getWeightedCaseCountsByLevel() {
+        if (weightedCaseCountsByLevel == null) {
+            double[][] weightedCaseCounts = new double[centerLevels][];
+            for (int level = 0; level < centerLevels; level++) {
+                for (int otherLevel = 0; otherLevel < level; otherLevel++) {
+                    if (caseCountsByLevel[otherLevel] == caseCountsByLevel[level]) {
+                        weightedCaseCounts[level] = weightedCaseCounts[otherLevel];
+                        break;
+                    }
+                }
+                if (weightedCaseCounts[level] == null) {
+                    weightedCaseCounts[level] = CostCalculator.computeWeightedCaseCounts(caseCountsByLevel[level], originCount, timepointCount, timepointWeights);
+                }
+            }
+            weightedCaseCountsByLevel = weightedCaseCounts;
+        }
+        return weightedCaseCountsByLevel;
+    }
+
+    public DoubleUnaryOperator getVolumePenalty() {
+        return options.volumePenalty;
+    }
+
+    public int getConsistencyCheckInterval() {
+        return options.consistencyCheckInterval;
+    }
+
+    public double getConsistencyTolerance() {
+        return options.consistencyTolerance;
+    }
+
+    public Graph getGraphArray() {
         return graphArray;
     }
 
-    public static double[] getTimepointWeights() {
+    public double[] getTimepointWeights() {
         return timepointWeights;
     }
 
-    public static int getPotentialSitesCount() {
+    public int getPotentialSitesCount() {
         return potentialSitesCount;
     }
 
-    public static List<List<Integer>> getSortedNeighbors() {
+    public List<List<Integer>> getSortedNeighbors() {
         return sortedNeighbors;
     }
 
-    public static List<List<Integer>> getPermanentCentersByLevel() {
+    public List<List<Integer>> getPermanentCentersByLevel() {
         return permanentCentersByLevel;
     }
 
-    public static int[][] getMinPermanentPositionByLevelAndOrigin() {
+    public int[][] getMinPermanentPositionByLevelAndOrigin() {
         return minPermanentPositionByLevelAndOrigin;
     }
 
-    public static double[][] getMinPermanentCostByLevelAndOrigin() {
+    public double[][] getMinPermanentCostByLevelAndOrigin() {
         return minPermanentCostByLevelAndOrigin;
     }
 
-    public static int[] getPermanentCentersCountByLevel() {
+    public int[] getPermanentCentersCountByLevel() {
         return permanentCentersCountByLevel;
     }
 
     //Set case counts by level to directly inputted caseCounts
     public void setCaseCountsByLevel(CaseCounts[] caseCountsByLevel){
         this.caseCountsByLevel = caseCountsByLevel;
+        this.weightedCaseCountsByLevel = null;
     }
 
     //Use one timepoint
@@ -352,6 +530,7 @@ public class SearchSpace {
         this.timepointCount = 1;
         this.timepointWeights = new double[1];
         this.timepointWeights[0] = 1;
+        this.weightedCaseCountsByLevel = null;
     }
 
     //Arrays of positions and corresponding costs by origin
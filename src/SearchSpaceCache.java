@@ -0,0 +1,231 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+//Directory of artifacts derived from SearchSpace inputs, e.g. sorted neighbors and merged graphs. Files are named by a hash of input file contents and parameters so that stale artifacts are never read.
+public class SearchSpaceCache {
+    private static final int FORMAT_VERSION = 1;
+    private static final Map<String, String> contentHashByFileVersion = new HashMap<>(); //avoids hashing same input twice in one run, keyed by path, size and modification time so that rewritten inputs are hashed again
+    private final Path cacheDirectory;
+
+    public SearchSpaceCache(String cacheDirectory) {
+        this.cacheDirectory = Paths.get(cacheDirectory);
+        try {
+            Files.createDirectories(this.cacheDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Key from contents of input files and any parameters that change the artifact
+    public String createKey(List<String> fileLocations, String parameters) {
+        MessageDigest digest = createDigest();
+        for (String fileLocation : fileLocations) {
+            digest.update(getContentHash(fileLocation).getBytes());
+        }
+        digest.update(parameters.getBytes());
+        digest.update(Integer.toString(FORMAT_VERSION).getBytes());
+        return HexFormat.of().formatHex(digest.digest(), 0, 12);
+    }
+
+    public List<List<Integer>> loadNestedList(String name, String key) {
+        return readArtifact(name, key, input -> {
+            int outerSize = input.readInt();
+            List<List<Integer>> nestedList = new ArrayList<>(outerSize);
+            for (int i = 0; i < outerSize; i++) {
+                int innerSize = input.readInt();
+                List<Integer> innerList = new ArrayList<>(innerSize);
+                for (int j = 0; j < innerSize; j++) {
+                    innerList.add(input.readInt());
+                }
+                nestedList.add(innerList);
+            }
+            return nestedList;
+        });
+    }
+
+    public void saveNestedList(String name, String key, List<List<Integer>> nestedList) {
+        writeArtifact(name, key, output -> {
+            output.writeInt(nestedList.size());
+            for (List<Integer> innerList : nestedList) {
+                output.writeInt(innerList.size());
+                for (int value : innerList) {
+                    output.writeInt(value);
+                }
+            }
+        });
+    }
+
+    public int[][] loadIntMatrix(String name, String key) {
+        return readArtifact(name, key, input -> {
+            int[][] matrix = new int[input.readInt()][];
+            for (int i = 0; i < matrix.length; i++) {
+                matrix[i] = new int[input.readInt()];
+                for (int j = 0; j < matrix[i].length; j++) {
+                    matrix[i][j] = input.readInt();
+                }
+            }
+            return matrix;
+        });
+    }
+
+    public void saveIntMatrix(String name, String key, int[][] matrix) {
+        writeArtifact(name, key, output -> {
+            output.writeInt(matrix.length);
+            for (int[] row : matrix) {
+                output.writeInt(row.length);
+                for (int value : row) {
+                    output.writeInt(value);
+                }
+            }
+        });
+    }
+
+    public double[][] loadDoubleMatrix(String name, String key) {
+        return readArtifact(name, key, input -> {
+            double[][] matrix = new double[input.readInt()][];
+            for (int i = 0; i < matrix.length; i++) {
+                matrix[i] = new double[input.readInt()];
+                for (int j = 0; j < matrix[i].length; j++) {
+                    matrix[i][j] = input.readDouble();
+                }
+            }
+            return matrix;
+        });
+    }
+
+    public void saveDoubleMatrix(String name, String key, double[][] matrix) {
+        writeArtifact(name, key, output -> {
+            output.writeInt(matrix.length);
+            for (double[] row : matrix) {
+                output.writeInt(row.length);
+                for (double value : row) {
+                    output.writeDouble(value);
+                }
+            }
+        });
+    }
+
+    //Graphs are kept as binary graph files so that they can be memory-mapped on load
+    public String getGraphLocation(String name, String key) {
+        return cacheDirectory.resolve(name + "_" + key + ".bin").toString();
+    }
+
+    public boolean hasGraph(String name, String key) {
+        return Files.exists(Paths.get(getGraphLocation(name, key)));
+    }
+
+    public void saveGraph(String name, String key, Graph graph) {
+        Path graphPath = Paths.get(getGraphLocation(name, key));
+        Path temporaryPath = null;
+        try {
+            temporaryPath = Files.createTempFile(cacheDirectory, name, ".tmp");
+            BinaryGraphFile.write(graph, temporaryPath.toString());
+            Files.move(temporaryPath, graphPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Cached " + name + " at " + graphPath);
+        } catch (IOException e) {
+            System.out.println("Could not cache " + name + ": " + e.getMessage());
+        } finally {
+            deleteTemporaryFile(temporaryPath);
+        }
+    }
+
+    //Returns null if artifact is absent or unreadable
+    private <T> T readArtifact(String name, String key, ArtifactReader<T> reader) {
+        Path artifactPath = cacheDirectory.resolve(name + "_" + key + ".cache");
+        if (!Files.exists(artifactPath)) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(artifactPath), 1 << 16))) {
+            if (input.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            T artifact = reader.read(input);
+            System.out.println("Loaded cached " + name + " from " + artifactPath);
+            return artifact;
+        } catch (IOException e) {
+            System.out.println("Ignoring unreadable cached " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    //Written to temporary file then moved so that concurrent runs never see partial artifacts
+    private void writeArtifact(String name, String key, ArtifactWriter writer) {
+        Path artifactPath = cacheDirectory.resolve(name + "_" + key + ".cache");
+        Path temporaryPath = null;
+        try {
+            temporaryPath = Files.createTempFile(cacheDirectory, name, ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath), 1 << 16))) {
+                output.writeInt(FORMAT_VERSION);
+                writer.write(output);
+            }
+            Files.move(temporaryPath, artifactPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Cached " + name + " at " + artifactPath);
+        } catch (IOException e) {
+            System.out.println("Could not cache " + name + ": " + e.getMessage());
+        } finally {
+            deleteTemporaryFile(temporaryPath);
+        }
+    }
+
+    //Temporary file is already gone after a successful move, left behind if writing or moving failed
+    private static void deleteTemporaryFile(Path temporaryPath) {
+        if (temporaryPath == null) return;
+        try {
+            Files.deleteIfExists(temporaryPath);
+        } catch (IOException e) {
+            System.out.println("Could not delete temporary cache file " + temporaryPath + ": " + e.getMessage());
+        }
+    }
+
+    private static synchronized String getContentHash(String fileLocation) {
+        Path filePath = Paths.get(fileLocation).toAbsolutePath();
+        String fileVersion;
+        try {
+            fileVersion = filePath + ";size=" + Files.size(filePath) + ";modified=" + Files.getLastModifiedTime(filePath).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String contentHash = contentHashByFileVersion.get(fileVersion);
+        if (contentHash == null) {
+            MessageDigest digest = createDigest();
+            try (FileChannel channel = FileChannel.open(Paths.get(fileLocation), StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            contentHash = HexFormat.of().formatHex(digest.digest());
+            contentHashByFileVersion.put(fileVersion, contentHash);
+        }
+        return contentHash;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 unavailable", e);
+        }
+    }
+
+    private interface ArtifactReader<T> {
+        T read(DataInputStream input) throws IOException;
+    }
+
+    private interface ArtifactWriter {
+        void write(DataOutputStream output) throws IOException;
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.function.DoubleUnaryOperator;
+
+//Settings of how a search space is built and evaluated. Each SearchSpace keeps its own copy, so that scenarios with different settings can be built and searched concurrently in one JVM,
+//and changing an options object only affects search spaces built from it afterwards.
+public class SearchSpaceOptions {
+    //Graph storage, reduced precision modes use less memory and bandwidth in cost kernels
+    public Graph.Storage graphStorage = Graph.Storage.DOUBLE;
+    public double graphUnitsPerCost = 1; //QUANTIZED_16 only, e.g. 1 for whole minutes, 60 for seconds if graph is in minutes
+    public boolean keepSiteMajorGraph = false; //Transposed copy for shift and add kernels, doubles graph memory
+    public boolean useVectorKernel = false; //Closest site searches of in-memory graphs use VectorClosestSites from the vector source folder, which needs --add-modules jdk.incubator.vector, instead of the scalar kernels
+    public int sortedSitesIndexDepth = 32; //Closest sites kept per origin to find next closest site on shift and removal, 0 to disable
+    public int sparseGraphNeighborCount = 0; //Closest sites kept per origin in SparseGraph, 0 keeps dense graph
+    public double sparseGraphFallbackCost = -1; //Finite travel cost to sites beyond sparseGraphNeighborCount closest, at least the largest kept travel cost, negative for twice the largest kept travel cost
+
+    //Inputs
+    public int sortedNeighborsLimit = 0; //Neighbors kept per site for shifts, 0 keeps all
+    public String potentialSitesLocation = null; //Potential sites CSV with Latitude and Longitude, if set neighbors are sorted from coordinates and azimuth and haversine CSVs are not read
+    public String cacheDirectory = null; //Directory for derived artifacts reused across runs with identical inputs, null to disable
+    public CaseCounts.Layout caseCountsLayout = null; //Layout of case counts, null chooses from timepoint count, see CaseCounts.preferredLayout
+
+    //Objective
+    public DoubleUnaryOperator volumePenalty = null; //Volume penalty of one open site from its cases over all levels at one timepoint, should be non-negative, e.g. CostCalculator.thresholdVolumePenalty. Null for no volume penalty.
+
+    //Incremental cost checks
+    public int consistencyCheckInterval = SiteAssignment.DEFAULT_CONSISTENCY_CHECK_INTERVAL; //Accepted moves of a site assignment between full recomputations of assignment and totals, 0 to disable
+    public double consistencyTolerance = SiteAssignment.DEFAULT_CONSISTENCY_TOLERANCE; //Relative level cost drift at which a consistency check fails
+
+    //Multithreading
+    public boolean useForkJoinPool = false; //Searches building their own executor use a fork-join pool, which balances uneven origin ranges by work stealing and lets nested parallel calls help rather than block
+
+    public SearchSpaceOptions() {
+    }
+
+    public SearchSpaceOptions(SearchSpaceOptions other) {
+        this.graphStorage = other.graphStorage;
+        this.graphUnitsPerCost = other.graphUnitsPerCost;
+        this.keepSiteMajorGraph = other.keepSiteMajorGraph;
+        this.useVectorKernel = other.useVectorKernel;
+        this.sortedSitesIndexDepth = other.sortedSitesIndexDepth;
+        this.sparseGraphNeighborCount = other.sparseGraphNeighborCount;
+        this.sparseGraphFallbackCost = other.sparseGraphFallbackCost;
+        this.sortedNeighborsLimit = other.sortedNeighborsLimit;
+        this.potentialSitesLocation = other.potentialSitesLocation;
+        this.cacheDirectory = other.cacheDirectory;
+        this.caseCountsLayout = other.caseCountsLayout;
+        this.volumePenalty = other.volumePenalty;
+        this.consistencyCheckInterval = other.consistencyCheckInterval;
+        this.consistencyTolerance = other.consistencyTolerance;
+        this.useForkJoinPool = other.useForkJoinPool;
+    }
+}
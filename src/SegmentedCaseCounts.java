@@ -0,0 +1,23 @@
+//Case counts held as one array per timepoint so that timepointCount * originCount may exceed the array length limit
+public class SegmentedCaseCounts extends CaseCounts {
+    private final double[][] caseCountByTimeAndOrigin;
+
+    public SegmentedCaseCounts(double[][] caseCountByTimeAndOrigin) {
+        super(caseCountByTimeAndOrigin[0].length);
+        this.caseCountByTimeAndOrigin = caseCountByTimeAndOrigin; //not copied as instances of this size should not be held twice
+    }
+
+    @Override
+    public double getCaseCount(int timepoint, int origin) {
+        return caseCountByTimeAndOrigin[timepoint][origin];
+    }
+
+    @Override
+    public double getTotalCaseCount() {
+        double totalCaseCount = 0;
+        for (double[] caseCountByOrigin : caseCountByTimeAndOrigin) {
+            totalCaseCount += ArrayOperations.sumDoubleArray(caseCountByOrigin);
+        }
+        return totalCaseCount;
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.Arrays;
+
+//Graph split into blocks of 2^blockShift whole origins so that originCount * totalSitesCount may exceed the array length limit.
+//Each block is an ordinary graph in the requested storage mode, so indexing within a block remains int-based.
+public class SegmentedGraph extends Graph {
+    private static final long MAXIMUM_BLOCK_ENTRIES = 1L << 27; //1 GB per block at double precision
+    private final Graph[] blocks;
+    private final int blockShift;
+    private final int blockMask;
+
+    public SegmentedGraph(double[][] twoDimensionalGraphArray, Storage storage, double unitsPerCost) {
+        super(twoDimensionalGraphArray.length, twoDimensionalGraphArray[0].length);
+        this.blockShift = getBlockShift(totalSitesCount);
+        this.blockMask = (1 << blockShift) - 1;
+        int rowsPerBlock = 1 << blockShift;
+        this.blocks = new Graph[(int) (((long) originCount + rowsPerBlock - 1) >> blockShift)];
+        for (int i = 0; i < blocks.length; i++) {
+            int startingOrigin = i * rowsPerBlock;
+            int endingOrigin = (int) Math.min(originCount, (long) startingOrigin + rowsPerBlock);
+            blocks[i] = Graph.create(Arrays.copyOfRange(twoDimensionalGraphArray, startingOrigin, endingOrigin), storage, unitsPerCost);
+        }
+        System.out.println("Segmented graph into " + blocks.length + " blocks of " + rowsPerBlock + " origins.");
+    }
+
+    //Copies source graph one block at a time so that only a single block is held at double precision during conversion
+    public SegmentedGraph(Graph sourceGraph, Storage storage, double unitsPerCost) {
+        super(sourceGraph.getOriginCount(), sourceGraph.getTotalSitesCount());
+        this.blockShift = getBlockShift(totalSitesCount);
+        this.blockMask = (1 << blockShift) - 1;
+        int rowsPerBlock = 1 << blockShift;
+        this.blocks = new Graph[(int) (((long) originCount + rowsPerBlock - 1) >> blockShift)];
+        for (int i = 0; i < blocks.length; i++) {
+            int startingOrigin = i * rowsPerBlock;
+            int endingOrigin = (int) Math.min(originCount, (long) startingOrigin + rowsPerBlock);
+            double[][] blockArray = new double[endingOrigin - startingOrigin][totalSitesCount];
+            for (int origin = startingOrigin; origin < endingOrigin; origin++) {
+                for (int site = 0; site < totalSitesCount; site++) {
+                    blockArray[origin - startingOrigin][site] = sourceGraph.getEdgeLength(origin, site);
+                }
+            }
+            blocks[i] = Graph.create(blockArray, storage, unitsPerCost);
+        }
+        System.out.println("Segmented graph into " + blocks.length + " blocks of " + rowsPerBlock + " origins.");
+    }
+
+    //Largest power of two rows such that a block has at most MAXIMUM_BLOCK_ENTRIES entries, minimum one row
+    private static int getBlockShift(int totalSitesCount) {
+        long rowsPerBlock = Math.max(1, MAXIMUM_BLOCK_ENTRIES / totalSitesCount);
+        return 63 - Long.numberOfLeadingZeros(rowsPerBlock);
+    }
+
+    //Site-major copy is not kept as it would place a second matrix of this size on heap
+    @Override
+    public void createSiteMajorCopy() {
+        System.out.println("Site-major graph copy is not supported for segmented graphs, using row-major graph.");
+    }
+
+    //Compute travel distance from origin to destination (site)
+    @Override
+    public double getEdgeLength(int origin, int destination) {
+        return blocks[origin >>> blockShift].getEdgeLength(origin & blockMask, destination);
+    }
+}
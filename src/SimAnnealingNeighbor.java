@@ -7,8 +7,9 @@ import java.util.stream.IntStream;
 
 public class SimAnnealingNeighbor {
 
-    //Sort neighbors by ID -> insert in random alternating order by azimuth classification from shortest to longest haversine distance
-    public static List<List<Integer>> sortNeighbors(double[][] azimuthArray, double[][] haversineArray, int azimuthClassCount, int taskCount, ExecutorService executor) {
+    //Sort neighbors by ID -> insert in random alternating order by azimuth classification from shortest to longest haversine distance, keeping first neighborsLimit neighbors of each site (0 keeps all)
+    //Alternating order is drawn from a random seeded by site, so that neighbors and thereby seeded searches repeat across runs and partitions
+    public static List<List<Integer>> sortNeighbors(double[][] azimuthArray, double[][] haversineArray, int azimuthClassCount, int neighborsLimit, int taskCount, ExecutorService executor) {
         System.out.println("Generating sorted neighbors.");
         Map<Integer, List<Integer>> partitionedOrigins = MultithreadingUtils.orderedPartitionList(IntStream.range(0, azimuthArray.length).boxed().collect(Collectors.toList()), taskCount);
         CountDownLatch latch = new CountDownLatch(taskCount);
@@ -19,35 +20,55 @@ public class SimAnnealingNeighbor {
                 List<Integer> partitionToOptimize = partitionedOrigins.get(finalI);
                 List<List<Integer>> currentOutput = new ArrayList<>();
                 for (int j : partitionToOptimize) {
-                    //Create a local hashmap from siteID -> haversineDist for each azimuth class
-                    List<Map<Integer, Double>> azimuthClassMaps = new ArrayList<>(azimuthClassCount);
-                    for (int azimuthClass = 0; azimuthClass < azimuthClassCount; azimuthClass++) {
-                        azimuthClassMaps.add(new HashMap<>());
-                    }
-
-                    //For every alternate site location, put it in a corresponding hashmap
-                    for (int k = 0; k < haversineArray[0].length; k++) {
-                        if (azimuthArray[j][k] == -1.0) continue; //use -1.0 to identify same position, see FileUtils.getInnerAzimuthArrayFromCSV
-                        int azimuthClass = classifyAzimuth(azimuthArray[j][k], azimuthClassCount);
-                        double haversineDistance = haversineArray[j][k];
-                        azimuthClassMaps.get(azimuthClass).put(k, haversineDistance);
-                    }
+                    currentOutput.add(sortSiteNeighbors(azimuthArray[j], haversineArray[j], azimuthClassCount, neighborsLimit, new Random(j)));
+                }
+                partitionedOutput.put(finalI, currentOutput);
+                latch.countDown();
+            });
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new AssertionError("Unexpected interruption", e);
+        }
 
-                    //Sort by cost and convert to list by eliminating cost to reduce memory needed to store and improve access
-                    List<List<Integer>> sortedAzimuthClassLists = new ArrayList<>(azimuthClassCount);
-                    for (int azimuthClass = 0; azimuthClass < azimuthClassCount; azimuthClass++) {
-                        List<Integer> sortedAzimuthClassList = azimuthClassMaps.get(azimuthClass).entrySet().stream()
-                                .sorted(Map.Entry.comparingByValue())
-                                .map(Map.Entry::getKey)
-                                .collect(Collectors.toList());
-                        sortedAzimuthClassLists.add(sortedAzimuthClassList);
-                    }
+        //Merge output in order
+        List<List<Integer>> output = new ArrayList<>();
+        for (int i = 0; i < taskCount; i++) {
+            output.addAll(partitionedOutput.get(i));
+        }
 
-                    //Merge wedges by index
-                    List<Integer> mergedWedges = mergeSortedWedges(sortedAzimuthClassLists, azimuthClassCount);
+        //Return sorted neighbors
+        System.out.println("Done sorting neighbors.");
+        return output;
+    }
 
-                    //Add sortedAlternativeSites to final output
-                    currentOutput.add(mergedWedges);
+    //Variant computing azimuth and haversine distance from site coordinates within each task, so that no sites x sites matrix is held
+    public static List<List<Integer>> sortNeighbors(double[] latitudes, double[] longitudes, int azimuthClassCount, int neighborsLimit, int taskCount, ExecutorService executor) {
+        System.out.println("Generating sorted neighbors from site coordinates.");
+        int sitesCount = latitudes.length;
+        Map<Integer, List<Integer>> partitionedOrigins = MultithreadingUtils.orderedPartitionList(IntStream.range(0, sitesCount).boxed().collect(Collectors.toList()), taskCount);
+        CountDownLatch latch = new CountDownLatch(taskCount);
+        ConcurrentHashMap<Integer, List<List<Integer>>> partitionedOutput = new ConcurrentHashMap<>();
+        for (int i = 0; i < taskCount; i++) {
+            int finalI = i;
+            executor.submit(() -> {
+                List<Integer> partitionToOptimize = partitionedOrigins.get(finalI);
+                List<List<Integer>> currentOutput = new ArrayList<>();
+                double[] azimuthRow = new double[sitesCount];
+                double[] haversineRow = new double[sitesCount];
+                for (int j : partitionToOptimize) {
+                    //Same orientation as AzimuthGeneration and HaversineGeneration output, i.e. row j holds values from site j to site k
+                    for (int k = 0; k < sitesCount; k++) {
+                        if (k == j) {
+                            azimuthRow[k] = -1.0;
+                            haversineRow[k] = 0;
+                            continue;
+                        }
+                        azimuthRow[k] = AzimuthGeneration.forwardAzimuth(latitudes[j], longitudes[j], latitudes[k], longitudes[k]);
+                        haversineRow[k] = HaversineGeneration.haversineDist(latitudes[j], longitudes[j], latitudes[k], longitudes[k]);
+                    }
+                    currentOutput.add(sortSiteNeighbors(azimuthRow, haversineRow, azimuthClassCount, neighborsLimit, new Random(j)));
                 }
                 partitionedOutput.put(finalI, currentOutput);
                 latch.countDown();
@@ -64,12 +85,47 @@ public class SimAnnealingNeighbor {
         for (int i = 0; i < taskCount; i++) {
             output.addAll(partitionedOutput.get(i));
         }
-
-        //Return sorted neighbors
         System.out.println("Done sorting neighbors.");
         return output;
     }
 
+    //Neighbors of a single site from its row of azimuths and haversine distances. Merging takes wedges by index, so the first neighborsLimit merged neighbors only come from the neighborsLimit closest sites of each wedge,
+    //and only those are kept and sorted rather than sorting every site.
+    private static List<Integer> sortSiteNeighbors(double[] azimuthRow, double[] haversineRow, int azimuthClassCount, int neighborsLimit, Random random) {
+        //Create a local max-heap of kept sites by haversine distance for each azimuth class
+        Comparator<Integer> byDistance = Comparator.comparingDouble((Integer k) -> haversineRow[k]).thenComparingInt(k -> k);
+        List<PriorityQueue<Integer>> azimuthClassHeaps = new ArrayList<>(azimuthClassCount);
+        for (int azimuthClass = 0; azimuthClass < azimuthClassCount; azimuthClass++) {
+            azimuthClassHeaps.add(new PriorityQueue<>(byDistance.reversed()));
+        }
+
+        //For every alternate site location, put it in a corresponding heap and drop the farthest site once heap exceeds neighborsLimit
+        for (int k = 0; k < haversineRow.length; k++) {
+            if (azimuthRow[k] == -1.0) continue; //use -1.0 to identify same position, see FileUtils.getInnerAzimuthArrayFromCSV
+            int azimuthClass = classifyAzimuth(azimuthRow[k], azimuthClassCount);
+            PriorityQueue<Integer> azimuthClassHeap = azimuthClassHeaps.get(azimuthClass);
+            azimuthClassHeap.add(k);
+            if (neighborsLimit > 0 && azimuthClassHeap.size() > neighborsLimit) {
+                azimuthClassHeap.poll();
+            }
+        }
+
+        //Sort by cost and convert to list by eliminating cost to reduce memory needed to store and improve access
+        List<List<Integer>> sortedAzimuthClassLists = new ArrayList<>(azimuthClassCount);
+        for (int azimuthClass = 0; azimuthClass < azimuthClassCount; azimuthClass++) {
+            List<Integer> sortedAzimuthClassList = new ArrayList<>(azimuthClassHeaps.get(azimuthClass));
+            sortedAzimuthClassList.sort(byDistance);
+            sortedAzimuthClassLists.add(sortedAzimuthClassList);
+        }
+
+        //Merge wedges by index
+        List<Integer> mergedWedges = mergeSortedWedges(sortedAzimuthClassLists, azimuthClassCount, random);
+        if (neighborsLimit > 0 && mergedWedges.size() > neighborsLimit) {
+            return new ArrayList<>(mergedWedges.subList(0, neighborsLimit));
+        }
+        return mergedWedges;
+    }
+
     //Only use if number of origins is equal to number of potential sites.
     public static List<List<Integer>> sortNeighbors(double[][] azimuthArray, double[][] haversineArray, int azimuthClassCount, int taskCount, ExecutorService executor, Map<Integer, List<Integer>> partitionedOrigins) {
         System.out.println("Generating sorted neighbors.");
@@ -137,7 +193,7 @@ public class SimAnnealingNeighbor {
 
                     //Merge wedges by index
                     List<List<Integer>> unmergedWedges = Arrays.asList(azimuthClassZeroList, azimuthClassOneList, azimuthClassTwoList, azimuthClassThreeList, azimuthClassFourList, azimuthClassFiveList);
-                    List<Integer> mergedWedges = mergeSortedWedges(unmergedWedges, 6);
+                    List<Integer> mergedWedges = mergeSortedWedges(unmergedWedges, 6, new Random(j));
 
                     //Add sortedAlternativeSites to final output
                     currentOutput.add(mergedWedges);
@@ -174,13 +230,13 @@ public class SimAnnealingNeighbor {
     }
 
     //For each current site, merge 6 wedges into sorted list with nth element of each wedge randomly but in sequence by index
-    public static List<Integer> mergeSortedWedges (List<List<Integer>> unmergedWedges, int azimuthClassCount) {
+    public static List<Integer> mergeSortedWedges (List<List<Integer>> unmergedWedges, int azimuthClassCount, Random random) {
         List<Integer> mergedWedges = new ArrayList<>();
         List<Integer> insertionOrder = IntStream.range(0, azimuthClassCount).boxed().collect(Collectors.toList());
         //Insert by index in wedges
         for (int i = 0; i < getMaxWedgeSize(unmergedWedges); i++) {
             //Randomize insertion order of azimuth (wedge) classes for each index
-            Collections.shuffle(insertionOrder);
+            Collections.shuffle(insertionOrder, random);
             for (int j = 0; j < azimuthClassCount; j++) {
                 List<Integer> currentWedge = unmergedWedges.get(insertionOrder.get(j));
                 if (currentWedge.size() > i) {
@@ -200,12 +256,12 @@ public class SimAnnealingNeighbor {
     }
 
     //Get new site
-    public static Integer getUnusedNeighbor(List<Integer> currentSites, Integer siteToShift, int neighborhoodSize, List<List<Integer>> sortedNeighbors) {
+    public static Integer getUnusedNeighbor(List<Integer> currentSites, Integer siteToShift, int neighborhoodSize, List<List<Integer>> sortedNeighbors, Random random) {
         //Generate a list of potential next sites given particular site and remove all current sites from consideration.
         List<Integer> nextSiteCandidates = sortedNeighbors.get(siteToShift); //new ArrayList<>(sortedNeighbors.get(siteToShift));
         //nextSiteCandidates.removeAll(currentSites); //ensures that neighbor is unused
         //Find new positions to test
-        Random random = new Random();
+        neighborhoodSize = Math.min(neighborhoodSize, nextSiteCandidates.size()); //neighbor lists may be truncated
         //Alternative performance-oriented implementation to ensure that neighbor is unused
         while (true) {
             Integer neighbor = nextSiteCandidates.get(random.nextInt(neighborhoodSize));
@@ -213,7 +269,10 @@ public class SimAnnealingNeighbor {
                 if (currentSites.size() >= neighborhoodSize) {
                     nextSiteCandidates = new ArrayList<>(nextSiteCandidates);
                     nextSiteCandidates.removeAll(currentSites);
-                    return nextSiteCandidates.get(random.nextInt(neighborhoodSize));
+                    if (nextSiteCandidates.isEmpty()) {
+                        return getAnyUnusedSite(currentSites, sortedNeighbors.size(), random);
+                    }
+                    return nextSiteCandidates.get(random.nextInt(Math.min(neighborhoodSize, nextSiteCandidates.size())));
                 }
             } else {
                 return neighbor;
@@ -221,6 +280,22 @@ public class SimAnnealingNeighbor {
         }
     }
 
+    //Fallback once every kept neighbor of a truncated neighbor list is in use
+    private static Integer getAnyUnusedSite(List<Integer> currentSites, int potentialSitesCount, Random random) {
+        boolean[] isUsedSite = new boolean[potentialSitesCount];
+        for (int site : currentSites) {
+            isUsedSite[site] = true;
+        }
+        List<Integer> unusedSites = new ArrayList<>();
+        for (int site = 0; site < potentialSitesCount; site++) {
+            if (!isUsedSite[site]) unusedSites.add(site);
+        }
+        if (unusedSites.isEmpty()) {
+            throw new IllegalStateException("No unused site to shift to, all " + potentialSitesCount + " potential sites are in use.");
+        }
+        return unusedSites.get(random.nextInt(unusedSites.size()));
+    }
+
     //Get final neighborhood size, adjusting for -1 case where algorithm automatically determines final size
     public static int getFinalNeighborhoodSize (int potentialSitesCount, int centerCount, int initialFinalNeighborhoodSize) {
         if (initialFinalNeighborhoodSize == -1) {
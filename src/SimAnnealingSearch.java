@@ -5,19 +5,58 @@ import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 import java.util.Random;
 
+//Search state is per instance, so that searches over different search spaces run concurrently in one process. A search space is read-only during a search and may be shared by concurrent searches.
 public abstract class SimAnnealingSearch {
     //Threadpool
-    static ExecutorService executor;
+    protected ExecutorService executor;
 
     //Search space parameters
-    static SearchSpace searchParameters;
+    protected SearchSpace searchParameters;
 
     //Simulated annealing configuration
-    static double initialTemp;// = 1000000;
-    static double finalTemp;// = 1;
-    static double coolingRate;// = 0.997;
-    static int finalNeighborhoodSize;// = 60; Currently overriding in OptimizeNCenters method based on n if set at -1
-    static int finalNeighborhoodSizeIteration; // = 3200;
+    protected double initialTemp;// = 1000000;
+    protected double finalTemp;// = 1;
+    protected double coolingRate;// = 0.997;
+    protected int finalNeighborhoodSize;// = 60; Currently overriding in OptimizeNCenters method based on n if set at -1
+    protected int finalNeighborhoodSizeIteration; // = 3200;
+    public int polishSwapCount = 1000; //maximum best improving swaps per level after annealing, 0 to disable
+    public int batchMoveWorkerCount = 0; //candidate shifts evaluated in parallel by whole move, 0 or 1 to evaluate shifts one at a time
+    public Long seed = null; //seed of random choices of a run, so that runs with the same seed and configuration make the same choices, null to seed each run differently
+
+    //Adaptive cooling configuration, see AdaptiveCoolingSchedule
+    public boolean isAdaptiveCooling = false; //adapt cooling to acceptance and cost variance, reheat and stop early, otherwise cool at coolingRate from initialTemp to finalTemp
+    public int bandSweepCount = 20; //sweeps per temperature band
+    public double deviationCoolingFactor = 1; //band cooling as multiple of cooling at coolingRate per ratio of temperature to cost standard deviation of previous band
+    public double maximumCoolingMultiple = 8; //fastest band cooling as multiple of cooling at coolingRate
+    public double frozenAcceptanceRate = 0.01; //band acceptance rate below which temperature counts as low
+    public int convergenceSweepCount = 1000; //sweeps at low temperature without improvement before reheating or stopping
+    public int maximumReheatCount = 2;
+    public double reheatTemperatureMultiple = 10; //reheat to this multiple of temperature of last improvement
+
+    protected SimAnnealingSearch() {
+    }
+
+    //Search sharing executor and search space of other, with a copy of its configuration
+    protected SimAnnealingSearch(SimAnnealingSearch other) {
+        this.executor = other.executor;
+        this.searchParameters = other.searchParameters;
+        this.initialTemp = other.initialTemp;
+        this.finalTemp = other.finalTemp;
+        this.coolingRate = other.coolingRate;
+        this.finalNeighborhoodSize = other.finalNeighborhoodSize;
+        this.finalNeighborhoodSizeIteration = other.finalNeighborhoodSizeIteration;
+        this.polishSwapCount = other.polishSwapCount;
+        this.batchMoveWorkerCount = other.batchMoveWorkerCount;
+        this.seed = other.seed;
+        this.isAdaptiveCooling = other.isAdaptiveCooling;
+        this.bandSweepCount = other.bandSweepCount;
+        this.deviationCoolingFactor = other.deviationCoolingFactor;
+        this.maximumCoolingMultiple = other.maximumCoolingMultiple;
+        this.frozenAcceptanceRate = other.frozenAcceptanceRate;
+        this.convergenceSweepCount = other.convergenceSweepCount;
+        this.maximumReheatCount = other.maximumReheatCount;
+        this.reheatTemperatureMultiple = other.reheatTemperatureMultiple;
+    }
 
     //Development only
     public static int updateFrequency = 1000; //frequency of updates in ms // development only
@@ -30,13 +69,26 @@ public abstract class SimAnnealingSearch {
         return Math.exp((currentEnergy - newEnergy) / temperature);
     }
 
+    //Source of random choices of a run, from seed if set
+    protected Random createRandom() {
+        return seed == null ? new Random() : new Random(seed);
+    }
+
     //Minimum acceptance probability of 1/iterations for target level compared to previous cost
-    public static double targetLevelThresholdProbability() {
+    public double targetLevelThresholdProbability() {
         return 1 / (double) countIterations();
     }
 
-    //Get number of simulated annealing iterations that will be run
-    public static int countIterations() {
+    //Get number of simulated annealing iterations that will be run, an upper bound before reheating with adaptive cooling
+    public int countIterations() {
         return (int) Math.ceil(Math.log(finalTemp / initialTemp)/Math.log(coolingRate));
     }
-}
\ No newline at end of file
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    public SearchSpace getSearchParameters() {
+        return searchParameters;
+    }
+}
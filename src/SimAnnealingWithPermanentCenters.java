@@ -1,5 +1,4 @@
 import java.util.*;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -8,13 +7,22 @@ public class SimAnnealingWithPermanentCenters extends SimAnnealingSearch{
     public SimAnnealingWithPermanentCenters(String censusFileLocation, String permanentGraphLocation, String potentialGraphLocation, String azimuthLocation, String haversineLocation,
                                             double[] minimumCasesByLevel, double[] servicedProportionByLevel, int[] minimumNewCenterCountByLevel, int[] maximumNewCenterCountByLevel, List<List<Integer>> levelSequences, List<List<Integer>> permanentCentersByLevel,
                                             double initialTemp, double finalTemp, double coolingRate, int azimuthClassCount, int finalNeighborhoodSize, int finalNeighborhoodSizeIteration, int taskCount, int threadCount) {
+        this(censusFileLocation, permanentGraphLocation, potentialGraphLocation, azimuthLocation, haversineLocation, minimumCasesByLevel, servicedProportionByLevel, minimumNewCenterCountByLevel, maximumNewCenterCountByLevel,
+                levelSequences, permanentCentersByLevel, initialTemp, finalTemp, coolingRate, azimuthClassCount, finalNeighborhoodSize, finalNeighborhoodSizeIteration, taskCount, threadCount, new SearchSpaceOptions());
+    }
+
+    //As above with given search space options
+    public SimAnnealingWithPermanentCenters(String censusFileLocation, String permanentGraphLocation, String potentialGraphLocation, String azimuthLocation, String haversineLocation,
+                                            double[] minimumCasesByLevel, double[] servicedProportionByLevel, int[] minimumNewCenterCountByLevel, int[] maximumNewCenterCountByLevel, List<List<Integer>> levelSequences, List<List<Integer>> permanentCentersByLevel,
+                                            double initialTemp, double finalTemp, double coolingRate, int azimuthClassCount, int finalNeighborhoodSize, int finalNeighborhoodSizeIteration, int taskCount, int threadCount,
+                                            SearchSpaceOptions options) {
         //Multithreading configuration
-        executor = Executors.newFixedThreadPool(threadCount);
+        executor = MultithreadingUtils.newExecutor(threadCount, options.useForkJoinPool);
 
         //Search space parameters, multithreaded, requires executor
         searchParameters = new SearchSpace(minimumNewCenterCountByLevel, maximumNewCenterCountByLevel, permanentCentersByLevel,
                 minimumCasesByLevel, servicedProportionByLevel, levelSequences, azimuthClassCount,
-                censusFileLocation, permanentGraphLocation, potentialGraphLocation, azimuthLocation, haversineLocation, taskCount, executor);
+                censusFileLocation, permanentGraphLocation, potentialGraphLocation, azimuthLocation, haversineLocation, taskCount, executor, options);
 
         //Simulated annealing configuration
         this.initialTemp = initialTemp;
@@ -58,7 +66,7 @@ public class SimAnnealingWithPermanentCenters extends SimAnnealingSearch{
         int taskCount = 18;
 
         //Create simulated annealing instance with permanent centers
-        new SimAnnealingWithPermanentCenters(censusFileLocation, permanentGraphLocation, potentialGraphLocation, azimuthLocation, haversineLocation,
+        SimAnnealingWithPermanentCenters search = new SimAnnealingWithPermanentCenters(censusFileLocation, permanentGraphLocation, potentialGraphLocation, azimuthLocation, haversineLocation,
                 minimumCasesByLevel, servicedProportionByLevel, minimumNewCenterCountByLevel, maximumNewCenterCountByLevel, levelSequences, permanentCentersByLevel,
                 initialTemp, finalTemp, coolingRate, azimuthClassCount, finalNeighborhoodSize, finalNeighborhoodSizeIteration, taskCount, threadCount);
 
@@ -70,7 +78,7 @@ public class SimAnnealingWithPermanentCenters extends SimAnnealingSearch{
         long runtime = 0;
         for (int i = 0; i < 20; i++) {//dev
             long startTime = System.currentTimeMillis();
-            LeveledSiteConfigurationForPermanentCenters solution = leveledOptimizeCenters(taskCount);
+            LeveledSiteConfigurationForPermanentCenters solution = search.leveledOptimizeCenters(taskCount);
             System.out.println("Iteration cost is " + solution.getCost() + " on centers " + solution.getSitesByLevel());
             if (minimumSolution == null) {
                 minimumSolution = solution;
@@ -82,17 +90,17 @@ public class SimAnnealingWithPermanentCenters extends SimAnnealingSearch{
             long endTime = System.currentTimeMillis();
             runtime += (endTime - startTime);
         }
-        LeveledSiteConfigurationForPermanentCenters.DecomposedLeveledSites decomposedSites = minimumSolution.decomposeSites(searchParameters.getPermanentCentersCountByLevel(), searchParameters.getPotentialSitesCount());
+        LeveledSiteConfigurationForPermanentCenters.DecomposedLeveledSites decomposedSites = minimumSolution.decomposeSites(search.getSearchParameters().getPermanentCentersCountByLevel(), search.getSearchParameters().getPotentialSitesCount());
         System.out.println("Minimum cost " + minimumSolution.getCost() + " at permanent sites " + decomposedSites.getPermanentSitesByLevel() + " and expanded permanent sites " + decomposedSites.getExpandedSitesByLevel() + " and new sites " + decomposedSites.getNewSitesByLevel() + ".");
-        executor.shutdown();
+        search.getExecutor().shutdown();
         System.out.println("Total runtime " + (runtime / (long) 1000) + " seconds");
         return;
     }
 
     //Multithreading variant of leveledOptimizeCenters
-    public static LeveledSiteConfigurationForPermanentCenters leveledOptimizeCenters(int taskCount) throws InterruptedException {
+    public LeveledSiteConfigurationForPermanentCenters leveledOptimizeCenters(int taskCount) throws InterruptedException {
         long timer = System.currentTimeMillis(); // development only
-        Random random = new Random();
+        Random random = createRandom();
 
         //Overriding finalNeighborhoodSize locally for multithreading based on number of centers to optimize if -1 chosen
         List<Integer> allPotentialSites = IntStream.range(0, searchParameters.getPotentialSitesCount()).boxed().collect(Collectors.toList());
@@ -105,7 +113,7 @@ public class SimAnnealingWithPermanentCenters extends SimAnnealingSearch{
         double targetLevelThresholdProbability = targetLevelThresholdProbability();
 
         //Create initial configuration
-        LeveledSiteConfigurationForPermanentCenters currentSiteConfiguration = new LeveledSiteConfigurationForPermanentCenters(allPotentialSites, searchParameters, taskCount, executor);
+        LeveledSiteConfigurationForPermanentCenters currentSiteConfiguration = new LeveledSiteConfigurationForPermanentCenters(allPotentialSites, searchParameters, random, taskCount, executor);
         double currentCost = currentSiteConfiguration.getCost();
 
         System.out.println("Initial cost " + currentCost + " with details " + Arrays.toString(currentSiteConfiguration.getCostByLevel()) + " at sites " + currentSiteConfiguration.getSitesByLevel()); //Initial cost from random placement.
@@ -123,21 +131,21 @@ public class SimAnnealingWithPermanentCenters extends SimAnnealingSearch{
                 for (int position = searchParameters.getPermanentCentersCountByLevel()[level]; position < currentCenterCount; ++position) {
                     List<Integer> restrictedShiftSites = currentSiteConfiguration.getRestrictedShiftableSuperlevelSites(level, searchParameters.getCenterLevels(), position,
                             searchParameters.getPermanentCentersByLevel(), searchParameters.getSuperlevelsByLevel(), searchParameters.getSublevelsByLevel(), searchParameters.getMaxNewCentersByLevel(), searchParameters.getPermanentCentersCountByLevel()); //restrictedShiftSites are null if there are no restrictions
-                    if ((Math.random() < 0.5 || searchParameters.getSuperlevelsByLevel()[level].length == 0 ) && restrictedShiftSites == null) { //try to shift to a neighbor, cannot have restriction while shifting (OK to add new site to superlevels)
+                    if ((random.nextDouble() < 0.5 || searchParameters.getSuperlevelsByLevel()[level].length == 0 ) && restrictedShiftSites == null) { //try to shift to a neighbor, cannot have restriction while shifting (OK to add new site to superlevels)
                         if (neighborhoodSize == 0) {
                             neighborhoodSize = SimAnnealingNeighbor.getNeighborhoodSize(currentCenterCount, searchParameters.getPotentialSitesCount(), localFinalNeighborhoodSizeByLevel[level], simAnnealingIteration, finalNeighborhoodSizeIteration);
                         }
                         if (searchParameters.getSuperlevelsByLevel()[level].length == 0 && searchParameters.getSublevelsByLevel()[level].length == 0) {
-                            currentSiteConfiguration.tryShiftToNeighborWithoutLevelRelations(level, position, neighborhoodSize, searchParameters, temp, taskCount, executor);
+                            currentSiteConfiguration.tryShiftToNeighborWithoutLevelRelations(level, position, neighborhoodSize, searchParameters, temp, random, taskCount, executor);
                         } else {
-                            currentSiteConfiguration.tryShiftToNeighbor(level, position, neighborhoodSize, searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
+                            currentSiteConfiguration.tryShiftToNeighbor(level, position, neighborhoodSize, searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
                         }
                     } else if (restrictedShiftSites != null && restrictedShiftSites.size() > 0) { //try shift site to an unused superlevel site, some superlevel site configuration is restricting shift (shifting from permanent site)
-                        currentSiteConfiguration.tryShiftSite(level, position, pickRandomSite(restrictedShiftSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
+                        currentSiteConfiguration.tryShiftSite(level, position, pickRandomSite(restrictedShiftSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
                     } else if (restrictedShiftSites == null) { //no restrictions in shifting to superlevel site
-                        List<Integer> unusedSuperlevelSites = currentSiteConfiguration.getRandomSuperlevelUnusedSites(level, searchParameters.getSuperlevelsByLevel()[level]);
+                        List<Integer> unusedSuperlevelSites = currentSiteConfiguration.getRandomSuperlevelUnusedSites(level, searchParameters.getSuperlevelsByLevel()[level], random);
                         if (unusedSuperlevelSites.size() > 0) { //available superlevel sites to which to shift
-                            currentSiteConfiguration.tryShiftSite(level, position, pickRandomSite(unusedSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
+                            currentSiteConfiguration.tryShiftSite(level, position, pickRandomSite(unusedSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
                         } else { //no available superlevel sites to which to shift
                             boolean allSuperlevelsSubmaximal = true;
                             for (int superlevel : searchParameters.getSuperlevelsByLevel()[level]) {
@@ -149,48 +157,48 @@ public class SimAnnealingWithPermanentCenters extends SimAnnealingSearch{
                                 if (neighborhoodSize == 0) {
                                     neighborhoodSize = SimAnnealingNeighbor.getNeighborhoodSize(currentCenterCount, searchParameters.getPotentialSitesCount(), localFinalNeighborhoodSizeByLevel[level], simAnnealingIteration, finalNeighborhoodSizeIteration);
                                 }
-                                currentSiteConfiguration.tryShiftToNeighbor(level, position, neighborhoodSize, searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
+                                currentSiteConfiguration.tryShiftToNeighbor(level, position, neighborhoodSize, searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
                             }
                         }
                     }
                 }
             }
 
-            if (Math.random() < 1) {
+            if (random.nextDouble() < 1) {
                 //Try adding or removing one of current sites for each level
                 for (int level = 0; level < searchParameters.getCenterLevels(); level++) {
                     int currentCenterCount = currentSiteConfiguration.getSitesCount(level);
-                    double adjustmentType = Math.random();
+                    double adjustmentType = random.nextDouble();
                     if ((adjustmentType < 0.5 || currentCenterCount == searchParameters.getMinNewCentersByLevel()[level] + searchParameters.getPermanentCentersCountByLevel()[level]) && currentCenterCount < searchParameters.getMaxNewCentersByLevel()[level] + searchParameters.getPermanentCentersCountByLevel()[level]) { //attempt to add unrestricted site unless number of sites is already maximal
                         if (searchParameters.getSuperlevelsByLevel()[level].length == 0) {
-                            currentSiteConfiguration.tryAddSiteWithoutSuperlevels(level, pickRandomAddableSite(currentSiteConfiguration.getSites(level), allPotentialSites, random), searchParameters, temp, taskCount, executor);
+                            currentSiteConfiguration.tryAddSiteWithoutSuperlevels(level, pickRandomAddableSite(currentSiteConfiguration.getSites(level), allPotentialSites, random), searchParameters, temp, random, taskCount, executor);
                         } else if (adjustmentType < 0.3) {
                             List<Integer> restrictedAddableSuperlevelSites = currentSiteConfiguration.getRestrictedAddableSuperlevelSites(level, searchParameters.getSuperlevelsByLevel()[level], searchParameters.getMaxNewCentersByLevel(), searchParameters.getPermanentCentersCountByLevel());
                             if (restrictedAddableSuperlevelSites == null) { //not maximal, will add random site
-                                currentSiteConfiguration.tryAddSite(level, pickRandomAddableSite(currentSiteConfiguration.getSites(level), allPotentialSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
+                                currentSiteConfiguration.tryAddSite(level, pickRandomAddableSite(currentSiteConfiguration.getSites(level), allPotentialSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
                             } else if (restrictedAddableSuperlevelSites.size() > 0) { //there are restrictions on adding sites to some superlevel but an available site exists
-                                currentSiteConfiguration.tryAddSite(level, pickRandomSite(restrictedAddableSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
+                                currentSiteConfiguration.tryAddSite(level, pickRandomSite(restrictedAddableSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
                             }
                         } else {
                             List<Integer> restrictedAddableSuperlevelSites = currentSiteConfiguration.getRestrictedAddableSuperlevelSites(level, searchParameters.getSuperlevelsByLevel()[level], searchParameters.getMaxNewCentersByLevel(), searchParameters.getPermanentCentersCountByLevel());
                             if (restrictedAddableSuperlevelSites == null) { //if there are no restrictions on adding sites
-                                List<Integer> unusedSuperlevelSites = currentSiteConfiguration.getRandomSuperlevelUnusedSites(level, searchParameters.getSuperlevelsByLevel()[level]);
+                                List<Integer> unusedSuperlevelSites = currentSiteConfiguration.getRandomSuperlevelUnusedSites(level, searchParameters.getSuperlevelsByLevel()[level], random);
                                 if (unusedSuperlevelSites.size() > 0) { //there is a superlevel site not in current level
-                                    currentSiteConfiguration.tryAddSite(level, pickRandomSite(unusedSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
+                                    currentSiteConfiguration.tryAddSite(level, pickRandomSite(unusedSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
                                 } else { //all superlevels equal to current level, to add random site
-                                    currentSiteConfiguration.tryAddSite(level, pickRandomAddableSite(currentSiteConfiguration.getSites(level), allPotentialSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
+                                    currentSiteConfiguration.tryAddSite(level, pickRandomAddableSite(currentSiteConfiguration.getSites(level), allPotentialSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
                                 }
                             } else if (restrictedAddableSuperlevelSites.size() > 0) { //there are restrictions on adding sites but an available site exists
-                                currentSiteConfiguration.tryAddSite(level, pickRandomSite(restrictedAddableSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
+                                currentSiteConfiguration.tryAddSite(level, pickRandomSite(restrictedAddableSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
                             } //size == 0 implies that there are restricting superlevels and that their intersection is equal to the original sites, i.e. adding a site is not permissible
                         }
                     } else if (currentCenterCount > searchParameters.getMinNewCentersByLevel()[level] + searchParameters.getPermanentCentersCountByLevel()[level]) { //try to remove site
                         if (searchParameters.getSublevelsByLevel().length == 0) {
-                            currentSiteConfiguration.tryRemovePositionWithoutSublevels(level, random.nextInt(currentSiteConfiguration.getSitesCount(level)), searchParameters, temp, taskCount, executor);
+                            currentSiteConfiguration.tryRemovePositionWithoutSublevels(level, random.nextInt(currentSiteConfiguration.getSitesCount(level)), searchParameters, temp, random, taskCount, executor);
                         } else {
                             List<Integer> candidateRemovalSites = currentSiteConfiguration.getCandidateRemovalSites(level, searchParameters.getSublevelsByLevel()[level], searchParameters.getMinNewCentersByLevel(), searchParameters.getPermanentCentersCountByLevel());
                             if (candidateRemovalSites.size() > 0) {
-                                currentSiteConfiguration.tryRemoveSite(level, pickRandomSite(candidateRemovalSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
+                                currentSiteConfiguration.tryRemoveSite(level, pickRandomSite(candidateRemovalSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
                             }
                         }
                     }
@@ -1,5 +1,4 @@
 import java.util.*;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -9,12 +8,21 @@ public class SimAnnealingWithoutPermanentCenters extends SimAnnealingSearch{
     public SimAnnealingWithoutPermanentCenters(String censusFileLocation, String graphLocation, String azimuthLocation, String haversineLocation,
                                                double[] minimumCasesByLevel, double[] servicedProportionByLevel, int[] minimumCenterCountByLevel, int[] maximumCenterCountByLevel, List<List<Integer>> levelSequences,
                                                double initialTemp, double finalTemp, double coolingRate, int azimuthClassCount, int finalNeighborhoodSize, int finalNeighborhoodIteration, int taskCount, int threadCount) {
+        this(censusFileLocation, graphLocation, azimuthLocation, haversineLocation, minimumCasesByLevel, servicedProportionByLevel, minimumCenterCountByLevel, maximumCenterCountByLevel, levelSequences,
+                initialTemp, finalTemp, coolingRate, azimuthClassCount, finalNeighborhoodSize, finalNeighborhoodIteration, taskCount, threadCount, new SearchSpaceOptions());
+    }
+
+    //As above with given search space options
+    public SimAnnealingWithoutPermanentCenters(String censusFileLocation, String graphLocation, String azimuthLocation, String haversineLocation,
+                                               double[] minimumCasesByLevel, double[] servicedProportionByLevel, int[] minimumCenterCountByLevel, int[] maximumCenterCountByLevel, List<List<Integer>> levelSequences,
+                                               double initialTemp, double finalTemp, double coolingRate, int azimuthClassCount, int finalNeighborhoodSize, int finalNeighborhoodIteration, int taskCount, int threadCount,
+                                               SearchSpaceOptions options) {
         //Multithreading configuration
-        executor = Executors.newFixedThreadPool(threadCount);
+        executor = MultithreadingUtils.newExecutor(threadCount, options.useForkJoinPool);
 
         //Search space parameters, multithreaded, requires executor
         searchParameters = new SearchSpace(minimumCenterCountByLevel, maximumCenterCountByLevel, minimumCasesByLevel, servicedProportionByLevel, levelSequences, azimuthClassCount,
-                censusFileLocation, graphLocation, azimuthLocation, haversineLocation, taskCount, executor);
+                censusFileLocation, graphLocation, azimuthLocation, haversineLocation, taskCount, executor, options);
 
         //Simulated annealing configuration
         this.initialTemp = initialTemp;
@@ -24,6 +32,11 @@ public class SimAnnealingWithoutPermanentCenters extends SimAnnealingSearch{
         this.finalNeighborhoodSizeIteration = finalNeighborhoodIteration;
     }
 
+    //Search sharing executor and search space of other, with a copy of its configuration
+    public SimAnnealingWithoutPermanentCenters(SimAnnealingSearch other) {
+        super(other);
+    }
+
     public static void main(String[] args) throws InterruptedException {
         //File locations
         String censusFileLocation = "M:\\Optimization Project Alpha\\alberta2021_origins.csv";
@@ -53,12 +66,12 @@ public class SimAnnealingWithoutPermanentCenters extends SimAnnealingSearch{
         int taskCount = 6;
 
         //Create simulated annealing instance
-        new SimAnnealingWithoutPermanentCenters(censusFileLocation, graphLocation, azimuthLocation, haversineLocation,
+        SimAnnealingWithoutPermanentCenters search = new SimAnnealingWithoutPermanentCenters(censusFileLocation, graphLocation, azimuthLocation, haversineLocation,
                 minimumCasesByLevel, servicedProportionByLevel, minimumCenterCountByLevel, maximumCenterCountByLevel, levelSequences,
                 initialTemp, finalTemp, coolingRate, azimuthClassCount, finalNeighborhoodSize, finalNeighborhoodSizeIteration, taskCount, threadCount);
 
         //Run optimization
-        System.out.println("Sublevels by level are " + Arrays.deepToString(searchParameters.getSublevelsByLevel()) + " and superlevels by level are " + Arrays.deepToString(searchParameters.getSuperlevelsByLevel()));
+        System.out.println("Sublevels by level are " + Arrays.deepToString(search.getSearchParameters().getSublevelsByLevel()) + " and superlevels by level are " + Arrays.deepToString(search.getSearchParameters().getSuperlevelsByLevel()));
         System.out.println("Starting optimization algorithm"); //development only
         //This can be multithreaded with each thread working on a different number n.
         double minimumCost = Double.POSITIVE_INFINITY;
@@ -68,21 +81,22 @@ public class SimAnnealingWithoutPermanentCenters extends SimAnnealingSearch{
         double runtime = 0;
         for (int i = 0; i < 20; i++) {//dev
             long startTime = System.currentTimeMillis();
-            LeveledSiteConfiguration solutionWithNCenters = leveledOptimizeCenters(taskCount);
+            LeveledSiteConfiguration solutionWithNCenters = search.leveledOptimizeCenters(taskCount);
             System.out.println("Final cost is " + solutionWithNCenters.getCost() + " on centers " + solutionWithNCenters.getSitesByLevel());
             double endTime = System.currentTimeMillis();
             runtime += (endTime - startTime);
         }
         System.out.println("Run time on 20 iterations was " + (runtime / (double) 1000) + "s");
         //development end
-        executor.shutdown();
+        search.getExecutor().shutdown();
         return;
     }
 
     //Optimize with shrinking
     //Multithreading variant of OptimizeNCenters
-    public static SiteConfiguration optimizeNCenters(int centerCount, int taskCount) throws InterruptedException {
+    public SiteConfiguration optimizeNCenters(int centerCount, int taskCount) throws InterruptedException {
         long timer = System.currentTimeMillis(); // development only
+        Random random = createRandom();
 
         //Overriding finalNeighborhoodSize locally for multithreading based on number of centers to optimize if -1 chosen
         int localFinalNeighborhoodSize;
@@ -95,7 +109,7 @@ public class SimAnnealingWithoutPermanentCenters extends SimAnnealingSearch{
 
         //Create initial configuration+
         List<Integer> potentialSites = IntStream.range(0, searchParameters.getPotentialSitesCount()).boxed().collect(Collectors.toList());
-        SiteConfiguration currentSiteConfiguration = new SiteConfiguration(centerCount, centerCount, potentialSites, searchParameters, taskCount, executor);
+        SiteConfiguration currentSiteConfiguration = new SiteConfiguration(centerCount, centerCount, potentialSites, searchParameters, random, taskCount, executor);
         int currentCenterCount = currentSiteConfiguration.getSites().size();
 
         System.out.println("Initial cost " + currentSiteConfiguration.getCost() + " at " + currentSiteConfiguration.getSites()); //Initial cost from random placement.
@@ -112,8 +126,12 @@ public class SimAnnealingWithoutPermanentCenters extends SimAnnealingSearch{
                 neighborhoodSize = SimAnnealingNeighbor.getNeighborhoodSize(centerCount, searchParameters.getPotentialSitesCount(), localFinalNeighborhoodSize, simAnnealingIteration, finalNeighborhoodSizeIteration);
             }
             //Try moving each cancer center once for every cycle
-            for (int i = 0; i < currentCenterCount; ++i ) {
-                currentSiteConfiguration.tryShiftToNeighbor(i, neighborhoodSize, searchParameters, temp, taskCount, executor);
+            if (batchMoveWorkerCount > 1) {
+                currentSiteConfiguration.tryShiftAllToNeighbors(neighborhoodSize, searchParameters, temp, random, batchMoveWorkerCount, executor);
+            } else {
+                for (int i = 0; i < currentCenterCount; ++i ) {
+                    currentSiteConfiguration.tryShiftToNeighbor(i, neighborhoodSize, searchParameters, temp, random, taskCount, executor);
+                }
             }
 
             temp *= coolingRate;
@@ -130,14 +148,19 @@ public class SimAnnealingWithoutPermanentCenters extends SimAnnealingSearch{
                 throw new InterruptedException();
             }
         }
+        //Polish with best improving swaps
+        if (polishSwapCount > 0) {
+            int swapCount = currentSiteConfiguration.polishWithSwaps(searchParameters, polishSwapCount);
+            System.out.println("Polished to cost " + currentSiteConfiguration.getCost() + " with " + swapCount + " swaps");
+        }
         return currentSiteConfiguration; //contains two elements: double minimum cost and List<Integer> minimum positions.
     }
 
     //Optimize with shrinking
     //Multithreading variant of leveledOptimizeCenters
-    public static LeveledSiteConfiguration leveledOptimizeCenters(int taskCount) throws InterruptedException {
+    public LeveledSiteConfiguration leveledOptimizeCenters(int taskCount) throws InterruptedException {
         long timer = System.currentTimeMillis(); // development only
-        Random random = new Random();
+        Random random = createRandom();
 
         //Overriding finalNeighborhoodSize locally for multithreading based on number of centers to optimize if -1 chosen
         List<Integer> allPotentialSites = IntStream.range(0, searchParameters.getPotentialSitesCount()).boxed().collect(Collectors.toList());
@@ -150,97 +173,32 @@ public class SimAnnealingWithoutPermanentCenters extends SimAnnealingSearch{
         double targetLevelThresholdProbability = targetLevelThresholdProbability();
 
         //Create initial configuration+
-        LeveledSiteConfiguration currentSiteConfiguration = new LeveledSiteConfiguration(allPotentialSites, searchParameters, taskCount, executor);
+        LeveledSiteConfiguration currentSiteConfiguration = new LeveledSiteConfiguration(allPotentialSites, searchParameters, random, taskCount, executor);
         double currentCost = currentSiteConfiguration.getCost();
 
         System.out.println("Initial cost " + currentCost + " at sites " + currentSiteConfiguration.getSitesByLevel()); //Initial cost from random placement.
 
+        //Adaptive cooling keeps a copy of the best configuration, as it may reheat away from it
+        AdaptiveCoolingSchedule schedule = isAdaptiveCooling ? new AdaptiveCoolingSchedule(this, currentCost) : null;
+        LeveledSiteConfiguration bestSiteConfiguration = null;
+
         //Main simulated annealing algorithm
         double temp = initialTemp;
         int simAnnealingIteration = 0;
-        while (temp > finalTemp) {
+        while (schedule == null ? temp > finalTemp : !schedule.isFinished()) {
             simAnnealingIteration += 1;
 
-            //For each level, try moving each cancer center once for every cycle
-            for (int level = 0; level < searchParameters.getCenterLevels(); level++) {
-                int currentCenterCount = currentSiteConfiguration.getSitesCount(level);
-                int neighborhoodSize = 0;
-                for (int position = 0; position < currentCenterCount; ++position) {
-                    if (Math.random() < 0.5 || searchParameters.getSuperlevelsByLevel()[level].length == 0) { //try to shift to a neighbor
-                        if (neighborhoodSize == 0) {
-                            neighborhoodSize = SimAnnealingNeighbor.getNeighborhoodSize(currentCenterCount, searchParameters.getPotentialSitesCount(), localFinalNeighborhoodSizeByLevel[level], simAnnealingIteration, finalNeighborhoodSizeIteration);
-                        }
-                        if (searchParameters.getSuperlevelsByLevel()[level].length == 0 && searchParameters.getSublevelsByLevel()[level].length == 0) {
-                            currentSiteConfiguration.tryShiftToNeighborWithoutLevelRelations(level, position, neighborhoodSize, searchParameters, temp, taskCount, executor);
-                        } else {
-                            currentSiteConfiguration.tryShiftToNeighbor(level, position, neighborhoodSize, searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
-                        }
-                    } else { //try shift site to an unused superlevel site
-                        List<Integer> unusedSuperlevelSites = currentSiteConfiguration.getRandomSuperlevelUnusedSites(level, searchParameters.getSuperlevelsByLevel()[level]);
-                        if (unusedSuperlevelSites.size() > 0) {
-                            currentSiteConfiguration.tryShiftSite(level, position, pickRandomSite(unusedSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
-                        } else { //no unused superlevel sites
-                            boolean allSuperlevelsSubmaximal = true;
-                            for (int superlevel : searchParameters.getSuperlevelsByLevel()[level]) {
-                                if (currentSiteConfiguration.getSites(superlevel).size() == searchParameters.getMaxNewCentersByLevel()[superlevel]) {
-                                    allSuperlevelsSubmaximal = false;
-                                }
-                            }
-                            if (allSuperlevelsSubmaximal) {
-                                if (neighborhoodSize == 0) {
-                                    neighborhoodSize = SimAnnealingNeighbor.getNeighborhoodSize(currentCenterCount, searchParameters.getPotentialSitesCount(), localFinalNeighborhoodSizeByLevel[level], simAnnealingIteration, finalNeighborhoodSizeIteration);
-                                }
-                                currentSiteConfiguration.tryShiftToNeighbor(level, position, neighborhoodSize, searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
-                            }
-                        }
-                    }
-                }
-            }
+            leveledSweep(currentSiteConfiguration, temp, simAnnealingIteration, localFinalNeighborhoodSizeByLevel, allPotentialSites, targetLevelThresholdProbability, random, taskCount);
 
-            //Try changing number of sites on a fraction of iterations
-            if (Math.random() < 0.10) {
-                //Try adding or removing one of current sites for each level
-                for (int level = 0; level < searchParameters.getCenterLevels(); level++) {
-                    int currentCenterCount = currentSiteConfiguration.getSitesCount(level);
-                    double adjustmentType = Math.random();
-                    if ((adjustmentType < 0.5 || currentCenterCount == searchParameters.getMinNewCentersByLevel()[level]) && currentCenterCount < searchParameters.getMaxNewCentersByLevel()[level]) {
-                        if (searchParameters.getSuperlevelsByLevel()[level].length == 0) {
-                            currentSiteConfiguration.tryAddSiteWithoutSuperlevels(level, pickRandomAddableSite(currentSiteConfiguration.getSites(level), allPotentialSites, random), searchParameters, temp, taskCount, executor);
-                        } else if (adjustmentType < 0.3) { //attempt to add unrestricted site unless number of sites is already maximal
-                            List<Integer> restrictedAddableSuperlevelSites = currentSiteConfiguration.getRestrictedAddableSuperlevelSites(level, searchParameters.getSuperlevelsByLevel()[level], searchParameters.getMaxNewCentersByLevel());
-                            if (restrictedAddableSuperlevelSites == null) { //not maximal, will add unrestricted site
-                                currentSiteConfiguration.tryAddSite(level, pickRandomAddableSite(currentSiteConfiguration.getSites(level), allPotentialSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
-                            } else if (restrictedAddableSuperlevelSites.size() > 0) { //there are restrictions on adding sites to some superlevel but an available site exists
-                                currentSiteConfiguration.tryAddSite(level, pickRandomSite(restrictedAddableSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
-                            }
-                        } else { //attempt to add existing superlevel site first
-                            List<Integer> restrictedAddableSuperlevelSites = currentSiteConfiguration.getRestrictedAddableSuperlevelSites(level, searchParameters.getSuperlevelsByLevel()[level], searchParameters.getMaxNewCentersByLevel());
-                            if (restrictedAddableSuperlevelSites == null) { //if there are no restrictions on adding sites
-                                List<Integer> unusedSuperlevelSites = currentSiteConfiguration.getRandomSuperlevelUnusedSites(level, searchParameters.getSuperlevelsByLevel()[level]);
-                                if (unusedSuperlevelSites.size() > 0) { //there is a superlevel site not in current level
-                                    currentSiteConfiguration.tryAddSite(level, pickRandomSite(unusedSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
-                                } else { //all superlevels equal to current level, to add random site
-                                    currentSiteConfiguration.tryAddSite(level, pickRandomAddableSite(currentSiteConfiguration.getSites(level), allPotentialSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
-                                }
-                            } else if (restrictedAddableSuperlevelSites.size() > 0) { //there are restrictions on adding sites but an available site exists
-                                currentSiteConfiguration.tryAddSite(level, pickRandomSite(restrictedAddableSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
-                            } //size == 0 implies that there are restricting superlevels and that their intersection is equal to the original sites, i.e. adding a site is not permissible
-                        }
-                    } else if (currentCenterCount > searchParameters.getMinNewCentersByLevel()[level]) { //try to remove site
-                        if (searchParameters.getSublevelsByLevel().length == 0) {
-                            currentSiteConfiguration.tryRemovePositionWithoutSublevels(level, random.nextInt(currentSiteConfiguration.getSitesCount(level)), searchParameters, temp, taskCount, executor);
-                        } else {
-                            List<Integer> candidateRemovalSites = currentSiteConfiguration.getCandidateRemovalSites(level, searchParameters.getSublevelsByLevel()[level], searchParameters.getMinNewCentersByLevel());
-                            if (candidateRemovalSites.size() > 0) {
-                                currentSiteConfiguration.tryRemoveSite(level, pickRandomSite(candidateRemovalSites, random), searchParameters, temp, targetLevelThresholdProbability, taskCount, executor);
-                            }
-                        }
-                    }
+            if (schedule == null) {
+                temp *= coolingRate;
+            } else {
+                if (schedule.recordSweep(currentSiteConfiguration.getCost(), currentSiteConfiguration.getProposedMoveCount(), currentSiteConfiguration.getAcceptedMoveCount())) {
+                    bestSiteConfiguration = new LeveledSiteConfiguration(currentSiteConfiguration);
                 }
+                temp = schedule.getTemp();
             }
 
-            temp *= coolingRate;
-
             long elapsedTime = System.currentTimeMillis()  - timer; //development only
             if (elapsedTime > updateFrequency) { //development only
                 System.out.println("Temperature is now " + temp + " for iteration " + simAnnealingIteration); // development only
@@ -255,9 +213,105 @@ public class SimAnnealingWithoutPermanentCenters extends SimAnnealingSearch{
             }
         }
 
+        if (bestSiteConfiguration != null && bestSiteConfiguration.getCost() < currentSiteConfiguration.getCost()) {
+            currentSiteConfiguration = bestSiteConfiguration;
+        }
+
+        //Polish with best improving swaps
+        if (polishSwapCount > 0) {
+            int swapCount = currentSiteConfiguration.polishWithSwaps(searchParameters, polishSwapCount);
+            System.out.println("Polished to cost " + currentSiteConfiguration.getCost() + " with " + swapCount + " swaps");
+        }
         return currentSiteConfiguration;
     }
 
+    //One sweep of moves at temp, trying to move each site of every level once and, on a fraction of sweeps, to add or remove a site of every level
+    public void leveledSweep(LeveledSiteConfiguration currentSiteConfiguration, double temp, int simAnnealingIteration, int[] localFinalNeighborhoodSizeByLevel, List<Integer> allPotentialSites,
+                                    double targetLevelThresholdProbability, Random random, int taskCount) {
+        //For each level, try moving each cancer center once for every cycle
+        for (int level = 0; level < searchParameters.getCenterLevels(); level++) {
+            int currentCenterCount = currentSiteConfiguration.getSitesCount(level);
+            int neighborhoodSize = 0;
+            if (batchMoveWorkerCount > 1 && searchParameters.getSuperlevelsByLevel()[level].length == 0 && searchParameters.getSublevelsByLevel()[level].length == 0) {
+                neighborhoodSize = SimAnnealingNeighbor.getNeighborhoodSize(currentCenterCount, searchParameters.getPotentialSitesCount(), localFinalNeighborhoodSizeByLevel[level], simAnnealingIteration, finalNeighborhoodSizeIteration);
+                currentSiteConfiguration.tryShiftAllToNeighborsWithoutLevelRelations(level, neighborhoodSize, searchParameters, temp, random, batchMoveWorkerCount, taskCount, executor);
+                continue;
+            }
+            for (int position = 0; position < currentCenterCount; ++position) {
+                if (random.nextDouble() < 0.5 || searchParameters.getSuperlevelsByLevel()[level].length == 0) { //try to shift to a neighbor
+                    if (neighborhoodSize == 0) {
+                        neighborhoodSize = SimAnnealingNeighbor.getNeighborhoodSize(currentCenterCount, searchParameters.getPotentialSitesCount(), localFinalNeighborhoodSizeByLevel[level], simAnnealingIteration, finalNeighborhoodSizeIteration);
+                    }
+                    if (searchParameters.getSuperlevelsByLevel()[level].length == 0 && searchParameters.getSublevelsByLevel()[level].length == 0) {
+                        currentSiteConfiguration.tryShiftToNeighborWithoutLevelRelations(level, position, neighborhoodSize, searchParameters, temp, random, taskCount, executor);
+                    } else {
+                        currentSiteConfiguration.tryShiftToNeighbor(level, position, neighborhoodSize, searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
+                    }
+                } else { //try shift site to an unused superlevel site
+                    List<Integer> unusedSuperlevelSites = currentSiteConfiguration.getRandomSuperlevelUnusedSites(level, searchParameters.getSuperlevelsByLevel()[level], random);
+                    if (unusedSuperlevelSites.size() > 0) {
+                        currentSiteConfiguration.tryShiftSite(level, position, pickRandomSite(unusedSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
+                    } else { //no unused superlevel sites
+                        boolean allSuperlevelsSubmaximal = true;
+                        for (int superlevel : searchParameters.getSuperlevelsByLevel()[level]) {
+                            if (currentSiteConfiguration.getSites(superlevel).size() == searchParameters.getMaxNewCentersByLevel()[superlevel]) {
+                                allSuperlevelsSubmaximal = false;
+                            }
+                        }
+                        if (allSuperlevelsSubmaximal) {
+                            if (neighborhoodSize == 0) {
+                                neighborhoodSize = SimAnnealingNeighbor.getNeighborhoodSize(currentCenterCount, searchParameters.getPotentialSitesCount(), localFinalNeighborhoodSizeByLevel[level], simAnnealingIteration, finalNeighborhoodSizeIteration);
+                            }
+                            currentSiteConfiguration.tryShiftToNeighbor(level, position, neighborhoodSize, searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
+                        }
+                    }
+                }
+            }
+        }
+
+        //Try changing number of sites on a fraction of iterations
+        if (random.nextDouble() < 0.10) {
+            //Try adding or removing one of current sites for each level
+            for (int level = 0; level < searchParameters.getCenterLevels(); level++) {
+                int currentCenterCount = currentSiteConfiguration.getSitesCount(level);
+                double adjustmentType = random.nextDouble();
+                if ((adjustmentType < 0.5 || currentCenterCount == searchParameters.getMinNewCentersByLevel()[level]) && currentCenterCount < searchParameters.getMaxNewCentersByLevel()[level]) {
+                    if (searchParameters.getSuperlevelsByLevel()[level].length == 0) {
+                        currentSiteConfiguration.tryAddSiteWithoutSuperlevels(level, pickRandomAddableSite(currentSiteConfiguration.getSites(level), allPotentialSites, random), searchParameters, temp, random, taskCount, executor);
+                    } else if (adjustmentType < 0.3) { //attempt to add unrestricted site unless number of sites is already maximal
+                        List<Integer> restrictedAddableSuperlevelSites = currentSiteConfiguration.getRestrictedAddableSuperlevelSites(level, searchParameters.getSuperlevelsByLevel()[level], searchParameters.getMaxNewCentersByLevel());
+                        if (restrictedAddableSuperlevelSites == null) { //not maximal, will add unrestricted site
+                            currentSiteConfiguration.tryAddSite(level, pickRandomAddableSite(currentSiteConfiguration.getSites(level), allPotentialSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
+                        } else if (restrictedAddableSuperlevelSites.size() > 0) { //there are restrictions on adding sites to some superlevel but an available site exists
+                            currentSiteConfiguration.tryAddSite(level, pickRandomSite(restrictedAddableSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
+                        }
+                    } else { //attempt to add existing superlevel site first
+                        List<Integer> restrictedAddableSuperlevelSites = currentSiteConfiguration.getRestrictedAddableSuperlevelSites(level, searchParameters.getSuperlevelsByLevel()[level], searchParameters.getMaxNewCentersByLevel());
+                        if (restrictedAddableSuperlevelSites == null) { //if there are no restrictions on adding sites
+                            List<Integer> unusedSuperlevelSites = currentSiteConfiguration.getRandomSuperlevelUnusedSites(level, searchParameters.getSuperlevelsByLevel()[level], random);
+                            if (unusedSuperlevelSites.size() > 0) { //there is a superlevel site not in current level
+                                currentSiteConfiguration.tryAddSite(level, pickRandomSite(unusedSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
+                            } else { //all superlevels equal to current level, to add random site
+                                currentSiteConfiguration.tryAddSite(level, pickRandomAddableSite(currentSiteConfiguration.getSites(level), allPotentialSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
+                            }
+                        } else if (restrictedAddableSuperlevelSites.size() > 0) { //there are restrictions on adding sites but an available site exists
+                            currentSiteConfiguration.tryAddSite(level, pickRandomSite(restrictedAddableSuperlevelSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
+                        } //size == 0 implies that there are restricting superlevels and that their intersection is equal to the original sites, i.e. adding a site is not permissible
+                    }
+                } else if (currentCenterCount > searchParameters.getMinNewCentersByLevel()[level]) { //try to remove site
+                    if (searchParameters.getSublevelsByLevel().length == 0) {
+                        currentSiteConfiguration.tryRemovePositionWithoutSublevels(level, random.nextInt(currentSiteConfiguration.getSitesCount(level)), searchParameters, temp, random, taskCount, executor);
+                    } else {
+                        List<Integer> candidateRemovalSites = currentSiteConfiguration.getCandidateRemovalSites(level, searchParameters.getSublevelsByLevel()[level], searchParameters.getMinNewCentersByLevel());
+                        if (candidateRemovalSites.size() > 0) {
+                            currentSiteConfiguration.tryRemoveSite(level, pickRandomSite(candidateRemovalSites, random), searchParameters, temp, targetLevelThresholdProbability, random, taskCount, executor);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     //Pick random integer from list of integers
     public static Integer pickRandomSite(List<Integer> potentialSites, Random random) {
         return potentialSites.get(random.nextInt(potentialSites.size()));
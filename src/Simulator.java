@@ -1,7 +1,6 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 
 public class Simulator {
@@ -14,6 +13,12 @@ public class Simulator {
     //Number of tasks should be >= threads
     static int taskCount;
 
+    //Replicas of a single parallel tempering run replacing the best of independent annealing runs if above 1
+    public static int temperingReplicaCount = 0;
+
+    //Concurrent chains of a portfolio run replacing the best of independent annealing runs if above 1 and not tempering
+    public static int portfolioChainCount = 0;
+
     public Simulator(String demographicsLocation, String caseIncidenceRateLocation, String censusFileLocation, String graphLocation, String azimuthLocation, String haversineLocation,
                      double[] minimumCasesByLevel, double[] servicedProportionByLevel, int[] minimumCenterCountByLevel, int[] maximumCenterCountByLevel, List<List<Integer>> levelSequences,
                      double initialTemp, double finalTemp, double coolingRate, int azimuthClassCount, int finalNeighborhoodSize, int finalNeighborhoodSizeIteration, int threadCount, int taskCount) {
@@ -91,6 +96,19 @@ public class Simulator {
     }
 
     public static LeveledSiteConfiguration optimizeCentersWithSimulatedCases(int iterationsOfSimulatedAnnealingSearch) throws InterruptedException {
+        //Run parallel tempering with as many sweeps per replica as one annealing run
+        if (temperingReplicaCount > 1) {
+            LeveledSiteConfiguration solution = new ParallelTemperingSearch(simAnnealer).leveledOptimizeCenters(temperingReplicaCount, simAnnealer.countIterations(), taskCount);
+            System.out.println("Final cost is " + solution.getCost() + " on centers " + solution.getSitesByLevel());
+            return solution;
+        }
+
+        //Run concurrent chains sharing the best cost found
+        if (portfolioChainCount > 1) {
+            PortfolioSearch portfolioSearch = new PortfolioSearch(simAnnealer);
+            return portfolioSearch.leveledOptimizeCenters(portfolioSearch.defaultPortfolio(portfolioChainCount, simAnnealer.seed != null ? simAnnealer.seed : System.nanoTime()), taskCount).bestConfiguration();
+        }
+
         //Run simulated annealing with expected case counts
         LeveledSiteConfiguration minimumSolution = null;
         for (int i = 0; i < iterationsOfSimulatedAnnealingSearch; i++) {//take best of n runs
@@ -132,7 +150,7 @@ public class Simulator {
             double unoptimizedTotalCost = cost(unoptimizedSitesByLevel, simAnnealer.searchParameters, taskCount, simAnnealer.executor);
 
             //Add pair (simulated annealing cost, unoptimized cost) to cost comparison by simulation
-            costComparisonBySimulation.add(new ArrayList<>(Arrays.asList(optimizedTotalCost, unoptimizedTotalCost, ArrayOperations.sumDoubleArray(simulatedCaseCounts.caseCountByOrigin))));
+            costComparisonBySimulation.add(new ArrayList<>(Arrays.asList(optimizedTotalCost, unoptimizedTotalCost, simulatedCaseCounts.getTotalCaseCount())));
         }
         return costComparisonBySimulation;
     }
@@ -168,49 +186,13 @@ public class Simulator {
                     taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
             costMapByLevel[level] = initialResult.getCasesAndCostMap();
         }
-        return CostCalculator.computeCost(costMapByLevel, sitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), executor);
+        return CostCalculator.computeCost(costMapByLevel, sitesByLevel, searchParameters.getMinimumCasesByLevel(), searchParameters.getServicedProportionByLevel(), searchParameters.getTimepointCount(), searchParameters.getTimepointWeights(), searchParameters.getVolumePenalty(), executor);
     }
 
     //Cost function of configuration with given cancer center positions, graph, expected case count. Technically does not optimize for case where one permits travel to further cancer center to lower cost.
     public static CostMapAndPositions createCostMap(List<Integer> sites, int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
                                                     int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor) {
-        int siteCount = sites.size();
-        if (siteCount == 0) {
-            return new CostMapAndPositions(null, null);
-        }
-
-        CountDownLatch latch = new CountDownLatch(taskCount);
-        int[] minimumCostPositionsByOrigin = new int[originCount];
-        CasesAndCostMap[] partitionedMinimumCostMap = new CasesAndCostMap[taskCount];
-        for (int i = 0; i < taskCount; i++) {
-            int finalI = i;
-            executor.execute(() -> {
-                CasesAndCostMap partitionMinimumCostMap = new CasesAndCostMap(timepointCount, siteCount);
-                for (int j = startingOrigins[finalI]; j < endingOrigins[finalI]; j++) {
-                    int minimumCostPosition = 0;
-                    double minimumCostUnadjusted = graphArray.getEdgeLength(j, sites.get(0)); //Closest center travel cost, not adjusted for population or cancer center scaling
-                    for (int k = 1; k < siteCount; ++k) {
-                        double currentCostUnadjusted = graphArray.getEdgeLength(j, sites.get(k));
-                        if (currentCostUnadjusted < minimumCostUnadjusted) {
-                            minimumCostPosition = k;
-                            minimumCostUnadjusted = currentCostUnadjusted;
-                        }
-                    }
-                    minimumCostPositionsByOrigin[j] = minimumCostPosition;
-                    partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
-                }
-                partitionedMinimumCostMap[finalI] = partitionMinimumCostMap;
-                latch.countDown();
-            });
-        }
-        try {
-            latch.await();
-        } catch (InterruptedException e){
-            throw new AssertionError("Unexpected interruption", e);
-        }
-        //HashMap<Integer, CasesAndCost> combinedMinimumCostMap = MultithreadingUtils.combinePartitionedMinimumCostMap(partitionedMinimumCostMap, siteCount, taskCount);
-        CasesAndCostMap combinedMinimumCostMap = new CasesAndCostMap(partitionedMinimumCostMap, timepointCount, siteCount, taskCount);
-        return new CostMapAndPositions(combinedMinimumCostMap, minimumCostPositionsByOrigin);
+        return SiteConfiguration.initialCost(sites, timepointCount, originCount, caseCountByOrigin, graphArray, taskCount, startingOrigins, endingOrigins, executor);
     }
 
     //Add arrays together
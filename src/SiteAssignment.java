@@ -0,0 +1,872 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+//Closest site of every origin for one level, with weighted travel cost totals by position, case totals by (position, timepoint) where the minimum cases penalty needs them, and the resulting level cost.
+//A move is evaluated from the origins whose closest site changes, so that only totals of positions gaining or losing origins are recomputed.
+//Origins losing their site are read from the catchment of its position, and origins a new site may win from the inverse sorted sites index, so that a move visits roughly originCount / siteCount origins.
+//The second closest site of every origin is also kept, so that an origin losing its site is reassigned in O(1) and only accepted moves rescan sites.
+//The evaluated move is pending until commitMove and is discarded by the next evaluation.
+public class SiteAssignment {
+    public static final int DEFAULT_CONSISTENCY_CHECK_INTERVAL = 1000;
+    public static final double DEFAULT_CONSISTENCY_TOLERANCE = 1e-9;
+    private static final double NO_SITES_COST = 100000000.0; //Level cost without sites, as in CostCalculator
+
+    private final CaseCounts caseCountByOrigin;
+    private final double[] weightedCaseCountByOrigin; //sum over timepoints of weighted case count
+    private final Graph graphArray;
+    private final int caseTimepointCount; //timepoints with case totals by position, 0 if neither level cost nor volume penalty depends on case totals
+    private final int originCount;
+    private final int consistencyCheckInterval; //Accepted moves between full recomputations of assignment and totals, 0 to disable
+    private final double consistencyTolerance; //Relative level cost drift at which a consistency check fails
+    private final double minimumCases;
+    private final double servicedProportion;
+    private final double[] timepointWeights;
+    private final SortedSitesIndex sortedSitesIndex; //index of graph at construction, null if none
+    private final int[] originOffsetsBySite; //inverse of index read without locking, null if no index
+    private final int[] originsBySite;
+
+    //Current assignment
+    private List<Integer> sites; //swapped with pendingSites on commit, so a list from getSites is only current until the next commit
+    private final int[] positionBySite; //-1 if site is not open
+    private final int[] positionByOrigin; //-1 if there are no sites
+    private final double[] travelCostByOrigin;
+    private final int[] secondSiteByOrigin; //-1 if there are fewer than two sites
+    private final double[] secondTravelCostByOrigin;
+    private final long[] openSites;
+    private int capacity; //positions allocated in totals
+    private double[] casesByPositionAndTime; //position * caseTimepointCount + timepoint
+    private double[] weightedCostByPosition;
+    private double levelCost;
+    private int acceptedMoveCount;
+
+    //Origins by position of closest site and by second closest site
+    private final OriginLists catchments;
+    private final OriginLists secondCatchments;
+
+    //Origins whose second travel cost exceeds that of every indexed site, as any new site may be closer than their closest or second closest site. Empty if there is no index.
+    private final double[] lastIndexedCostByOrigin;
+    private final OriginLists uncoveredOrigins;
+    private final int[] visitStampByOrigin;
+    private int visitStamp;
+
+    //Pending move, positions are numbered as in pendingSites
+    private MoveType pendingMoveType = MoveType.NONE;
+    private int pendingPosition;
+    private List<Integer> pendingSites = new ArrayList<>(); //swapped with sites on commit
+    private double pendingLevelCost;
+    private int changedOriginCount;
+    private final int[] changedOrigins;
+    private final int[] changedPositions;
+    private final double[] changedTravelCosts;
+    private int secondChangedOriginCount; //origins for which new site is closer than second closest site only
+    private final int[] secondChangedOrigins;
+    private final double[] secondChangedTravelCosts;
+    private int touchedPositionCount;
+    private int[] touchedPositions;
+    private boolean[] isTouched;
+    private double[] pendingCasesByPositionAndTime; //valid for touched positions only
+    private double[] pendingWeightedCostByPosition;
+    private int[] pendingOriginCountByPosition; //positions left without origins have their totals cleared, as subtracted cases may not cancel exactly
+
+    private enum MoveType {NONE, SHIFT, ADD, REMOVE, FULL}
+
+    //From closest positions of initial sites, e.g. as computed by SiteConfiguration.initialCost. Positions may be null if there are no sites. Without volume penalty and with default consistency checks.
+    public SiteAssignment(List<Integer> sites, int[] positionByOrigin, CaseCounts caseCountByOrigin, Graph graphArray, int timepointCount, double minimumCases, double servicedProportion, double[] timepointWeights) {
+        this(sites, positionByOrigin, caseCountByOrigin, CostCalculator.computeWeightedCaseCounts(caseCountByOrigin, graphArray.getOriginCount(), timepointCount, timepointWeights),
+                graphArray, timepointCount, minimumCases, servicedProportion, timepointWeights, false, DEFAULT_CONSISTENCY_CHECK_INTERVAL, DEFAULT_CONSISTENCY_TOLERANCE);
+    }
+
+    //As above with weighted case counts by origin precomputed, e.g. by SearchSpace.getWeightedCaseCountsByLevel, whether a volume penalty needs case totals and consistency checks as in SearchSpaceOptions
+    public SiteAssignment(List<Integer> sites, int[] positionByOrigin, CaseCounts caseCountByOrigin, double[] weightedCaseCountByOrigin, Graph graphArray, int timepointCount, double minimumCases, double servicedProportion, double[] timepointWeights,
+                          boolean hasVolumePenalty, int consistencyCheckInterval, double consistencyTolerance) {
+        this.caseCountByOrigin = caseCountByOrigin;
+        this.weightedCaseCountByOrigin = weightedCaseCountByOrigin;
+        this.graphArray = graphArray;
+        this.caseTimepointCount = minimumCases > 0 || hasVolumePenalty ? timepointCount : 0;
+        this.originCount = graphArray.getOriginCount();
+        this.consistencyCheckInterval = consistencyCheckInterval;
+        this.consistencyTolerance = consistencyTolerance;
+        this.minimumCases = minimumCases;
+        this.servicedProportion = servicedProportion;
+        this.timepointWeights = timepointWeights;
+        this.sortedSitesIndex = graphArray.getSortedSitesIndex();
+        this.sites = new ArrayList<>(sites);
+        this.positionBySite = new int[graphArray.getTotalSitesCount()];
+        this.positionByOrigin = new int[originCount];
+        this.travelCostByOrigin = new double[originCount];
+        this.secondSiteByOrigin = new int[originCount];
+        this.secondTravelCostByOrigin = new double[originCount];
+        this.openSites = SortedSitesIndex.createOpenSitesBitset(sites, graphArray.getTotalSitesCount());
+        this.changedOrigins = new int[originCount];
+        this.changedPositions = new int[originCount];
+        this.changedTravelCosts = new double[originCount];
+        this.secondChangedOrigins = new int[originCount];
+        this.secondChangedTravelCosts = new double[originCount];
+        this.catchments = new OriginLists(originCount);
+        this.secondCatchments = new OriginLists(originCount);
+        this.uncoveredOrigins = new OriginLists(originCount);
+        this.visitStampByOrigin = new int[originCount];
+        if (sortedSitesIndex != null) {
+            sortedSitesIndex.createInverse(graphArray.getTotalSitesCount());
+            this.originOffsetsBySite = sortedSitesIndex.getOriginOffsetsBySite();
+            this.originsBySite = sortedSitesIndex.getOriginsBySite();
+            this.lastIndexedCostByOrigin = new double[originCount];
+            for (int origin = 0; origin < originCount; origin++) {
+                lastIndexedCostByOrigin[origin] = sortedSitesIndex.getLastIndexedCost(origin, graphArray);
+            }
+        } else {
+            this.originOffsetsBySite = null;
+            this.originsBySite = null;
+            this.lastIndexedCostByOrigin = null;
+        }
+        Arrays.fill(positionBySite, -1);
+        for (int position = 0; position < sites.size(); position++) {
+            positionBySite[sites.get(position)] = position;
+        }
+        allocatePositions(Math.max(8, 2 * sites.size()));
+        if (sites.isEmpty()) {
+            Arrays.fill(this.positionByOrigin, -1);
+            Arrays.fill(travelCostByOrigin, Double.POSITIVE_INFINITY);
+        } else {
+            System.arraycopy(positionByOrigin, 0, this.positionByOrigin, 0, originCount);
+            for (int origin = 0; origin < originCount; origin++) {
+                travelCostByOrigin[origin] = graphArray.getEdgeLength(origin, sites.get(positionByOrigin[origin]));
+            }
+        }
+        recomputeTotals();
+        rebuildCatchments();
+    }
+
+    //Independent copy of current assignment, e.g. for evaluating moves on another thread. Pending move is not copied.
+    public SiteAssignment(SiteAssignment other) {
+        this.caseCountByOrigin = other.caseCountByOrigin;
+        this.weightedCaseCountByOrigin = other.weightedCaseCountByOrigin;
+        this.graphArray = other.graphArray;
+        this.caseTimepointCount = other.caseTimepointCount;
+        this.originCount = other.originCount;
+        this.consistencyCheckInterval = other.consistencyCheckInterval;
+        this.consistencyTolerance = other.consistencyTolerance;
+        this.minimumCases = other.minimumCases;
+        this.servicedProportion = other.servicedProportion;
+        this.timepointWeights = other.timepointWeights;
+        this.sortedSitesIndex = other.sortedSitesIndex;
+        this.originOffsetsBySite = other.originOffsetsBySite;
+        this.originsBySite = other.originsBySite;
+        this.sites = new ArrayList<>(other.sites);
+        this.positionBySite = other.positionBySite.clone();
+        this.positionByOrigin = other.positionByOrigin.clone();
+        this.travelCostByOrigin = other.travelCostByOrigin.clone();
+        this.secondSiteByOrigin = other.secondSiteByOrigin.clone();
+        this.secondTravelCostByOrigin = other.secondTravelCostByOrigin.clone();
+        this.openSites = other.openSites.clone();
+        this.changedOrigins = new int[originCount];
+        this.changedPositions = new int[originCount];
+        this.changedTravelCosts = new double[originCount];
+        this.secondChangedOrigins = new int[originCount];
+        this.secondChangedTravelCosts = new double[originCount];
+        this.catchments = new OriginLists(other.catchments);
+        this.secondCatchments = new OriginLists(other.secondCatchments);
+        this.uncoveredOrigins = new OriginLists(other.uncoveredOrigins);
+        this.visitStampByOrigin = new int[originCount];
+        this.lastIndexedCostByOrigin = other.lastIndexedCostByOrigin; //not modified
+        this.casesByPositionAndTime = other.casesByPositionAndTime.clone();
+        this.weightedCostByPosition = other.weightedCostByPosition.clone();
+        allocatePositions(other.capacity);
+        this.levelCost = other.levelCost;
+        this.acceptedMoveCount = other.acceptedMoveCount;
+    }
+
+    //Level cost if site at position is replaced by newSite
+    public double evaluateShift(int position, int newSite) {
+        beginMove(MoveType.SHIFT, position);
+        pendingSites.set(position, newSite);
+        touch(position, -1); //all origins of shifted position are reassigned
+        reassignCatchment(position, newSite);
+        addWonOrigins(newSite, position);
+        return finishMove();
+    }
+
+    //Level cost if newSite is added at the end of sites
+    public double evaluateAdd(int newSite) {
+        int newPosition = sites.size();
+        ensureCapacity(newPosition + 1);
+        beginMove(MoveType.ADD, newPosition);
+        pendingSites.add(newSite);
+        touch(newPosition, -1);
+        addWonOrigins(newSite, newPosition);
+        return finishMove();
+    }
+
+    //Level cost if site at position is removed as by List.remove, so that later sites move down one position
+    public double evaluateRemove(int position) {
+        if (sites.size() == 1) {
+            return evaluateSites(Collections.emptyList());
+        }
+        beginMove(MoveType.REMOVE, position);
+        pendingSites.remove(position);
+        reassignCatchment(position, -1);
+        return finishMove();
+    }
+
+    //Level cost of newSites, which is expected to differ from current sites by one shifted, appended or removed site as produced by level relation updates
+    public double evaluateSites(List<Integer> newSites) {
+        int siteCount = sites.size();
+        int firstDifference = 0;
+        while (firstDifference < Math.min(siteCount, newSites.size()) && sites.get(firstDifference).equals(newSites.get(firstDifference))) {
+            firstDifference += 1;
+        }
+        if (newSites.size() == siteCount) {
+            if (firstDifference == siteCount) {
+                beginMove(MoveType.NONE, -1);
+                return levelCost;
+            }
+            if (sites.subList(firstDifference + 1, siteCount).equals(newSites.subList(firstDifference + 1, siteCount))) {
+                return evaluateShift(firstDifference, newSites.get(firstDifference));
+            }
+        } else if (newSites.size() == siteCount + 1 && firstDifference == siteCount) {
+            return evaluateAdd(newSites.get(siteCount));
+        } else if (newSites.size() == siteCount - 1 && siteCount > 1 && sites.subList(firstDifference + 1, siteCount).equals(newSites.subList(firstDifference, siteCount - 1))) {
+            return evaluateRemove(firstDifference);
+        }
+
+        //Any other change reassigns every origin
+        ensureCapacity(newSites.size());
+        beginMove(MoveType.FULL, -1);
+        pendingSites.clear();
+        pendingSites.addAll(newSites);
+        if (!pendingSites.isEmpty()) {
+            int[] pendingSiteArray = pendingSites.stream().mapToInt(Integer::intValue).toArray();
+            for (int origin = 0; origin < originCount; origin++) {
+                int closestPosition = graphArray.findClosestPosition(origin, pendingSiteArray);
+                addChange(origin, closestPosition, graphArray.getEdgeLength(origin, pendingSiteArray[closestPosition]));
+            }
+        }
+        return finishMove();
+    }
+
+    //Applies pending move
+    public void commitMove() {
+        if (pendingMoveType == MoveType.NONE) return;
+        int oldSiteCount = sites.size();
+        int newSiteCount = pendingSites.size();
+        List<Integer> oldSites = sites;
+
+        //Open sites
+        for (Integer site : oldSites) {
+            setOpen(site, false);
+            positionBySite[site] = -1;
+        }
+        for (int position = 0; position < newSiteCount; position++) {
+            setOpen(pendingSites.get(position), true);
+            positionBySite[pendingSites.get(position)] = position;
+        }
+        sites = pendingSites;
+        pendingSites = oldSites; //cleared with pending move below, after its last use by commitReassignedOrigins
+
+        if (pendingMoveType == MoveType.FULL || newSiteCount == 0) {
+            for (int i = 0; i < changedOriginCount; i++) {
+                positionByOrigin[changedOrigins[i]] = changedPositions[i];
+                travelCostByOrigin[changedOrigins[i]] = changedTravelCosts[i];
+            }
+            if (newSiteCount == 0) {
+                Arrays.fill(positionByOrigin, -1);
+                Arrays.fill(travelCostByOrigin, Double.POSITIVE_INFINITY);
+            }
+            rebuildCatchments();
+        } else {
+            commitReassignedOrigins(oldSites);
+        }
+
+        //Totals
+        if (pendingMoveType == MoveType.FULL) {
+            Arrays.fill(casesByPositionAndTime, 0);
+            Arrays.fill(weightedCostByPosition, 0);
+        } else if (newSiteCount < oldSiteCount) {
+            System.arraycopy(casesByPositionAndTime, (pendingPosition + 1) * caseTimepointCount, casesByPositionAndTime, pendingPosition * caseTimepointCount, (newSiteCount - pendingPosition) * caseTimepointCount);
+            System.arraycopy(weightedCostByPosition, pendingPosition + 1, weightedCostByPosition, pendingPosition, newSiteCount - pendingPosition);
+            Arrays.fill(casesByPositionAndTime, newSiteCount * caseTimepointCount, oldSiteCount * caseTimepointCount, 0);
+            Arrays.fill(weightedCostByPosition, newSiteCount, oldSiteCount, 0);
+        }
+        for (int i = 0; i < touchedPositionCount; i++) {
+            int position = touchedPositions[i];
+            if (position >= newSiteCount) continue;
+            System.arraycopy(pendingCasesByPositionAndTime, position * caseTimepointCount, casesByPositionAndTime, position * caseTimepointCount, caseTimepointCount);
+            weightedCostByPosition[position] = pendingWeightedCostByPosition[position];
+        }
+
+        levelCost = pendingLevelCost;
+        clearPendingMove();
+
+        acceptedMoveCount += 1;
+        if (consistencyCheckInterval > 0 && acceptedMoveCount % consistencyCheckInterval == 0) {
+            checkConsistency();
+        }
+    }
+
+    //Updates closest and second closest sites after a shift, addition or removal. Sites and open sites are already updated.
+    private void commitReassignedOrigins(List<Integer> oldSites) {
+        int closedSite = pendingMoveType == MoveType.ADD ? -1 : oldSites.get(pendingPosition);
+        int openedSite = pendingMoveType == MoveType.REMOVE ? -1 : sites.get(pendingPosition);
+
+        //Reassigned origins leave their catchment under old position numbering
+        visitStamp += 1;
+        for (int i = 0; i < changedOriginCount; i++) {
+            int origin = changedOrigins[i];
+            catchments.remove(origin, positionByOrigin[origin]);
+            visitStampByOrigin[origin] = visitStamp;
+        }
+
+        //Removed position, now with empty catchment, is moved to the end and later positions move down one
+        if (pendingMoveType == MoveType.REMOVE) {
+            for (int position = pendingPosition; position < sites.size(); position++) {
+                catchments.swap(position, position + 1);
+                int[] movedOrigins = catchments.get(position);
+                for (int i = 0; i < catchments.size(position); i++) {
+                    positionByOrigin[movedOrigins[i]] = position;
+                }
+            }
+        }
+
+        for (int i = 0; i < changedOriginCount; i++) {
+            int origin = changedOrigins[i];
+            int oldClosestSite = oldSites.get(positionByOrigin[origin]);
+            double oldTravelCost = travelCostByOrigin[origin];
+            positionByOrigin[origin] = changedPositions[i];
+            travelCostByOrigin[origin] = changedTravelCosts[i];
+            catchments.add(origin, changedPositions[i]);
+            if (oldClosestSite != closedSite) {
+                setSecond(origin, oldClosestSite, oldTravelCost); //won by opened site
+            } else if (sites.get(changedPositions[i]) != openedSite) {
+                rescanSecond(origin); //moved to second closest site
+            }
+        }
+
+        //Origins whose second closest site closed
+        if (closedSite != -1) {
+            while (secondCatchments.size(closedSite) > 0) {
+                rescanSecond(secondCatchments.get(closedSite)[secondCatchments.size(closedSite) - 1]);
+            }
+        }
+
+        //Origins for which opened site is only closer than second closest site
+        for (int i = 0; i < secondChangedOriginCount; i++) {
+            int origin = secondChangedOrigins[i];
+            if (visitStampByOrigin[origin] != visitStamp && secondChangedTravelCosts[i] < secondTravelCostByOrigin[origin]) {
+                setSecond(origin, openedSite, secondChangedTravelCosts[i]);
+            }
+        }
+    }
+
+    public void discardMove() {
+        clearPendingMove();
+    }
+
+    //Recomputes closest and second closest sites and totals from scratch and throws if the incremental state drifted by more than consistencyTolerance
+    public void checkConsistency() {
+        clearPendingMove();
+        int reassignedOriginCount = 0;
+        if (!sites.isEmpty()) {
+            int[] siteArray = sites.stream().mapToInt(Integer::intValue).toArray();
+            for (int origin = 0; origin < originCount; origin++) {
+                int closestPosition = graphArray.findClosestPosition(origin, siteArray);
+                double closestCost = graphArray.getEdgeLength(origin, siteArray[closestPosition]);
+                if (closestCost != travelCostByOrigin[origin]) {
+                    reassignedOriginCount += 1;
+                    positionByOrigin[origin] = closestPosition;
+                    travelCostByOrigin[origin] = closestCost;
+                }
+            }
+        }
+        double[] incrementalSecondTravelCosts = secondTravelCostByOrigin.clone();
+        double incrementalLevelCost = levelCost;
+        recomputeTotals();
+        rebuildCatchments();
+        for (int origin = 0; origin < originCount; origin++) {
+            if (secondTravelCostByOrigin[origin] != incrementalSecondTravelCosts[origin]) {
+                reassignedOriginCount += 1;
+            }
+        }
+        if (reassignedOriginCount > 0 || Math.abs(levelCost - incrementalLevelCost) > consistencyTolerance * Math.max(1, Math.abs(levelCost))) {
+            throw new IllegalStateException("Incremental assignment drifted, " + reassignedOriginCount + " origins reassigned and level cost " + incrementalLevelCost + " recomputed as " + levelCost + ".");
+        }
+    }
+
+    private void beginMove(MoveType moveType, int position) {
+        clearPendingMove();
+        pendingMoveType = moveType;
+        pendingPosition = position;
+        pendingSites.addAll(sites);
+    }
+
+    private void clearPendingMove() {
+        for (int i = 0; i < touchedPositionCount; i++) {
+            isTouched[touchedPositions[i]] = false;
+        }
+        touchedPositionCount = 0;
+        changedOriginCount = 0;
+        secondChangedOriginCount = 0;
+        pendingSites.clear();
+        pendingMoveType = MoveType.NONE;
+    }
+
+    //Reassigns every origin of position to its second closest site, or to newSite at position if that is closer (-1 if removed)
+    private void reassignCatchment(int position, int newSite) {
+        int[] origins = catchments.get(position);
+        for (int i = 0; i < catchments.size(position); i++) {
+            int origin = origins[i];
+            int secondSite = secondSiteByOrigin[origin];
+            double secondTravelCost = secondTravelCostByOrigin[origin];
+            int secondPosition = secondSite == -1 ? -1 : getPendingPosition(secondSite);
+            if (newSite != -1) {
+                double newSiteCost = graphArray.getEdgeLengthFromSite(newSite, origin);
+                if (newSiteCost < secondTravelCost || (newSiteCost == secondTravelCost && position < secondPosition)) {
+                    addChange(origin, position, newSiteCost);
+                    continue;
+                }
+            }
+            addChange(origin, secondPosition, secondTravelCost);
+        }
+    }
+
+    //Position of any site in pendingSites, -1 if it is not open after pending move
+    private int findPendingPosition(int site) {
+        return switch (pendingMoveType) {
+            case SHIFT -> site == pendingSites.get(pendingPosition) ? pendingPosition : positionBySite[site] == pendingPosition ? -1 : positionBySite[site];
+            case ADD -> site == pendingSites.get(pendingPosition) ? pendingPosition : positionBySite[site];
+            case REMOVE -> positionBySite[site] == pendingPosition ? -1 : getPendingPosition(site);
+            case FULL -> pendingSites.indexOf(site);
+            case NONE -> positionBySite[site];
+        };
+    }
+
+    //Position in pendingSites of an open site other than the shifted or removed site
+    private int getPendingPosition(int site) {
+        if (pendingMoveType == MoveType.REMOVE && positionBySite[site] > pendingPosition) {
+            return positionBySite[site] - 1;
+        }
+        return positionBySite[site];
+    }
+
+    //Position in sites whose totals pending position starts from, sites.size() for an added position
+    private int getSourcePosition(int position) {
+        return pendingMoveType == MoveType.REMOVE && position >= pendingPosition ? position + 1 : position;
+    }
+
+    //Moves origins that are strictly closer to newSite than to their current site, other than origins of newPosition which are already reassigned, and records origins for which newSite becomes second closest.
+    //With an index, such an origin either has newSite among its indexed sites or is uncovered, so only origins that may change are visited. Without an index nothing bounds which origins newSite may win, so every origin is checked along the site-major row.
+    private void addWonOrigins(int newSite, int newPosition) {
+        if (sortedSitesIndex == null) {
+            for (int origin = 0; origin < originCount; origin++) {
+                addIfWon(origin, newSite, newPosition);
+            }
+            return;
+        }
+        visitStamp += 1;
+        for (int i = originOffsetsBySite[newSite]; i < originOffsetsBySite[newSite + 1]; i++) {
+            int origin = originsBySite[i];
+            visitStampByOrigin[origin] = visitStamp;
+            addIfWon(origin, newSite, newPosition);
+        }
+        int[] origins = uncoveredOrigins.get(0);
+        for (int i = 0; i < uncoveredOrigins.size(0); i++) {
+            int origin = origins[i];
+            if (visitStampByOrigin[origin] != visitStamp) {
+                addIfWon(origin, newSite, newPosition);
+            }
+        }
+    }
+
+    private void addIfWon(int origin, int newSite, int newPosition) {
+        if (positionByOrigin[origin] == newPosition) return;
+        double newSiteCost = graphArray.getEdgeLengthFromSite(newSite, origin);
+        if (newSiteCost < travelCostByOrigin[origin]) {
+            addChange(origin, newPosition, newSiteCost);
+        } else if (newSiteCost < secondTravelCostByOrigin[origin]) {
+            secondChangedOrigins[secondChangedOriginCount] = origin;
+            secondChangedTravelCosts[secondChangedOriginCount] = newSiteCost;
+            secondChangedOriginCount += 1;
+        }
+    }
+
+    private void setSecond(int origin, int secondSite, double secondTravelCost) {
+        if (secondSiteByOrigin[origin] != -1) {
+            secondCatchments.remove(origin, secondSiteByOrigin[origin]);
+        }
+        secondSiteByOrigin[origin] = secondSite;
+        secondTravelCostByOrigin[origin] = secondSite == -1 ? Double.POSITIVE_INFINITY : secondTravelCost;
+        if (secondSite != -1) {
+            secondCatchments.add(origin, secondSite);
+        }
+        updateCoverage(origin);
+    }
+
+    //Finds closest open site other than closest site of origin, from sorted sites index if possible
+    private void rescanSecond(int origin) {
+        if (sites.size() < 2) {
+            setSecond(origin, -1, 0);
+            return;
+        }
+        int closestPosition = positionByOrigin[origin];
+        int secondPosition = -1;
+        if (sortedSitesIndex != null) {
+            setOpen(sites.get(closestPosition), false);
+            secondPosition = sortedSitesIndex.findClosestPosition(origin, openSites, positionBySite, graphArray);
+            setOpen(sites.get(closestPosition), true);
+        }
+        double secondTravelCost = Double.POSITIVE_INFINITY;
+        if (secondPosition == -1) {
+            for (int k = 0; k < sites.size(); k++) {
+                if (k == closestPosition) continue;
+                double currentCost = graphArray.getEdgeLength(origin, sites.get(k));
+                if (currentCost < secondTravelCost) {
+                    secondPosition = k;
+                    secondTravelCost = currentCost;
+                }
+            }
+        } else {
+            secondTravelCost = graphArray.getEdgeLength(origin, sites.get(secondPosition));
+        }
+        setSecond(origin, sites.get(secondPosition), secondTravelCost);
+    }
+
+    //Adds or removes origin from uncovered origins after its second travel cost changes
+    private void updateCoverage(int origin) {
+        if (lastIndexedCostByOrigin == null) return;
+        boolean isUncovered = secondTravelCostByOrigin[origin] > lastIndexedCostByOrigin[origin];
+        if (isUncovered && !uncoveredOrigins.contains(origin)) {
+            uncoveredOrigins.add(origin, 0);
+        } else if (!isUncovered && uncoveredOrigins.contains(origin)) {
+            uncoveredOrigins.remove(origin, 0);
+        }
+    }
+
+    private void rebuildCatchments() {
+        catchments.clear();
+        secondCatchments.clear();
+        uncoveredOrigins.clear();
+        Arrays.fill(secondSiteByOrigin, -1);
+        Arrays.fill(secondTravelCostByOrigin, Double.POSITIVE_INFINITY);
+        for (int origin = 0; origin < originCount; origin++) {
+            if (positionByOrigin[origin] >= 0) {
+                catchments.add(origin, positionByOrigin[origin]);
+                rescanSecond(origin);
+            } else {
+                updateCoverage(origin);
+            }
+        }
+    }
+
+    //Moves origin from its current position to newPosition in pending totals
+    private void addChange(int origin, int newPosition, double newTravelCost) {
+        changedOrigins[changedOriginCount] = origin;
+        changedPositions[changedOriginCount] = newPosition;
+        changedTravelCosts[changedOriginCount] = newTravelCost;
+        changedOriginCount += 1;
+
+        //Shifted, removed and fully reassigned positions start from empty totals, so origins are only subtracted from unchanged positions
+        int oldPosition = positionByOrigin[origin];
+        if ((pendingMoveType == MoveType.SHIFT || pendingMoveType == MoveType.ADD) && oldPosition >= 0 && oldPosition != pendingPosition) {
+            touch(oldPosition, oldPosition);
+            pendingWeightedCostByPosition[oldPosition] -= travelCostByOrigin[origin] * weightedCaseCountByOrigin[origin];
+            int offset = oldPosition * caseTimepointCount;
+            for (int timepoint = 0; timepoint < caseTimepointCount; timepoint++) {
+                pendingCasesByPositionAndTime[offset + timepoint] -= caseCountByOrigin.getCaseCount(timepoint, origin);
+            }
+            pendingOriginCountByPosition[oldPosition] -= 1;
+        }
+        touch(newPosition, pendingMoveType == MoveType.FULL ? -1 : getSourcePosition(newPosition));
+        pendingWeightedCostByPosition[newPosition] += newTravelCost * weightedCaseCountByOrigin[origin];
+        pendingOriginCountByPosition[newPosition] += 1;
+        int offset = newPosition * caseTimepointCount;
+        for (int timepoint = 0; timepoint < caseTimepointCount; timepoint++) {
+            pendingCasesByPositionAndTime[offset + timepoint] += caseCountByOrigin.getCaseCount(timepoint, origin);
+        }
+    }
+
+    //Marks position as changed by pending move, with pending totals starting from current totals of sourcePosition or empty if -1
+    private void touch(int position, int sourcePosition) {
+        if (isTouched[position]) return;
+        isTouched[position] = true;
+        touchedPositions[touchedPositionCount] = position;
+        touchedPositionCount += 1;
+        int offset = position * caseTimepointCount;
+        if (sourcePosition >= 0) {
+            System.arraycopy(casesByPositionAndTime, sourcePosition * caseTimepointCount, pendingCasesByPositionAndTime, offset, caseTimepointCount);
+            pendingWeightedCostByPosition[position] = weightedCostByPosition[sourcePosition];
+            pendingOriginCountByPosition[position] = catchments.size(sourcePosition);
+        } else {
+            Arrays.fill(pendingCasesByPositionAndTime, offset, offset + caseTimepointCount, 0);
+            pendingWeightedCostByPosition[position] = 0;
+            pendingOriginCountByPosition[position] = 0;
+        }
+    }
+
+    //Pending level cost from current level cost and cost change of touched positions
+    private double finishMove() {
+        if (pendingSites.isEmpty()) {
+            pendingLevelCost = NO_SITES_COST * servicedProportion;
+            return pendingLevelCost;
+        }
+        double newTouchedCost = 0;
+        double oldTouchedCost = 0;
+        for (int i = 0; i < touchedPositionCount; i++) {
+            int position = touchedPositions[i];
+            if (pendingOriginCountByPosition[position] == 0) {
+                Arrays.fill(pendingCasesByPositionAndTime, position * caseTimepointCount, (position + 1) * caseTimepointCount, 0);
+                pendingWeightedCostByPosition[position] = 0;
+            }
+            newTouchedCost += computePositionCost(pendingCasesByPositionAndTime, pendingWeightedCostByPosition, position);
+            int sourcePosition = getSourcePosition(position);
+            if (sourcePosition < sites.size()) {
+                oldTouchedCost += computePositionCost(casesByPositionAndTime, weightedCostByPosition, sourcePosition);
+            }
+        }
+        if (pendingMoveType == MoveType.REMOVE) {
+            oldTouchedCost += computePositionCost(casesByPositionAndTime, weightedCostByPosition, pendingPosition); //removed position
+        }
+        if (pendingMoveType == MoveType.FULL || sites.isEmpty()) {
+            pendingLevelCost = newTouchedCost * servicedProportion;
+        } else {
+            pendingLevelCost = levelCost + (newTouchedCost - oldTouchedCost) * servicedProportion;
+        }
+        return pendingLevelCost;
+    }
+
+    private double computePositionCost(double[] casesByPositionAndTime, double[] weightedCostByPosition, int position) {
+        return CostCalculator.computePositionCost(weightedCostByPosition[position], casesByPositionAndTime, position * caseTimepointCount, caseTimepointCount, minimumCases, timepointWeights);
+    }
+
+    private void recomputeTotals() {
+        Arrays.fill(casesByPositionAndTime, 0);
+        Arrays.fill(weightedCostByPosition, 0);
+        if (sites.isEmpty()) {
+            levelCost = NO_SITES_COST * servicedProportion;
+            return;
+        }
+        for (int origin = 0; origin < originCount; origin++) {
+            weightedCostByPosition[positionByOrigin[origin]] += travelCostByOrigin[origin] * weightedCaseCountByOrigin[origin];
+            int offset = positionByOrigin[origin] * caseTimepointCount;
+            for (int timepoint = 0; timepoint < caseTimepointCount; timepoint++) {
+                casesByPositionAndTime[offset + timepoint] += caseCountByOrigin.getCaseCount(timepoint, origin);
+            }
+        }
+        double totalCost = 0;
+        for (int position = 0; position < sites.size(); position++) {
+            totalCost += computePositionCost(casesByPositionAndTime, weightedCostByPosition, position);
+        }
+        levelCost = totalCost * servicedProportion;
+    }
+
+    private void ensureCapacity(int positionCount) {
+        if (positionCount > capacity) {
+            allocatePositions(Math.max(positionCount, 2 * capacity));
+        }
+    }
+
+    private void allocatePositions(int newCapacity) {
+        casesByPositionAndTime = casesByPositionAndTime == null ? new double[newCapacity * caseTimepointCount] : Arrays.copyOf(casesByPositionAndTime, newCapacity * caseTimepointCount);
+        weightedCostByPosition = weightedCostByPosition == null ? new double[newCapacity] : Arrays.copyOf(weightedCostByPosition, newCapacity);
+        pendingCasesByPositionAndTime = new double[newCapacity * caseTimepointCount];
+        pendingWeightedCostByPosition = new double[newCapacity];
+        pendingOriginCountByPosition = new int[newCapacity];
+        touchedPositions = new int[newCapacity];
+        isTouched = new boolean[newCapacity];
+        touchedPositionCount = 0;
+        capacity = newCapacity;
+    }
+
+    private void setOpen(int site, boolean isOpen) {
+        if (isOpen) {
+            openSites[site >>> 6] |= 1L << site;
+        } else {
+            openSites[site >>> 6] &= ~(1L << site);
+        }
+    }
+
+    //Current sites, whose list is reused for pending moves after the next commit
+    public List<Integer> getSites() {
+        return sites;
+    }
+
+    //Live array updated on commit
+    public int[] getPositions() {
+        return positionByOrigin;
+    }
+
+    public double getLevelCost() {
+        return levelCost;
+    }
+
+    //Level cost of last evaluated move
+    public double getPendingLevelCost() {
+        return pendingLevelCost;
+    }
+
+    public double getTravelCost(int origin) {
+        return travelCostByOrigin[origin];
+    }
+
+    //Second closest site of origin, -1 if there are fewer than two sites
+    public int getSecondSite(int origin) {
+        return secondSiteByOrigin[origin];
+    }
+
+    public double getSecondTravelCost(int origin) {
+        return secondTravelCostByOrigin[origin];
+    }
+
+    //Only kept if level has a minimum cases penalty or there is a volume penalty
+    public double getCases(int position, int timepoint) {
+        return casesByPositionAndTime[position * caseTimepointCount + timepoint];
+    }
+
+    //Cases of site at timepoint, 0 if site is not open
+    public double getSiteCases(int site, int timepoint) {
+        int position = positionBySite[site];
+        return position == -1 ? 0 : casesByPositionAndTime[position * caseTimepointCount + timepoint];
+    }
+
+    //Cases of site at timepoint after pending move, 0 if site is not open after pending move
+    public double getPendingSiteCases(int site, int timepoint) {
+        int pendingSitePosition = findPendingPosition(site);
+        if (pendingSitePosition == -1) {
+            return 0;
+        } else if (isTouched[pendingSitePosition]) {
+            return pendingCasesByPositionAndTime[pendingSitePosition * caseTimepointCount + timepoint];
+        } else if (pendingMoveType == MoveType.FULL) {
+            return 0; //every position with origins is touched
+        }
+        return casesByPositionAndTime[positionBySite[site] * caseTimepointCount + timepoint];
+    }
+
+    public boolean isOpen(int site) {
+        return positionBySite[site] != -1;
+    }
+
+    public boolean isPendingOpen(int site) {
+        return findPendingPosition(site) != -1;
+    }
+
+    //Appends sites that are opened, closed or whose cases change in pending move to changedSites unless already marked in isChangedSite, and marks them. Returns new count.
+    public int collectChangedSites(int[] changedSites, int changedSiteCount, boolean[] isChangedSite) {
+        if (pendingMoveType == MoveType.FULL) {
+            for (Integer site : sites) {
+                changedSiteCount = collectSite(site, changedSites, changedSiteCount, isChangedSite);
+            }
+            for (Integer site : pendingSites) {
+                changedSiteCount = collectSite(site, changedSites, changedSiteCount, isChangedSite);
+            }
+            return changedSiteCount;
+        }
+        for (int i = 0; i < touchedPositionCount; i++) {
+            int position = touchedPositions[i];
+            int sourcePosition = getSourcePosition(position);
+            if (sourcePosition < sites.size()) {
+                changedSiteCount = collectSite(sites.get(sourcePosition), changedSites, changedSiteCount, isChangedSite);
+            }
+            if (position < pendingSites.size()) {
+                changedSiteCount = collectSite(pendingSites.get(position), changedSites, changedSiteCount, isChangedSite);
+            }
+        }
+        if (pendingMoveType == MoveType.REMOVE) {
+            changedSiteCount = collectSite(sites.get(pendingPosition), changedSites, changedSiteCount, isChangedSite);
+        }
+        return changedSiteCount;
+    }
+
+    private static int collectSite(int site, int[] changedSites, int changedSiteCount, boolean[] isChangedSite) {
+        if (!isChangedSite[site]) {
+            isChangedSite[site] = true;
+            changedSites[changedSiteCount] = site;
+            changedSiteCount += 1;
+        }
+        return changedSiteCount;
+    }
+
+    public double[] getWeightedCaseCounts() {
+        return weightedCaseCountByOrigin;
+    }
+
+    //Lists of origins by key, e.g. position or site, with O(1) insertion and removal. An origin is in at most one list.
+    private static class OriginLists {
+        private static final int[] EMPTY = new int[0];
+        private int[][] originsByKey = new int[0][];
+        private int[] sizesByKey = new int[0];
+        private final int[] slotByOrigin; //-1 if origin is in no list
+
+        OriginLists(int originCount) {
+            this.slotByOrigin = new int[originCount];
+            Arrays.fill(slotByOrigin, -1);
+        }
+
+        OriginLists(OriginLists other) {
+            this.originsByKey = new int[other.originsByKey.length][];
+            for (int key = 0; key < originsByKey.length; key++) {
+                originsByKey[key] = other.originsByKey[key] == null ? null : other.originsByKey[key].clone();
+            }
+            this.sizesByKey = other.sizesByKey.clone();
+            this.slotByOrigin = other.slotByOrigin.clone();
+        }
+
+        void add(int origin, int key) {
+            ensureKey(key);
+            int[] origins = originsByKey[key];
+            int size = sizesByKey[key];
+            if (origins == null || size == origins.length) {
+                origins = origins == null ? new int[16] : Arrays.copyOf(origins, 2 * size);
+                originsByKey[key] = origins;
+            }
+            origins[size] = origin;
+            slotByOrigin[origin] = size;
+            sizesByKey[key] = size + 1;
+        }
+
+        void remove(int origin, int key) {
+            int slot = slotByOrigin[origin];
+            int size = sizesByKey[key] - 1;
+            int lastOrigin = originsByKey[key][size];
+            originsByKey[key][slot] = lastOrigin;
+            slotByOrigin[lastOrigin] = slot;
+            slotByOrigin[origin] = -1;
+            sizesByKey[key] = size;
+        }
+
+        boolean contains(int origin) {
+            return slotByOrigin[origin] != -1;
+        }
+
+        //Exchanges lists of two keys, slots are unchanged
+        void swap(int key, int otherKey) {
+            ensureKey(Math.max(key, otherKey));
+            int[] origins = originsByKey[key];
+            originsByKey[key] = originsByKey[otherKey];
+            originsByKey[otherKey] = origins;
+            int size = sizesByKey[key];
+            sizesByKey[key] = sizesByKey[otherKey];
+            sizesByKey[otherKey] = size;
+        }
+
+        void clear() {
+            Arrays.fill(sizesByKey, 0);
+            Arrays.fill(slotByOrigin, -1);
+        }
+
+        int size(int key) {
+            return key < sizesByKey.length ? sizesByKey[key] : 0;
+        }
+
+        int[] get(int key) {
+            return key < originsByKey.length && originsByKey[key] != null ? originsByKey[key] : EMPTY;
+        }
+
+        private void ensureKey(int key) {
+            if (key >= originsByKey.length) {
+                int newLength = Math.max(key + 1, 2 * originsByKey.length);
+                originsByKey = Arrays.copyOf(originsByKey, newLength);
+                sizesByKey = Arrays.copyOf(sizesByKey, newLength);
+            }
+        }
+    }
+}
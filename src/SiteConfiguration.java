@@ -1,11 +1,13 @@
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 
 public class SiteConfiguration {
     protected List<Integer> sites; //list of the lowest level sites
     protected double cost; //total cost
     protected int[] minimumPositionsByOrigin; //for each origin, the position in the lowest level sites that minimizes travel cost from that origin to sites
+    protected SiteAssignment siteAssignment; //incremental state for neighbor shifts, rebuilt if sites change by other moves
+    protected BatchShiftEvaluator batchShiftEvaluator; //copies of siteAssignment for parallel shift evaluation, null whenever siteAssignment is
+    private final CostBufferPool bufferPool = new CostBufferPool(); //maps and positions of rejected full recomputations for reuse by later moves
 
     public SiteConfiguration() {    }
 
@@ -16,9 +18,8 @@ public class SiteConfiguration {
     }
 
     //Generates site configuration
-    public SiteConfiguration(int minimumCenterCount, int maximumCenterCount, List<Integer> potentialSites, SearchSpace searchParameters, int taskCount, ExecutorService executor) {
+    public SiteConfiguration(int minimumCenterCount, int maximumCenterCount, List<Integer> potentialSites, SearchSpace searchParameters, Random random, int taskCount, ExecutorService executor) {
         //Create random list of current cancer center positions and list of remaining potential positions.
-        Random random = new Random();
         sites = new ArrayList<>(pickNRandomFromList(potentialSites, random.nextInt(maximumCenterCount - minimumCenterCount + 1) + minimumCenterCount, random));
 
         //Compute initial cost and list of the closest of current positions for each originating population center
@@ -29,80 +30,164 @@ public class SiteConfiguration {
     }
 
     //Get new leveled site configuration by shifting one of the lowest level sites. Only used for optimization without levels.
-    public void tryShiftToNeighbor(int positionToShift, int neighborhoodSize, SearchSpace searchParameters, double temp, int taskCount, ExecutorService executor) {
+    public void tryShiftToNeighbor(int positionToShift, int neighborhoodSize, SearchSpace searchParameters, double temp, Random random, int taskCount, ExecutorService executor) {
+        createSiteAssignment(searchParameters);
+
         //Get shifted sites
         Integer siteToShift = sites.get(positionToShift);
-        Integer newSite = SimAnnealingNeighbor.getUnusedNeighbor(sites, siteToShift, neighborhoodSize, searchParameters.getSortedNeighbors());
-        List<Integer> newSites = new ArrayList<>(sites);
-        newSites.set(positionToShift, newSite);
+        Integer newSite = SimAnnealingNeighbor.getUnusedNeighbor(sites, siteToShift, neighborhoodSize, searchParameters.getSortedNeighbors(), random);
 
-        //Compute cost of new positions and update list of the closest of current positions for each population center
-        CostMapAndPositions updatedResult = shiftSiteCost(newSites, positionToShift, newSite, minimumPositionsByOrigin, searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[0], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
-        double newCost = CostCalculator.computeCost(updatedResult.getCasesAndCostMap(), searchParameters.getMinimumCases(), searchParameters.getTimepointWeights());
+        //Compute cost of new positions from origins whose closest site changes
+        double newCost = siteAssignment.evaluateShift(positionToShift, newSite);
 
         //Decide whether to accept new positions
-        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
-            sites = newSites;
-            cost = newCost;
-            minimumPositionsByOrigin = updatedResult.getPositions();
+        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
+            siteAssignment.commitMove();
+            batchShiftEvaluator = null; //copies no longer match
+            sites = siteAssignment.getSites();
+            cost = siteAssignment.getLevelCost();
+            minimumPositionsByOrigin = siteAssignment.getPositions();
+        }
+    }
+
+    //Tries to shift every site once to a neighbor as in tryShiftToNeighbor, with batches of workerCount consecutive positions evaluated in parallel and accepted in order.
+    //Shifts after an accepted shift in a batch were evaluated against the previous sites, so they are proposed again against the new sites.
+    public void tryShiftAllToNeighbors(int neighborhoodSize, SearchSpace searchParameters, double temp, Random random, int workerCount, ExecutorService executor) {
+        createSiteAssignment(searchParameters);
+        if (batchShiftEvaluator == null || batchShiftEvaluator.getWorkerCount() != workerCount) {
+            batchShiftEvaluator = new BatchShiftEvaluator(siteAssignment, workerCount, executor);
+        }
+        int[] positions = new int[workerCount];
+        int[] newSites = new int[workerCount];
+        int position = 0;
+        while (position < sites.size()) {
+            //Propose shifts for next positions
+            int moveCount = Math.min(workerCount, sites.size() - position);
+            for (int i = 0; i < moveCount; i++) {
+                positions[i] = position + i;
+                newSites[i] = SimAnnealingNeighbor.getUnusedNeighbor(sites, sites.get(position + i), neighborhoodSize, searchParameters.getSortedNeighbors(), random);
+            }
+            double[] newCosts = batchShiftEvaluator.evaluateShifts(positions, newSites, moveCount);
+
+            //Accept first shift in order that passes acceptance
+            int acceptedMove = -1;
+            for (int i = 0; i < moveCount; i++) {
+                if (SimAnnealingSearch.acceptanceProbability(cost, newCosts[i], temp) > random.nextDouble()) {
+                    acceptedMove = i;
+                    break;
+                }
+            }
+            if (acceptedMove == -1) {
+                position += moveCount;
+            } else {
+                batchShiftEvaluator.commitShift(positions[acceptedMove], newSites[acceptedMove]);
+                sites = siteAssignment.getSites();
+                cost = siteAssignment.getLevelCost();
+                minimumPositionsByOrigin = siteAssignment.getPositions();
+                position += acceptedMove + 1;
+            }
+        }
+    }
+
+    //Applies best improving swaps of an open site for a potential site until none improves cost. Returns number of swaps.
+    public int polishWithSwaps(SearchSpace searchParameters, int maximumSwapCount) {
+        createSiteAssignment(searchParameters);
+        batchShiftEvaluator = null; //swaps are not applied to copies
+        boolean[] isClosableSite = new boolean[searchParameters.getPotentialSitesCount()];
+        Arrays.fill(isClosableSite, true);
+        boolean[] isOpenableSite = new boolean[searchParameters.getPotentialSitesCount()];
+        FastSwapSearch swapSearch = new FastSwapSearch(siteAssignment, searchParameters.getGraphArray());
+        int swapCount = 0;
+        while (swapCount < maximumSwapCount) {
+            Arrays.fill(isOpenableSite, true);
+            for (Integer site : siteAssignment.getSites()) {
+                isOpenableSite[site] = false;
+            }
+            if (!swapSearch.findBestSwap(isClosableSite, isOpenableSite)) break;
+            siteAssignment.commitMove();
+            swapCount += 1;
+        }
+        sites = siteAssignment.getSites();
+        cost = siteAssignment.getLevelCost();
+        minimumPositionsByOrigin = siteAssignment.getPositions();
+        return swapCount;
+    }
+
+    private void createSiteAssignment(SearchSpace searchParameters) {
+        if (siteAssignment == null) {
+            siteAssignment = new SiteAssignment(sites, minimumPositionsByOrigin, searchParameters.getCaseCountsByLevel()[0], searchParameters.getWeightedCaseCountsByLevel()[0], searchParameters.getGraphArray(), searchParameters.getTimepointCount(), searchParameters.getMinimumCases(), 1, searchParameters.getTimepointWeights(), searchParameters.getVolumePenalty() != null, searchParameters.getConsistencyCheckInterval(), searchParameters.getConsistencyTolerance());
         }
     }
 
     //Shift site according to a potential site
-    public void tryShiftSite(int positionToShift, Integer newSite, double servicedProportion, double minimumCases, SearchSpace searchParameters, double temp, int taskCount, ExecutorService executor) {
+    public void tryShiftSite(int positionToShift, Integer newSite, double servicedProportion, double minimumCases, SearchSpace searchParameters, double temp, Random random, int taskCount, ExecutorService executor) {
         //Randomly shift a site to one of potential sites
         List<Integer> newSites = new ArrayList<>(sites);
         newSites.set(positionToShift, newSite);
 
         //Compute new parameters
         CostMapAndPositions updatedResult = shiftSiteCost(newSites, positionToShift, newSite, minimumPositionsByOrigin, searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[0], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
+                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor, bufferPool);
         double newCost = CostCalculator.computeCost(updatedResult.getCasesAndCostMap(), minimumCases, searchParameters.getTimepointWeights()) * servicedProportion;
+        bufferPool.release(updatedResult.getCasesAndCostMap());
 
-        //Decide whether to accept new positions
-        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
+        //Decide whether to accept new positions. Replaced positions are not released since they may be shared with a copy or site assignment.
+        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
             sites = newSites;
             cost = newCost;
             minimumPositionsByOrigin = updatedResult.getPositions();
+            siteAssignment = null;
+            batchShiftEvaluator = null;
+        } else {
+            bufferPool.release(updatedResult.getPositions());
         }
     }
 
     //Add a site to current configuration without regard for different levels
-    public void tryAddSite(Integer newSite, double servicedProportion, double minimumCases, SearchSpace searchParameters, double temp, int taskCount, ExecutorService executor) {
+    public void tryAddSite(Integer newSite, double servicedProportion, double minimumCases, SearchSpace searchParameters, double temp, Random random, int taskCount, ExecutorService executor) {
         //Add site
         List<Integer> newSites = new ArrayList<>(sites);
         newSites.add(newSite);
 
         //Compute parameters
         CostMapAndPositions updatedResult = addSiteCost(newSites, minimumPositionsByOrigin, searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[0], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
+                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor, bufferPool);
         double newCost = CostCalculator.computeCost(updatedResult.getCasesAndCostMap(), minimumCases, searchParameters.getTimepointWeights()) * servicedProportion;
+        bufferPool.release(updatedResult.getCasesAndCostMap());
 
-        //Decide whether to accept new positions
-        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
+        //Decide whether to accept new positions. Replaced positions are not released since they may be shared with a copy or site assignment.
+        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
             sites = newSites;
             cost = newCost;
             minimumPositionsByOrigin = updatedResult.getPositions();
+            siteAssignment = null;
+            batchShiftEvaluator = null;
+        } else {
+            bufferPool.release(updatedResult.getPositions());
         }
     }
 
     //Remove a site without regard for other levels
-    public void tryRemovePosition(int removalPosition, double servicedProportion, double minimumCases, SearchSpace searchParameters, double temp, int taskCount, ExecutorService executor) {
+    public void tryRemovePosition(int removalPosition, double servicedProportion, double minimumCases, SearchSpace searchParameters, double temp, Random random, int taskCount, ExecutorService executor) {
         //Remove site
         List<Integer> newSites = new ArrayList<>(sites);
         newSites.remove(removalPosition);
 
         //Compute new parameters
         CostMapAndPositions updatedResult = removeSiteCost(newSites, removalPosition, minimumPositionsByOrigin, searchParameters.getTimepointCount(), searchParameters.getOriginCount(), searchParameters.getCaseCountsByLevel()[0], searchParameters.getGraphArray(),
-                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor);
+                taskCount, searchParameters.getStartingOrigins(), searchParameters.getEndingOrigins(), executor, bufferPool);
         double newCost = CostCalculator.computeCost(updatedResult.getCasesAndCostMap(), minimumCases, searchParameters.getTimepointWeights()) * servicedProportion;
+        bufferPool.release(updatedResult.getCasesAndCostMap());
 
-        //Decide whether to accept new positions
-        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > Math.random()) {
+        //Decide whether to accept new positions. Replaced positions are not released since they may be shared with a copy or site assignment.
+        if (SimAnnealingSearch.acceptanceProbability(cost, newCost, temp) > random.nextDouble()) {
             sites = newSites;
             cost = newCost;
             minimumPositionsByOrigin = updatedResult.getPositions();
+            siteAssignment = null;
+            batchShiftEvaluator = null;
+        } else {
+            bufferPool.release(updatedResult.getPositions());
         }
     }
 
@@ -110,42 +195,31 @@ public class SiteConfiguration {
     //Cost function of configuration with given cancer center positions, graph, expected case count. Technically does not optimize for case where one permits travel to further cancer center to lower cost.
     public static CostMapAndPositions initialCost(List<Integer> sites, int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
                                            int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor) {
+        return initialCost(sites, timepointCount, originCount, caseCountByOrigin, graphArray, taskCount, startingOrigins, endingOrigins, executor, null);
+    }
+
+    //Variant drawing positions and maps from bufferPool if not null
+    public static CostMapAndPositions initialCost(List<Integer> sites, int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
+                                           int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor, CostBufferPool bufferPool) {
         int siteCount = sites.size();
         if (siteCount == 0) {
             return new CostMapAndPositions(null, null);
         }
 
-        CountDownLatch latch = new CountDownLatch(taskCount);
-        int[] minimumCostPositionsByOrigin = new int[originCount];
-        CasesAndCostMap[] partitionedMinimumCostMap = new CasesAndCostMap[taskCount];
-        for (int i = 0; i < taskCount; i++) {
-            int finalI = i;
-            executor.execute(() -> {
-                CasesAndCostMap partitionMinimumCostMap = new CasesAndCostMap(timepointCount, siteCount);
-                for (int j = startingOrigins[finalI]; j < endingOrigins[finalI]; j++) {
-                    int minimumCostPosition = 0;
-                    double minimumCostUnadjusted = graphArray.getEdgeLength(j, sites.get(0)); //Closest center travel cost, not adjusted for population or cancer center scaling
-                    for (int k = 1; k < siteCount; ++k) {
-                        double currentCostUnadjusted = graphArray.getEdgeLength(j, sites.get(k));
-                        if (currentCostUnadjusted < minimumCostUnadjusted) {
-                            minimumCostPosition = k;
-                            minimumCostUnadjusted = currentCostUnadjusted;
-                        }
-                    }
-                    minimumCostPositionsByOrigin[j] = minimumCostPosition;
-                    partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
-                }
-                partitionedMinimumCostMap[finalI] = partitionMinimumCostMap;
-                latch.countDown();
-            });
-        }
-        try {
-            latch.await();
-        } catch (InterruptedException e){
-            throw new AssertionError("Unexpected interruption", e);
+        int[] minimumCostPositionsByOrigin = bufferPool == null ? new int[originCount] : bufferPool.borrowPositions(originCount);
+        double[] minimumCostByOrigin = bufferPool == null ? new double[originCount] : bufferPool.borrowCosts(originCount); //Closest center travel cost, not adjusted for population or cancer center scaling
+        double[] positionScratchByOrigin = !graphArray.isVectorKernelUsed() ? null : bufferPool == null ? new double[originCount] : bufferPool.borrowCosts(originCount);
+        int[] siteArray = sites.stream().mapToInt(Integer::intValue).toArray();
+        CasesAndCostMap combinedMinimumCostMap = MultithreadingUtils.evaluateOriginRanges((startingOrigin, endingOrigin, partitionMinimumCostMap) -> {
+            graphArray.findClosestSites(siteArray, startingOrigin, endingOrigin, minimumCostPositionsByOrigin, minimumCostByOrigin, positionScratchByOrigin);
+            for (int j = startingOrigin; j < endingOrigin; j++) {
+                partitionMinimumCostMap.updateCasesAndCost(minimumCostPositionsByOrigin[j], minimumCostByOrigin[j], j, caseCountByOrigin);
+            }
+        }, timepointCount, siteCount, taskCount, startingOrigins, endingOrigins, executor, bufferPool);
+        if (bufferPool != null) {
+            bufferPool.release(minimumCostByOrigin);
+            bufferPool.release(positionScratchByOrigin);
         }
-        //HashMap<Integer, CasesAndCost> combinedMinimumCostMap = MultithreadingUtils.combinePartitionedMinimumCostMap(partitionedMinimumCostMap, siteCount, taskCount);
-        CasesAndCostMap combinedMinimumCostMap = new CasesAndCostMap(partitionedMinimumCostMap, timepointCount, siteCount, taskCount);
         return new CostMapAndPositions(combinedMinimumCostMap, minimumCostPositionsByOrigin);
     }
 
@@ -154,54 +228,50 @@ public class SiteConfiguration {
     //Cost function of configuration with given cancer center positions, graph, expected case count. Technically does not optimize for case where one permits travel to further cancer center to lower cost.
     public static CostMapAndPositions shiftSiteCost(List<Integer> sites, int movedPosition, Integer newSite, int[] oldMinimumCostPositionByOrigin, int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
                                                     int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor) {
+        return shiftSiteCost(sites, movedPosition, newSite, oldMinimumCostPositionByOrigin, timepointCount, originCount, caseCountByOrigin, graphArray, taskCount, startingOrigins, endingOrigins, executor, null);
+    }
+
+    //Variant drawing positions and maps from bufferPool if not null
+    public static CostMapAndPositions shiftSiteCost(List<Integer> sites, int movedPosition, Integer newSite, int[] oldMinimumCostPositionByOrigin, int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
+                                                    int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor, CostBufferPool bufferPool) {
         int siteCount = sites.size();
         if (siteCount == 0) {
             return new CostMapAndPositions(null, null);
         }
-        CountDownLatch latch = new CountDownLatch(taskCount);
-        int[] minimumCostPositionsByOrigin = new int[originCount];
-        CasesAndCostMap[] partitionedMinimumCostMap = new CasesAndCostMap[taskCount];
-        for (int i = 0; i < taskCount; i++) {
-            int finalI = i;
-            executor.execute(() -> {
-                CasesAndCostMap partitionMinimumCostMap = new CasesAndCostMap(timepointCount, siteCount);
-                for (int j = startingOrigins[finalI]; j < endingOrigins[finalI]; j++) {
-                    int minimumCostPosition = 0;
-                    double minimumCostUnadjusted;
-                    int oldMinimumCostPosition = oldMinimumCostPositionByOrigin[j];
-                    if (movedPosition == oldMinimumCostPosition) {
-                        minimumCostUnadjusted = graphArray.getEdgeLength(j, sites.get(0)); //Closest center travel cost, not adjusted for population or cancer center scaling
-                        for (int k = 1; k < siteCount; ++k) {
-                            double currentCostUnadjusted = graphArray.getEdgeLength(j, sites.get(k));
-                            if (currentCostUnadjusted < minimumCostUnadjusted) {
-                                minimumCostPosition = k;
-                                minimumCostUnadjusted = currentCostUnadjusted;
-                            }
-                        }
+        int[] minimumCostPositionsByOrigin = bufferPool == null ? new int[originCount] : bufferPool.borrowPositions(originCount);
+        SortedSitesIndex sortedSitesIndex = graphArray.getSortedSitesIndex();
+        long[] openSites = sortedSitesIndex == null ? null : SortedSitesIndex.createOpenSitesBitset(sites, graphArray.getTotalSitesCount());
+        int[] positionBySite = sortedSitesIndex == null ? null : SortedSitesIndex.createPositionBySite(sites, graphArray.getTotalSitesCount());
+        int[] siteArray = sites.stream().mapToInt(Integer::intValue).toArray();
+        CasesAndCostMap combinedMinimumCostMap = MultithreadingUtils.evaluateOriginRanges((startingOrigin, endingOrigin, partitionMinimumCostMap) -> {
+            for (int j = startingOrigin; j < endingOrigin; j++) {
+                int minimumCostPosition = 0;
+                double minimumCostUnadjusted;
+                int oldMinimumCostPosition = oldMinimumCostPositionByOrigin[j];
+                if (movedPosition == oldMinimumCostPosition) {
+                    minimumCostPosition = sortedSitesIndex == null ? -1 : sortedSitesIndex.findClosestPosition(j, openSites, positionBySite, graphArray);
+                    if (minimumCostPosition != -1) {
+                        minimumCostUnadjusted = graphArray.getEdgeLength(j, sites.get(minimumCostPosition));
                     } else {
-                        double oldMinimumCost = graphArray.getEdgeLength(j, sites.get(oldMinimumCostPosition));
-                        double newPositionCost = graphArray.getEdgeLength(j, newSite);
-                        if (newPositionCost < oldMinimumCost) {
-                            minimumCostPosition = movedPosition;
-                            minimumCostUnadjusted = newPositionCost;
-                        } else {
-                            minimumCostPosition = oldMinimumCostPosition;
-                            minimumCostUnadjusted = oldMinimumCost;
-                        }
+                        //Full scan when closest open site is not among indexed sites
+                        minimumCostPosition = graphArray.findClosestPosition(j, siteArray);
+                        minimumCostUnadjusted = graphArray.getEdgeLength(j, siteArray[minimumCostPosition]); //Closest center travel cost, not adjusted for population or cancer center scaling
+                    }
+                } else {
+                    double oldMinimumCost = graphArray.getEdgeLength(j, sites.get(oldMinimumCostPosition));
+                    double newPositionCost = graphArray.getEdgeLengthFromSite(newSite, j);
+                    if (newPositionCost < oldMinimumCost) {
+                        minimumCostPosition = movedPosition;
+                        minimumCostUnadjusted = newPositionCost;
+                    } else {
+                        minimumCostPosition = oldMinimumCostPosition;
+                        minimumCostUnadjusted = oldMinimumCost;
                     }
-                    minimumCostPositionsByOrigin[j] = minimumCostPosition;
-                    partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
                 }
-                partitionedMinimumCostMap[finalI] = partitionMinimumCostMap;
-                latch.countDown();
-            });
-        }
-        try {
-            latch.await();
-        } catch (InterruptedException e){
-            throw new AssertionError("Unexpected interruption", e);
-        }
-        CasesAndCostMap combinedMinimumCostMap = new CasesAndCostMap(partitionedMinimumCostMap, timepointCount, siteCount, taskCount);
+                minimumCostPositionsByOrigin[j] = minimumCostPosition;
+                partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
+            }
+        }, timepointCount, siteCount, taskCount, startingOrigins, endingOrigins, executor, bufferPool);
         return new CostMapAndPositions(combinedMinimumCostMap, minimumCostPositionsByOrigin);
     }
 
@@ -210,47 +280,39 @@ public class SiteConfiguration {
     //Cost function of configuration with given cancer center positions, graph, expected case count. Technically does not optimize for case where one permits travel to further cancer center to lower cost.
     public static CostMapAndPositions addSiteCost(List<Integer> sites, int[] oldMinimumCostPositionByOrigin, int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
                                            int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor) {
+        return addSiteCost(sites, oldMinimumCostPositionByOrigin, timepointCount, originCount, caseCountByOrigin, graphArray, taskCount, startingOrigins, endingOrigins, executor, null);
+    }
+
+    //Variant drawing positions and maps from bufferPool if not null
+    public static CostMapAndPositions addSiteCost(List<Integer> sites, int[] oldMinimumCostPositionByOrigin, int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
+                                           int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor, CostBufferPool bufferPool) {
         int siteCount = sites.size();
         int newPosition = siteCount - 1;
         Integer newSite = sites.get(newPosition);
         //If there were originally no sites
         if (siteCount == 1) {
-            return initialCost(sites, timepointCount, originCount, caseCountByOrigin, graphArray, taskCount, startingOrigins, endingOrigins, executor);
+            return initialCost(sites, timepointCount, originCount, caseCountByOrigin, graphArray, taskCount, startingOrigins, endingOrigins, executor, bufferPool);
         }
         //If there were some sites
-        CountDownLatch latch = new CountDownLatch(taskCount);
-        int[] minimumCostPositionsByOrigin = new int[originCount];
-        CasesAndCostMap[] partitionedMinimumCostMap = new CasesAndCostMap[taskCount];
-        for (int i = 0; i < taskCount; i++) {
-            int finalI = i;
-            executor.execute(() -> {
-                CasesAndCostMap partitionMinimumCostMap = new CasesAndCostMap(timepointCount, siteCount);
-                for (int j = startingOrigins[finalI]; j < endingOrigins[finalI]; j++) {
-                    int minimumCostPosition;
-                    double minimumCostUnadjusted; //Closest center travel cost, not adjusted for population or cancer center scaling
-                    int oldMinimumCostPosition = oldMinimumCostPositionByOrigin[j];
-                    double oldMinimumCost = graphArray.getEdgeLength(j, sites.get(oldMinimumCostPosition));
-                    double newPositionCost = graphArray.getEdgeLength(j, newSite);
-                    if (newPositionCost < oldMinimumCost) {
-                        minimumCostPosition = newPosition;
-                        minimumCostUnadjusted = newPositionCost;
-                    } else {
-                        minimumCostPosition = oldMinimumCostPosition;
-                        minimumCostUnadjusted = oldMinimumCost;
-                    }
-                    minimumCostPositionsByOrigin[j] = minimumCostPosition;
-                    partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
+        int[] minimumCostPositionsByOrigin = bufferPool == null ? new int[originCount] : bufferPool.borrowPositions(originCount);
+        CasesAndCostMap combinedMinimumCostMap = MultithreadingUtils.evaluateOriginRanges((startingOrigin, endingOrigin, partitionMinimumCostMap) -> {
+            for (int j = startingOrigin; j < endingOrigin; j++) {
+                int minimumCostPosition;
+                double minimumCostUnadjusted; //Closest center travel cost, not adjusted for population or cancer center scaling
+                int oldMinimumCostPosition = oldMinimumCostPositionByOrigin[j];
+                double oldMinimumCost = graphArray.getEdgeLength(j, sites.get(oldMinimumCostPosition));
+                double newPositionCost = graphArray.getEdgeLengthFromSite(newSite, j);
+                if (newPositionCost < oldMinimumCost) {
+                    minimumCostPosition = newPosition;
+                    minimumCostUnadjusted = newPositionCost;
+                } else {
+                    minimumCostPosition = oldMinimumCostPosition;
+                    minimumCostUnadjusted = oldMinimumCost;
                 }
-                partitionedMinimumCostMap[finalI] = partitionMinimumCostMap;
-                latch.countDown();
-            });
-        }
-        try {
-            latch.await();
-        } catch (InterruptedException e){
-            throw new AssertionError("Unexpected interruption", e);
-        }
-        CasesAndCostMap combinedMinimumCostMap = new CasesAndCostMap(partitionedMinimumCostMap, timepointCount, siteCount, taskCount);
+                minimumCostPositionsByOrigin[j] = minimumCostPosition;
+                partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
+            }
+        }, timepointCount, siteCount, taskCount, startingOrigins, endingOrigins, executor, bufferPool);
         return new CostMapAndPositions(combinedMinimumCostMap, minimumCostPositionsByOrigin);
     }
 
@@ -259,52 +321,48 @@ public class SiteConfiguration {
     //Cost function of configuration with given cancer center positions, graph, expected case count. Technically does not optimize for case where one permits travel to further cancer center to lower cost.
     public static CostMapAndPositions removeSiteCost(List<Integer> sites, int removedPosition, int[] oldMinimumCostPositionByOrigin, int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
                                               int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor) {
+        return removeSiteCost(sites, removedPosition, oldMinimumCostPositionByOrigin, timepointCount, originCount, caseCountByOrigin, graphArray, taskCount, startingOrigins, endingOrigins, executor, null);
+    }
+
+    //Variant drawing positions and maps from bufferPool if not null
+    public static CostMapAndPositions removeSiteCost(List<Integer> sites, int removedPosition, int[] oldMinimumCostPositionByOrigin, int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
+                                              int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor, CostBufferPool bufferPool) {
         int siteCount = sites.size();
         if (siteCount == 0) {
             return new CostMapAndPositions(null, null);
         }
 
-        CountDownLatch latch = new CountDownLatch(taskCount);
-        int[] minimumCostPositionsByOrigin = new int[originCount];
-        CasesAndCostMap[] partitionedMinimumCostMap = new CasesAndCostMap[taskCount];
-        for (int i = 0; i < taskCount; i++) {
-            int finalI = i;
-            executor.execute(() -> {
-                CasesAndCostMap partitionMinimumCostMap = new CasesAndCostMap(timepointCount, siteCount);
-                for (int j = startingOrigins[finalI]; j < endingOrigins[finalI]; j++) {
-                    int minimumCostPosition = 0;
-                    double minimumCostUnadjusted;
-                    int oldMinimumCostPosition = oldMinimumCostPositionByOrigin[j];
-                    if (removedPosition == oldMinimumCostPosition) {
-                        minimumCostUnadjusted = graphArray.getEdgeLength(j, sites.get(0)); //Closest center travel cost, not adjusted for population or cancer center scaling
-                        for (int k = 1; k < siteCount; ++k) {
-                            double currentCostUnadjusted = graphArray.getEdgeLength(j, sites.get(k));
-                            if (currentCostUnadjusted < minimumCostUnadjusted) {
-                                minimumCostPosition = k;
-                                minimumCostUnadjusted = currentCostUnadjusted;
-                            }
-                        }
-                    } else {
-                        if (removedPosition < oldMinimumCostPosition) {
-                            minimumCostPosition = oldMinimumCostPosition - 1;
-                        } else {
-                            minimumCostPosition = oldMinimumCostPosition;
-                        }
+        int[] minimumCostPositionsByOrigin = bufferPool == null ? new int[originCount] : bufferPool.borrowPositions(originCount);
+        SortedSitesIndex sortedSitesIndex = graphArray.getSortedSitesIndex();
+        long[] openSites = sortedSitesIndex == null ? null : SortedSitesIndex.createOpenSitesBitset(sites, graphArray.getTotalSitesCount());
+        int[] positionBySite = sortedSitesIndex == null ? null : SortedSitesIndex.createPositionBySite(sites, graphArray.getTotalSitesCount());
+        int[] siteArray = sites.stream().mapToInt(Integer::intValue).toArray();
+        CasesAndCostMap combinedMinimumCostMap = MultithreadingUtils.evaluateOriginRanges((startingOrigin, endingOrigin, partitionMinimumCostMap) -> {
+            for (int j = startingOrigin; j < endingOrigin; j++) {
+                int minimumCostPosition = 0;
+                double minimumCostUnadjusted;
+                int oldMinimumCostPosition = oldMinimumCostPositionByOrigin[j];
+                if (removedPosition == oldMinimumCostPosition) {
+                    minimumCostPosition = sortedSitesIndex == null ? -1 : sortedSitesIndex.findClosestPosition(j, openSites, positionBySite, graphArray);
+                    if (minimumCostPosition != -1) {
                         minimumCostUnadjusted = graphArray.getEdgeLength(j, sites.get(minimumCostPosition));
+                    } else {
+                        //Full scan when closest open site is not among indexed sites
+                        minimumCostPosition = graphArray.findClosestPosition(j, siteArray);
+                        minimumCostUnadjusted = graphArray.getEdgeLength(j, siteArray[minimumCostPosition]); //Closest center travel cost, not adjusted for population or cancer center scaling
+                    }
+                } else {
+                    if (removedPosition < oldMinimumCostPosition) {
+                        minimumCostPosition = oldMinimumCostPosition - 1;
+                    } else {
+                        minimumCostPosition = oldMinimumCostPosition;
                     }
-                    minimumCostPositionsByOrigin[j] = minimumCostPosition;
-                    partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
+                    minimumCostUnadjusted = graphArray.getEdgeLength(j, sites.get(minimumCostPosition));
                 }
-                partitionedMinimumCostMap[finalI] = partitionMinimumCostMap;
-                latch.countDown();
-            });
-        }
-        try {
-            latch.await();
-        } catch (InterruptedException e){
-            throw new AssertionError("Unexpected interruption", e);
-        }
-        CasesAndCostMap combinedMinimumCostMap = new CasesAndCostMap(partitionedMinimumCostMap, timepointCount, siteCount, taskCount);
+                minimumCostPositionsByOrigin[j] = minimumCostPosition;
+                partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
+            }
+        }, timepointCount, siteCount, taskCount, startingOrigins, endingOrigins, executor, bufferPool);
         return new CostMapAndPositions(combinedMinimumCostMap, minimumCostPositionsByOrigin);
     }
 
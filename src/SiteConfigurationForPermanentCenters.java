@@ -1,5 +1,4 @@
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
@@ -18,12 +17,11 @@ public class SiteConfigurationForPermanentCenters {
     }
 
     //Multithreaded variant of shiftToPotentialSite
-    public SiteConfigurationForPermanentCenters tryShiftSite(int level, List<Integer> potentialSites, double servicedProportion, double minimumCases, SearchSpace searchParameters, int taskCount, ExecutorService executor) {
+    public SiteConfigurationForPermanentCenters tryShiftSite(int level, List<Integer> potentialSites, double servicedProportion, double minimumCases, SearchSpace searchParameters, Random random, int taskCount, ExecutorService executor) {
         //Randomly shift a site to one of potential sites
         List<Integer> newSites = new ArrayList<>(sites);
         List<Integer> unusedSites = new ArrayList<>(potentialSites);
         unusedSites.removeAll(sites);
-        Random random = new Random();
         int adjustedPosition = searchParameters.getPermanentCentersCountByLevel()[level] + random.nextInt(newSites.size() - searchParameters.getPermanentCentersCountByLevel()[level]);
         newSites.set(adjustedPosition, unusedSites.get(random.nextInt(unusedSites.size())));
 
@@ -39,12 +37,11 @@ public class SiteConfigurationForPermanentCenters {
     }
 
     //Add a site to current configuration without regard for different levels
-    public SiteConfigurationForPermanentCenters tryAddSite(int level, List<Integer> potentialSites, double servicedProportion, double minimumCases, SearchSpace searchParameters, int taskCount, ExecutorService executor) {
+    public SiteConfigurationForPermanentCenters tryAddSite(int level, List<Integer> potentialSites, double servicedProportion, double minimumCases, SearchSpace searchParameters, Random random, int taskCount, ExecutorService executor) {
         //Add site
         List<Integer> newSites = new ArrayList<>(sites);
         List<Integer> unusedSites = new ArrayList<>(potentialSites);
         unusedSites.removeAll(sites);
-        Random random = new Random();
         newSites.add(unusedSites.get(random.nextInt(unusedSites.size())));
 
         //Compute parameters
@@ -58,10 +55,9 @@ public class SiteConfigurationForPermanentCenters {
     }
 
     //Multithreaded removeSite variant
-    public SiteConfigurationForPermanentCenters tryRemoveSite(int level, double servicedProportion, double minimumCases, SearchSpace searchParameters, int taskCount, ExecutorService executor) {
+    public SiteConfigurationForPermanentCenters tryRemoveSite(int level, double servicedProportion, double minimumCases, SearchSpace searchParameters, Random random, int taskCount, ExecutorService executor) {
         //Remove site
         List<Integer> newSites = new ArrayList<>(sites);
-        Random random = new Random();
         int removalPosition = searchParameters.getPermanentCentersCountByLevel()[level] + random.nextInt(newSites.size() - searchParameters.getPermanentCentersCountByLevel()[level]);
         newSites.remove(removalPosition);
 
@@ -85,40 +81,26 @@ public class SiteConfigurationForPermanentCenters {
             return new CostMapAndPositions(new CasesAndCostMap(), new int[originCount]); //No sites
         }
 
-        CountDownLatch latch = new CountDownLatch(taskCount);
         int[] minimumCostPositionsByOrigin = new int[originCount];
-        CasesAndCostMap[] partitionedMinimumCostMap = new CasesAndCostMap[taskCount];
-        for (int i = 0; i < taskCount; i++) {
-            int finalI = i;
-            executor.execute(() -> {
-                CasesAndCostMap partitionMinimumCostMap = new CasesAndCostMap(timepointCount, siteCount);
-                for (int j = startingOrigins[finalI]; j < endingOrigins[finalI]; j++) {
-                    int minimumCostPosition = -1;
-                    double minimumCostUnadjusted = Double.POSITIVE_INFINITY; //Closest center travel cost, not adjusted for population or cancer center scaling
-                    for (int k = permanentCentersCount; k < siteCount; ++k) {
-                        double currentCostUnadjusted = graphArray.getEdgeLength(j, sites.get(k));
-                        if (currentCostUnadjusted < minimumCostUnadjusted) {
-                            minimumCostPosition = k;
-                            minimumCostUnadjusted = currentCostUnadjusted;
-                        }
-                    }
-                    if (minPermanentCostByOrigin[j] < minimumCostUnadjusted) {
-                        minimumCostPosition = minPermanentPositionByOrigin[j];
-                        minimumCostUnadjusted = minPermanentCostByOrigin[j];
+        CasesAndCostMap combinedMinimumCostMap = MultithreadingUtils.evaluateOriginRanges((startingOrigin, endingOrigin, partitionMinimumCostMap) -> {
+            for (int j = startingOrigin; j < endingOrigin; j++) {
+                int minimumCostPosition = -1;
+                double minimumCostUnadjusted = Double.POSITIVE_INFINITY; //Closest center travel cost, not adjusted for population or cancer center scaling
+                for (int k = permanentCentersCount; k < siteCount; ++k) {
+                    double currentCostUnadjusted = graphArray.getEdgeLength(j, sites.get(k));
+                    if (currentCostUnadjusted < minimumCostUnadjusted) {
+                        minimumCostPosition = k;
+                        minimumCostUnadjusted = currentCostUnadjusted;
                     }
-                    minimumCostPositionsByOrigin[j] = minimumCostPosition;
-                    partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
                 }
-                partitionedMinimumCostMap[finalI] = partitionMinimumCostMap;
-                latch.countDown();
-            });
-        }
-        try {
-            latch.await();
-        } catch (InterruptedException e){
-            throw new AssertionError("Unexpected interruption", e);
-        }
-        CasesAndCostMap combinedMinimumCostMap = new CasesAndCostMap(partitionedMinimumCostMap, timepointCount, siteCount, taskCount);
+                if (minPermanentCostByOrigin[j] < minimumCostUnadjusted) {
+                    minimumCostPosition = minPermanentPositionByOrigin[j];
+                    minimumCostUnadjusted = minPermanentCostByOrigin[j];
+                }
+                minimumCostPositionsByOrigin[j] = minimumCostPosition;
+                partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
+            }
+        }, timepointCount, siteCount, taskCount, startingOrigins, endingOrigins, executor);
         return new CostMapAndPositions(combinedMinimumCostMap, minimumCostPositionsByOrigin);
         //return new ConfigurationCostAndPositions(CostCalculator.computeCost(combinedMinimumCostMap, minimumCasesByLevel[level]), minimumCostPositionsByOrigin);
     }
@@ -128,59 +110,53 @@ public class SiteConfigurationForPermanentCenters {
                                              int permanentCentersCount, int[] minPermanentPositionOrigin, double[] minPermanentCostAndOrigin,
                                              int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
                                              int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor) {
+        return shiftSiteCost(sites, movedPosition, newSite, oldMinimumCostPositionByOrigin, permanentCentersCount, minPermanentPositionOrigin, minPermanentCostAndOrigin, timepointCount, originCount, caseCountByOrigin, graphArray, taskCount, startingOrigins, endingOrigins, executor, null);
+    }
+
+    //Variant drawing positions and maps from bufferPool if not null
+    public static CostMapAndPositions shiftSiteCost(List<Integer> sites, int movedPosition, Integer newSite, int[] oldMinimumCostPositionByOrigin,
+                                             int permanentCentersCount, int[] minPermanentPositionOrigin, double[] minPermanentCostAndOrigin,
+                                             int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
+                                             int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor, CostBufferPool bufferPool) {
         int siteCount = sites.size();
         if (siteCount == 0) {
             return new CostMapAndPositions(new CasesAndCostMap(), new int[originCount]);
         }
 
-        CountDownLatch latch = new CountDownLatch(taskCount);
-        int[] minimumCostPositionsByOrigin = new int[originCount];
-        CasesAndCostMap[] partitionedMinimumCostMap = new CasesAndCostMap[taskCount];
-        for (int i = 0; i < taskCount; i++) {
-            int finalI = i;
-            executor.execute(() -> {
-                CasesAndCostMap partitionMinimumCostMap = new CasesAndCostMap(timepointCount, siteCount);
-                for (int j = startingOrigins[finalI]; j < endingOrigins[finalI]; j++) {
-                    int minimumCostPosition = -1;
-                    double minimumCostUnadjusted;
-                    int oldMinimumCostPosition = oldMinimumCostPositionByOrigin[j];
-                    if (movedPosition == oldMinimumCostPosition) {
-                        minimumCostUnadjusted = Double.POSITIVE_INFINITY; //Closest center travel cost, not adjusted for population or cancer center scaling
-                        for (int k = permanentCentersCount; k < siteCount; ++k) {
-                            double currentCostUnadjusted = graphArray.getEdgeLength(j, sites.get(k));
-                            if (currentCostUnadjusted < minimumCostUnadjusted) {
-                                minimumCostPosition = k;
-                                minimumCostUnadjusted = currentCostUnadjusted;
-                            }
-                        }
-                        if (minPermanentCostAndOrigin[j] < minimumCostUnadjusted) {
-                            minimumCostPosition = minPermanentPositionOrigin[j];
-                            minimumCostUnadjusted = minPermanentCostAndOrigin[j];
+        int[] minimumCostPositionsByOrigin = bufferPool == null ? new int[originCount] : bufferPool.borrowPositions(originCount);
+        CasesAndCostMap combinedMinimumCostMap = MultithreadingUtils.evaluateOriginRanges((startingOrigin, endingOrigin, partitionMinimumCostMap) -> {
+            for (int j = startingOrigin; j < endingOrigin; j++) {
+                int minimumCostPosition = -1;
+                double minimumCostUnadjusted;
+                int oldMinimumCostPosition = oldMinimumCostPositionByOrigin[j];
+                if (movedPosition == oldMinimumCostPosition) {
+                    minimumCostUnadjusted = Double.POSITIVE_INFINITY; //Closest center travel cost, not adjusted for population or cancer center scaling
+                    for (int k = permanentCentersCount; k < siteCount; ++k) {
+                        double currentCostUnadjusted = graphArray.getEdgeLength(j, sites.get(k));
+                        if (currentCostUnadjusted < minimumCostUnadjusted) {
+                            minimumCostPosition = k;
+                            minimumCostUnadjusted = currentCostUnadjusted;
                         }
+                    }
+                    if (minPermanentCostAndOrigin[j] < minimumCostUnadjusted) {
+                        minimumCostPosition = minPermanentPositionOrigin[j];
+                        minimumCostUnadjusted = minPermanentCostAndOrigin[j];
+                    }
+                } else {
+                    double oldMinimumCost = graphArray.getEdgeLength(j, sites.get(oldMinimumCostPosition));
+                    double newPositionCost = graphArray.getEdgeLengthFromSite(newSite, j);
+                    if (newPositionCost < oldMinimumCost) {
+                        minimumCostPosition = movedPosition;
+                        minimumCostUnadjusted = newPositionCost;
                     } else {
-                        double oldMinimumCost = graphArray.getEdgeLength(j, sites.get(oldMinimumCostPosition));
-                        double newPositionCost = graphArray.getEdgeLength(j, newSite);
-                        if (newPositionCost < oldMinimumCost) {
-                            minimumCostPosition = movedPosition;
-                            minimumCostUnadjusted = newPositionCost;
-                        } else {
-                            minimumCostPosition = oldMinimumCostPosition;
-                            minimumCostUnadjusted = oldMinimumCost;
-                        }
+                        minimumCostPosition = oldMinimumCostPosition;
+                        minimumCostUnadjusted = oldMinimumCost;
                     }
-                    minimumCostPositionsByOrigin[j] = minimumCostPosition;
-                    partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
                 }
-                partitionedMinimumCostMap[finalI] = partitionMinimumCostMap;
-                latch.countDown();
-            });
-        }
-        try {
-            latch.await();
-        } catch (InterruptedException e){
-            throw new AssertionError("Unexpected interruption", e);
-        }
-        CasesAndCostMap combinedMinimumCostMap = new CasesAndCostMap(partitionedMinimumCostMap, timepointCount, siteCount, taskCount);
+                minimumCostPositionsByOrigin[j] = minimumCostPosition;
+                partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
+            }
+        }, timepointCount, siteCount, taskCount, startingOrigins, endingOrigins, executor, bufferPool);
         return new CostMapAndPositions(combinedMinimumCostMap, minimumCostPositionsByOrigin);
         //return new ConfigurationCostAndPositions(CostCalculator.computeCost(combinedMinimumCostMap, minimumCasesByLevel[level]), minimumCostPositionsByOrigin);
     }
@@ -189,47 +165,40 @@ public class SiteConfigurationForPermanentCenters {
     public static CostMapAndPositions addSiteCost(List<Integer> sites, int[] oldMinimumCostPositionByOrigin,
                                            int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
                                            int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor) {
+        return addSiteCost(sites, oldMinimumCostPositionByOrigin, timepointCount, originCount, caseCountByOrigin, graphArray, taskCount, startingOrigins, endingOrigins, executor, null);
+    }
+
+    //Variant drawing positions and maps from bufferPool if not null
+    public static CostMapAndPositions addSiteCost(List<Integer> sites, int[] oldMinimumCostPositionByOrigin,
+                                           int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
+                                           int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor, CostBufferPool bufferPool) {
         int siteCount = sites.size();
         int newPosition = siteCount - 1;
         Integer newSite = sites.get(newPosition);
         //If there were originally no sites
         if (siteCount == 1) {
-            return SiteConfiguration.initialCost(sites, timepointCount, originCount, caseCountByOrigin, graphArray, taskCount, startingOrigins, endingOrigins, executor);
+            return SiteConfiguration.initialCost(sites, timepointCount, originCount, caseCountByOrigin, graphArray, taskCount, startingOrigins, endingOrigins, executor, bufferPool);
         }
         //If there were some sites
-        CountDownLatch latch = new CountDownLatch(taskCount);
-        int[] minimumCostPositionsByOrigin = new int[originCount];
-        CasesAndCostMap[] partitionedMinimumCostMap = new CasesAndCostMap[taskCount];
-        for (int i = 0; i < taskCount; i++) {
-            int finalI = i;
-            executor.execute(() -> {
-                CasesAndCostMap partitionMinimumCostMap = new CasesAndCostMap(timepointCount, siteCount);
-                for (int j = startingOrigins[finalI]; j < endingOrigins[finalI]; j++) {
-                    int minimumCostPosition;
-                    double minimumCostUnadjusted; //Closest center travel cost, not adjusted for population or cancer center scaling
-                    int oldMinimumCostPosition = oldMinimumCostPositionByOrigin[j];
-                    double oldMinimumCost = graphArray.getEdgeLength(j, sites.get(oldMinimumCostPosition));
-                    double newPositionCost = graphArray.getEdgeLength(j, newSite);
-                    if (newPositionCost < oldMinimumCost) {
-                        minimumCostPosition = newPosition;
-                        minimumCostUnadjusted = newPositionCost;
-                    } else {
-                        minimumCostPosition = oldMinimumCostPosition;
-                        minimumCostUnadjusted = oldMinimumCost;
-                    }
-                    minimumCostPositionsByOrigin[j] = minimumCostPosition;
-                    partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
+        int[] minimumCostPositionsByOrigin = bufferPool == null ? new int[originCount] : bufferPool.borrowPositions(originCount);
+        CasesAndCostMap combinedMinimumCostMap = MultithreadingUtils.evaluateOriginRanges((startingOrigin, endingOrigin, partitionMinimumCostMap) -> {
+            for (int j = startingOrigin; j < endingOrigin; j++) {
+                int minimumCostPosition;
+                double minimumCostUnadjusted; //Closest center travel cost, not adjusted for population or cancer center scaling
+                int oldMinimumCostPosition = oldMinimumCostPositionByOrigin[j];
+                double oldMinimumCost = graphArray.getEdgeLength(j, sites.get(oldMinimumCostPosition));
+                double newPositionCost = graphArray.getEdgeLengthFromSite(newSite, j);
+                if (newPositionCost < oldMinimumCost) {
+                    minimumCostPosition = newPosition;
+                    minimumCostUnadjusted = newPositionCost;
+                } else {
+                    minimumCostPosition = oldMinimumCostPosition;
+                    minimumCostUnadjusted = oldMinimumCost;
                 }
-                partitionedMinimumCostMap[finalI] = partitionMinimumCostMap;
-                latch.countDown();
-            });
-        }
-        try {
-            latch.await();
-        } catch (InterruptedException e){
-            throw new AssertionError("Unexpected interruption", e);
-        }
-        CasesAndCostMap combinedMinimumCostMap = new CasesAndCostMap(partitionedMinimumCostMap, timepointCount, siteCount, taskCount);
+                minimumCostPositionsByOrigin[j] = minimumCostPosition;
+                partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
+            }
+        }, timepointCount, siteCount, taskCount, startingOrigins, endingOrigins, executor, bufferPool);
         return new CostMapAndPositions(combinedMinimumCostMap, minimumCostPositionsByOrigin);
         //return new ConfigurationCostAndPositions(CostCalculator.computeCost(combinedMinimumCostMap, minimumCasesByLevel[level]), minimumCostPositionsByOrigin);
     }
@@ -239,56 +208,50 @@ public class SiteConfigurationForPermanentCenters {
                                               int permanentCentersCount, int[] minPermanentPositionByOrigin, double[] minPermanentCostByOrigin,
                                               int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
                                               int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor) {
+        return removeSiteCost(sites, removedPosition, oldMinimumCostPositionByOrigin, permanentCentersCount, minPermanentPositionByOrigin, minPermanentCostByOrigin, timepointCount, originCount, caseCountByOrigin, graphArray, taskCount, startingOrigins, endingOrigins, executor, null);
+    }
+
+    //Variant drawing positions and maps from bufferPool if not null
+    public static CostMapAndPositions removeSiteCost(List<Integer> sites, int removedPosition, int[] oldMinimumCostPositionByOrigin,
+                                              int permanentCentersCount, int[] minPermanentPositionByOrigin, double[] minPermanentCostByOrigin,
+                                              int timepointCount, int originCount, CaseCounts caseCountByOrigin, Graph graphArray,
+                                              int taskCount, int[] startingOrigins, int[] endingOrigins, ExecutorService executor, CostBufferPool bufferPool) {
         int siteCount = sites.size();
         if (siteCount == 0) {
             return new CostMapAndPositions(new CasesAndCostMap(), new int[originCount]);
         }
 
-        CountDownLatch latch = new CountDownLatch(taskCount);
-        int[] minimumCostPositionsByOrigin = new int[originCount];
-        CasesAndCostMap[] partitionedMinimumCostMap = new CasesAndCostMap[taskCount];
-        for (int i = 0; i < taskCount; i++) {
-            int finalI = i;
-            executor.execute(() -> {
-                CasesAndCostMap partitionMinimumCostMap = new CasesAndCostMap(timepointCount, siteCount);
-                for (int j = startingOrigins[finalI]; j < endingOrigins[finalI]; j++) {
-                    int minimumCostPosition = 0;
-                    double minimumCostUnadjusted;
-                    int oldMinimumCostPosition = oldMinimumCostPositionByOrigin[j];
-                    if (removedPosition == oldMinimumCostPosition) {
-                        minimumCostUnadjusted = graphArray.getEdgeLength(j, sites.get(0)); //Closest center travel cost, not adjusted for population or cancer center scaling
-                        for (int k = permanentCentersCount; k < siteCount; ++k) {
-                            double currentCostUnadjusted = graphArray.getEdgeLength(j, sites.get(k));
-                            if (currentCostUnadjusted < minimumCostUnadjusted) {
-                                minimumCostPosition = k;
-                                minimumCostUnadjusted = currentCostUnadjusted;
-                            }
-                        }
-                        if (minPermanentCostByOrigin[j] < minimumCostUnadjusted) {
-                            minimumCostPosition = minPermanentPositionByOrigin[j];
-                            minimumCostUnadjusted = minPermanentCostByOrigin[j];
+        int[] minimumCostPositionsByOrigin = bufferPool == null ? new int[originCount] : bufferPool.borrowPositions(originCount);
+        CasesAndCostMap combinedMinimumCostMap = MultithreadingUtils.evaluateOriginRanges((startingOrigin, endingOrigin, partitionMinimumCostMap) -> {
+            for (int j = startingOrigin; j < endingOrigin; j++) {
+                int minimumCostPosition = 0;
+                double minimumCostUnadjusted;
+                int oldMinimumCostPosition = oldMinimumCostPositionByOrigin[j];
+                if (removedPosition == oldMinimumCostPosition) {
+                    minimumCostUnadjusted = graphArray.getEdgeLength(j, sites.get(0)); //Closest center travel cost, not adjusted for population or cancer center scaling
+                    for (int k = permanentCentersCount; k < siteCount; ++k) {
+                        double currentCostUnadjusted = graphArray.getEdgeLength(j, sites.get(k));
+                        if (currentCostUnadjusted < minimumCostUnadjusted) {
+                            minimumCostPosition = k;
+                            minimumCostUnadjusted = currentCostUnadjusted;
                         }
+                    }
+                    if (minPermanentCostByOrigin[j] < minimumCostUnadjusted) {
+                        minimumCostPosition = minPermanentPositionByOrigin[j];
+                        minimumCostUnadjusted = minPermanentCostByOrigin[j];
+                    }
+                } else {
+                    if (removedPosition < oldMinimumCostPosition) {
+                        minimumCostPosition = oldMinimumCostPosition - 1;
                     } else {
-                        if (removedPosition < oldMinimumCostPosition) {
-                            minimumCostPosition = oldMinimumCostPosition - 1;
-                        } else {
-                            minimumCostPosition = oldMinimumCostPosition;
-                        }
-                        minimumCostUnadjusted = graphArray.getEdgeLength(j, sites.get(minimumCostPosition));
+                        minimumCostPosition = oldMinimumCostPosition;
                     }
-                    minimumCostPositionsByOrigin[j] = minimumCostPosition;
-                    partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
+                    minimumCostUnadjusted = graphArray.getEdgeLength(j, sites.get(minimumCostPosition));
                 }
-                partitionedMinimumCostMap[finalI] = partitionMinimumCostMap;
-                latch.countDown();
-            });
-        }
-        try {
-            latch.await();
-        } catch (InterruptedException e){
-            throw new AssertionError("Unexpected interruption", e);
-        }
-        CasesAndCostMap combinedMinimumCostMap = new CasesAndCostMap(partitionedMinimumCostMap, timepointCount, siteCount, taskCount);
+                minimumCostPositionsByOrigin[j] = minimumCostPosition;
+                partitionMinimumCostMap.updateCasesAndCost(minimumCostPosition, minimumCostUnadjusted, j, caseCountByOrigin);
+            }
+        }, timepointCount, siteCount, taskCount, startingOrigins, endingOrigins, executor, bufferPool);
         return new CostMapAndPositions(combinedMinimumCostMap, minimumCostPositionsByOrigin);
         //return new ConfigurationCostAndPositions(CostCalculator.computeCost(combinedMinimumCostMap, minimumCasesByLevel[level]), minimumCostPositionsByOrigin);
     }
@@ -15,6 +15,9 @@ public class SiteOptimizer {
     //Exhaustive (brute force) or Heuristic (sim annealing)
     private static String searchStrategy = "Heuristic";
 
+    //Simulated annealing instance shared by heuristic searches on each number of centers
+    static SimAnnealingWithoutPermanentCenters simAnnealer;
+
     //Number of threads to be used
     private static Integer threadCount = 3;
 
@@ -45,6 +48,12 @@ public class SiteOptimizer {
     static Integer finalNeighborhoodSize = -1;
     static Integer finalNeighborhoodSizeIteration = 20000;
 
+    //Number of azimuth classes for neighborhoods of sites
+    static int azimuthClassCount = 6;
+
+    //Number of tasks per cost computation
+    static int taskCount = 6;
+
     //Generate arrays. Ultimately, this can be done in a constructor for SiteOptimizer class.
     static List<List<String>> censusArray = parseCSV(censusFileLocation);
     static List<List<String>> graphArray = parseCSV(graphLocation);
@@ -73,9 +82,14 @@ public class SiteOptimizer {
         } else if (searchStrategy == "Heuristic") {
             //new SimAnnealingShrinkingSearch(minimumCases, initialTemp, finalTemp, finalNeighborhoodSize, finalNeighborhoodSizeIteration, coolingRate, censusArray, graphArray, azimuthArray, haversineArray);
             DevelopmentUtils.setUpdateFrequency(updateFrequency); //development only
+            //Single level search with all cases serviced by new centers
+            simAnnealer = new SimAnnealingWithoutPermanentCenters(censusFileLocation, graphLocation, azimuthLocation, haversineLocation,
+                    new double[]{minimumCases}, new double[]{1}, new int[]{minNewCenters}, new int[]{maxNewCenters}, new ArrayList<>(),
+                    initialTemp, finalTemp, coolingRate, azimuthClassCount, finalNeighborhoodSize, finalNeighborhoodSizeIteration, taskCount, threadCount);
             List<Object> sol = simAnnealingOptimizeCenters(minNewCenters, maxNewCenters); //lower/upper bounds in number of centers to test
             minimumCost = (double) sol.get(0);
             minimumPositions = (List<Integer>) sol.get(1);
+            simAnnealer.getExecutor().shutdown();
         }
         System.out.println("Minimum cost " + minimumCost + " at positions " + minimumPositions);
     }
@@ -150,7 +164,7 @@ public class SiteOptimizer {
                 try {
                     //Optimize for i centers. Add optimal i positions and its cost to minimumMap.
                     System.out.println("Starting optimization with " + finalI + " center(s).");
-                    SiteConfiguration solutionWithNCenters = SimAnnealingWithoutPermanentCenters.optimizeNCenters(finalI, 6);
+                    SiteConfiguration solutionWithNCenters = simAnnealer.optimizeNCenters(finalI, taskCount);
                     double minimumCost = solutionWithNCenters.getCost();
                     List<Integer> minimumPositions = solutionWithNCenters.getSites();
                     minimumMap.put(minimumPositions, minimumCost);
@@ -213,7 +227,7 @@ public class SiteOptimizer {
                 try {
                     //Optimize for i centers. Add optimal i positions and its cost to minimumMap.
                     System.out.println("Starting optimization with " + finalI + " center(s).");
-                    SiteConfiguration solutionWithNCenters = SimAnnealingWithoutPermanentCenters.optimizeNCenters(finalI, 6);
+                    SiteConfiguration solutionWithNCenters = simAnnealer.optimizeNCenters(finalI, taskCount);
                     double minimumCost = solutionWithNCenters.getCost();
                     List<Integer> minimumPositions = solutionWithNCenters.getSites();
                     System.out.println("Done optimizing with " + finalI + " center(s). Minimum cost " + minimumCost + " at " + minimumPositions + ".");
@@ -275,7 +289,7 @@ public class SiteOptimizer {
                 try {
                     //Optimize for i centers. Add optimal i positions and its cost to minimumMap.
                     System.out.println("Starting optimization with " + finalI + " center(s).");
-                    SiteConfiguration solutionWithNCenters = SimAnnealingWithoutPermanentCenters.optimizeNCenters(finalI, 6);
+                    SiteConfiguration solutionWithNCenters = simAnnealer.optimizeNCenters(finalI, taskCount);
                     double minimumCost = solutionWithNCenters.getCost();
                     List<Integer> minimumPositions = solutionWithNCenters.getSites();
                     minimumMap.put(minimumPositions, minimumCost);
@@ -0,0 +1,84 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Reusable lists and arrays for sites arrays updated by shiftSitesArray, so that evaluating shifts with level relations does not allocate once lists have grown.
+//The result refers to these buffers and is only valid until their next use.
+public class SitesArrayBuffers {
+    private final List<List<Integer>> updatedSitesArray;
+    private final List<List<Integer>> sitesBufferByLevel;
+    private final boolean[] updateHistory;
+    private final int[] updatedPositions;
+    private final boolean[] sublevelProcessedHistory;
+    private final boolean[] superlevelProcessedHistory;
+    private final List<Integer> higherOrderSublevelsToProcess = new ArrayList<>();
+    private final List<Integer> higherOrderSuperlevelsToProcess = new ArrayList<>();
+    private final SitesAndUpdateHistory result;
+
+    public SitesArrayBuffers(int totalLevels) {
+        updatedSitesArray = new ArrayList<>(totalLevels);
+        sitesBufferByLevel = new ArrayList<>(totalLevels);
+        for (int level = 0; level < totalLevels; level++) {
+            sitesBufferByLevel.add(new ArrayList<>());
+        }
+        updateHistory = new boolean[totalLevels];
+        updatedPositions = new int[totalLevels];
+        sublevelProcessedHistory = new boolean[totalLevels];
+        superlevelProcessedHistory = new boolean[totalLevels];
+        result = new SitesAndUpdateHistory(updatedSitesArray, updateHistory, updatedPositions);
+    }
+
+    //Clears buffers for an update of sitesArray, with updated sites array starting as sitesArray
+    public void reset(List<List<Integer>> sitesArray) {
+        updatedSitesArray.clear();
+        updatedSitesArray.addAll(sitesArray);
+        Arrays.fill(updateHistory, false);
+        Arrays.fill(updatedPositions, -1);
+        Arrays.fill(sublevelProcessedHistory, false);
+        Arrays.fill(superlevelProcessedHistory, false);
+        higherOrderSublevelsToProcess.clear();
+        higherOrderSuperlevelsToProcess.clear();
+    }
+
+    //Copy of sites in the buffer of level. Sites already in the buffer, as for a level processed twice, are returned as they are.
+    public List<Integer> copySites(int level, List<Integer> sites) {
+        List<Integer> buffer = sitesBufferByLevel.get(level);
+        if (sites != buffer) {
+            buffer.clear();
+            buffer.addAll(sites);
+        }
+        return buffer;
+    }
+
+    public List<List<Integer>> getUpdatedSitesArray() {
+        return updatedSitesArray;
+    }
+
+    public boolean[] getUpdateHistory() {
+        return updateHistory;
+    }
+
+    public int[] getUpdatedPositions() {
+        return updatedPositions;
+    }
+
+    public boolean[] getSublevelProcessedHistory() {
+        return sublevelProcessedHistory;
+    }
+
+    public boolean[] getSuperlevelProcessedHistory() {
+        return superlevelProcessedHistory;
+    }
+
+    public List<Integer> getHigherOrderSublevelsToProcess() {
+        return higherOrderSublevelsToProcess;
+    }
+
+    public List<Integer> getHigherOrderSuperlevelsToProcess() {
+        return higherOrderSuperlevelsToProcess;
+    }
+
+    public SitesAndUpdateHistory getResult() {
+        return result;
+    }
+}
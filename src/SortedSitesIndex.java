@@ -0,0 +1,188 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+//For each origin, the depth closest sites sorted by (travel cost, site). Used to find the next closest open site without scanning every position.
+public class SortedSitesIndex {
+    private final int[] sortedSites; //origin * depth + rank -> site
+    private final int depth;
+    private int[] originOffsetsBySite; //inverse index, origins of site are originsBySite[originOffsetsBySite[site]] to originsBySite[originOffsetsBySite[site + 1]]
+    private int[] originsBySite;
+
+    public SortedSitesIndex(Graph graphArray, int depth, int taskCount, ExecutorService executor) {
+        System.out.println("Generating sorted sites index of depth " + depth + ".");
+        int originCount = graphArray.getOriginCount();
+        int totalSitesCount = graphArray.getTotalSitesCount();
+        this.depth = Math.min(depth, totalSitesCount);
+        this.sortedSites = new int[originCount * this.depth];
+        int[] startingOrigins = MultithreadingUtils.getTaskSpecificStartingOrigins(originCount, taskCount);
+        int[] endingOrigins = MultithreadingUtils.getTaskSpecificEndingOrigins(originCount, taskCount);
+        List<Runnable> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            int finalI = i;
+            tasks.add(() -> {
+                double[] costsBySite = new double[totalSitesCount];
+                double[] heapCosts = new double[this.depth];
+                int[] heapSites = new int[this.depth];
+                for (int j = startingOrigins[finalI]; j < endingOrigins[finalI]; j++) {
+                    for (int site = 0; site < totalSitesCount; site++) {
+                        costsBySite[site] = graphArray.getEdgeLength(j, site);
+                    }
+                    selectClosestSites(costsBySite, this.depth, heapCosts, heapSites, sortedSites, j * this.depth);
+                }
+            });
+        }
+        MultithreadingUtils.runAll(tasks, executor);
+        System.out.println("Done generating sorted sites index.");
+    }
+
+    //From precomputed (origin, rank) -> site, used by graphs that already know their closest sites
+    SortedSitesIndex(int[] sortedSites, int depth) {
+        this.sortedSites = sortedSites;
+        this.depth = depth;
+    }
+
+    //Writes the depth closest sites by (cost, site) into output starting at offset, closest first. Heap arrays are scratch space of length depth.
+    static void selectClosestSites(double[] costsBySite, int depth, double[] heapCosts, int[] heapSites, int[] output, int offset) {
+        int heapSize = 0;
+        for (int site = 0; site < costsBySite.length; site++) {
+            double cost = costsBySite[site];
+            if (heapSize < depth) {
+                heapSize += 1;
+                siftUp(heapCosts, heapSites, heapSize - 1, cost, site);
+            } else if (isCloser(cost, site, heapCosts[0], heapSites[0])) {
+                siftDown(heapCosts, heapSites, heapSize, cost, site);
+            }
+        }
+        //Pop max-heap from the back so that closest site is first
+        for (int rank = heapSize - 1; rank >= 0; rank--) {
+            output[offset + rank] = heapSites[0];
+            siftDown(heapCosts, heapSites, rank, heapCosts[rank], heapSites[rank]);
+        }
+    }
+
+    //Position in sites of closest site that is in openSites, with positions of open sites given by positionBySite and ties going to the lowest position as in a full scan.
+    //Returns -1 if it cannot be determined from the index.
+    public int findClosestPosition(int origin, long[] openSites, int[] positionBySite, Graph graphArray) {
+        int offset = origin * depth;
+        int closestPosition = -1;
+        double closestCost = Double.POSITIVE_INFINITY;
+        for (int rank = 0; rank < depth; rank++) {
+            int site = sortedSites[offset + rank];
+            if ((openSites[site >>> 6] & (1L << site)) == 0) continue;
+            double cost = graphArray.getEdgeLength(origin, site);
+            if (closestPosition == -1) {
+                closestPosition = positionBySite[site];
+                closestCost = cost;
+            } else if (cost == closestCost) {
+                closestPosition = Math.min(closestPosition, positionBySite[site]);
+            } else {
+                return closestPosition;
+            }
+        }
+        //Ties may continue past the end of the index
+        if (closestPosition != -1 && graphArray.getEdgeLength(origin, sortedSites[offset + depth - 1]) > closestCost) {
+            return closestPosition;
+        }
+        return -1;
+    }
+
+    //Builds inverse index of origins that have each site among their depth closest sites, if not already built
+    public synchronized void createInverse(int totalSitesCount) {
+        if (originsBySite != null) return;
+        int[] offsets = new int[totalSitesCount + 1];
+        for (int site : sortedSites) {
+            offsets[site + 1] += 1;
+        }
+        for (int site = 0; site < totalSitesCount; site++) {
+            offsets[site + 1] += offsets[site];
+        }
+        int[] origins = new int[sortedSites.length];
+        int[] nextSlots = Arrays.copyOf(offsets, totalSitesCount);
+        for (int i = 0; i < sortedSites.length; i++) {
+            int site = sortedSites[i];
+            origins[nextSlots[site]] = i / depth; //origins are in increasing order within each site
+            nextSlots[site] += 1;
+        }
+        originsBySite = origins;
+        originOffsetsBySite = offsets;
+    }
+
+    //Travel cost of furthest indexed site. Any site not in the index is at least this far from origin.
+    public double getLastIndexedCost(int origin, Graph graphArray) {
+        return graphArray.getEdgeLength(origin, sortedSites[origin * depth + depth - 1]);
+    }
+
+    //Bitset of sites currently in use
+    public static long[] createOpenSitesBitset(List<Integer> sites, int totalSitesCount) {
+        long[] openSites = new long[(totalSitesCount + 63) >>> 6];
+        for (int site : sites) {
+            openSites[site >>> 6] |= 1L << site;
+        }
+        return openSites;
+    }
+
+    //Position in sites by site for findClosestPosition, only defined for sites in sites
+    public static int[] createPositionBySite(List<Integer> sites, int totalSitesCount) {
+        int[] positionBySite = new int[totalSitesCount];
+        for (int position = 0; position < sites.size(); position++) {
+            positionBySite[sites.get(position)] = position;
+        }
+        return positionBySite;
+    }
+
+    //Site of given rank among closest sites of origin, closest first
+    public int getSite(int origin, int rank) {
+        return sortedSites[origin * depth + rank];
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public synchronized int[] getOriginOffsetsBySite() {
+        return originOffsetsBySite;
+    }
+
+    public synchronized int[] getOriginsBySite() {
+        return originsBySite;
+    }
+
+    static boolean isCloser(double cost, int site, double otherCost, int otherSite) {
+        return cost < otherCost || (cost == otherCost && site < otherSite);
+    }
+
+    //Max-heap on (cost, site) insertion
+    private static void siftUp(double[] heapCosts, int[] heapSites, int index, double cost, int site) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isCloser(heapCosts[parent], heapSites[parent], cost, site)) break;
+            heapCosts[index] = heapCosts[parent];
+            heapSites[index] = heapSites[parent];
+            index = parent;
+        }
+        heapCosts[index] = cost;
+        heapSites[index] = site;
+    }
+
+    //Replaces root of max-heap of size heapSize with (cost, site)
+    private static void siftDown(double[] heapCosts, int[] heapSites, int heapSize, double cost, int site) {
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && isCloser(heapCosts[child], heapSites[child], heapCosts[child + 1], heapSites[child + 1])) {
+                child += 1;
+            }
+            if (!isCloser(cost, site, heapCosts[child], heapSites[child])) break;
+            heapCosts[index] = heapCosts[child];
+            heapSites[index] = heapSites[child];
+            index = child;
+        }
+        if (heapSize > 0) {
+            heapCosts[index] = cost;
+            heapSites[index] = site;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+//Graph keeping only the neighborCount closest sites of each origin in compressed sparse row form. Memory grows as originCount * neighborCount rather than originCount * totalSitesCount.
+//Travel to any site outside an origin's list costs fallbackCost, which must be finite and at least the largest kept travel cost. A negative fallbackCost uses twice the largest kept travel cost.
+public class SparseGraph extends Graph {
+    private final int neighborCount;
+    private final double fallbackCost;
+    private final int[] rowStarts; //origin -> first entry, entries of origin are [rowStarts[origin], rowStarts[origin + 1])
+    private final int[] entrySites; //ascending by site within each origin for binary search
+    private final double[] entryCosts;
+    private final int[] closestSites; //origin * neighborCount + rank -> site, ascending by (cost, site)
+
+    //Truncates an existing graph, e.g. a mapped graph, one origin at a time
+    public SparseGraph(Graph sourceGraph, int neighborCount, double fallbackCost, int taskCount, ExecutorService executor) {
+        this(truncateGraph(sourceGraph, neighborCount, taskCount, executor), sourceGraph.getTotalSitesCount(), fallbackCost);
+    }
+
+    //Truncates graph CSV while parsing so that no dense row is kept
+    public static SparseGraph fromCSV(String graphLocation, int neighborCount, double fallbackCost, int taskCount, ExecutorService executor) {
+        int totalSitesCount = FileUtils.getSitesCount(graphLocation);
+        List<ClosestSites> closestSitesByOrigin = FileUtils.reduceRowsOfCSV(graphLocation, false, row -> selectClosestSites(row, neighborCount), taskCount, executor);
+        return new SparseGraph(closestSitesByOrigin, totalSitesCount, fallbackCost);
+    }
+
+    private SparseGraph(List<ClosestSites> closestSitesByOrigin, int totalSitesCount, double fallbackCost) {
+        super(closestSitesByOrigin.size(), totalSitesCount);
+        this.neighborCount = closestSitesByOrigin.get(0).getSites().length;
+        this.rowStarts = new int[originCount + 1];
+        this.entrySites = new int[originCount * neighborCount];
+        this.entryCosts = new double[originCount * neighborCount];
+        this.closestSites = new int[originCount * neighborCount];
+        double maximumKeptCost = 0;
+        for (int origin = 0; origin < originCount; origin++) {
+            ClosestSites originClosestSites = closestSitesByOrigin.get(origin);
+            int offset = origin * neighborCount;
+            rowStarts[origin] = offset;
+            System.arraycopy(originClosestSites.getSites(), 0, closestSites, offset, neighborCount);
+
+            //Reorder by site for lookup
+            long[] siteAndRank = new long[neighborCount];
+            for (int rank = 0; rank < neighborCount; rank++) {
+                siteAndRank[rank] = ((long) originClosestSites.getSites()[rank] << 32) | rank;
+            }
+            Arrays.sort(siteAndRank);
+            for (int entry = 0; entry < neighborCount; entry++) {
+                int rank = (int) siteAndRank[entry];
+                entrySites[offset + entry] = originClosestSites.getSites()[rank];
+                entryCosts[offset + entry] = originClosestSites.getCosts()[rank];
+                maximumKeptCost = Math.max(maximumKeptCost, entryCosts[offset + entry]);
+            }
+        }
+        rowStarts[originCount] = originCount * neighborCount;
+        this.fallbackCost = fallbackCost < 0 ? 2 * maximumKeptCost : checkFallbackCost(fallbackCost, maximumKeptCost);
+        System.out.println("Stored sparse graph with " + neighborCount + " of " + totalSitesCount + " sites per origin and fallback cost " + this.fallbackCost + ".");
+    }
+
+    private static ClosestSites selectClosestSites(double[] costsBySite, int neighborCount) {
+        int depth = Math.min(neighborCount, costsBySite.length);
+        int[] sites = new int[depth];
+        SortedSitesIndex.selectClosestSites(costsBySite, depth, new double[depth], new int[depth], sites, 0);
+        double[] costs = new double[depth];
+        for (int rank = 0; rank < depth; rank++) {
+            costs[rank] = costsBySite[sites[rank]];
+        }
+        return new ClosestSites(sites, costs);
+    }
+
+    private static List<ClosestSites> truncateGraph(Graph sourceGraph, int neighborCount, int taskCount, ExecutorService executor) {
+        int originCount = sourceGraph.getOriginCount();
+        int totalSitesCount = sourceGraph.getTotalSitesCount();
+        ClosestSites[] closestSitesByOrigin = new ClosestSites[originCount];
+        int[] startingOrigins = MultithreadingUtils.getTaskSpecificStartingOrigins(originCount, taskCount);
+        int[] endingOrigins = MultithreadingUtils.getTaskSpecificEndingOrigins(originCount, taskCount);
+        CountDownLatch latch = new CountDownLatch(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            int finalI = i;
+            executor.execute(() -> {
+                double[] costsBySite = new double[totalSitesCount];
+                for (int j = startingOrigins[finalI]; j < endingOrigins[finalI]; j++) {
+                    for (int site = 0; site < totalSitesCount; site++) {
+                        costsBySite[site] = sourceGraph.getEdgeLength(j, site);
+                    }
+                    closestSitesByOrigin[j] = selectClosestSites(costsBySite, neighborCount);
+                }
+                latch.countDown();
+            });
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new AssertionError("Unexpected interruption", e);
+        }
+        return Arrays.asList(closestSitesByOrigin);
+    }
+
+    //Compute travel distance from origin to destination (site), fallbackCost if site is not among origin's closest sites
+    @Override
+    public double getEdgeLength(int origin, int destination) {
+        int entry = Arrays.binarySearch(entrySites, rowStarts[origin], rowStarts[origin + 1], destination);
+        return entry >= 0 ? entryCosts[entry] : fallbackCost;
+    }
+
+    //Site-major copy would be dense
+    @Override
+    public void createSiteMajorCopy() {
+        System.out.println("Site-major graph copy is not supported for sparse graphs, using sparse rows.");
+    }
+
+    //Closest sites are already known, so index is read from kept rows
+    @Override
+    public SortedSitesIndex createSortedSitesIndex(int depth, int taskCount, ExecutorService executor) {
+        int indexDepth = Math.min(depth, neighborCount);
+        int[] sortedSites = new int[originCount * indexDepth];
+        for (int origin = 0; origin < originCount; origin++) {
+            System.arraycopy(closestSites, origin * neighborCount, sortedSites, origin * indexDepth, indexDepth);
+        }
+        return new SortedSitesIndex(sortedSites, indexDepth);
+    }
+
+    //Infinite fallback makes cost differences of origins without a kept open site Inf - Inf, i.e. NaN
+    //A fallback cost below a kept cost would make a site outside an origin's list closer than sites in it, so that the sorted sites index built from the lists would no longer give closest sites
+    private static double checkFallbackCost(double fallbackCost, double maximumKeptCost) {
+        if (Double.isNaN(fallbackCost) || Double.isInfinite(fallbackCost)) {
+            throw new IllegalArgumentException("Sparse graph fallback cost must be finite but is " + fallbackCost + ".");
+        }
+        if (fallbackCost < maximumKeptCost) {
+            throw new IllegalArgumentException("Sparse graph fallback cost " + fallbackCost + " is below largest kept travel cost " + maximumKeptCost + ".");
+        }
+        return fallbackCost;
+    }
+
+    public int getNeighborCount() {
+        return neighborCount;
+    }
+
+    public double getFallbackCost() {
+        return fallbackCost;
+    }
+
+    private record ClosestSites(int[] sites, double[] costs) {
+        public int[] getSites() {
+            return sites;
+        }
+        public double[] getCosts() {
+            return costs;
+        }
+    }
+}
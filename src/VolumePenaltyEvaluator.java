@@ -0,0 +1,67 @@
+import java.util.function.DoubleUnaryOperator;
+
+//Volume penalty change of pending moves across the level assignments of a leveled configuration, from sites opened, closed or gaining or losing cases in any changed level.
+//Volume is summed over levels by site, so a site shared by levels couples their moves.
+public class VolumePenaltyEvaluator {
+    private final SiteAssignment[] assignmentByLevel;
+    private final DoubleUnaryOperator volumePenalty; //null for no volume penalty
+    private final int[] changedSites; //Scratch for sites whose volume changes, with isChangedSite marking them
+    private final boolean[] isChangedSite;
+    private double pendingChange; //Volume penalty change of last evaluation, until taken by commit
+
+    public VolumePenaltyEvaluator(SiteAssignment[] assignmentByLevel, int siteCount, DoubleUnaryOperator volumePenalty) {
+        this.assignmentByLevel = assignmentByLevel;
+        this.volumePenalty = volumePenalty;
+        this.changedSites = new int[siteCount];
+        this.isChangedSite = new boolean[siteCount];
+    }
+
+    //Volume penalty change if pending moves of changed levels are applied. Zero if there is no volume penalty.
+    public double evaluateChange(boolean[] isChangedByLevel, int timepointCount, double[] timepointWeights) {
+        pendingChange = 0;
+        if (volumePenalty == null) {
+            return 0;
+        }
+        int changedSiteCount = 0;
+        for (int level = 0; level < isChangedByLevel.length; level++) {
+            if (isChangedByLevel[level]) {
+                changedSiteCount = assignmentByLevel[level].collectChangedSites(changedSites, changedSiteCount, isChangedSite);
+            }
+        }
+        for (int i = 0; i < changedSiteCount; i++) {
+            int site = changedSites[i];
+            isChangedSite[site] = false;
+            pendingChange += computeSiteVolumePenalty(site, isChangedByLevel, timepointCount, timepointWeights) - computeSiteVolumePenalty(site, null, timepointCount, timepointWeights);
+        }
+        return pendingChange;
+    }
+
+    //Volume penalty change of last evaluation, which is then cleared
+    public double takePendingChange() {
+        double change = pendingChange;
+        pendingChange = 0;
+        return change;
+    }
+
+    //Volume penalty of site weighted over timepoints, with pending cases of levels marked in isPendingByLevel (none if null) and current cases of other levels. Zero if site is not open in any level.
+    private double computeSiteVolumePenalty(int site, boolean[] isPendingByLevel, int timepointCount, double[] timepointWeights) {
+        boolean isOpen = false;
+        for (int level = 0; level < assignmentByLevel.length; level++) {
+            boolean isPending = isPendingByLevel != null && isPendingByLevel[level];
+            isOpen = isOpen || (isPending ? assignmentByLevel[level].isPendingOpen(site) : assignmentByLevel[level].isOpen(site));
+        }
+        if (!isOpen) {
+            return 0;
+        }
+        double siteVolumePenalty = 0;
+        for (int timepoint = 0; timepoint < timepointCount; timepoint++) {
+            double allLevelCases = 0;
+            for (int level = 0; level < assignmentByLevel.length; level++) {
+                boolean isPending = isPendingByLevel != null && isPendingByLevel[level];
+                allLevelCases += isPending ? assignmentByLevel[level].getPendingSiteCases(site, timepoint) : assignmentByLevel[level].getSiteCases(site, timepoint);
+            }
+            siteVolumePenalty += volumePenalty.applyAsDouble(allLevelCases) * timepointWeights[timepoint];
+        }
+        return siteVolumePenalty;
+    }
+}
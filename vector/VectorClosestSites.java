@@ -0,0 +1,75 @@
+import java.util.Arrays;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+//Closest site kernels of Graph with the incubating Vector API, used when SearchSpaceOptions.useVectorKernel is set. Kept out of src so that the default build does not need the incubator module.
+//Compile against src with --add-modules jdk.incubator.vector, put on the class path and run with the same flag. Graph loads it by name on first use. Ties go to the lowest position as in the scalar kernels.
+public class VectorClosestSites implements ClosestSitesKernel {
+    private static final VectorSpecies<Double> COST_SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final DoubleVector LANE_OFFSETS = DoubleVector.zero(COST_SPECIES).addIndex(1);
+
+    public int getLaneCount() {
+        return COST_SPECIES.length();
+    }
+
+    //Gathers a lane of sites from the row starting at rowOffset per step. Positions are kept as doubles, which hold them exactly, so that minima and positions share one species.
+    public int findClosestPosition(double[] graphArray, int rowOffset, int[] sites) {
+        int laneCount = COST_SPECIES.length();
+        int vectorCount = sites.length - sites.length % laneCount;
+        DoubleVector minimumCosts = DoubleVector.broadcast(COST_SPECIES, Double.POSITIVE_INFINITY);
+        DoubleVector minimumPositions = LANE_OFFSETS;
+        for (int position = 0; position < vectorCount; position += laneCount) {
+            DoubleVector costs = DoubleVector.fromArray(COST_SPECIES, graphArray, rowOffset, sites, position);
+            VectorMask<Double> isCloser = costs.lt(minimumCosts); //strict, so each lane keeps its lowest position on ties
+            minimumCosts = minimumCosts.blend(costs, isCloser);
+            minimumPositions = minimumPositions.blend(LANE_OFFSETS.add(position), isCloser);
+        }
+
+        //Lowest position among lanes at the minimum
+        double closestCost = minimumCosts.reduceLanes(VectorOperators.MIN);
+        int closestPosition = (int) minimumPositions.reduceLanes(VectorOperators.MIN, minimumCosts.eq(closestCost));
+
+        //Tail positions are higher than any lane position, so strict comparison keeps lowest position on ties
+        for (int position = vectorCount; position < sites.length; position++) {
+            double cost = graphArray[rowOffset + sites[position]];
+            if (cost < closestCost) {
+                closestCost = cost;
+                closestPosition = position;
+            }
+        }
+        return closestPosition;
+    }
+
+    //Sweeps one contiguous origin run per site, comparing a lane of adjacent origins per step. Positions are kept as doubles in positionScratchByOrigin while sweeping,
+    //as converting masks between double and int lanes is not intrinsified on common hardware.
+    public void findClosestSites(double[] siteMajorGraphArray, int originCount, int[] sites, int startingOrigin, int endingOrigin, int[] positionByOrigin, double[] costByOrigin, double[] positionScratchByOrigin) {
+        int laneCount = COST_SPECIES.length();
+        int vectorEndingOrigin = endingOrigin - (endingOrigin - startingOrigin) % laneCount;
+        System.arraycopy(siteMajorGraphArray, sites[0] * originCount + startingOrigin, costByOrigin, startingOrigin, endingOrigin - startingOrigin);
+        Arrays.fill(positionScratchByOrigin, startingOrigin, endingOrigin, 0);
+        for (int position = 1; position < sites.length; position++) {
+            int siteOffset = sites[position] * originCount;
+            DoubleVector positions = DoubleVector.broadcast(COST_SPECIES, position);
+            for (int origin = startingOrigin; origin < vectorEndingOrigin; origin += laneCount) {
+                DoubleVector costs = DoubleVector.fromArray(COST_SPECIES, siteMajorGraphArray, siteOffset + origin);
+                DoubleVector closestCosts = DoubleVector.fromArray(COST_SPECIES, costByOrigin, origin);
+                VectorMask<Double> isCloser = costs.lt(closestCosts); //strict, so ties keep the lower position
+                closestCosts.blend(costs, isCloser).intoArray(costByOrigin, origin);
+                DoubleVector.fromArray(COST_SPECIES, positionScratchByOrigin, origin).blend(positions, isCloser).intoArray(positionScratchByOrigin, origin);
+            }
+            for (int origin = vectorEndingOrigin; origin < endingOrigin; origin++) {
+                double cost = siteMajorGraphArray[siteOffset + origin];
+                if (cost < costByOrigin[origin]) {
+                    costByOrigin[origin] = cost;
+                    positionScratchByOrigin[origin] = position;
+                }
+            }
+        }
+        for (int origin = startingOrigin; origin < endingOrigin; origin++) {
+            positionByOrigin[origin] = (int) positionScratchByOrigin[origin];
+        }
+    }
+}